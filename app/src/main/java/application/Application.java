@@ -21,42 +21,239 @@
 package application;
 
 import database.Database;
+import database.LazyPokemonStore;
+import database.SchemaMigrator;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import pokeapi.PokeApiFetcher;
+import pokedex.IndexSidecar;
+import pokedex.IndexSidecar.LoadResult;
+import pokedex.Pokedex;
+import pokedex.PokedexHolder;
+import pokedex.PokedexReloader;
+import pokedex.Pokemon;
+import snapshot.DatasetFormat;
+import snapshot.PokedexSnapshot;
 import util.Pair;
 
 /**
  * This class is intended to simulate the Android application on
  * an initial run. It will create the database, and populate the
  * database.
+ *
+ * <p>By default the Pokedex is populated lazily: Pokemon looked up (given as arguments, by id or
+ * name) are fetched on demand, and a background filler downloads the rest. With --eager the whole
+ * Pokedex is downloaded before anything else, as before.
+ *
+ * <p>Once the Pokedex is complete it is also written to pokedex.bin, and later runs answer lookups
+ * straight from that memory-mapped snapshot for as long as pokedex.db hasn't changed since (a
+ * patch applied by PatchTool, say, sends them back to the database). The search indexes are
+ * persisted in pokedex.idx, so a name that needs a typo-tolerant search doesn't rebuild them
+ * either. A new install with a bundled dataset (pokedex.pdx) is seeded from it instead of from
+ * the network.
+ *
+ * <p>With --watch the application keeps running afterwards, looking up the ids or names read from
+ * standard input. A new pokedex.bin or pokedex.db (or the line "reload") reloads the Pokedex in
+ * the background and swaps it in without a restart.
  */
 public class Application {
+  public static final String EAGER_FLAG = "--eager";
+  public static final String WATCH_FLAG = "--watch";
+
   /**
    * Runs the program (meant to simulate the Android application).
-   * @param args no arguments needed
+   * @param args optionally --eager and/or --watch, followed by ids or names of Pokemon to look up
    */
   public static void main(String[] args) {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    boolean watch = arguments.remove(WATCH_FLAG);
+    args = arguments.toArray(new String[arguments.size()]);
+    boolean eager = args.length > 0 && EAGER_FLAG.equals(args[0]);
     Connection connection = null;
     try {
+      if (hasCurrentSnapshot()) {
+        lookUpInSnapshot(PokedexSnapshot.open(new File(PokedexSnapshot.SNAPSHOT_FILE)), args);
+        if (watch) {
+          serve(null);
+        }
+        return;
+      }
+      boolean seed = false;
       if (hasPokedex()) {
-        connection = Database.getConnection(connection);
-        System.out.println("Pokedex is ready.");
+        connection = Database.getConnection();
+        // Upgrades the schema of a database made by an older version in place
+        for (SchemaMigrator.Migration migration : Database.defineSchema(connection)) {
+          System.out.println("Upgraded the database schema to " + migration);
+        }
+      } else if (hasDataset()) {
+        connection = Database.createDatabase();
+        seed = true;
       } else {
         connection = Database.createDatabase();
         List<Pair<Integer, String>> types = PokeApiFetcher.getTypes();
         Database.populateTypesTable(connection, types);
-        Database.populatePokemonTable(connection);
+        if (eager) {
+          Database.populateTypeEfficacyTable(connection, PokeApiFetcher.getTypeChart(types));
+          Database.populatePokemonTable(connection);
+        }
+      }
+      LazyPokemonStore store = new LazyPokemonStore(connection);
+      if (seed) {
+        // Seeds the database from the bundled dataset; the filler fetches anything it lacks
+        try (InputStream input = new FileInputStream(DatasetFormat.DATASET_FILE)) {
+          System.out.println("Imported " + store.importDataset(input) + " Pokemon from "
+              + DatasetFormat.DATASET_FILE);
+        }
+      }
+      if (!eager) {
+        store.startFiller();
+      }
+      System.out.println("Pokedex is ready.");
+      for (int index = eager ? 1 : 0; index < args.length; index++) {
+        Pokemon pokemon = isId(args[index]) ? store.getPokemon(Integer.parseInt(args[index]))
+            : store.getPokemon(args[index]);
+        System.out.println(pokemon == null ? "No Pokemon found for " + args[index] : pokemon);
       }
-    } catch (SQLException e) {
+      // Lets the filler finish the Pokedex before the simulated app exits
+      store.awaitFiller(0);
+      // Stamped before reading, so a write in between only makes the snapshot look stale
+      long sourceStamp = PokedexSnapshot.sourceStamp(new File(Database.DATABASE_FILE));
+      List<Pokemon> pokemon = Database.getAllPokemon(connection);
+      int count = PokeApiFetcher.getNumPokemon();
+      if (count > 0 && Database.getPokemonIds(connection).nextClearBit(1) > count) {
+        PokedexSnapshot.write(new File(PokedexSnapshot.SNAPSHOT_FILE), pokemon, sourceStamp);
+      } else {
+        // A snapshot would answer later runs without ever fetching the missing Pokemon
+        System.out.println("The Pokedex is incomplete, so " + PokedexSnapshot.SNAPSHOT_FILE
+            + " was not written.");
+      }
+      // Builds the search indexes once now so that later runs load them from the sidecar
+      System.out.println(IndexSidecar.load(new File(IndexSidecar.SIDECAR_FILE), pokemon));
+      if (watch) {
+        serve(store);
+      }
+    } catch (SQLException | IOException e) {
       System.err.println("Uh-oh! Encountered an error: " + e.getMessage());
+    } catch (InterruptedException e) {
+      System.err.println("Interrupted before the Pokedex was complete.");
     }
   }
  
+  /**
+   * Looks up the Pokemon given as arguments in the snapshot. A name that isn't found is searched
+   * for (allowing typos) in a Pokedex whose indexes are loaded from the sidecar.
+   */
+  private static void lookUpInSnapshot(PokedexSnapshot snapshot, String[] args) {
+    System.out.println("Pokedex is ready.");
+    Pokedex pokedex = null;
+    for (String argument : args) {
+      if (EAGER_FLAG.equals(argument)) {
+        continue;
+      }
+      Pokemon pokemon = isId(argument) ? snapshot.getPokemon(Integer.parseInt(argument))
+          : snapshot.getPokemon(argument);
+      if (pokemon == null && !isId(argument)) {
+        if (pokedex == null) {
+          LoadResult loaded = IndexSidecar.load(new File(IndexSidecar.SIDECAR_FILE),
+              snapshot.toPokemon());
+          System.out.println(loaded);
+          pokedex = loaded.getPokedex();
+        }
+        List<Pokemon> matches = pokedex.searchName(argument, 1);
+        if (!matches.isEmpty()) {
+          System.out.println("Did you mean " + matches.get(0) + "?");
+          pokemon = matches.get(0);
+        }
+      }
+      System.out.println(pokemon == null ? "No Pokemon found for " + argument : pokemon);
+    }
+  }
+
+  /**
+   * Looks up the ids or names read from standard input in the current Pokedex until the input
+   * ends, reloading the Pokedex whenever pokedex.bin or pokedex.db changes or "reload" is read.
+   * Each reload also empties the cache of the store, if there is one.
+   */
+  private static void serve(final LazyPokemonStore store) throws IOException, SQLException {
+    final File snapshotFile = new File(PokedexSnapshot.SNAPSHOT_FILE);
+    File databaseFile = new File(Database.DATABASE_FILE);
+    PokedexHolder holder = new PokedexHolder(loadPokedex(hasCurrentSnapshot() ? snapshotFile
+        : databaseFile));
+    PokedexReloader.Loader loader = new PokedexReloader.Loader() {
+      @Override
+      public Pokedex load(File file) throws IOException, SQLException {
+        if (store != null) {
+          // The database may have been changed by another process, e.g. patched by PatchTool
+          store.invalidateCache();
+        }
+        return loadPokedex(file);
+      }
+    };
+    try (PokedexReloader reloader = new PokedexReloader(holder, loader, snapshotFile,
+        databaseFile)) {
+      reloader.startWatching();
+      BufferedReader input = new BufferedReader(new InputStreamReader(System.in,
+          StandardCharsets.UTF_8));
+      System.out.println("Watching " + snapshotFile + " and " + databaseFile + " for changes.");
+      for (String line = input.readLine(); line != null; line = input.readLine()) {
+        line = line.trim();
+        if (line.equals("reload")) {
+          try {
+            Pokedex pokedex = reloader.reload(hasCurrentSnapshot() ? snapshotFile : databaseFile)
+                .get();
+            System.out.println("Reloaded " + pokedex.size() + " Pokemon in "
+                + reloader.getLastReloadMillis() + " ms");
+          } catch (ExecutionException exception) {
+            System.err.println("Uh-oh! Could not reload the Pokedex: " + exception.getCause());
+          } catch (InterruptedException exception) {
+            return;
+          }
+        } else if (!line.isEmpty()) {
+          // Each lookup uses whichever Pokedex is current when it starts
+          Pokedex pokedex = holder.getPokedex();
+          int ordinal = isId(line) ? pokedex.ordinalOf(Integer.parseInt(line))
+              : pokedex.getNameIndex().ordinalOf(line);
+          Pokemon pokemon = ordinal == Pokedex.NOT_FOUND ? null : pokedex.getByOrdinal(ordinal);
+          System.out.println(pokemon == null ? "No Pokemon found for " + line : pokemon);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a Pokedex of the Pokemon in pokedex.bin or in a database file, with its indexes
+   * loaded from the sidecar when it is up to date.
+   */
+  private static Pokedex loadPokedex(File file) throws IOException, SQLException {
+    List<Pokemon> pokemon;
+    if (file.getName().equals(PokedexSnapshot.SNAPSHOT_FILE)) {
+      pokemon = PokedexSnapshot.open(file).toPokemon();
+    } else {
+      try (Connection connection = Database.getConnection(file)) {
+        pokemon = Database.getAllPokemon(connection);
+      }
+    }
+    return IndexSidecar.load(new File(file.getAbsoluteFile().getParentFile(),
+        IndexSidecar.SIDECAR_FILE), pokemon).getPokedex();
+  }
+
+  private static boolean isId(String argument) {
+    return argument.matches("\\d+");
+  }
+
   /**
    * Returns whether or not pokedex.db exists.
    * @return whether or not pokedex.db exists
@@ -65,4 +262,40 @@ public class Application {
     File file = new File(Database.DATABASE_FILE);
     return file.exists();
   }
+
+  /**
+   * Returns whether or not a bundled dataset (pokedex.pdx) exists.
+   * @return whether or not pokedex.pdx exists
+   */
+  public static boolean hasDataset() {
+    return new File(DatasetFormat.DATASET_FILE).exists();
+  }
+
+  /**
+   * Returns whether or not pokedex.bin exists.
+   * @return whether or not pokedex.bin exists
+   */
+  public static boolean hasSnapshot() {
+    return new File(PokedexSnapshot.SNAPSHOT_FILE).exists();
+  }
+
+  /**
+   * Returns whether or not pokedex.bin exists and can be used: it was written from the current
+   * pokedex.db, or there is no pokedex.db to fall back to.
+   * @return whether or not pokedex.bin is up to date
+   */
+  public static boolean hasCurrentSnapshot() {
+    if (!hasSnapshot()) {
+      return false;
+    } else if (!hasPokedex()) {
+      return true;
+    }
+    try {
+      return PokedexSnapshot.open(new File(PokedexSnapshot.SNAPSHOT_FILE))
+          .isFrom(new File(Database.DATABASE_FILE));
+    } catch (IOException exception) {
+      // An unreadable snapshot (or one of an older version) is written again from the database
+      return false;
+    }
+  }
 }
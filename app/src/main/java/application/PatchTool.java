@@ -0,0 +1,160 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package application;
+
+import database.Database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import snapshot.Dataset;
+import snapshot.DatasetFormat;
+import snapshot.DatasetPatch;
+
+/**
+ * A command line tool for making and applying dataset patches, so an install can be brought up to
+ * date by shipping only what changed instead of a whole new pokedex.db or pokedex.pdx.
+ *
+ * <pre>
+ *   PatchTool diff &lt;base&gt; &lt;target&gt; &lt;patch&gt;
+ *   PatchTool apply &lt;patch&gt; &lt;file&gt;
+ * </pre>
+ *
+ * <p>Each base, target and file can be either a SQLite database (such as pokedex.db) or a dataset
+ * (such as pokedex.pdx). A patch applied to a database is applied in a single transaction; one
+ * applied to a dataset replaces the file atomically.
+ */
+public class PatchTool {
+  // The first 16 bytes of every SQLite database file
+  private static final byte[] SQLITE_MAGIC = "SQLite format 3\0".getBytes(
+      StandardCharsets.US_ASCII);
+
+  /**
+   * Runs the tool.
+   * @param args diff base target patch, or apply patch file
+   */
+  public static void main(String[] args) {
+    try {
+      if (args.length == 4 && args[0].equals("diff")) {
+        DatasetPatch patch = DatasetPatch.diff(readDataset(new File(args[1])),
+            readDataset(new File(args[2])));
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(args[3]))) {
+          patch.write(output, true);
+        }
+        System.out.println(patch + ", " + new File(args[3]).length() + " bytes");
+      } else if (args.length == 3 && args[0].equals("apply")) {
+        DatasetPatch patch;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(args[1]))) {
+          patch = DatasetPatch.read(input);
+        }
+        applyPatch(patch, new File(args[2]));
+        System.out.println("Applied " + patch);
+      } else {
+        System.err.println("Usage: PatchTool diff <base> <target> <patch>");
+        System.err.println("       PatchTool apply <patch> <file>");
+        System.exit(2);
+      }
+    } catch (IOException | SQLException | RuntimeException exception) {
+      System.err.println("Error: " + exception.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Reads a dataset from a SQLite database or a dataset file.
+   * @param file the file to read
+   * @return the dataset in the file
+   * @throws IOException if the file cannot be read
+   * @throws SQLException if the database cannot be read
+   */
+  public static Dataset readDataset(File file) throws IOException, SQLException {
+    if (isDatabase(file)) {
+      try (Connection connection = Database.getConnection(file)) {
+        return Database.getDataset(connection);
+      }
+    }
+    try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+      return Dataset.read(input);
+    }
+  }
+
+  /**
+   * Applies a patch to a SQLite database or a dataset file.
+   * @param patch the patch to apply
+   * @param file the file to patch
+   * @throws IOException if the file cannot be read or written
+   * @throws SQLException if the database cannot be read or written
+   */
+  public static void applyPatch(DatasetPatch patch, File file) throws IOException, SQLException {
+    if (isDatabase(file)) {
+      try (Connection connection = Database.getConnection(file)) {
+        Database.applyPatch(connection, patch);
+      }
+      return;
+    }
+    Dataset target = patch.apply(readDataset(file));
+    File temp = new File(file.getPath() + ".tmp");
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temp))) {
+      target.write(output, isDeflated(file));
+    }
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Returns whether or not the file starts with the SQLite header.
+   */
+  private static boolean isDatabase(File file) throws IOException {
+    byte[] header = new byte[SQLITE_MAGIC.length];
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      input.readFully(header);
+    } catch (EOFException exception) {
+      return false;
+    }
+    return Arrays.equals(header, SQLITE_MAGIC);
+  }
+
+  /**
+   * Returns whether or not the dataset file is compressed, so a patched copy keeps its format.
+   */
+  private static boolean isDeflated(File file) throws IOException {
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      input.readInt();
+      input.readUnsignedByte();
+      return (input.readUnsignedByte() & DatasetFormat.FLAG_DEFLATE) != 0;
+    }
+  }
+}
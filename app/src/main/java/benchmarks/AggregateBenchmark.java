@@ -0,0 +1,86 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.BitSet;
+import java.util.List;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.StatAggregates;
+import pokedex.StatColumn;
+import pokedex.StatColumns;
+
+/**
+ * Times building the per-type StatAggregates from scratch against updating them after a single
+ * Pokemon changes, for Pokedexes of increasing size.
+ */
+public class AggregateBenchmark {
+  private static final int[] SIZES = {1000, 10000, 100000, 1000000};
+  private static final int RUNS = 10;
+  // Keeps the JIT from removing the work being measured
+  private static long blackhole;
+
+  /**
+   * Runs the benchmark and prints the average time to build and to update the aggregates.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) {
+    System.out.println(String.format("%10s %14s %14s", "size", "build (ms)", "update (us)"));
+    for (int size : SIZES) {
+      Pokedex pokedex = SyntheticPokedex.generatePokedex(size, size);
+      List<Pokemon> pokemon = pokedex.getPokedex();
+      StatColumns statColumns = pokedex.getStatColumns();
+      // Warms up the build before measuring it
+      build(pokemon, statColumns);
+      long start = System.nanoTime();
+      build(pokemon, statColumns);
+      double buildMillis = (System.nanoTime() - start) / 1e6 / RUNS;
+
+      long updateNanos = 0;
+      for (int run = 0; run < RUNS; run++) {
+        Pokemon changed = pokemon.get(run);
+        Pokedex next = new PokedexBuilder(pokedex).addPokemon(new Pokemon.PokemonBuilder(
+            changed.getId()).setName(changed.getName()).setSpeed(changed.getSpeed() + 1)
+            .setTypes(changed.getTypes()).build()).build();
+        // The snapshot build includes the update, so time the update on its own
+        StatAggregates aggregates = pokedex.getStatAggregates();
+        BitSet ordinals = new BitSet();
+        ordinals.set(run);
+        start = System.nanoTime();
+        aggregates = aggregates.update(pokemon, next.getPokedex(), ordinals);
+        updateNanos += System.nanoTime() - start;
+        blackhole += aggregates.getDistribution(StatColumn.SPEED).getSum();
+      }
+      System.out.println(String.format("%10d %14.2f %14.2f", size, buildMillis,
+          updateNanos / 1e3 / RUNS));
+    }
+    System.out.println(blackhole == 0 ? "" : "Done.");
+  }
+
+  private static void build(List<Pokemon> pokemon, StatColumns statColumns) {
+    for (int run = 0; run < RUNS; run++) {
+      blackhole += new StatAggregates(pokemon, statColumns).getDistribution(StatColumn.HP)
+          .getCount();
+    }
+  }
+}
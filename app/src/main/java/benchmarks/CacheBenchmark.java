@@ -0,0 +1,120 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import util.WTinyLfuCache;
+
+/**
+ * Compares the hit rate of the WTinyLfuCache against a plain LRU cache on a skewed (Zipf-like)
+ * trace of Pokemon lookups, with and without bursts of one-off lookups (e.g. someone paging
+ * through the whole dex).
+ */
+public class CacheBenchmark {
+  private static final int NUM_POKEMON = 10000;
+  private static final int[] CAPACITIES = {100, 500, 1000};
+  private static final int LOOKUPS = 1000000;
+  private static final double SKEW = 0.9;
+  // Every this many lookups, a burst of lookups of consecutive ids
+  private static final int SCAN_EVERY = 50000;
+  private static final int SCAN_LENGTH = 5000;
+
+  /**
+   * Runs the benchmark and prints the hit rate of both caches for each capacity.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) {
+    System.out.println(String.format("%10s %8s %10s %10s", "capacity", "scans", "LRU",
+        "W-TinyLFU"));
+    for (boolean scans : new boolean[] {false, true}) {
+      int[] trace = trace(scans, new Random(39));
+      for (int capacity : CAPACITIES) {
+        System.out.println(String.format("%10d %8s %10.3f %10.3f", capacity, scans,
+            lruHitRate(trace, capacity), tinyLfuHitRate(trace, capacity)));
+      }
+    }
+  }
+
+  private static int[] trace(boolean scans, Random random) {
+    // The cumulative probability of each id, with id 1 the most popular
+    double[] cumulative = new double[NUM_POKEMON];
+    double total = 0;
+    for (int index = 0; index < NUM_POKEMON; index++) {
+      total += 1 / Math.pow(index + 1, SKEW);
+      cumulative[index] = total;
+    }
+    int[] trace = new int[LOOKUPS];
+    int scanStart = 0;
+    for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+      int inScan = lookup % SCAN_EVERY;
+      if (scans && inScan < SCAN_LENGTH) {
+        if (inScan == 0) {
+          scanStart = random.nextInt(NUM_POKEMON - SCAN_LENGTH);
+        }
+        trace[lookup] = scanStart + inScan + 1;
+        continue;
+      }
+      int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+      trace[lookup] = (index >= 0 ? index : -index - 1) + 1;
+    }
+    return trace;
+  }
+
+  private static double lruHitRate(int[] trace, final int capacity) {
+    Map<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(capacity, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+        return size() > capacity;
+      }
+    };
+    int hits = 0;
+    for (int id : trace) {
+      if (lru.get(id) != null) {
+        hits++;
+      } else {
+        lru.put(id, id);
+      }
+    }
+    return (double) hits / trace.length;
+  }
+
+  private static double tinyLfuHitRate(int[] trace, int capacity) {
+    WTinyLfuCache<Integer, Integer> cache = new WTinyLfuCache<>(capacity, capacity,
+        new WTinyLfuCache.Weigher<Integer, Integer>() {
+          @Override
+          public int weigh(Integer key, Integer value) {
+            return 1;
+          }
+        });
+    for (int id : trace) {
+      if (cache.getIfPresent(id) == null) {
+        cache.put(id, id);
+      }
+    }
+    return cache.stats().getHitRate();
+  }
+}
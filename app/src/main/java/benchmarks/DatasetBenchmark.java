@@ -0,0 +1,132 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.TypeChart;
+import snapshot.DatasetReader;
+import snapshot.DatasetWriter;
+import util.Pair;
+
+/**
+ * Measures the size of an exported dataset and how long writing and reading it takes, with and
+ * without DEFLATE. The Pokemon are synthetic but have about as many abilities and moves (from
+ * about as many distinct ones) as the real Pokedex.
+ */
+public class DatasetBenchmark {
+  private static final int[] SIZES = {811, 10000};
+  private static final int NUM_TYPES = 18;
+  private static final int NUM_ABILITIES = 250;
+  private static final int NUM_MOVES = 700;
+  private static final int ABILITIES_PER_POKEMON = 3;
+  private static final int MOVES_PER_POKEMON = 60;
+  private static final int ROUNDS = 10;
+
+  /**
+   * Runs the benchmark and prints the size, write and read times of each dataset.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) throws IOException {
+    System.out.println(String.format("%8s %8s %10s %10s %10s", "size", "deflate", "KB",
+        "write ms", "read ms"));
+    for (int size : SIZES) {
+      List<Pokemon> pokemon = generate(size, new Random(44));
+      for (boolean deflate : new boolean[] {false, true}) {
+        byte[] dataset = null;
+        long writeNanos = Long.MAX_VALUE;
+        long readNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+          long start = System.nanoTime();
+          dataset = write(pokemon, deflate);
+          writeNanos = Math.min(writeNanos, System.nanoTime() - start);
+          start = System.nanoTime();
+          int read = read(dataset);
+          readNanos = Math.min(readNanos, System.nanoTime() - start);
+          if (read != size) {
+            throw new IllegalStateException("Read " + read + " of " + size + " Pokemon");
+          }
+        }
+        System.out.println(String.format("%8d %8s %10.1f %10.2f %10.2f", size, deflate,
+            dataset.length / 1024.0, writeNanos / 1e6, readNanos / 1e6));
+      }
+    }
+  }
+
+  private static List<Pokemon> generate(int size, Random random) {
+    List<Pokemon> pokemon = new ArrayList<>(size);
+    for (Pokemon next : SyntheticPokedex.generate(size, 44)) {
+      List<String> abilities = new ArrayList<>();
+      for (int index = 0; index < ABILITIES_PER_POKEMON; index++) {
+        abilities.add("ability-" + random.nextInt(NUM_ABILITIES));
+      }
+      List<String> moves = new ArrayList<>();
+      for (int index = 0; index < MOVES_PER_POKEMON; index++) {
+        moves.add("move-" + random.nextInt(NUM_MOVES));
+      }
+      pokemon.add(new PokemonBuilder(next.getId()).setName(next.getName())
+          .setHp(next.getHp()).setAttack(next.getAttack()).setDefense(next.getDefense())
+          .setSpecialAttack(next.getSpecialAttack()).setSpecialDefense(next.getSpecialDefense())
+          .setSpeed(next.getSpeed()).setBaseExperience(next.getBaseExperience())
+          .setHeightDecimetres(next.getHeightDecimetres())
+          .setWeightHectograms(next.getWeightHectograms()).setTypes(next.getTypes())
+          .setAbilities(abilities).setMoves(moves).build());
+    }
+    return pokemon;
+  }
+
+  private static byte[] write(List<Pokemon> pokemon, boolean deflate) throws IOException {
+    List<Pair<Integer, String>> types = new ArrayList<>();
+    for (int typeId = 1; typeId <= NUM_TYPES; typeId++) {
+      types.add(new PokemonTypePair<Integer, String>(typeId, "type-" + typeId));
+    }
+    TypeChart chart = SyntheticPokedex.generateTypeChart(44);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (DatasetWriter writer = new DatasetWriter(output, deflate)) {
+      writer.writeTypes(types);
+      writer.writeTypeChart(chart);
+      for (Pokemon next : pokemon) {
+        writer.writePokemon(next);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  private static int read(byte[] dataset) throws IOException {
+    int count = 0;
+    try (DatasetReader reader = new DatasetReader(new ByteArrayInputStream(dataset))) {
+      reader.readTypes();
+      reader.readTypeChart();
+      while (reader.readPokemon() != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import pokeapi.FetchPriority;
+import pokeapi.FetchScheduler;
+import pokedex.Pokemon;
+
+/**
+ * Measures how long user lookups take while a full sync is queued behind them, with lookups
+ * submitted as interactive fetches and, for comparison, queued in order with the sync (as if
+ * there were a single FIFO queue). The PokeAPI is simulated by a fetcher that sleeps.
+ */
+public class FetchSchedulerBenchmark {
+  private static final int CONCURRENCY = 4;
+  private static final long FETCH_MILLIS = 20;
+  private static final int BULK_FETCHES = 800;
+  private static final int LOOKUPS = 50;
+  private static final long LOOKUP_EVERY_MILLIS = 40;
+
+  /**
+   * Runs the benchmark and prints the lookup latencies with and without priorities.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) throws Exception {
+    System.out.println(String.format("%12s %10s %10s %10s", "lookups", "p50 ms", "p99 ms",
+        "max ms"));
+    print("interactive", run(FetchPriority.INTERACTIVE));
+    print("fifo", run(FetchPriority.BULK));
+  }
+
+  private static long[] run(FetchPriority lookupPriority) throws Exception {
+    FetchScheduler scheduler = new FetchScheduler(CONCURRENCY, new FetchScheduler.Fetcher() {
+      @Override
+      public Pokemon fetch(int id) {
+        try {
+          Thread.sleep(FETCH_MILLIS);
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        return new Pokemon.PokemonBuilder(id).build();
+      }
+    });
+    for (int id = 1; id <= BULK_FETCHES; id++) {
+      scheduler.submit(id, FetchPriority.BULK);
+    }
+    long[] latencies = new long[LOOKUPS];
+    for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+      long start = System.nanoTime();
+      Future<Pokemon> fetch = scheduler.submit(BULK_FETCHES + lookup + 1, lookupPriority);
+      fetch.get();
+      latencies[lookup] = (System.nanoTime() - start) / 1000000;
+      Thread.sleep(LOOKUP_EVERY_MILLIS);
+    }
+    scheduler.shutdown();
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static void print(String name, long[] latencies) {
+    System.out.println(String.format("%12s %10d %10d %10d", name,
+        latencies[latencies.length / 2], latencies[(latencies.length * 99 - 1) / 100],
+        latencies[latencies.length - 1]));
+  }
+}
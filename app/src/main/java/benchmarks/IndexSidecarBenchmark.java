@@ -0,0 +1,70 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import pokedex.IndexSidecar;
+import pokedex.IndexSidecar.LoadResult;
+import pokedex.Pokemon;
+
+/**
+ * Compares building a Pokedex's indexes against loading them from a sidecar, for Pokedexes of
+ * several sizes.
+ */
+public class IndexSidecarBenchmark {
+  private static final int[] SIZES = {1000, 10000, 100000};
+  private static final int ROUNDS = 5;
+
+  /**
+   * Runs the benchmark and prints the best build and load times for each size.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) throws IOException {
+    System.out.println(String.format("%8s %10s %10s %10s", "size", "file KB", "build ms",
+        "load ms"));
+    File file = File.createTempFile("pokedex", ".idx");
+    try {
+      for (int size : SIZES) {
+        List<Pokemon> pokemon = SyntheticPokedex.generate(size, 42);
+        double build = Double.MAX_VALUE;
+        double load = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+          // A sidecar that does not match forces a rebuild (which rewrites it)
+          file.delete();
+          LoadResult rebuilt = IndexSidecar.load(file, pokemon);
+          build = Math.min(build, rebuilt.getBuildMillis());
+          LoadResult loaded = IndexSidecar.load(file, pokemon);
+          if (!loaded.isLoaded()) {
+            throw new IllegalStateException(loaded.toString());
+          }
+          load = Math.min(load, loaded.getElapsedMillis());
+        }
+        System.out.println(String.format("%8d %10d %10.1f %10.1f", size, file.length() / 1024,
+            build, load));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import pokedex.BruteForceNeighbours;
+import pokedex.Pokemon;
+import pokedex.StatColumns;
+import pokedex.StatKdTree;
+
+/**
+ * Compares k nearest neighbour searches over the base stats with the StatKdTree against the
+ * brute force search, for Pokedexes of increasing size.
+ */
+public class NeighbourBenchmark {
+  private static final int[] SIZES = {1000, 10000, 100000, 1000000};
+  private static final int K = 10;
+  private static final int QUERIES = 200;
+  // The brute force search is slow enough on large sizes that fewer queries are measured
+  private static final int BRUTE_FORCE_QUERIES = 10;
+  // Keeps the JIT from removing the work being measured
+  private static long blackhole;
+
+  /**
+   * Runs the benchmark and prints the build time and the average time per query for each size.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) {
+    System.out.println(String.format("%10s %12s %14s %14s", "size", "build (ms)", "k-d tree (us)",
+        "brute (us)"));
+    for (int size : SIZES) {
+      List<Pokemon> pokemon = SyntheticPokedex.generate(size, size);
+      StatColumns statColumns = new StatColumns(pokemon);
+      long start = System.nanoTime();
+      StatKdTree tree = new StatKdTree(statColumns);
+      long buildMillis = (System.nanoTime() - start) / 1000000;
+      int[][] targets = randomTargets(new Random(size));
+
+      // Warms up both searches before measuring them
+      runTree(tree, targets);
+      int[][] bruteForceTargets = Arrays.copyOf(targets, BRUTE_FORCE_QUERIES);
+      runBruteForce(statColumns, bruteForceTargets);
+      start = System.nanoTime();
+      runTree(tree, targets);
+      long treeMicros = (System.nanoTime() - start) / QUERIES / 1000;
+      start = System.nanoTime();
+      runBruteForce(statColumns, bruteForceTargets);
+      long bruteMicros = (System.nanoTime() - start) / BRUTE_FORCE_QUERIES / 1000;
+      System.out.println(String.format("%10d %12d %14d %14d", size, buildMillis, treeMicros,
+          bruteMicros));
+    }
+    System.out.println(blackhole == 0 ? "" : "Done.");
+  }
+
+  private static void runTree(StatKdTree tree, int[][] targets) {
+    for (int[] target : targets) {
+      blackhole += tree.nearest(target, K, null, null).get(0).getOrdinal();
+    }
+  }
+
+  private static void runBruteForce(StatColumns statColumns, int[][] targets) {
+    for (int[] target : targets) {
+      blackhole += BruteForceNeighbours.nearest(statColumns, target, K, null, null).get(0)
+          .getOrdinal();
+    }
+  }
+
+  private static int[][] randomTargets(Random random) {
+    int[][] targets = new int[QUERIES][StatKdTree.DIMENSIONS];
+    for (int[] target : targets) {
+      for (int axis = 0; axis < target.length; axis++) {
+        target[axis] = random.nextInt(256);
+      }
+    }
+    return targets;
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+import snapshot.PokedexSnapshot;
+
+/**
+ * Compares the time to first lookup of a memory-mapped snapshot against building a Pokedex (and
+ * its indexes) from the same Pokemon, which is the least startup can cost without a snapshot.
+ */
+public class SnapshotBenchmark {
+  private static final int[] SIZES = {1000, 10000, 100000};
+  private static final int LOOKUPS = 1000;
+  private static final int ROUNDS = 5;
+
+  /**
+   * Runs the benchmark and prints the startup times for each size.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) throws IOException {
+    System.out.println(String.format("%8s %10s %12s %12s %12s", "size", "file KB", "write ms",
+        "open ms", "build ms"));
+    File file = File.createTempFile("pokedex", ".bin");
+    try {
+      for (int size : SIZES) {
+        List<Pokemon> pokemon = SyntheticPokedex.generate(size, 42);
+        long writeNanos = Long.MAX_VALUE;
+        long openNanos = Long.MAX_VALUE;
+        long buildNanos = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+          long start = System.nanoTime();
+          PokedexSnapshot.write(file, pokemon);
+          writeNanos = Math.min(writeNanos, System.nanoTime() - start);
+
+          start = System.nanoTime();
+          PokedexSnapshot snapshot = PokedexSnapshot.open(file);
+          checksum += lookups(snapshot, size);
+          openNanos = Math.min(openNanos, System.nanoTime() - start);
+
+          start = System.nanoTime();
+          PokedexBuilder builder = new PokedexBuilder(size);
+          for (Pokemon next : pokemon) {
+            builder.addPokemon(next);
+          }
+          Pokedex pokedex = builder.build();
+          checksum += pokedex.getTop(StatColumn.BASE_STAT_TOTAL, 1).get(0).getId();
+          buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+        }
+        System.out.println(String.format("%8d %10d %12.2f %12.2f %12.2f", size,
+            file.length() / 1024, writeNanos / 1e6, openNanos / 1e6, buildNanos / 1e6));
+        if (checksum == 42) {
+          System.out.println();
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Opening includes the first LOOKUPS lookups by id, by name and of the top Pokemon, so that the
+   * pages they touch are faulted in.
+   */
+  private static long lookups(PokedexSnapshot snapshot, int size) {
+    Random random = new Random(42);
+    long checksum = snapshot.getTop(StatColumn.BASE_STAT_TOTAL, 1).get(0).getId();
+    for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+      Pokemon pokemon = snapshot.getPokemon(1 + random.nextInt(size));
+      checksum += snapshot.ordinalOf(pokemon.getName());
+    }
+    return checksum;
+  }
+}
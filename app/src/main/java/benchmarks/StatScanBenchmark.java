@@ -0,0 +1,140 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import pokedex.Pokedex;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+import pokedex.StatColumns;
+
+/**
+ * Compares answering stat queries by walking the list of Pokemon objects against running the
+ * kernels of StatColumns. The queries are "speed over 100 and special attack over 110",
+ * "sort by base stat total" and "mean attack".
+ */
+public class StatScanBenchmark {
+  private static final int[] SIZES = {1000, 100000, 1000000};
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 20;
+  // Keeps the JIT from removing the work being measured
+  private static long blackhole;
+
+  /**
+   * Runs the benchmark and prints the average time of each query for each Pokedex size.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) {
+    for (int size : SIZES) {
+      Pokedex pokedex = SyntheticPokedex.generatePokedex(size, size);
+      System.out.println("Pokedex of " + size + " Pokemon (microseconds per query)");
+      report("filter, object list", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          return filterObjects(pokedex.getPokedex());
+        }
+      });
+      report("filter, columns", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          StatColumns columns = pokedex.getStatColumns();
+          BitSet matches = columns.filterRange(StatColumn.SPEED, 101, Integer.MAX_VALUE);
+          matches.and(columns.filterRange(StatColumn.SPECIAL_ATTACK, 111, Integer.MAX_VALUE));
+          return matches.cardinality();
+        }
+      });
+      report("sort, object list", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          return sortObjects(pokedex.getPokedex());
+        }
+      });
+      report("sort, columns", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          return pokedex.getStatColumns().sortDescending(StatColumn.BASE_STAT_TOTAL)[0];
+        }
+      });
+      report("mean, object list", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          long sum = 0;
+          for (Pokemon pokemon : pokedex.getPokedex()) {
+            sum += pokemon.getAttack();
+          }
+          return sum / Math.max(1, pokedex.size());
+        }
+      });
+      report("mean, columns", pokedex, new Query() {
+        @Override
+        public long run(Pokedex pokedex) {
+          return (long) pokedex.getStatColumns().mean(StatColumn.ATTACK);
+        }
+      });
+    }
+    System.out.println(blackhole == 0 ? "" : "Done.");
+  }
+
+  /**
+   * A query whose running time is measured.
+   */
+  private interface Query {
+    long run(Pokedex pokedex);
+  }
+
+  private static void report(String name, Pokedex pokedex, Query query) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      blackhole += query.run(pokedex);
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      blackhole += query.run(pokedex);
+    }
+    long micros = (System.nanoTime() - start) / MEASURED_ROUNDS / 1000;
+    System.out.println(String.format("  %-20s %10d", name, micros));
+  }
+
+  private static long filterObjects(List<Pokemon> pokemon) {
+    long matches = 0;
+    for (Pokemon current : pokemon) {
+      if (current.getSpeed() > 100 && current.getSpecialAttack() > 110) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  private static long sortObjects(List<Pokemon> pokemon) {
+    List<Pokemon> sorted = new ArrayList<>(pokemon);
+    Collections.sort(sorted, new Comparator<Pokemon>() {
+      @Override
+      public int compare(Pokemon first, Pokemon second) {
+        return Integer.compare(second.getBaseStatTotal(), first.getBaseStatTotal());
+      }
+    });
+    return sorted.get(0).getId();
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.Stat;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+
+/**
+ * Generates random Pokemon for benchmarks that need more Pokemon than PokeAPI has.
+ */
+public class SyntheticPokedex {
+  private static final int NUM_TYPES = 18;
+  private static final int MIN_STAT = 5;
+  private static final int MAX_STAT = 200;
+  private static final int MAX_NAME_LENGTH = 10;
+  private static final double DUAL_TYPE_CHANCE = 0.5;
+  // Roughly the share of super effective, not very effective and no effect matchups in the games
+  private static final double DOUBLE_DAMAGE_CHANCE = 0.16;
+  private static final double HALF_DAMAGE_CHANCE = 0.18;
+  private static final double NO_DAMAGE_CHANCE = 0.02;
+
+  /**
+   * Returns the given number of random Pokemon with ids 1 to count. The same seed always gives
+   * the same Pokemon.
+   * @param count the number of Pokemon to generate
+   * @param seed the seed of the random number generator
+   * @return the randomly generated Pokemon
+   */
+  public static List<Pokemon> generate(int count, long seed) {
+    Random random = new Random(seed);
+    List<Pokemon> pokemon = new ArrayList<>(count);
+    for (int id = 1; id <= count; id++) {
+      PokemonBuilder builder = new PokemonBuilder(id).setName(randomName(random))
+          .setBaseExperience(random.nextInt(400)).setHeightDecimetres(1 + random.nextInt(100))
+          .setWeightHectograms(1 + random.nextInt(5000));
+      for (Stat stat : Stat.values()) {
+        builder.setStat(stat, MIN_STAT + random.nextInt(MAX_STAT - MIN_STAT));
+      }
+      List<Integer> types = new ArrayList<>();
+      types.add(1 + random.nextInt(NUM_TYPES));
+      int secondType = 1 + random.nextInt(NUM_TYPES);
+      if (random.nextDouble() < DUAL_TYPE_CHANCE && secondType != types.get(0)) {
+        types.add(secondType);
+      }
+      pokemon.add(builder.setTypes(types).build());
+    }
+    return pokemon;
+  }
+
+  /**
+   * Returns a Pokedex of the given number of random Pokemon.
+   * @param count the number of Pokemon to generate
+   * @param seed the seed of the random number generator
+   * @return a Pokedex of randomly generated Pokemon
+   */
+  public static Pokedex generatePokedex(int count, long seed) {
+    PokedexBuilder builder = new PokedexBuilder(count);
+    for (Pokemon pokemon : generate(count, seed)) {
+      builder.addPokemon(pokemon);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns a random damage chart between the type ids the generated Pokemon have. The same seed
+   * always gives the same chart.
+   * @param seed the seed of the random number generator
+   * @return a randomly generated damage chart
+   */
+  public static TypeChart generateTypeChart(long seed) {
+    Random random = new Random(seed);
+    TypeChartBuilder chart = new TypeChartBuilder();
+    for (int attacking = 1; attacking <= NUM_TYPES; attacking++) {
+      for (int defending = 1; defending <= NUM_TYPES; defending++) {
+        double roll = random.nextDouble();
+        if (roll < NO_DAMAGE_CHANCE) {
+          chart.setDamage(attacking, defending, 0);
+        } else if (roll < NO_DAMAGE_CHANCE + HALF_DAMAGE_CHANCE) {
+          chart.setDamage(attacking, defending, 50);
+        } else if (roll < NO_DAMAGE_CHANCE + HALF_DAMAGE_CHANCE + DOUBLE_DAMAGE_CHANCE) {
+          chart.setDamage(attacking, defending, 200);
+        } else {
+          chart.setDamage(attacking, defending, 100);
+        }
+      }
+    }
+    return chart.build();
+  }
+
+  private static String randomName(Random random) {
+    int length = 3 + random.nextInt(MAX_NAME_LENGTH - 2);
+    StringBuilder name = new StringBuilder(length);
+    for (int index = 0; index < length; index++) {
+      name.append((char) ('a' + random.nextInt(26)));
+    }
+    return name.toString();
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package benchmarks;
+
+import pokedex.Pokedex;
+import pokedex.TypeChart;
+import team.TeamConstraints;
+import team.TeamConstraints.TeamConstraintsBuilder;
+import team.TeamOptimizer;
+import team.TeamSearchResult;
+
+/**
+ * Times team coverage searches over synthetic Pokedexes and type charts, with and without
+ * constraints.
+ */
+public class TeamOptimizerBenchmark {
+  private static final int[] SIZES = {800, 10000, 100000};
+  private static final int TEAM_SIZE = 6;
+  private static final int CHARTS = 20;
+  private static final long TIME_BUDGET_MILLIS = 10000;
+
+  /**
+   * Runs the benchmark and prints the average search time, team size and partial teams looked
+   * at for each Pokedex size.
+   * @param args no arguments needed
+   */
+  public static void main(String[] args) {
+    System.out.println(String.format("%8s %12s %10s %14s %14s", "size", "constraints",
+        "team size", "time (ms)", "nodes"));
+    for (int size : SIZES) {
+      Pokedex pokedex = SyntheticPokedex.generatePokedex(size, size);
+      run(pokedex, size, new TeamConstraintsBuilder(TEAM_SIZE)
+          .setTimeBudgetMillis(TIME_BUDGET_MILLIS).build(), "none");
+      run(pokedex, size, new TeamConstraintsBuilder(TEAM_SIZE).mustInclude(1).exclude(2)
+          .setMaxPerType(1).setTimeBudgetMillis(TIME_BUDGET_MILLIS).build(), "all");
+    }
+  }
+
+  private static void run(Pokedex pokedex, int size, TeamConstraints constraints, String name) {
+    // Warms up the search before measuring it
+    new TeamOptimizer(SyntheticPokedex.generateTypeChart(0), pokedex).optimize(constraints);
+    long nanos = 0;
+    long nodes = 0;
+    int teamSizes = 0;
+    for (int seed = 1; seed <= CHARTS; seed++) {
+      TypeChart chart = SyntheticPokedex.generateTypeChart(seed);
+      TeamOptimizer optimizer = new TeamOptimizer(chart, pokedex);
+      long start = System.nanoTime();
+      TeamSearchResult result = optimizer.optimize(constraints);
+      nanos += System.nanoTime() - start;
+      nodes += result.getNodesVisited();
+      teamSizes += result.getTeamSize();
+    }
+    System.out.println(String.format("%8d %12s %10.1f %14.2f %14d", size, name,
+        (double) teamSizes / CHARTS, nanos / 1e6 / CHARTS, nodes / CHARTS));
+  }
+}
@@ -0,0 +1,492 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of connections to a SQLite database: a number of read connections, and the one write
+ * connection (SQLite allows one writer at a time). In WAL mode the readers query the database in
+ * parallel, and while it is being written.
+ *
+ * <p>A connection handed out is confined to the thread that got it until that thread closes it,
+ * which returns it to the pool; it can be used with the Database methods like any connection.
+ * Each connection caches its prepared statements by SQL, so closing a statement from
+ * prepareStatement(String) only returns it to the cache. Preparing the same SQL again while its
+ * cached statement is still open returns a new statement, which isn't cached. Connections that
+ * have been idle for a while are checked with isValid() before they are handed out, and reopened
+ * if they fail.
+ */
+public class ConnectionPool implements Closeable {
+  public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+  public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+  public static final long DEFAULT_HEALTH_CHECK_MILLIS = 30000;
+  private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 1;
+  // How many recent waits the 99th percentile is taken over
+  private static final int RECENT_WAITS = 1024;
+  private static final double NANOS_PER_MILLI = 1e6;
+  private final ConnectionFactory factory;
+  private final int statementCacheSize;
+  private final long healthCheckNanos;
+  private final Kind readers;
+  private final Kind writer;
+  private volatile boolean closed;
+
+  /**
+   * Opens the connections of a ConnectionPool.
+   */
+  public interface ConnectionFactory {
+    /**
+     * Returns a new connection to the database.
+     * @param write whether the connection is the write connection (or a read connection)
+     * @return a new connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    Connection open(boolean write) throws SQLException;
+  }
+
+  /**
+   * Creates a ConnectionPool of the SQLite database file, putting the database in WAL mode.
+   * @param file the database file
+   * @param readers the number of read connections
+   * @throws SQLException if the connections cannot be opened
+   */
+  public ConnectionPool(final File file, int readers) throws SQLException {
+    this(new ConnectionFactory() {
+      @Override
+      public Connection open(boolean write) throws SQLException {
+        Connection connection = Database.getConnection(file);
+        try (Statement statement = connection.createStatement()) {
+          // WAL mode is kept in the file, so setting it on the write connection (which is opened
+          // first) is enough; the read connections are made unable to write
+          statement.execute(write ? "PRAGMA journal_mode = WAL" : "PRAGMA query_only = ON");
+        }
+        return connection;
+      }
+    }, readers, DEFAULT_STATEMENT_CACHE_SIZE, DEFAULT_HEALTH_CHECK_MILLIS);
+  }
+
+  /**
+   * Creates a ConnectionPool.
+   * @param factory used to open (and reopen) the connections
+   * @param readers the number of read connections
+   * @param statementCacheSize the most prepared statements cached per connection
+   * @param healthCheckMillis how long a connection can be idle before it is checked again
+   * @throws SQLException if the connections cannot be opened
+   */
+  public ConnectionPool(ConnectionFactory factory, int readers, int statementCacheSize,
+      long healthCheckMillis) throws SQLException {
+    if (readers < 1 || statementCacheSize < 0 || healthCheckMillis < 0) {
+      throw new IllegalArgumentException("Invalid pool size, cache size or health check period");
+    }
+    this.factory = factory;
+    this.statementCacheSize = statementCacheSize;
+    this.healthCheckNanos = TimeUnit.MILLISECONDS.toNanos(healthCheckMillis);
+    writer = new Kind(true, 1);
+    this.readers = new Kind(false, readers);
+  }
+
+  /**
+   * Returns a read connection, waiting up to DEFAULT_TIMEOUT_MILLIS for one to be free.
+   * @return a read connection, to be closed to return it to the pool
+   * @throws SQLException if no read connection is free in time, or it cannot be reopened
+   */
+  public Connection getReadConnection() throws SQLException {
+    return readers.acquire(DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Returns a read connection.
+   * @param timeoutMillis the longest to wait for a read connection to be free
+   * @return a read connection, to be closed to return it to the pool
+   * @throws SQLException if no read connection is free in time, or it cannot be reopened
+   */
+  public Connection getReadConnection(long timeoutMillis) throws SQLException {
+    return readers.acquire(timeoutMillis);
+  }
+
+  /**
+   * Returns the write connection, waiting up to DEFAULT_TIMEOUT_MILLIS for it to be free.
+   * @return the write connection, to be closed to return it to the pool
+   * @throws SQLException if the write connection isn't free in time, or it cannot be reopened
+   */
+  public Connection getWriteConnection() throws SQLException {
+    return writer.acquire(DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Returns the write connection.
+   * @param timeoutMillis the longest to wait for the write connection to be free
+   * @return the write connection, to be closed to return it to the pool
+   * @throws SQLException if the write connection isn't free in time, or it cannot be reopened
+   */
+  public Connection getWriteConnection(long timeoutMillis) throws SQLException {
+    return writer.acquire(timeoutMillis);
+  }
+
+  /**
+   * Returns the counters of the read connections.
+   * @return a snapshot of the read connections' counters
+   */
+  public PoolStats getReadStats() {
+    return readers.getStats();
+  }
+
+  /**
+   * Returns the counters of the write connection.
+   * @return a snapshot of the write connection's counters
+   */
+  public PoolStats getWriteStats() {
+    return writer.getStats();
+  }
+
+  /**
+   * Closes the idle connections, and the others as they are returned. No connection can be
+   * acquired afterwards.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    readers.closeIdle();
+    writer.closeIdle();
+  }
+
+  /**
+   * The connections of one kind (read or write) and their counters.
+   */
+  private class Kind {
+    private final boolean write;
+    private final int size;
+    private final ArrayBlockingQueue<Slot> idle;
+    // Guarded by this
+    private long acquired;
+    private long timeouts;
+    private long reconnects;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private final long[] recentWaitNanos = new long[RECENT_WAITS];
+
+    Kind(boolean write, int size) throws SQLException {
+      this.write = write;
+      this.size = size;
+      idle = new ArrayBlockingQueue<>(size);
+      for (int index = 0; index < size; index++) {
+        idle.add(new Slot(this, factory.open(write)));
+      }
+    }
+
+    Connection acquire(long timeoutMillis) throws SQLException {
+      if (closed) {
+        throw new SQLException("The connection pool is closed");
+      }
+      long start = System.nanoTime();
+      Slot slot;
+      try {
+        slot = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a connection", exception);
+      }
+      long wait = System.nanoTime() - start;
+      synchronized (this) {
+        if (slot == null) {
+          timeouts++;
+        } else {
+          recentWaitNanos[(int) (acquired % RECENT_WAITS)] = wait;
+          acquired++;
+          totalWaitNanos += wait;
+          maxWaitNanos = Math.max(maxWaitNanos, wait);
+        }
+      }
+      if (slot == null) {
+        throw new SQLTimeoutException("No " + (write ? "write" : "read")
+            + " connection was free within " + timeoutMillis + " ms");
+      }
+      try {
+        slot.checkHealth();
+      } catch (SQLException | RuntimeException exception) {
+        idle.add(slot);
+        throw exception;
+      }
+      return slot.lease();
+    }
+
+    void release(Slot slot) {
+      if (closed) {
+        slot.closeQuietly();
+      }
+      idle.add(slot);
+    }
+
+    void closeIdle() {
+      for (Slot slot : idle) {
+        slot.closeQuietly();
+      }
+    }
+
+    synchronized void reconnected() {
+      reconnects++;
+    }
+
+    synchronized PoolStats getStats() {
+      double averageWait = acquired == 0 ? 0 : totalWaitNanos / NANOS_PER_MILLI / acquired;
+      double p99Wait = 0;
+      if (acquired > 0) {
+        long[] recent = Arrays.copyOf(recentWaitNanos, (int) Math.min(acquired, RECENT_WAITS));
+        Arrays.sort(recent);
+        p99Wait = recent[(int) Math.ceil(0.99 * recent.length) - 1] / NANOS_PER_MILLI;
+      }
+      return new PoolStats(size, idle.size(), acquired, timeouts, reconnects, averageWait,
+          maxWaitNanos / NANOS_PER_MILLI, p99Wait);
+    }
+  }
+
+  /**
+   * A pooled connection and its cache of prepared statements. Only the thread it is leased to
+   * uses it.
+   */
+  private class Slot {
+    private final Kind kind;
+    private Connection connection;
+    private Map<String, PreparedStatement> statements;
+    // The cached statements handed out and not closed yet
+    private final Set<PreparedStatement> inUse =
+        Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+    private long releasedNanos = System.nanoTime();
+    // Whether the connection failed while being released, so it is checked before its next use
+    private boolean suspect;
+
+    Slot(Kind kind, Connection connection) {
+      this.kind = kind;
+      this.connection = connection;
+      statements = newStatementCache();
+    }
+
+    /**
+     * Reopens the connection if it has been idle for a while and doesn't respond.
+     */
+    void checkHealth() throws SQLException {
+      if (!suspect && System.nanoTime() - releasedNanos < healthCheckNanos) {
+        return;
+      }
+      boolean valid;
+      try {
+        valid = connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+      } catch (SQLException exception) {
+        valid = false;
+      }
+      if (!valid) {
+        closeQuietly();
+        // Stays suspect until it is reopened, so that the closed connection is never handed out
+        suspect = true;
+        connection = factory.open(kind.write);
+        kind.reconnected();
+      }
+      suspect = false;
+    }
+
+    Connection lease() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] {Connection.class}, new Lease(this));
+    }
+
+    /**
+     * Returns the connection to the pool, rolling back a transaction left open.
+     */
+    void release() {
+      try {
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+          connection.setAutoCommit(true);
+        }
+      } catch (SQLException exception) {
+        suspect = true;
+      }
+      inUse.clear();
+      releasedNanos = System.nanoTime();
+      kind.release(this);
+    }
+
+    /**
+     * Returns the cached statement of the SQL, preparing it if needed, or null if the cached one
+     * is still in use (or nothing is cached).
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+      if (statementCacheSize == 0) {
+        return null;
+      }
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null) {
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+      } else if (inUse.contains(statement)) {
+        return null;
+      }
+      inUse.add(statement);
+      return statement;
+    }
+
+    /**
+     * Returns a statement from prepare(String) to the cache.
+     */
+    void returnStatement(PreparedStatement statement) throws SQLException {
+      inUse.remove(statement);
+      statement.clearParameters();
+      statement.clearBatch();
+    }
+
+    void closeQuietly() {
+      List<AutoCloseable> resources = new ArrayList<AutoCloseable>(statements.values());
+      resources.add(connection);
+      statements = newStatementCache();
+      inUse.clear();
+      for (AutoCloseable resource : resources) {
+        try {
+          resource.close();
+        } catch (Exception exception) {
+          // Already broken
+        }
+      }
+    }
+
+    private Map<String, PreparedStatement> newStatementCache() {
+      return new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+          // A statement in use is evicted once it is the eldest again after being closed
+          if (size() <= statementCacheSize || inUse.contains(eldest.getValue())) {
+            return false;
+          }
+          try {
+            eldest.getValue().close();
+          } catch (SQLException exception) {
+            // Dropped from the cache either way
+          }
+          return true;
+        }
+      };
+    }
+  }
+
+  /**
+   * The Connection handed out for a slot, until it is closed. prepareStatement(String) returns
+   * cached statements when it can, and everything else goes to the slot's connection.
+   */
+  private static class Lease implements InvocationHandler {
+    private Slot slot;
+    private Connection proxy;
+
+    Lease(Slot slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      this.proxy = (Connection) proxy;
+      switch (method.getName()) {
+        case "close":
+          if (slot != null) {
+            Slot released = slot;
+            slot = null;
+            released.release();
+          }
+          return null;
+        case "isClosed":
+          return slot == null || slot.connection.isClosed();
+        default:
+          break;
+      }
+      if (slot == null) {
+        throw new SQLException("The connection has been returned to the pool");
+      }
+      if (method.getName().equals("prepareStatement") && args.length == 1) {
+        PreparedStatement statement = slot.prepare((String) args[0]);
+        if (statement != null) {
+          return cached(slot, statement);
+        }
+      }
+      return delegate(slot.connection, method, args);
+    }
+
+    /**
+     * Returns the statement, with close() returning it to the slot's cache instead of closing it.
+     */
+    private PreparedStatement cached(final Slot owner, final PreparedStatement statement) {
+      return (PreparedStatement) Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+          new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object statementProxy, Method method, Object[] args)
+                throws Throwable {
+              switch (method.getName()) {
+                case "close":
+                  // Closing twice mustn't return the statement while someone else is using it
+                  if (!closed) {
+                    closed = true;
+                    owner.returnStatement(statement);
+                  }
+                  return null;
+                case "isClosed":
+                  return closed || statement.isClosed();
+                case "getConnection":
+                  return proxy;
+                default:
+                  return delegate(statement, method, args);
+              }
+            }
+          });
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args)
+        throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException exception) {
+        throw exception.getCause();
+      }
+    }
+  }
+}
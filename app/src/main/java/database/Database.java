@@ -20,6 +20,10 @@
 
 package database;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
@@ -27,9 +31,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import pokeapi.PokeApiFetcher;
+import pokedex.Page;
+import pokedex.PageCursor;
 import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.StatColumn;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+import snapshot.Dataset;
+import snapshot.DatasetPatch;
+import snapshot.DatasetReader;
+import snapshot.DatasetWriter;
 import util.Pair;
 
 /**
@@ -37,16 +61,24 @@ import util.Pair;
  */
 public class Database {
   public static final String DATABASE_FILE = "pokedex.db";
+  // The most ? parameters SQLite allows in one statement (SQLITE_MAX_VARIABLE_NUMBER, which is
+  // 999 unless SQLite was built with a higher limit)
+  public static final int MAX_PARAMETERS = 999;
+  // Rows written per executeBatch when importing a dataset
+  private static final int IMPORT_BATCH_SIZE = 500;
+  private static final String INSERT_POKEMON = "INSERT OR REPLACE INTO pokemon(id, name, "
+      + "base_experience, height, weight, hp, attack, defense, special_attack, special_defense, "
+      + "speed, modified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
   /**
    * Creates a SQLite database file with the name specified in DATABASE_FILE. This SQLite database
-   * will have three tables defined: pokemon, types, and pokemon_types.
+   * will have four tables defined: pokemon, types, pokemon_types and type_efficacy.
    */
   public static Connection createDatabase() {
     Connection connection = null;
     try {
       // Create a database Connection
-      connection = getConnection(connection);
+      connection = getConnection();
       // Defines the schema
       defineSchema(connection);
     } catch (SQLException exception) {
@@ -56,37 +88,47 @@ public class Database {
   }
   
   /**
-   * Returns the SQLite connection to the database.
-   * @param connection an uninitialized Connection object
+   * Returns a new SQLite connection to the database. Code that queries the database from several
+   * threads should use a ConnectionPool instead.
    * @return the SQLite connection to the database
    * @throws SQLException a SQL exception if there is any issue with getting the connection
    */
+  public static Connection getConnection() throws SQLException {
+    return getConnection(new File(DATABASE_FILE));
+  }
+
+  /**
+   * Returns a new SQLite connection to the database.
+   * @param connection ignored
+   * @return the SQLite connection to the database
+   * @throws SQLException a SQL exception if there is any issue with getting the connection
+   * @deprecated use getConnection(), or a ConnectionPool
+   */
+  @Deprecated
   public static Connection getConnection(Connection connection) throws SQLException {
-    connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_FILE);
-    return connection;
+    return getConnection();
   }
 
   /**
-   * Defines the schema with three tables: pokemon, types, and pokemon_types.
+   * Returns a SQLite connection to the given database file (e.g. another copy of pokedex.db).
+   * @param file the database file
+   * @return the SQLite connection to the database
+   * @throws SQLException a SQL exception if there is any issue with getting the connection
+   */
+  public static Connection getConnection(File file) throws SQLException {
+    return DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+  }
+
+  /**
+   * Defines the schema with four tables: pokemon, types, pokemon_types and type_efficacy. On an
+   * existing database this runs only the schema migrations it doesn't have yet, keeping its data.
    * @param connection the connection to the database
+   * @return the migrations that were run
    * @throws SQLException a SQL exception if there is an issue with executing a query
    */
-  public static void defineSchema(Connection connection) throws SQLException {
-    // Statement used for executing queries that define our database
-    Statement statement = connection.createStatement();
-    // Creates a pokemon table
-    statement.executeUpdate("CREATE TABLE pokemon(id INTEGER PRIMARY KEY, name STRING, "
-        + "base_experience INTEGER, height FLOAT, weight FLOAT, hp INTEGER, attack INTEGER, "
-        + "defense INTEGER, special_attack INTEGER, special_defense INTEGER, speed INTEGER, "
-        + "modified DATE)");
-    // Creates a types table
-    statement.executeUpdate("CREATE TABLE types(type_id INTEGER PRIMARY KEY, type STRING)");
-    // Creates a Pokemon types table
-    statement.executeUpdate("CREATE TABLE pokemon_types(pokemon_id INTEGER, "
-        + "type_id INTEGER, FOREIGN KEY(pokemon_id) REFERENCES pokemon(id), "
-        + "FOREIGN KEY(type_id) REFERENCES types(type_id))");
-    // Closes statement after done defining schema
-    statement.close();
+  public static List<SchemaMigrator.Migration> defineSchema(Connection connection)
+      throws SQLException {
+    return SchemaMigrator.migrate(connection);
   }
 
   /**
@@ -111,6 +153,67 @@ public class Database {
     }
   }
 
+  /**
+   * Inserts the damage factor between every pair of types in the chart into the type_efficacy
+   * table, as one batch in a single transaction.
+   * @param connection the connection to the database
+   * @param chart the damage multipliers between types
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static void populateTypeEfficacyTable(Connection connection, TypeChart chart)
+      throws SQLException {
+    // Joins the caller's transaction if there is one, otherwise inserts in a transaction of its own
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      int[] typeIds = chart.getTypeIds();
+      PreparedStatement ps = connection.prepareStatement("INSERT INTO type_efficacy("
+          + "attacking_type_id, defending_type_id, damage_factor) VALUES (?, ?, ?)");
+      for (int attacking : typeIds) {
+        for (int defending : typeIds) {
+          ps.setInt(1, attacking);
+          ps.setInt(2, defending);
+          ps.setInt(3, chart.factor(attacking, defending) * TypeChart.PERCENT_PER_UNIT);
+          ps.addBatch();
+        }
+      }
+      ps.executeBatch();
+      // Closes PreparedStatement after done inserting
+      ps.close();
+      if (autoCommit) {
+        connection.commit();
+      }
+    } catch (SQLException | RuntimeException exception) {
+      if (autoCommit) {
+        connection.rollback();
+      }
+      throw exception;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Returns the damage multipliers between types stored in the type_efficacy table.
+   * @param connection the connection to the database
+   * @return the damage multipliers between types
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static TypeChart getTypeChart(Connection connection) throws SQLException {
+    TypeChartBuilder chart = new TypeChartBuilder();
+    PreparedStatement ps = connection.prepareStatement("SELECT attacking_type_id, "
+        + "defending_type_id, damage_factor FROM type_efficacy");
+    ResultSet results = ps.executeQuery();
+    while (results.next()) {
+      chart.setDamage(results.getInt("attacking_type_id"), results.getInt("defending_type_id"),
+          results.getInt("damage_factor"));
+    }
+    // Closes up the ResultSet and PreparedStatement after everything is done
+    results.close();
+    ps.close();
+    return chart.build();
+  }
+
   /**
    * Inserts the Pokemon into the pokemon table, and insert its types into pokemon_types 
    * table.
@@ -118,41 +221,60 @@ public class Database {
    * @throws SQLException a SQL exception if there is an issue with executing the query
    */
   public static void populatePokemonTable(Connection connection) throws SQLException {
-    PreparedStatement ps = null;
     int count = PokeApiFetcher.getNumPokemon();
     for (int index = 0; index < count; index++) {
-      Pokemon pokemon = PokeApiFetcher.getPokemon(index + 1);
-      // PreparedStatement used for inserting values into types table
-      ps = connection.prepareStatement(
-          "INSERT INTO pokemon(id, name, base_experience, height, weight, hp, "
-          + "attack, defense, special_attack, special_defense, speed, modified) "
-          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-      // Sets the values to be inserted into the table
-      ps.setInt(1, pokemon.getId());
-      ps.setString(2, pokemon.getName());
-      ps.setInt(3, pokemon.getBaseExperience());
-      ps.setDouble(4, pokemon.getHeight());
-      ps.setDouble(5, pokemon.getWeight());
-      ps.setInt(6, pokemon.getHp());
-      ps.setInt(7, pokemon.getAttack());
-      ps.setInt(8, pokemon.getDefense());
-      ps.setInt(9, pokemon.getSpecialAttack());
-      ps.setInt(10, pokemon.getSpecialDefense());
-      ps.setInt(11, pokemon.getSpeed());
-      Date currentDate = new Date(new java.util.Date().getTime());
-      ps.setDate(12, currentDate);
-      ps.executeUpdate();
-      
-      // If the Pokemon has types, then populate the pokemon_types table
-      if (pokemon.getTypes() != null) {
-        populatePokemonTypeTable(connection, ps, pokemon);
-      }
-      
-      // Closes each PreparedStatement after done executing
-      ps.close();
+      insertPokemon(connection, PokeApiFetcher.getPokemon(index + 1));
     }
   }
-  
+
+  /**
+   * Inserts the Pokemon into the pokemon table and its types into the pokemon_types table,
+   * replacing the Pokemon (and its types) if it is already there.
+   * @param connection the connection to the database
+   * @param pokemon the Pokemon with information to be inserted
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static void insertPokemon(Connection connection, Pokemon pokemon) throws SQLException {
+    // Removes the types of an older copy of the Pokemon, if any
+    PreparedStatement ps = connection.prepareStatement("DELETE FROM pokemon_types "
+        + "WHERE pokemon_id = ?");
+    ps.setInt(1, pokemon.getId());
+    ps.executeUpdate();
+    ps.close();
+    // PreparedStatement used for inserting values into pokemon table
+    ps = connection.prepareStatement(INSERT_POKEMON);
+    // Sets the values to be inserted into the table
+    setPokemon(ps, pokemon, new Date(new java.util.Date().getTime()));
+    ps.executeUpdate();
+
+    // If the Pokemon has types, then populate the pokemon_types table
+    if (pokemon.getTypes() != null) {
+      populatePokemonTypeTable(connection, ps, pokemon);
+    }
+
+    // Closes the PreparedStatement after done executing
+    ps.close();
+  }
+
+  /**
+   * Sets the parameters of an INSERT_POKEMON statement to the columns of the Pokemon.
+   */
+  private static void setPokemon(PreparedStatement ps, Pokemon pokemon, Date modified)
+      throws SQLException {
+    ps.setInt(1, pokemon.getId());
+    ps.setString(2, pokemon.getName());
+    ps.setInt(3, pokemon.getBaseExperience());
+    ps.setDouble(4, pokemon.getHeight());
+    ps.setDouble(5, pokemon.getWeight());
+    ps.setInt(6, pokemon.getHp());
+    ps.setInt(7, pokemon.getAttack());
+    ps.setInt(8, pokemon.getDefense());
+    ps.setInt(9, pokemon.getSpecialAttack());
+    ps.setInt(10, pokemon.getSpecialDefense());
+    ps.setInt(11, pokemon.getSpeed());
+    ps.setDate(12, modified);
+  }
+
   /**
    * Inserts the Pokemons' type(s) into the pokemon_types table.
    * @param connection the connection to the database
@@ -175,6 +297,206 @@ public class Database {
     }
   }
 
+  /**
+   * Returns the types in the types table, in id order.
+   * @param connection the connection to the database
+   * @return the types (type id, type name)
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static List<Pair<Integer, String>> getTypes(Connection connection) throws SQLException {
+    PreparedStatement ps = connection.prepareStatement("SELECT type_id, type FROM types "
+        + "ORDER BY type_id");
+    ResultSet results = ps.executeQuery();
+    List<Pair<Integer, String>> types = new ArrayList<>();
+    while (results.next()) {
+      types.add(new PokemonTypePair<Integer, String>(results.getInt("type_id"),
+          results.getString("type")));
+    }
+    results.close();
+    ps.close();
+    return types;
+  }
+
+  /**
+   * Writes the types, type chart and complete Pokemon in the database as a dataset (see
+   * DatasetFormat).
+   * @param connection the connection to the database
+   * @param output the stream to write the dataset to (left open)
+   * @param deflate whether or not to compress the dataset
+   * @return the number of Pokemon written
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   * @throws IOException if the dataset cannot be written
+   */
+  public static int exportDataset(Connection connection, OutputStream output, boolean deflate)
+      throws SQLException, IOException {
+    DatasetWriter writer = new DatasetWriter(output, deflate);
+    writer.writeTypes(getTypes(connection));
+    TypeChart chart = getTypeChart(connection);
+    writer.writeTypeChart(chart.getTypeIds().length == 0 ? null : chart);
+    for (Pokemon pokemon : getAllPokemon(connection)) {
+      writer.writePokemon(pokemon);
+    }
+    writer.finish();
+    return writer.getCount();
+  }
+
+  /**
+   * Replaces the types, type chart and Pokemon in the database with the ones in a dataset, in a
+   * single transaction: if anything goes wrong the database is left as it was. Inside a
+   * transaction of the caller's (autocommit off) the import joins it instead, and committing or
+   * rolling it back is up to the caller. The Pokemon are streamed from the dataset into batched
+   * inserts. (The database has no tables for abilities and moves, so those are not imported.)
+   * @param connection the connection to the database
+   * @param input the stream to read the dataset from (left open)
+   * @return the number of Pokemon imported
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   * @throws IOException if the dataset cannot be read
+   */
+  public static int importDataset(Connection connection, InputStream input)
+      throws SQLException, IOException {
+    // Joins the caller's transaction if there is one, otherwise imports in a transaction of its own
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      DatasetReader reader = new DatasetReader(input);
+      Statement statement = connection.createStatement();
+      for (String table : new String[] {"pokemon_types", "pokemon", "type_efficacy", "types"}) {
+        statement.executeUpdate("DELETE FROM " + table);
+      }
+      statement.close();
+      populateTypesTable(connection, reader.readTypes());
+      TypeChart chart = reader.readTypeChart();
+      if (chart != null) {
+        populateTypeEfficacyTable(connection, chart);
+      }
+      PreparedStatement pokemonPs = connection.prepareStatement(INSERT_POKEMON);
+      PreparedStatement typesPs = connection.prepareStatement("INSERT INTO "
+          + "pokemon_types(pokemon_id, type_id) VALUES (?, ?)");
+      Date modified = new Date(new java.util.Date().getTime());
+      int count = 0;
+      for (Pokemon pokemon = reader.readPokemon(); pokemon != null;
+          pokemon = reader.readPokemon()) {
+        setPokemon(pokemonPs, pokemon, modified);
+        pokemonPs.addBatch();
+        for (int typeId : pokemon.getTypes()) {
+          typesPs.setInt(1, pokemon.getId());
+          typesPs.setInt(2, typeId);
+          typesPs.addBatch();
+        }
+        if (++count % IMPORT_BATCH_SIZE == 0) {
+          pokemonPs.executeBatch();
+          typesPs.executeBatch();
+        }
+      }
+      pokemonPs.executeBatch();
+      typesPs.executeBatch();
+      pokemonPs.close();
+      typesPs.close();
+      if (autoCommit) {
+        connection.commit();
+      }
+      return count;
+    } catch (SQLException | IOException | RuntimeException exception) {
+      if (autoCommit) {
+        connection.rollback();
+      }
+      throw exception;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Returns the types, type chart and complete Pokemon in the database as a Dataset.
+   * @param connection the connection to the database
+   * @return the dataset in the database
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   */
+  public static Dataset getDataset(Connection connection) throws SQLException {
+    return new Dataset(getTypes(connection), getTypeChart(connection),
+        getAllPokemon(connection));
+  }
+
+  /**
+   * Applies a patch to the database in a single transaction. The patch is first applied to the
+   * dataset read from the database, which checks that the patch was made from this dataset and
+   * that it makes the dataset it was made for; then only the rows the patch touches are written.
+   * If anything goes wrong the database is left as it was. Inside a transaction of the caller's
+   * (autocommit off) the patch joins it instead, and committing or rolling it back is up to the
+   * caller.
+   * @param connection the connection to the database
+   * @param patch the patch to apply
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   */
+  public static void applyPatch(Connection connection, DatasetPatch patch) throws SQLException {
+    // Joins the caller's transaction if there is one, otherwise applies in a transaction of its own
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      Dataset target = patch.apply(getDataset(connection));
+      PreparedStatement ps = connection.prepareStatement("DELETE FROM types WHERE type_id = ?");
+      for (int typeId : patch.getDeletedTypeIds()) {
+        ps.setInt(1, typeId);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      ps = connection.prepareStatement("INSERT OR REPLACE INTO types(type_id, type) "
+          + "VALUES (?, ?)");
+      for (Pair<Integer, String> type : patch.getUpsertedTypes()) {
+        ps.setInt(1, type.getLeft());
+        ps.setString(2, type.getRight());
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      ps = connection.prepareStatement("DELETE FROM type_efficacy WHERE attacking_type_id = ? "
+          + "OR defending_type_id = ?");
+      for (int typeId : patch.getRemovedChartTypeIds()) {
+        ps.setInt(1, typeId);
+        ps.setInt(2, typeId);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      ps = connection.prepareStatement("INSERT OR REPLACE INTO type_efficacy("
+          + "attacking_type_id, defending_type_id, damage_factor) VALUES (?, ?, ?)");
+      for (int[] cell : patch.getChartCells()) {
+        ps.setInt(1, cell[0]);
+        ps.setInt(2, cell[1]);
+        ps.setInt(3, cell[2] * TypeChart.PERCENT_PER_UNIT);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      for (int id : patch.getDeletedPokemonIds()) {
+        ps = connection.prepareStatement("DELETE FROM pokemon_types WHERE pokemon_id = ?");
+        ps.setInt(1, id);
+        ps.executeUpdate();
+        ps.close();
+        ps = connection.prepareStatement("DELETE FROM pokemon WHERE id = ?");
+        ps.setInt(1, id);
+        ps.executeUpdate();
+        ps.close();
+      }
+      List<Pokemon> pokemon = target.getPokemon();
+      int[] ids = ids(pokemon);
+      for (int id : patch.getUpsertedPokemonIds()) {
+        insertPokemon(connection, pokemon.get(Arrays.binarySearch(ids, id)));
+      }
+      if (autoCommit) {
+        connection.commit();
+      }
+    } catch (SQLException | RuntimeException exception) {
+      if (autoCommit) {
+        connection.rollback();
+      }
+      throw exception;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
   /**
    * Returns the number of rows (number of types) in the database.
    * @param connection the connection to the database
@@ -228,4 +550,321 @@ public class Database {
     ps.close();
     return numPokemon;
   }
+
+  /**
+   * Returns the Pokemon with the given id (with its types), or null if it isn't in the database.
+   * @param connection the connection to the database
+   * @param id the id of the Pokemon
+   * @return the Pokemon with the given id, or null
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static Pokemon getPokemon(Connection connection, int id) throws SQLException {
+    PreparedStatement ps = connection.prepareStatement("SELECT * FROM pokemon WHERE id = ?");
+    ps.setInt(1, id);
+    List<Pokemon> pokemon = readPage(connection, ps, 1);
+    return pokemon.isEmpty() ? null : pokemon.get(0);
+  }
+
+  /**
+   * Returns the Pokemon with the given name (with its types), or null if it isn't in the
+   * database.
+   * @param connection the connection to the database
+   * @param name the name of the Pokemon (case insensitive)
+   * @return the Pokemon with the given name, or null
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static Pokemon getPokemon(Connection connection, String name) throws SQLException {
+    PreparedStatement ps = connection.prepareStatement("SELECT * FROM pokemon WHERE name = ? "
+        + "LIMIT 1");
+    ps.setString(1, name.trim().toLowerCase(Locale.ROOT));
+    List<Pokemon> pokemon = readPage(connection, ps, 1);
+    return pokemon.isEmpty() ? null : pokemon.get(0);
+  }
+
+  /**
+   * Returns the Pokemon with the given ids (with their types), by id. Ids that aren't in the
+   * database are left out. The ids are looked up with as few queries as SQLite's parameter limit
+   * allows.
+   * @param connection the connection to the database
+   * @param ids the ids of the Pokemon
+   * @return the Pokemon found, by id
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static Map<Integer, Pokemon> getPokemon(Connection connection, Collection<Integer> ids)
+      throws SQLException {
+    List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<Integer, Pokemon> pokemon = new HashMap<>(distinct.size() * 2);
+    for (int start = 0; start < distinct.size(); start += MAX_PARAMETERS) {
+      List<Integer> chunk = distinct.subList(start,
+          Math.min(start + MAX_PARAMETERS, distinct.size()));
+      PreparedStatement ps = connection.prepareStatement("SELECT * FROM pokemon WHERE id IN ("
+          + placeholders(chunk.size()) + ")");
+      for (int index = 0; index < chunk.size(); index++) {
+        ps.setInt(index + 1, chunk.get(index));
+      }
+      for (Pokemon next : readPage(connection, ps, chunk.size())) {
+        pokemon.put(next.getId(), next);
+      }
+    }
+    return pokemon;
+  }
+
+  /**
+   * Returns the ids of the complete Pokemon (not MISSINGNO) in the database.
+   * @param connection the connection to the database
+   * @return the ids of the complete Pokemon in the database
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static BitSet getPokemonIds(Connection connection) throws SQLException {
+    PreparedStatement ps = connection.prepareStatement("SELECT id FROM pokemon WHERE name != ?");
+    ps.setString(1, PokeApiFetcher.NO_NAME);
+    ResultSet results = ps.executeQuery();
+    BitSet ids = new BitSet();
+    while (results.next()) {
+      ids.set(results.getInt("id"));
+    }
+    // Closes up the ResultSet and PreparedStatement after everything is done
+    results.close();
+    ps.close();
+    return ids;
+  }
+
+  /**
+   * Returns every complete Pokemon (not MISSINGNO) in the database with its types, in id order.
+   * @param connection the connection to the database
+   * @return the complete Pokemon in the database
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static List<Pokemon> getAllPokemon(Connection connection) throws SQLException {
+    PreparedStatement ps = connection.prepareStatement("SELECT * FROM pokemon WHERE name != ? "
+        + "ORDER BY id");
+    ps.setString(1, PokeApiFetcher.NO_NAME);
+    ResultSet results = ps.executeQuery();
+    Map<Integer, PokemonBuilder> builders = new LinkedHashMap<>();
+    while (results.next()) {
+      builders.put(results.getInt("id"), readPokemon(results));
+    }
+    results.close();
+    ps.close();
+    // One scan of pokemon_types instead of an IN list with a parameter per Pokemon
+    ps = connection.prepareStatement("SELECT pokemon_id, type_id FROM pokemon_types "
+        + "ORDER BY rowid");
+    results = ps.executeQuery();
+    Map<Integer, List<Integer>> types = new HashMap<>();
+    while (results.next()) {
+      int id = results.getInt("pokemon_id");
+      if (builders.containsKey(id)) {
+        if (!types.containsKey(id)) {
+          types.put(id, new ArrayList<Integer>());
+        }
+        types.get(id).add(results.getInt("type_id"));
+      }
+    }
+    results.close();
+    ps.close();
+    List<Pokemon> pokemon = new ArrayList<>(builders.size());
+    for (Map.Entry<Integer, PokemonBuilder> entry : builders.entrySet()) {
+      if (types.containsKey(entry.getKey())) {
+        entry.getValue().setTypes(types.get(entry.getKey()));
+      }
+      pokemon.add(entry.getValue().build());
+    }
+    return pokemon;
+  }
+
+  /**
+   * Returns the page of (at most) limit Pokemon after the cursor, in id order. The page seeks to
+   * the first id after the cursor (WHERE id > ?) instead of skipping an OFFSET, so every page
+   * costs the same however deep it is.
+   * @param connection the connection to the database
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the most Pokemon on the page
+   * @return the page of Pokemon
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static Page getPokemonPage(Connection connection, String cursor, int limit)
+      throws SQLException {
+    checkLimit(limit);
+    int afterId = Integer.MIN_VALUE;
+    if (cursor != null) {
+      PageCursor after = PageCursor.decode(cursor);
+      if (after.getColumn() != null) {
+        throw new IllegalArgumentException("Cursor is not for pages sorted by id");
+      }
+      afterId = after.getId();
+    }
+    PreparedStatement ps = connection.prepareStatement("SELECT * FROM pokemon WHERE id > ? "
+        + "ORDER BY id LIMIT ?");
+    ps.setInt(1, afterId);
+    // Reads one row more than the page to find out if there is a next page
+    ps.setInt(2, limit + 1);
+    List<Pokemon> page = readPage(connection, ps, limit);
+    String next = null;
+    if (page.size() > limit) {
+      page.remove(limit);
+      next = new PageCursor(page.get(limit - 1).getId()).encode();
+    }
+    return new Page(page, next);
+  }
+
+  /**
+   * Returns the page of (at most) limit Pokemon after the cursor, sorted by the column with the
+   * highest value first and ties by id. The page seeks along the column's index to the first row
+   * after the cursor's (value, id), so every page costs the same however deep it is.
+   * @param connection the connection to the database
+   * @param column the column to sort by
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the most Pokemon on the page
+   * @return the page of Pokemon
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public static Page getPokemonPage(Connection connection, StatColumn column, String cursor,
+      int limit) throws SQLException {
+    checkLimit(limit);
+    String expression = sortExpression(column);
+    PreparedStatement ps;
+    if (cursor == null) {
+      ps = connection.prepareStatement("SELECT * FROM pokemon ORDER BY " + expression
+          + " DESC, id LIMIT ?");
+      ps.setInt(1, limit + 1);
+    } else {
+      PageCursor after = PageCursor.decode(cursor);
+      if (after.getColumn() != column) {
+        throw new IllegalArgumentException("Cursor is not for pages sorted by " + column);
+      }
+      // The first condition is the index range; the second skips the ties already seen
+      ps = connection.prepareStatement("SELECT * FROM pokemon WHERE " + expression + " <= ? "
+          + "AND (" + expression + " < ? OR id > ?) ORDER BY " + expression + " DESC, id "
+          + "LIMIT ?");
+      ps.setInt(1, after.getValue());
+      ps.setInt(2, after.getValue());
+      ps.setInt(3, after.getId());
+      ps.setInt(4, limit + 1);
+    }
+    List<Pokemon> page = readPage(connection, ps, limit);
+    String next = null;
+    if (page.size() > limit) {
+      page.remove(limit);
+      Pokemon last = page.get(limit - 1);
+      next = new PageCursor(column, column.valueOf(last), last.getId()).encode();
+    }
+    return new Page(page, next);
+  }
+
+  /**
+   * Runs a query over the pokemon table, and reads the Pokemon with their types.
+   */
+  private static List<Pokemon> readPage(Connection connection, PreparedStatement ps, int limit)
+      throws SQLException {
+    ResultSet results = ps.executeQuery();
+    Map<Integer, PokemonBuilder> builders = new LinkedHashMap<>(limit + 1);
+    while (results.next()) {
+      PokemonBuilder builder = readPokemon(results);
+      builders.put(results.getInt("id"), builder);
+    }
+    results.close();
+    ps.close();
+    readTypes(connection, builders);
+    List<Pokemon> page = new ArrayList<>(builders.size());
+    for (PokemonBuilder builder : builders.values()) {
+      page.add(builder.build());
+    }
+    return page;
+  }
+
+  /**
+   * Returns a PokemonBuilder with the columns of the current row of the pokemon table.
+   * @param results a ResultSet positioned on a row of the pokemon table
+   * @return a PokemonBuilder with the columns of the row (without types)
+   * @throws SQLException a SQL exception if there is an issue with reading the row
+   */
+  private static PokemonBuilder readPokemon(ResultSet results) throws SQLException {
+    return new PokemonBuilder(results.getInt("id"))
+        .setName(results.getString("name"))
+        .setBaseExperience(results.getInt("base_experience"))
+        .setHeight(results.getDouble("height"))
+        .setWeight(results.getDouble("weight"))
+        .setHp(results.getInt("hp"))
+        .setAttack(results.getInt("attack"))
+        .setDefense(results.getInt("defense"))
+        .setSpecialAttack(results.getInt("special_attack"))
+        .setSpecialDefense(results.getInt("special_defense"))
+        .setSpeed(results.getInt("speed"));
+  }
+
+  /**
+   * Sets the types of the Pokemon being built from the pokemon_types table, in one query.
+   */
+  private static void readTypes(Connection connection, Map<Integer, PokemonBuilder> builders)
+      throws SQLException {
+    List<Integer> ids = new ArrayList<>(builders.keySet());
+    Map<Integer, List<Integer>> types = new LinkedHashMap<>();
+    // One query per MAX_PARAMETERS Pokemon
+    for (int start = 0; start < ids.size(); start += MAX_PARAMETERS) {
+      List<Integer> chunk = ids.subList(start, Math.min(start + MAX_PARAMETERS, ids.size()));
+      // Rows come back in insertion order, which keeps each Pokemon's types in slot order
+      PreparedStatement ps = connection.prepareStatement("SELECT pokemon_id, type_id FROM "
+          + "pokemon_types WHERE pokemon_id IN (" + placeholders(chunk.size()) + ") "
+          + "ORDER BY rowid");
+      for (int index = 0; index < chunk.size(); index++) {
+        ps.setInt(index + 1, chunk.get(index));
+      }
+      ResultSet results = ps.executeQuery();
+      while (results.next()) {
+        int id = results.getInt("pokemon_id");
+        if (!types.containsKey(id)) {
+          types.put(id, new ArrayList<Integer>());
+        }
+        types.get(id).add(results.getInt("type_id"));
+      }
+      results.close();
+      ps.close();
+    }
+    for (Map.Entry<Integer, List<Integer>> entry : types.entrySet()) {
+      builders.get(entry.getKey()).setTypes(entry.getValue());
+    }
+  }
+
+  /**
+   * Returns count ? placeholders separated by commas, for an IN list.
+   */
+  private static String placeholders(int count) {
+    StringBuilder placeholders = new StringBuilder("?");
+    for (int index = 1; index < count; index++) {
+      placeholders.append(", ?");
+    }
+    return placeholders.toString();
+  }
+
+  /**
+   * Returns the SQL expression of the column in the pokemon table.
+   */
+  static String sortExpression(StatColumn column) {
+    switch (column) {
+      case BASE_STAT_TOTAL:
+        return "(hp + attack + defense + special_attack + special_defense + speed)";
+      case BASE_EXPERIENCE:
+        return "base_experience";
+      default:
+        return column.name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /**
+   * Returns the ids of the Pokemon, for binary searches over a list sorted by id.
+   */
+  private static int[] ids(List<Pokemon> pokemon) {
+    int[] ids = new int[pokemon.size()];
+    int index = 0;
+    for (Pokemon each : pokemon) {
+      ids[index++] = each.getId();
+    }
+    return ids;
+  }
+
+  private static void checkLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Page limit must be positive: " + limit);
+    }
+  }
 }
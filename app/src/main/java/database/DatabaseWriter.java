@@ -0,0 +1,316 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import pokedex.Pokemon;
+
+/**
+ * The single writer to a SQLite database. SQLite allows one writer at a time, so threads that
+ * write through their own connections fight over the database lock (and get SQLITE_BUSY), and
+ * each autocommitted write waits for its own sync to disk. Here any thread can submit writes, and
+ * one thread runs them on its own connection, committing the writes queued together (up to
+ * maxBatch of them, gathered for at most maxDelayMillis while there are concurrent producers) in
+ * one transaction. The more producers there are, the more writes share each commit.
+ *
+ * <p>Each write runs in its own savepoint, so a write that fails is rolled back and fails its
+ * Future without affecting the others in the transaction. A Future completes once the transaction
+ * holding its write is committed. Cancelling a write only has an effect while it is still queued.
+ * If the writer thread itself fails (e.g. a write throws an Error), the transaction is rolled back,
+ * every write in it or still queued fails with that cause, and the writer is closed.
+ */
+public class DatabaseWriter implements Closeable {
+  public static final int DEFAULT_MAX_BATCH = 500;
+  public static final long DEFAULT_MAX_DELAY_MILLIS = 2;
+  private final Connection connection;
+  private final int maxBatch;
+  private final long maxDelayNanos;
+  private final LinkedBlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+  // Guarded by this
+  private boolean closed;
+
+  /**
+   * A write to the database.
+   */
+  public interface Command {
+    /**
+     * Runs the write. It must not commit or roll back the transaction it runs in.
+     * @param connection the connection of the writer
+     * @throws SQLException if the write fails
+     */
+    void execute(Connection connection) throws SQLException;
+  }
+
+  /**
+   * Creates a DatabaseWriter with the default batch size and delay.
+   * @param connection the connection to write with, which is used by the writer only from now on
+   * @throws SQLException if autocommit cannot be turned off on the connection
+   */
+  public DatabaseWriter(Connection connection) throws SQLException {
+    this(connection, DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY_MILLIS);
+  }
+
+  /**
+   * Creates a DatabaseWriter.
+   * @param connection the connection to write with, which is used by the writer only from now on
+   * @param maxBatch the most writes committed in one transaction
+   * @param maxDelayMillis the longest to wait for more writes before committing (0 commits the
+   *     writes already queued straight away)
+   * @throws SQLException if autocommit cannot be turned off on the connection
+   */
+  public DatabaseWriter(Connection connection, int maxBatch, long maxDelayMillis)
+      throws SQLException {
+    if (maxBatch < 1 || maxDelayMillis < 0) {
+      throw new IllegalArgumentException("Invalid batch size or delay");
+    }
+    this.connection = connection;
+    this.maxBatch = maxBatch;
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    connection.setAutoCommit(false);
+    writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeAll();
+      }
+    }, "database-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queues a write.
+   * @param command the write
+   * @return a Future that completes once the write is committed, or fails with its SQLException
+   * @throws IllegalStateException if the writer is closed or has failed
+   */
+  public Future<Void> submit(Command command) {
+    Write write = new Write(command);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The writer is closed");
+      }
+      queue.add(write);
+    }
+    return write;
+  }
+
+  /**
+   * Queues the insertion (or replacement) of a Pokemon, as Database.insertPokemon.
+   * @param pokemon the Pokemon to insert
+   * @return a Future that completes once the Pokemon is committed
+   */
+  public Future<Void> insertPokemon(final Pokemon pokemon) {
+    return submit(new Command() {
+      @Override
+      public void execute(Connection connection) throws SQLException {
+        Database.insertPokemon(connection, pokemon);
+      }
+    });
+  }
+
+  /**
+   * Returns the number of writes that have been committed.
+   * @return the number of committed writes
+   */
+  public long getWrites() {
+    return writes.get();
+  }
+
+  /**
+   * Returns the number of transactions that have been committed.
+   * @return the number of commits
+   */
+  public long getCommits() {
+    return commits.get();
+  }
+
+  /**
+   * Stops accepting writes, waits for the queued ones to be committed and stops the writer. The
+   * connection is left open.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.add(new Write(null));
+    }
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException exception) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void writeAll() {
+    List<Write> batch = new ArrayList<>();
+    boolean stopping = false;
+    int lastBatchSize = 0;
+    while (!stopping) {
+      try {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatch - 1);
+        // Only waits for more writes when the last transaction was shared: a lone producer that
+        // waits for each write would otherwise wait out the whole delay every time
+        long deadline = System.nanoTime() + (lastBatchSize > 1 ? maxDelayNanos : 0);
+        while (batch.size() < maxBatch && !isStop(batch.get(batch.size() - 1))) {
+          Write next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+          queue.drainTo(batch, maxBatch - batch.size());
+        }
+      } catch (InterruptedException exception) {
+        // Only close() stops the writer
+        continue;
+      }
+      if (isStop(batch.get(batch.size() - 1))) {
+        // Nothing is queued after the stop, which close() adds last
+        stopping = true;
+        batch.remove(batch.size() - 1);
+      }
+      try {
+        commit(batch);
+      } catch (Throwable throwable) {
+        abort(batch, throwable);
+        return;
+      }
+      lastBatchSize = batch.size();
+      batch.clear();
+    }
+  }
+
+  /**
+   * Closes the writer after its thread failed, and fails the batch and every queued write.
+   */
+  private void abort(List<Write> batch, Throwable cause) {
+    synchronized (this) {
+      // Nothing can be queued once closed, so the drain below gets every remaining write
+      closed = true;
+    }
+    try {
+      connection.rollback();
+    } catch (SQLException | RuntimeException exception) {
+      cause.addSuppressed(exception);
+    }
+    queue.drainTo(batch);
+    for (Write write : batch) {
+      write.fail(cause);
+    }
+  }
+
+  /**
+   * Runs the writes in one transaction and completes their Futures once it is committed.
+   */
+  private void commit(List<Write> batch) {
+    List<Write> written = new ArrayList<>(batch.size());
+    try {
+      for (Write write : batch) {
+        if (write.isCancelled()) {
+          continue;
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+          write.command.execute(connection);
+          connection.releaseSavepoint(savepoint);
+          written.add(write);
+        } catch (SQLException | RuntimeException exception) {
+          connection.rollback(savepoint);
+          write.fail(exception);
+        }
+      }
+      if (written.isEmpty()) {
+        connection.rollback();
+        return;
+      }
+      connection.commit();
+    } catch (SQLException exception) {
+      try {
+        connection.rollback();
+      } catch (SQLException rollbackException) {
+        exception.addSuppressed(rollbackException);
+      }
+      // None of the writes are committed, including those that had already run
+      for (Write write : batch) {
+        write.fail(exception);
+      }
+      return;
+    }
+    writes.addAndGet(written.size());
+    commits.incrementAndGet();
+    for (Write write : written) {
+      write.complete();
+    }
+  }
+
+  private static boolean isStop(Write write) {
+    return write.command == null;
+  }
+
+  /**
+   * A queued write, whose Future is completed by the writer thread.
+   */
+  private static class Write extends FutureTask<Void> {
+    private final Command command;
+
+    Write(Command command) {
+      super(new Callable<Void>() {
+        @Override
+        public Void call() {
+          return null;
+        }
+      });
+      this.command = command;
+    }
+
+    void complete() {
+      set(null);
+    }
+
+    void fail(Throwable throwable) {
+      setException(throwable);
+    }
+  }
+}
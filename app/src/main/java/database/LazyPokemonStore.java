@@ -0,0 +1,402 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import pokeapi.FetchPriority;
+import pokeapi.FetchScheduler;
+import pokeapi.FetchStats;
+import pokeapi.PokeApiFetcher;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+import snapshot.DatasetPatch;
+import util.CacheStats;
+
+/**
+ * Reads Pokemon from the database, fetching (and saving) any Pokemon that isn't there yet from
+ * PokeAPI on demand, so that a fresh install can answer its first lookup after a single request
+ * instead of after downloading the whole Pokedex. A background filler downloads the rest. Both go
+ * through a FetchScheduler, where lookups are INTERACTIVE and the filler is BULK, so a lookup
+ * jumps ahead of the filler's queue (and takes over the filler's fetch of the same id).
+ *
+ * <p>Lookups by id read through a PokemonCache. Everything that writes Pokemon through the store
+ * (lookups, the filler, imports and patches) invalidates the Pokemon it wrote; a database changed
+ * from outside (by PatchTool, say) needs invalidateCache().
+ *
+ * <p>All database access synchronizes on the connection, since it is shared between lookups, the
+ * filler and the cache (which reads under the same lock). Fetches happen outside the lock.
+ */
+public class LazyPokemonStore {
+  public static final int DEFAULT_CONCURRENCY = 4;
+  public static final long DEFAULT_CACHE_BYTES = 1 << 20;
+  private final Connection connection;
+  private final FetchScheduler scheduler;
+  private final Source source;
+  private final PokemonCache cache;
+  private final Object lock;
+  // The ids of the Pokemon in the database, once the filler has read them (guarded by lock)
+  private BitSet saved;
+  private List<Future<Pokemon>> fillerFetches = new ArrayList<>();
+  private Thread filler;
+  private volatile boolean stopped;
+
+  /**
+   * What the store looks up in PokeAPI besides the Pokemon fetched by id (which go through the
+   * FetchScheduler).
+   */
+  public interface Source {
+    /**
+     * Returns the number of Pokemon in the Pokedex.
+     * @return the number of Pokemon, or a negative number if it cannot be looked up
+     */
+    int getNumPokemon();
+
+    /**
+     * Returns the type chart.
+     * @return the type chart
+     */
+    TypeChart getTypeChart();
+
+    /**
+     * Returns the Pokemon with the given name.
+     * @param name the normalized name of the Pokemon, e.g. "bulbasaur"
+     * @return the Pokemon with the given name, or null if there is none (or it can't be reached)
+     */
+    Pokemon getPokemon(String name);
+  }
+
+  /**
+   * Creates a LazyPokemonStore over the given database connection, fetching from PokeAPI with
+   * DEFAULT_CONCURRENCY fetches at once.
+   * @param connection the connection to the database
+   */
+  public LazyPokemonStore(Connection connection) {
+    this(connection, new FetchScheduler(DEFAULT_CONCURRENCY));
+  }
+
+  /**
+   * Creates a LazyPokemonStore over the given database connection, fetching with the given
+   * scheduler.
+   * @param connection the connection to the database
+   * @param scheduler the scheduler to fetch Pokemon with
+   */
+  public LazyPokemonStore(Connection connection, FetchScheduler scheduler) {
+    this(connection, scheduler, new Source() {
+      @Override
+      public int getNumPokemon() {
+        return PokeApiFetcher.getNumPokemon();
+      }
+
+      @Override
+      public TypeChart getTypeChart() {
+        return PokeApiFetcher.getTypeChart(PokeApiFetcher.getTypes());
+      }
+
+      @Override
+      public Pokemon getPokemon(String name) {
+        return PokeApiFetcher.getPokemon(name);
+      }
+    });
+  }
+
+  /**
+   * Creates a LazyPokemonStore over the given database connection, fetching with the given
+   * scheduler and looking up everything else in the given source.
+   * @param connection the connection to the database
+   * @param scheduler the scheduler to fetch Pokemon with
+   * @param source the source of the number of Pokemon, the type chart and Pokemon by name
+   */
+  public LazyPokemonStore(Connection connection, FetchScheduler scheduler, Source source) {
+    this.connection = connection;
+    this.scheduler = scheduler;
+    this.source = source;
+    cache = new PokemonCache(connection, DEFAULT_CACHE_BYTES);
+    lock = connection;
+  }
+
+  /**
+   * Returns the Pokemon with the given id from the cache or the database, or fetches it from
+   * PokeAPI and saves it if it isn't there yet. Returns null if PokeAPI doesn't have it either (or
+   * can't be reached).
+   * @param id the id of the Pokemon
+   * @return the Pokemon with the given id, or null
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   */
+  public Pokemon getPokemon(int id) throws SQLException {
+    Pokemon pokemon = cache.getPokemon(id);
+    if (pokemon != null && !PokeApiFetcher.NO_NAME.equals(pokemon.getName())) {
+      return pokemon;
+    }
+    return save(await(scheduler.submit(id, FetchPriority.INTERACTIVE)));
+  }
+
+  /**
+   * Returns the Pokemon with the given name from the database, or fetches it from PokeAPI and
+   * saves it if it isn't there yet. Returns null if PokeAPI doesn't have it either (or can't be
+   * reached).
+   * @param name the name of the Pokemon, e.g. "bulbasaur"
+   * @return the Pokemon with the given name, or null
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   */
+  public Pokemon getPokemon(String name) throws SQLException {
+    Pokemon pokemon;
+    synchronized (lock) {
+      pokemon = Database.getPokemon(connection, name);
+    }
+    if (pokemon != null) {
+      return pokemon;
+    }
+    return save(source.getPokemon(name.trim().toLowerCase(Locale.ROOT)));
+  }
+
+  /**
+   * Replaces the Pokemon in the database with the ones in a dataset (see Database.importDataset),
+   * emptying the cache.
+   * @param input the stream to read the dataset from (left open)
+   * @return the number of Pokemon imported
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   * @throws IOException if the dataset cannot be read
+   */
+  public int importDataset(InputStream input) throws SQLException, IOException {
+    synchronized (lock) {
+      try {
+        int count = Database.importDataset(connection, input);
+        if (saved != null) {
+          saved = Database.getPokemonIds(connection);
+        }
+        return count;
+      } finally {
+        // Also after a failed import, which may leave a transaction of the caller's half done
+        cache.invalidateAll();
+      }
+    }
+  }
+
+  /**
+   * Applies a patch to the database (see Database.applyPatch), invalidating the Pokemon it
+   * deletes or changes.
+   * @param patch the patch to apply
+   * @throws SQLException a SQL exception if there is an issue with executing a query
+   */
+  public void applyPatch(DatasetPatch patch) throws SQLException {
+    synchronized (lock) {
+      try {
+        Database.applyPatch(connection, patch);
+        if (saved != null) {
+          for (int id : patch.getDeletedPokemonIds()) {
+            saved.clear(id);
+          }
+          for (int id : patch.getUpsertedPokemonIds()) {
+            saved.set(id);
+          }
+        }
+      } finally {
+        // Also after a failed patch, which may leave a transaction of the caller's half done
+        for (int id : patch.getDeletedPokemonIds()) {
+          cache.invalidate(id);
+        }
+        for (int id : patch.getUpsertedPokemonIds()) {
+          cache.invalidate(id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Empties the cache, so that lookups read the database again, e.g. after it was changed by
+   * another process.
+   */
+  public void invalidateCache() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Returns the hit rate, eviction and load time counters of the cache.
+   * @return a snapshot of the cache's counters
+   */
+  public CacheStats getCacheStats() {
+    return cache.getStats();
+  }
+
+  /**
+   * Starts downloading every Pokemon (and the type chart) that isn't in the database yet in the
+   * background, as BULK fetches. Does nothing if the filler is already running, and waits for a
+   * stopped filler that hasn't finished yet before starting again.
+   */
+  public synchronized void startFiller() {
+    if (filler != null && filler.isAlive()) {
+      if (!stopped) {
+        return;
+      }
+      // The old filler would carry on once stopped is cleared, next to the new one
+      boolean interrupted = false;
+      while (filler.isAlive()) {
+        try {
+          filler.join();
+        } catch (InterruptedException exception) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    stopped = false;
+    filler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          fill();
+        } catch (SQLException exception) {
+          System.err.println("Uh-oh! Encountered an error: " + exception.getMessage());
+        }
+      }
+    }, "pokedex-filler");
+    filler.setPriority(Thread.MIN_PRIORITY);
+    filler.setDaemon(true);
+    filler.start();
+  }
+
+  /**
+   * Stops the background filler, cancelling its queued fetches. The Pokemon it already saved are
+   * kept, and starting it again picks up where it stopped.
+   */
+  public void stopFiller() {
+    stopped = true;
+    synchronized (lock) {
+      for (Future<Pokemon> fetch : fillerFetches) {
+        fetch.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Returns the queue depths and queue wait times of the fetches of each priority.
+   * @return a snapshot of the fetch scheduler's counters
+   */
+  public FetchStats getFetchStats() {
+    return scheduler.getStats();
+  }
+
+  /**
+   * Waits for the background filler to finish.
+   * @param timeoutMillis the longest to wait in milliseconds, or 0 to wait for as long as it takes
+   * @return whether the filler has finished (or was never started)
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public boolean awaitFiller(long timeoutMillis) throws InterruptedException {
+    Thread current;
+    synchronized (this) {
+      current = filler;
+    }
+    if (current == null) {
+      return true;
+    }
+    current.join(timeoutMillis);
+    return !current.isAlive();
+  }
+
+  private void fill() throws SQLException {
+    boolean hasTypeChart;
+    synchronized (lock) {
+      hasTypeChart = Database.getTypeChart(connection).getTypeIds().length > 0;
+    }
+    if (!hasTypeChart) {
+      TypeChart chart = source.getTypeChart();
+      synchronized (lock) {
+        Database.populateTypeEfficacyTable(connection, chart);
+      }
+    }
+    if (stopped) {
+      return;
+    }
+    int count = source.getNumPokemon();
+    synchronized (lock) {
+      saved = Database.getPokemonIds(connection);
+    }
+    // Queues every missing Pokemon up front; lookups are still served first by the scheduler
+    List<Future<Pokemon>> fetches = new ArrayList<>();
+    synchronized (lock) {
+      // stopFiller sets stopped before it takes the lock, so it either sees these fetches or
+      // they are never queued
+      if (stopped) {
+        return;
+      }
+      for (int id = saved.nextClearBit(1); id <= count; id = saved.nextClearBit(id + 1)) {
+        fetches.add(scheduler.submit(id, FetchPriority.BULK));
+      }
+      fillerFetches = fetches;
+    }
+    for (Future<Pokemon> fetch : fetches) {
+      Pokemon pokemon = await(fetch);
+      boolean isSaved;
+      synchronized (lock) {
+        // Skips the Pokemon that were looked up (and saved) in the meantime
+        isSaved = pokemon == null || saved.get(pokemon.getId());
+      }
+      if (stopped) {
+        return;
+      } else if (!isSaved) {
+        save(pokemon);
+      }
+    }
+  }
+
+  /**
+   * Returns the result of the fetch, or null if it failed or was cancelled.
+   */
+  private static Pokemon await(Future<Pokemon> fetch) {
+    try {
+      return fetch.get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | CancellationException exception) {
+      return null;
+    }
+  }
+
+  private Pokemon save(Pokemon pokemon) throws SQLException {
+    if (pokemon == null || PokeApiFetcher.NO_NAME.equals(pokemon.getName())) {
+      return null;
+    }
+    synchronized (lock) {
+      Database.insertPokemon(connection, pokemon);
+      if (saved != null) {
+        saved.set(pokemon.getId());
+      }
+      // The cache may hold the placeholder that was there before
+      cache.invalidate(pokemon.getId());
+    }
+    return pokemon;
+  }
+}
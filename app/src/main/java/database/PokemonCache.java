@@ -0,0 +1,215 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import pokedex.Pokemon;
+import util.CacheStats;
+import util.WTinyLfuCache;
+
+/**
+ * A read-through cache of Pokemon in front of the database, bounded by the estimated size of the
+ * cached Pokemon in bytes. Popular Pokemon stay cached through bursts of lookups of rarely used
+ * ones (see WTinyLfuCache). After the database is refreshed, the changed Pokemon (or all of them)
+ * have to be invalidated.
+ *
+ * <p>Concurrent misses on the same id share one database read. A read that was running when
+ * anything was invalidated is returned to its callers but not cached, so a Pokemon read before a
+ * refresh never outlives its invalidation in the cache. Reads synchronize on the connection, so
+ * other code sharing it can do the same to use it safely.
+ */
+public class PokemonCache {
+  // Rough sizes (in bytes) of a Pokemon with no name, abilities or moves, and of a list entry
+  private static final int POKEMON_BYTES = 96;
+  private static final int ENTRY_BYTES = 48;
+  private static final int BYTES_PER_CHAR = 2;
+  private final Connection connection;
+  private final WTinyLfuCache<Integer, Pokemon> cache;
+  // The reads running for cache misses, by id (guarded by loads)
+  private final Map<Integer, FutureTask<Pokemon>> loads = new HashMap<>();
+  // Counts the invalidations, so that a read that overlapped one isn't cached (guarded by loads)
+  private long generation;
+
+  /**
+   * Creates a PokemonCache over the given database connection.
+   * @param connection the connection to the database
+   * @param maximumBytes the most estimated bytes of Pokemon to cache
+   */
+  public PokemonCache(Connection connection, long maximumBytes) {
+    this.connection = connection;
+    cache = new WTinyLfuCache<>(maximumBytes, (int) Math.min(Integer.MAX_VALUE,
+        maximumBytes / POKEMON_BYTES), new WTinyLfuCache.Weigher<Integer, Pokemon>() {
+          @Override
+          public int weigh(Integer id, Pokemon pokemon) {
+            return estimateBytes(pokemon);
+          }
+        });
+  }
+
+  /**
+   * Returns the Pokemon with the given id, from the cache if it is there, and otherwise from the
+   * database (caching it). Returns null if the Pokemon isn't in the database.
+   * @param id the id of the Pokemon
+   * @return the Pokemon with the given id, or null
+   * @throws SQLException a SQL exception if there is an issue with executing the query
+   */
+  public Pokemon getPokemon(int id) throws SQLException {
+    Pokemon pokemon = cache.getIfPresent(id);
+    if (pokemon != null) {
+      return pokemon;
+    }
+    FutureTask<Pokemon> load;
+    boolean reading;
+    long loadGeneration;
+    synchronized (loads) {
+      load = loads.get(id);
+      reading = load == null;
+      if (reading) {
+        load = newLoad(id);
+        loads.put(id, load);
+      }
+      loadGeneration = generation;
+    }
+    if (!reading) {
+      // Another thread is already reading this Pokemon
+      return await(id, load);
+    }
+    long start = System.nanoTime();
+    load.run();
+    long loadNanos = System.nanoTime() - start;
+    try {
+      pokemon = await(id, load);
+    } catch (SQLException | RuntimeException exception) {
+      cache.recordLoadFailure(loadNanos);
+      throw exception;
+    } finally {
+      synchronized (loads) {
+        if (loads.get(id) == load) {
+          loads.remove(id);
+        }
+      }
+    }
+    if (pokemon == null) {
+      cache.recordLoadFailure(loadNanos);
+      return null;
+    }
+    synchronized (loads) {
+      if (generation == loadGeneration) {
+        cache.put(id, pokemon);
+      }
+    }
+    cache.recordLoadSuccess(loadNanos);
+    return pokemon;
+  }
+
+  /**
+   * Removes the Pokemon with the given id from the cache, so that the next lookup reads it from
+   * the database again.
+   * @param id the id of the Pokemon
+   */
+  public void invalidate(int id) {
+    synchronized (loads) {
+      generation++;
+      loads.remove(id);
+      cache.invalidate(id);
+    }
+  }
+
+  /**
+   * Removes every Pokemon from the cache, e.g. after the database was refreshed.
+   */
+  public void invalidateAll() {
+    synchronized (loads) {
+      generation++;
+      loads.clear();
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Returns the hit rate, eviction and load time counters of the cache.
+   * @return a snapshot of the cache's counters
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Returns the estimated size of the Pokemon in bytes.
+   * @param pokemon the Pokemon
+   * @return the estimated size of the Pokemon in bytes
+   */
+  public static int estimateBytes(Pokemon pokemon) {
+    int bytes = POKEMON_BYTES + BYTES_PER_CHAR * length(pokemon.getName());
+    if (pokemon.getAbilities() != null) {
+      for (String ability : pokemon.getAbilities()) {
+        bytes += ENTRY_BYTES + BYTES_PER_CHAR * length(ability);
+      }
+    }
+    if (pokemon.getMoves() != null) {
+      for (String move : pokemon.getMoves()) {
+        bytes += ENTRY_BYTES + BYTES_PER_CHAR * length(move);
+      }
+    }
+    return bytes;
+  }
+
+  private FutureTask<Pokemon> newLoad(final int id) {
+    return new FutureTask<>(new Callable<Pokemon>() {
+      @Override
+      public Pokemon call() throws SQLException {
+        synchronized (connection) {
+          return Database.getPokemon(connection, id);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the Pokemon read by the load, rethrowing its SQLException.
+   */
+  private static Pokemon await(int id, FutureTask<Pokemon> load) throws SQLException {
+    try {
+      return load.get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for Pokemon " + id, exception);
+    } catch (ExecutionException exception) {
+      if (exception.getCause() instanceof SQLException) {
+        throw (SQLException) exception.getCause();
+      } else if (exception.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exception.getCause();
+      }
+      throw (Error) exception.getCause();
+    }
+  }
+
+  private static int length(String text) {
+    return text == null ? 0 : text.length();
+  }
+}
@@ -0,0 +1,307 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import pokedex.Pokemon;
+
+/**
+ * Batches lookups of single Pokemon by id. Code that resolves many Pokemon one at a time (the
+ * members of a team, the entries of an evolution chain) calls load(id) for each of them; the ids
+ * requested together are looked up in one query (one per Database.MAX_PARAMETERS ids), each id
+ * once however many times it was requested, and every caller gets its own Pokemon back.
+ *
+ * <p>With a window, the ids requested within windowMillis of the first one are looked up together
+ * on a background thread. Without one (a window of 0), the lookups of a scope such as a request
+ * are collected until dispatch() is called.
+ */
+public class PokemonLoader implements Closeable {
+  public static final long DEFAULT_WINDOW_MILLIS = 1;
+  private final BatchSource source;
+  private final long windowMillis;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable dispatcher = new Runnable() {
+    @Override
+    public void run() {
+      dispatch();
+    }
+  };
+  private final Object lock = new Object();
+  // Guarded by lock
+  private Map<Integer, Request> pending = new LinkedHashMap<>();
+  private long requested;
+  private long batches;
+  private boolean closed;
+
+  /**
+   * Looks up a batch of Pokemon.
+   */
+  public interface BatchSource {
+    /**
+     * Returns the Pokemon with the given ids, by id, leaving out the ones that don't exist.
+     * @param ids the ids of the Pokemon
+     * @return the Pokemon found, by id
+     * @throws SQLException if the Pokemon cannot be looked up
+     */
+    Map<Integer, Pokemon> load(Set<Integer> ids) throws SQLException;
+  }
+
+  /**
+   * Creates a PokemonLoader that looks Pokemon up in the database, on read connections of the
+   * pool.
+   * @param pool the connection pool of the database
+   * @param windowMillis how long to collect lookups for, or 0 to collect them until dispatch()
+   */
+  public PokemonLoader(final ConnectionPool pool, long windowMillis) {
+    this(new BatchSource() {
+      @Override
+      public Map<Integer, Pokemon> load(Set<Integer> ids) throws SQLException {
+        try (Connection connection = pool.getReadConnection()) {
+          return Database.getPokemon(connection, ids);
+        }
+      }
+    }, windowMillis);
+  }
+
+  /**
+   * Creates a PokemonLoader.
+   * @param source used to look up each batch of Pokemon
+   * @param windowMillis how long to collect lookups for, or 0 to collect them until dispatch()
+   */
+  public PokemonLoader(BatchSource source, long windowMillis) {
+    if (windowMillis < 0) {
+      throw new IllegalArgumentException("The window cannot be negative");
+    }
+    this.source = source;
+    this.windowMillis = windowMillis;
+    if (windowMillis == 0) {
+      scheduler = null;
+    } else {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "pokemon-loader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+  }
+
+  /**
+   * Requests the Pokemon with the given id. Requests of the same id in one batch share a lookup,
+   * but each gets its own Future, so cancelling one of them leaves the others alone.
+   * @param id the id of the Pokemon
+   * @return a Future of the Pokemon, or of null if there is no Pokemon with the id
+   */
+  public Future<Pokemon> load(int id) {
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("The loader is closed");
+      }
+      requested++;
+      Request request = pending.get(id);
+      if (request == null) {
+        request = new Request(id);
+        pending.put(id, request);
+        if (pending.size() == 1 && scheduler != null) {
+          scheduler.schedule(dispatcher, windowMillis, TimeUnit.MILLISECONDS);
+        }
+      }
+      return request.newHandle();
+    }
+  }
+
+  /**
+   * Looks up the Pokemon requested so far in the calling thread, completing their Futures.
+   */
+  public void dispatch() {
+    Map<Integer, Request> batch;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = pending;
+      pending = new LinkedHashMap<>();
+      batches++;
+    }
+    try {
+      Map<Integer, Pokemon> pokemon = source.load(batch.keySet());
+      for (Map.Entry<Integer, Request> entry : batch.entrySet()) {
+        entry.getValue().complete(pokemon.get(entry.getKey()));
+      }
+    } catch (SQLException | RuntimeException exception) {
+      for (Request request : batch.values()) {
+        request.fail(exception);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of times load(id) was called.
+   * @return the number of requested Pokemon
+   */
+  public long getRequested() {
+    synchronized (lock) {
+      return requested;
+    }
+  }
+
+  /**
+   * Returns the number of batches looked up.
+   * @return the number of batches
+   */
+  public long getBatches() {
+    synchronized (lock) {
+      return batches;
+    }
+  }
+
+  /**
+   * Looks up the Pokemon still pending and stops the background thread.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+    }
+    dispatch();
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * A requested Pokemon, completed by dispatch(), which completes the Future of every caller.
+   */
+  private class Request extends FutureTask<Pokemon> {
+    private final int id;
+    // Guarded by lock
+    private final List<Handle> handles = new ArrayList<>();
+
+    Request(int id) {
+      super(new Callable<Pokemon>() {
+        @Override
+        public Pokemon call() {
+          return null;
+        }
+      });
+      this.id = id;
+    }
+
+    /**
+     * Returns a new Future of this lookup for one caller. Called with the lock held.
+     */
+    Handle newHandle() {
+      Handle handle = new Handle(this);
+      handles.add(handle);
+      return handle;
+    }
+
+    /**
+     * Forgets a cancelled handle, dropping the lookup if it is still pending and nothing else is
+     * waiting for it.
+     */
+    void release(Handle handle) {
+      synchronized (lock) {
+        if (handles.remove(handle) && handles.isEmpty() && pending.get(id) == this) {
+          pending.remove(id);
+        }
+      }
+    }
+
+    void complete(Pokemon pokemon) {
+      set(pokemon);
+    }
+
+    void fail(Exception exception) {
+      setException(exception);
+    }
+
+    @Override
+    protected void done() {
+      List<Handle> waiting;
+      synchronized (lock) {
+        waiting = new ArrayList<>(handles);
+        handles.clear();
+      }
+      for (Handle handle : waiting) {
+        try {
+          handle.complete(get());
+        } catch (ExecutionException exception) {
+          handle.fail(exception.getCause());
+        } catch (CancellationException | InterruptedException exception) {
+          // A finished FutureTask never waits, and nothing cancels a Request, so this is unused
+          handle.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * The Future of one caller of load(id), completed by its Request.
+   */
+  private static class Handle extends FutureTask<Pokemon> {
+    private final Request request;
+
+    Handle(Request request) {
+      super(new Callable<Pokemon>() {
+        @Override
+        public Pokemon call() {
+          return null;
+        }
+      });
+      this.request = request;
+    }
+
+    void complete(Pokemon pokemon) {
+      set(pokemon);
+    }
+
+    void fail(Throwable throwable) {
+      setException(throwable);
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        request.release(this);
+      }
+    }
+  }
+}
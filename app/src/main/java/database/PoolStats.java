@@ -0,0 +1,121 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+/**
+ * A snapshot of the connections of one kind (read or write) in a ConnectionPool, and of how long
+ * threads waited to get one.
+ */
+public class PoolStats {
+  private final int size;
+  private final int idle;
+  private final long acquired;
+  private final long timeouts;
+  private final long reconnects;
+  private final double averageWaitMillis;
+  private final double maxWaitMillis;
+  private final double p99WaitMillis;
+
+  PoolStats(int size, int idle, long acquired, long timeouts, long reconnects,
+      double averageWaitMillis, double maxWaitMillis, double p99WaitMillis) {
+    this.size = size;
+    this.idle = idle;
+    this.acquired = acquired;
+    this.timeouts = timeouts;
+    this.reconnects = reconnects;
+    this.averageWaitMillis = averageWaitMillis;
+    this.maxWaitMillis = maxWaitMillis;
+    this.p99WaitMillis = p99WaitMillis;
+  }
+
+  /**
+   * Returns the number of connections.
+   * @return the number of connections
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of connections not in use.
+   * @return the number of idle connections
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * Returns the number of times a connection was handed out.
+   * @return the number of acquired connections
+   */
+  public long getAcquired() {
+    return acquired;
+  }
+
+  /**
+   * Returns the number of times no connection became free in time.
+   * @return the number of timeouts
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Returns the number of connections that failed a health check and were reopened.
+   * @return the number of reopened connections
+   */
+  public long getReconnects() {
+    return reconnects;
+  }
+
+  /**
+   * Returns the average time threads waited for a connection, in milliseconds.
+   * @return the average wait in milliseconds
+   */
+  public double getAverageWaitMillis() {
+    return averageWaitMillis;
+  }
+
+  /**
+   * Returns the longest time a thread waited for a connection, in milliseconds.
+   * @return the longest wait in milliseconds
+   */
+  public double getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  /**
+   * Returns the 99th percentile of the time recent threads waited for a connection, in
+   * milliseconds.
+   * @return the 99th percentile wait of recent acquisitions in milliseconds
+   */
+  public double getP99WaitMillis() {
+    return p99WaitMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PoolStats[size=%d, idle=%d, acquired=%d, timeouts=%d, reconnects=%d, "
+        + "avgWait=%.2fms, p99Wait=%.2fms, maxWait=%.2fms]", size, idle, acquired, timeouts,
+        reconnects, averageWaitMillis, p99WaitMillis, maxWaitMillis);
+  }
+}
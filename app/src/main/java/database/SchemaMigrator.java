@@ -0,0 +1,208 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import pokedex.StatColumn;
+
+/**
+ * Brings the schema of a database up to date in place. The version of the schema is kept in
+ * PRAGMA user_version, and each migration moves it up by one, in its own transaction, changing the
+ * existing tables and adding only what is new; so an upgrade keeps the Pokemon already downloaded
+ * instead of needing a new database and a full download of PokeAPI.
+ *
+ * <p>A database made before versioning has version 0 (and whichever tables the code of the time
+ * created), so the migrations only create what is missing. A new schema change is a new migration
+ * appended to MIGRATIONS; the ones already released are never changed.
+ */
+public class SchemaMigrator {
+  /**
+   * A change to the schema, from version - 1 to version.
+   */
+  public abstract static class Migration {
+    private final int version;
+    private final String description;
+
+    /**
+     * Creates a Migration.
+     * @param version the schema version after the migration
+     * @param description what the migration changes
+     */
+    public Migration(int version, String description) {
+      this.version = version;
+      this.description = description;
+    }
+
+    /**
+     * Returns the schema version after the migration.
+     * @return the version the migration upgrades to
+     */
+    public int getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns what the migration changes.
+     * @return the description of the migration
+     */
+    public String getDescription() {
+      return description;
+    }
+
+    /**
+     * Changes the schema. This runs in a transaction, which must not be committed here.
+     * @param statement a statement of the connection to the database
+     * @throws SQLException if the schema cannot be changed
+     */
+    public abstract void migrate(Statement statement) throws SQLException;
+
+    @Override
+    public String toString() {
+      return "v" + version + " (" + description + ")";
+    }
+  }
+
+  /**
+   * The migrations of the schema, in order.
+   */
+  public static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+      new Migration(1, "pokemon, types and pokemon_types tables") {
+        @Override
+        public void migrate(Statement statement) throws SQLException {
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS pokemon(id INTEGER PRIMARY KEY, "
+              + "name STRING, base_experience INTEGER, height FLOAT, weight FLOAT, hp INTEGER, "
+              + "attack INTEGER, defense INTEGER, special_attack INTEGER, "
+              + "special_defense INTEGER, speed INTEGER, modified DATE)");
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS types(type_id INTEGER PRIMARY KEY, "
+              + "type STRING)");
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS pokemon_types(pokemon_id INTEGER, "
+              + "type_id INTEGER, FOREIGN KEY(pokemon_id) REFERENCES pokemon(id), "
+              + "FOREIGN KEY(type_id) REFERENCES types(type_id))");
+        }
+      },
+      // The type chart is filled in by the background filler of LazyPokemonStore, which fetches
+      // it (about 20 requests) when the table is empty
+      new Migration(2, "type_efficacy table") {
+        @Override
+        public void migrate(Statement statement) throws SQLException {
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS type_efficacy("
+              + "attacking_type_id INTEGER, defending_type_id INTEGER, damage_factor INTEGER, "
+              + "PRIMARY KEY(attacking_type_id, defending_type_id), "
+              + "FOREIGN KEY(attacking_type_id) REFERENCES types(type_id), "
+              + "FOREIGN KEY(defending_type_id) REFERENCES types(type_id))");
+        }
+      },
+      new Migration(3, "sort key and pokemon_types indexes") {
+        @Override
+        public void migrate(Statement statement) throws SQLException {
+          // Indexes every sort key (ties by id) so that a page seeks straight to its first row
+          for (StatColumn column : StatColumn.values()) {
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS pokemon_"
+                + column.name().toLowerCase(Locale.ROOT) + " ON pokemon("
+                + Database.sortExpression(column) + " DESC, id)");
+          }
+          statement.executeUpdate("CREATE INDEX IF NOT EXISTS pokemon_types_pokemon "
+              + "ON pokemon_types(pokemon_id)");
+        }
+      },
+      new Migration(4, "pokemon name index") {
+        @Override
+        public void migrate(Statement statement) throws SQLException {
+          statement.executeUpdate("CREATE INDEX IF NOT EXISTS pokemon_name ON pokemon(name)");
+        }
+      }));
+
+  public static final int LATEST_VERSION = MIGRATIONS.size();
+
+  /**
+   * Returns the schema version of the database (0 if it predates versioning, or is new).
+   * @param connection the connection to the database
+   * @return the schema version of the database
+   * @throws SQLException if the version cannot be read
+   */
+  public static int getVersion(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet results = statement.executeQuery("PRAGMA user_version")) {
+      return results.next() ? results.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Runs the migrations the database doesn't have yet.
+   * @param connection the connection to the database
+   * @return the migrations that were run
+   * @throws SQLException if a migration fails (the ones before it are kept), or the database was
+   *     made by a newer version of the application
+   */
+  public static List<Migration> migrate(Connection connection) throws SQLException {
+    return migrate(connection, MIGRATIONS);
+  }
+
+  /**
+   * Runs the migrations the database doesn't have yet, out of the given ones.
+   * @param connection the connection to the database
+   * @param migrations the migrations of the schema, in order, with versions 1, 2, 3...
+   * @return the migrations that were run
+   * @throws SQLException if a migration fails (the ones before it are kept), or the database is
+   *     newer than the last migration
+   */
+  public static List<Migration> migrate(Connection connection, List<Migration> migrations)
+      throws SQLException {
+    for (int index = 0; index < migrations.size(); index++) {
+      if (migrations.get(index).getVersion() != index + 1) {
+        throw new IllegalArgumentException("Migration " + migrations.get(index)
+            + " is out of order");
+      }
+    }
+    int version = getVersion(connection);
+    if (version > migrations.size()) {
+      throw new SQLException("The database schema (v" + version + ") is newer than this "
+          + "version of the application (v" + migrations.size() + ")");
+    }
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try (Statement statement = connection.createStatement()) {
+      for (Migration migration : migrations.subList(version, migrations.size())) {
+        try {
+          migration.migrate(statement);
+          // The version is part of the transaction, so it only moves if the migration commits
+          statement.executeUpdate("PRAGMA user_version = " + migration.getVersion());
+          connection.commit();
+        } catch (SQLException | RuntimeException exception) {
+          connection.rollback();
+          throw new SQLException("Migration to " + migration + " failed: "
+              + exception.getMessage(), exception);
+        }
+      }
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+    return migrations.subList(version, migrations.size());
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokeapi;
+
+/**
+ * The priority classes of fetches from PokeAPI, from most to least urgent.
+ */
+public enum FetchPriority {
+  // A user is waiting for the result
+  INTERACTIVE,
+  // The result is likely to be asked for soon (e.g. the next page of a list)
+  PREFETCH,
+  // Background sync of the whole Pokedex
+  BULK
+}
@@ -0,0 +1,386 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokeapi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import pokedex.Pokemon;
+
+/**
+ * Runs Pokemon fetches from PokeAPI on a fixed number of worker threads (the concurrency budget),
+ * always starting the most urgent queued fetch first. Fetches below INTERACTIVE priority can use
+ * all but one of the workers, so a user's lookup never has to wait for a bulk fetch to finish
+ * before it starts.
+ *
+ * <p>There is at most one fetch per id queued or running at a time: submitting an id that is
+ * already queued shares its fetch, and promotes the fetch if the new priority is more urgent (e.g.
+ * a user asks for a Pokemon that the background sync has queued). Each submission gets a Future
+ * of its own, so cancelling one (e.g. when the background sync is stopped) leaves the others
+ * waiting; the fetch itself is only cancelled once every Future of it is.
+ */
+public class FetchScheduler {
+  // How many recent waits of each priority the 99th percentile is taken over
+  private static final int RECENT_WAITS = 1024;
+  private static final double NANOS_PER_MILLI = 1e6;
+  private static final FetchPriority[] PRIORITIES = FetchPriority.values();
+  private final Fetcher fetcher;
+  private final int concurrency;
+  // The most workers that fetches below INTERACTIVE priority may use at once
+  private final int nonInteractiveLimit;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  // Everything below is guarded by lock
+  private final List<ArrayDeque<Request>> queues = new ArrayList<>(PRIORITIES.length);
+  private final Map<Integer, Request> pending = new HashMap<>();
+  private final int[] queueDepths = new int[PRIORITIES.length];
+  private int running;
+  private int runningNonInteractive;
+  private boolean shutdown;
+  private final long[] started = new long[PRIORITIES.length];
+  private final long[] totalWaitNanos = new long[PRIORITIES.length];
+  private final long[] maxWaitNanos = new long[PRIORITIES.length];
+  private final long[][] recentWaitNanos = new long[PRIORITIES.length][RECENT_WAITS];
+
+  /**
+   * Fetches a single Pokemon.
+   */
+  public interface Fetcher {
+    /**
+     * Returns the Pokemon with the given id.
+     * @param id the id of the Pokemon
+     * @return the Pokemon with the given id
+     */
+    Pokemon fetch(int id);
+  }
+
+  /**
+   * Creates a FetchScheduler that fetches from PokeAPI.
+   * @param concurrency the most fetches to run at once
+   */
+  public FetchScheduler(int concurrency) {
+    this(concurrency, new Fetcher() {
+      @Override
+      public Pokemon fetch(int id) {
+        return PokeApiFetcher.getPokemon(id);
+      }
+    });
+  }
+
+  /**
+   * Creates a FetchScheduler that fetches with the given Fetcher.
+   * @param concurrency the most fetches to run at once
+   * @param fetcher the Fetcher to fetch Pokemon with
+   */
+  public FetchScheduler(int concurrency, Fetcher fetcher) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+    }
+    this.fetcher = fetcher;
+    this.concurrency = concurrency;
+    nonInteractiveLimit = Math.max(1, concurrency - 1);
+    for (int priority = 0; priority < PRIORITIES.length; priority++) {
+      queues.add(new ArrayDeque<Request>());
+    }
+    for (int worker = 0; worker < concurrency; worker++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          work();
+        }
+      }, "pokeapi-fetch-" + worker);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Queues a fetch of the Pokemon with the given id, or returns the fetch of that id already
+   * queued or running (promoting it if the given priority is more urgent than its own).
+   * @param id the id of the Pokemon
+   * @param priority the priority of the fetch
+   * @return the Future result of the fetch, which can be cancelled without affecting the other
+   *     submissions of the same id
+   */
+  public Future<Pokemon> submit(int id, FetchPriority priority) {
+    lock.lock();
+    try {
+      if (shutdown) {
+        throw new IllegalStateException("The scheduler has been shut down");
+      }
+      Request request = pending.get(id);
+      if (request != null) {
+        if (!request.started && priority.compareTo(request.priority) < 0) {
+          // The entry in the old queue is skipped when it comes up, since its priority changed
+          queueDepths[request.priority.ordinal()]--;
+          request.priority = priority;
+          enqueue(request);
+        }
+        return request.newHandle();
+      }
+      request = new Request(id, priority);
+      pending.put(id, request);
+      enqueue(request);
+      return request.newHandle();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops the workers once the fetches running finish. Queued fetches are cancelled.
+   */
+  public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      for (Request request : pending.values().toArray(new Request[0])) {
+        request.cancel(false);
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the queue depths and queue wait times of each priority.
+   * @return a snapshot of the scheduler's counters
+   */
+  public FetchStats getStats() {
+    lock.lock();
+    try {
+      double[] averageWait = new double[PRIORITIES.length];
+      double[] maxWait = new double[PRIORITIES.length];
+      double[] p99Wait = new double[PRIORITIES.length];
+      for (int priority = 0; priority < PRIORITIES.length; priority++) {
+        if (started[priority] > 0) {
+          averageWait[priority] = totalWaitNanos[priority] / NANOS_PER_MILLI / started[priority];
+          maxWait[priority] = maxWaitNanos[priority] / NANOS_PER_MILLI;
+          long[] recent = Arrays.copyOf(recentWaitNanos[priority],
+              (int) Math.min(started[priority], RECENT_WAITS));
+          Arrays.sort(recent);
+          p99Wait[priority] = recent[(int) Math.ceil(0.99 * recent.length) - 1] / NANOS_PER_MILLI;
+        }
+      }
+      return new FetchStats(queueDepths.clone(), running, started.clone(), averageWait, maxWait,
+          p99Wait);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the most fetches the scheduler runs at once.
+   * @return the concurrency budget
+   */
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  private void enqueue(Request request) {
+    queues.get(request.priority.ordinal()).addLast(request);
+    queueDepths[request.priority.ordinal()]++;
+    changed.signalAll();
+  }
+
+  private void work() {
+    while (true) {
+      Request request;
+      lock.lock();
+      try {
+        while ((request = next()) == null) {
+          if (shutdown) {
+            return;
+          }
+          changed.awaitUninterruptibly();
+        }
+      } finally {
+        lock.unlock();
+      }
+      request.run();
+      lock.lock();
+      try {
+        running--;
+        if (request.priority != FetchPriority.INTERACTIVE) {
+          runningNonInteractive--;
+        }
+        // A freed worker may let a waiting lower priority fetch start
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Takes the most urgent fetch that may start now off its queue, or returns null if there is
+   * none. Called with the lock held.
+   */
+  private Request next() {
+    for (FetchPriority priority : PRIORITIES) {
+      if (priority != FetchPriority.INTERACTIVE && runningNonInteractive >= nonInteractiveLimit) {
+        return null;
+      }
+      ArrayDeque<Request> queue = queues.get(priority.ordinal());
+      Request request;
+      while ((request = queue.pollFirst()) != null) {
+        // Skips entries left behind by a promotion, and fetches already cancelled
+        if (request.started || request.priority != priority) {
+          continue;
+        }
+        request.started = true;
+        queueDepths[priority.ordinal()]--;
+        long wait = System.nanoTime() - request.enqueuedNanos;
+        int index = priority.ordinal();
+        recentWaitNanos[index][(int) (started[index] % RECENT_WAITS)] = wait;
+        started[index]++;
+        totalWaitNanos[index] += wait;
+        maxWaitNanos[index] = Math.max(maxWaitNanos[index], wait);
+        running++;
+        if (priority != FetchPriority.INTERACTIVE) {
+          runningNonInteractive++;
+        }
+        return request;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A queued or running fetch of one id.
+   */
+  private class Request extends FutureTask<Pokemon> {
+    private final int id;
+    private final long enqueuedNanos = System.nanoTime();
+    // Guarded by lock
+    private FetchPriority priority;
+    private boolean started;
+    private final List<Handle> handles = new ArrayList<>();
+
+    Request(final int id, FetchPriority priority) {
+      super(new Callable<Pokemon>() {
+        @Override
+        public Pokemon call() {
+          return fetcher.fetch(id);
+        }
+      });
+      this.id = id;
+      this.priority = priority;
+    }
+
+    /**
+     * Returns a new Future of this fetch for one submission. Called with the lock held.
+     */
+    Handle newHandle() {
+      Handle handle = new Handle(this);
+      handles.add(handle);
+      return handle;
+    }
+
+    /**
+     * Forgets a cancelled handle, cancelling the fetch if nothing else is waiting for it.
+     */
+    void release(Handle handle) {
+      lock.lock();
+      try {
+        if (handles.remove(handle) && handles.isEmpty()) {
+          cancel(false);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    protected void done() {
+      List<Handle> waiting;
+      lock.lock();
+      try {
+        if (pending.get(id) == this) {
+          pending.remove(id);
+        }
+        if (!started) {
+          // Cancelled while queued
+          started = true;
+          queueDepths[priority.ordinal()]--;
+        }
+        waiting = new ArrayList<>(handles);
+        handles.clear();
+      } finally {
+        lock.unlock();
+      }
+      for (Handle handle : waiting) {
+        try {
+          handle.complete(get());
+        } catch (ExecutionException exception) {
+          handle.fail(exception.getCause());
+        } catch (CancellationException | InterruptedException exception) {
+          // A finished FutureTask never waits, so only a cancelled fetch gets here
+          handle.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * The Future of one submission of a fetch, completed by the fetch when it finishes.
+   */
+  private static class Handle extends FutureTask<Pokemon> {
+    private final Request request;
+
+    Handle(Request request) {
+      super(new Callable<Pokemon>() {
+        @Override
+        public Pokemon call() {
+          return null;
+        }
+      });
+      this.request = request;
+    }
+
+    void complete(Pokemon pokemon) {
+      set(pokemon);
+    }
+
+    void fail(Throwable throwable) {
+      setException(throwable);
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        request.release(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokeapi;
+
+/**
+ * A snapshot of the queue depths and the time fetches of each priority waited in the queue of a
+ * FetchScheduler.
+ */
+public class FetchStats {
+  private final int[] queueDepths;
+  private final int running;
+  private final long[] started;
+  private final double[] averageWaitMillis;
+  private final double[] maxWaitMillis;
+  private final double[] p99WaitMillis;
+
+  FetchStats(int[] queueDepths, int running, long[] started, double[] averageWaitMillis,
+      double[] maxWaitMillis, double[] p99WaitMillis) {
+    this.queueDepths = queueDepths;
+    this.running = running;
+    this.started = started;
+    this.averageWaitMillis = averageWaitMillis;
+    this.maxWaitMillis = maxWaitMillis;
+    this.p99WaitMillis = p99WaitMillis;
+  }
+
+  /**
+   * Returns the number of fetches of the priority waiting in the queue.
+   * @param priority the priority
+   * @return the number of queued fetches of the priority
+   */
+  public int getQueueDepth(FetchPriority priority) {
+    return queueDepths[priority.ordinal()];
+  }
+
+  /**
+   * Returns the number of fetches running.
+   * @return the number of fetches running
+   */
+  public int getRunning() {
+    return running;
+  }
+
+  /**
+   * Returns the number of fetches of the priority that have left the queue (by the priority they
+   * had when they left it).
+   * @param priority the priority
+   * @return the number of started fetches of the priority
+   */
+  public long getStarted(FetchPriority priority) {
+    return started[priority.ordinal()];
+  }
+
+  /**
+   * Returns the average time fetches of the priority waited in the queue, in milliseconds.
+   * @param priority the priority
+   * @return the average wait in milliseconds
+   */
+  public double getAverageWaitMillis(FetchPriority priority) {
+    return averageWaitMillis[priority.ordinal()];
+  }
+
+  /**
+   * Returns the longest time a fetch of the priority waited in the queue, in milliseconds.
+   * @param priority the priority
+   * @return the longest wait in milliseconds
+   */
+  public double getMaxWaitMillis(FetchPriority priority) {
+    return maxWaitMillis[priority.ordinal()];
+  }
+
+  /**
+   * Returns the 99th percentile of the time the recent fetches of the priority waited in the
+   * queue, in milliseconds.
+   * @param priority the priority
+   * @return the 99th percentile wait of recent fetches in milliseconds
+   */
+  public double getP99WaitMillis(FetchPriority priority) {
+    return p99WaitMillis[priority.ordinal()];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder("FetchStats[running=" + running);
+    for (FetchPriority priority : FetchPriority.values()) {
+      text.append(String.format(", %s(queued=%d, started=%d, avgWait=%.1fms, p99Wait=%.1fms)",
+          priority, getQueueDepth(priority), getStarted(priority),
+          getAverageWaitMillis(priority), getP99WaitMillis(priority)));
+    }
+    return text.append("]").toString();
+  }
+}
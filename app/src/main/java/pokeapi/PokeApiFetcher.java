@@ -26,10 +26,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
 import pokedex.Pokemon;
 import pokedex.Pokemon.PokemonBuilder;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
 import util.Pair;
 
 /**
@@ -41,7 +44,8 @@ public class PokeApiFetcher {
   public static final String POKEMON_URL = "pokemon/";
   public static final String TYPES_URL = "type/";
   private static final int FAILED = -1;
-  private static final String NO_NAME = "MISSINGNO";
+  // The name given to a Pokemon that PokeAPI couldn't return
+  public static final String NO_NAME = "MISSINGNO";
 
   /**
    * Returns the number of Pokemon in the Pokedex by making a GET request to the 
@@ -103,6 +107,29 @@ public class PokeApiFetcher {
     return types;
   }
   
+  /**
+   * Returns the damage multipliers between all of the given types, fetched from the
+   * damage_relations of each type. A type that can't be fetched has neutral matchups.
+   * @param types a List of all the types of Pokemon (type id, type name)
+   * @return the damage multipliers between the types
+   */
+  public static TypeChart getTypeChart(List<Pair<Integer,String>> types) {
+    TypeChartBuilder chart = new TypeChartBuilder();
+    for (Pair<Integer,String> type : types) {
+      try {
+        // Makes a URL object given the type url
+        URL url = new URL(API_URL + TYPES_URL + type.getLeft() + "/");
+        // Gets the response of the GET request
+        String response = getApiResponse(url);
+        chart = PokeApiParser.parseDamageRelations(response, type.getLeft(), chart);
+      } catch (IOException e) {
+        System.err.println("Uh-oh! Encountered an error: " + e.getMessage());
+        chart.addType(type.getLeft());
+      }
+    }
+    return chart.build();
+  }
+
   /**
    * Returns a newly created Pokemon object to represent a Pokemon.
    * @param id the id of the Pokemon
@@ -122,6 +149,24 @@ public class PokeApiFetcher {
     return pokemon.build();
   }
 
+  /**
+   * Returns a newly created Pokemon object to represent the Pokemon with the given name, or null
+   * if PokeAPI has no Pokemon with that name (or couldn't be reached).
+   * @param name the name of the Pokemon, e.g. "bulbasaur"
+   * @return the Pokemon with the given name, or null
+   */
+  public static Pokemon getPokemon(String name) {
+    try {
+      // Makes a URL object given the Pokemon url (PokeAPI accepts a name in place of the id)
+      URL url = new URL(API_URL + POKEMON_URL + URLEncoder.encode(name, "UTF-8") + "/");
+      // Gets the response of the GET request
+      String response = getApiResponse(url);
+      return PokeApiParser.parsePokemon(response).build();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
   /**
    * Returns the API response from the GET request given a url.
    * @param url the URL to connect to and make a GET request
@@ -32,6 +32,8 @@ import java.util.List;
 import pokedex.Pokemon;
 import pokedex.Pokemon.PokemonBuilder;
 import pokedex.PokemonTypePair;
+import pokedex.Stat;
+import pokedex.TypeChart.TypeChartBuilder;
 import util.Pair;
 
 /**
@@ -61,6 +63,19 @@ public class PokeApiParser {
     return count;
   }
 
+  /**
+   * Given an API response made to the Pokemon URL with a Pokemon ID or name, parses the Pokemon
+   * (taking its ID from the response) and returns a Pokemon.
+   *
+   * @param response the response from the API made to http://pokeapi.co/api/v2/pokemon/name
+   * @return the newly created pokemon
+   * @throws IOException errors when parsing
+   */
+  public static PokemonBuilder parsePokemon(String response) throws IOException {
+    JsonObject jsonObj = new JsonParser().parse(response).getAsJsonObject();
+    return parsePokemon(response, jsonObj.get("id").getAsInt());
+  }
+
   /**
    * Given an API response made to the Pokemon URL with Pokemon ID, parses the Pokemon and returns a
    * Pokemon.
@@ -81,14 +96,15 @@ public class PokeApiParser {
             jsonParser.parse(jsonReader).getAsJsonObject();
     JsonObject formsObj = jsonObj.get("forms").getAsJsonArray().get(0).getAsJsonObject();
     String name = formsObj.get("name").getAsString();
-    Double weight = jsonObj.get("weight").getAsDouble() / 10;
-    Double height = jsonObj.get("height").getAsDouble() / 10;
+    // Weight and height are kept in the units PokeAPI uses (hectograms and decimetres)
+    int weight = jsonObj.get("weight").getAsInt();
+    int height = jsonObj.get("height").getAsInt();
     int baseExperience = jsonObj.get("base_experience").getAsInt();
 
     // Creates a new Pokemon with ID, name, weight, height, and base experience
     PokemonBuilder pokemonInfo = new Pokemon.PokemonBuilder(id);
-    pokemonInfo = pokemonInfo.setName(name).setWeight(weight)
-            .setHeight(height).setBaseExperience(baseExperience);
+    pokemonInfo = pokemonInfo.setName(name).setWeightHectograms(weight)
+            .setHeightDecimetres(height).setBaseExperience(baseExperience);
 
     // Gets a JsonArray of the stats and parses and it returns back as a PokemonBuilder object
     JsonArray statsArray = jsonObj.get("stats").getAsJsonArray();
@@ -152,6 +168,60 @@ public class PokeApiParser {
     return types;
   }
 
+  /**
+   * Given an API response made to the URL of a single type, adds the damage that type does to
+   * other types (its damage_relations) to the TypeChartBuilder, and returns the builder.
+   * @param response the response from the API made to http://pokeapi.co/api/v2/type/{id}
+   * @param attackingTypeId the id of the type the response is for
+   * @param chart the TypeChartBuilder to add the damage relations to
+   * @return the updated TypeChartBuilder
+   * @throws IOException errors when parsing
+   */
+  public static TypeChartBuilder parseDamageRelations(String response, int attackingTypeId,
+      TypeChartBuilder chart) throws IOException {
+    // Creates a StringReader to read the API response string
+    StringReader strReader = new StringReader(response);
+    // Creates a JSON reader to read the JSON from the API response string
+    JsonReader jsonReader = new JsonReader(strReader);
+
+    // Creates a JsonParser object to parse JSON
+    JsonParser jsonParser = new JsonParser();
+    // Gets the damage relations object
+    JsonObject relations = jsonParser.parse(jsonReader).getAsJsonObject()
+        .get("damage_relations").getAsJsonObject();
+    chart.addType(attackingTypeId);
+    // Only the relations going out of this type; the incoming ones are another type's outgoing
+    addDamageRelations(relations.get("double_damage_to").getAsJsonArray(), attackingTypeId,
+        200, chart);
+    addDamageRelations(relations.get("half_damage_to").getAsJsonArray(), attackingTypeId,
+        50, chart);
+    addDamageRelations(relations.get("no_damage_to").getAsJsonArray(), attackingTypeId,
+        0, chart);
+    // Close the readers since we are done reading
+    jsonReader.close();
+    strReader.close();
+    return chart;
+  }
+
+  /**
+   * Adds the damage the attacking type does to each defending type in the JSON array.
+   * @param defendingTypes a JSON array of the defending types (name and url)
+   * @param attackingTypeId the id of the attacking type
+   * @param percent the damage in percent of normal damage
+   * @param chart the TypeChartBuilder to add the damage relations to
+   */
+  private static void addDamageRelations(JsonArray defendingTypes, int attackingTypeId,
+      int percent, TypeChartBuilder chart) {
+    for (int index = 0; index < defendingTypes.size(); index++) {
+      // Gets the URL which contains the ID number
+      String url = defendingTypes.get(index).getAsJsonObject().get("url").getAsString();
+      // Parsing the substringed URL to get the ID
+      int id = Integer.parseInt(url.substring(url.indexOf(PokeApiFetcher.TYPES_URL)
+          + PokeApiFetcher.TYPES_URL.length(), url.length() - 1));
+      chart.setDamage(attackingTypeId, id, percent);
+    }
+  }
+
   /**
    * Given the results array as a JSON object, a JSON array of the stats, and the PokemonBuilder
    * object which will be the Pokemon to be built, parses the stats from the API response, and
@@ -170,27 +240,9 @@ public class PokeApiParser {
       String statName = statElement.get("stat").getAsJsonObject().get("name").getAsString();
       int baseStat = statElement.get("base_stat").getAsInt();
       // Sets the appropriate stat with base stat as the number of points
-      switch (statName) {
-        case "speed":
-          pokemonInfo = pokemonInfo.setSpeed(baseStat);
-          break;
-        case "special-defense":
-          pokemonInfo = pokemonInfo.setSpecialDefense(baseStat);
-          break;
-        case "special-attack":
-          pokemonInfo = pokemonInfo.setSpecialAttack(baseStat);
-          break;
-        case "defense":
-          pokemonInfo = pokemonInfo.setDefense(baseStat);
-          break;
-        case "attack":
-          pokemonInfo = pokemonInfo.setAttack(baseStat);
-          break;
-        case "hp":
-          pokemonInfo = pokemonInfo.setHp(baseStat);
-          break;
-        default: // Never reached as it will always be one of the cases above
-          break;
+      Stat stat = Stat.fromApiName(statName);
+      if (stat != null) { // Always found, as PokeAPI only returns the six base stats
+        pokemonInfo = pokemonInfo.setStat(stat, baseStat);
       }
     }
     return pokemonInfo;
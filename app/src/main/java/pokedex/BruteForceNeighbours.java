@@ -0,0 +1,83 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Nearest neighbour searches over the base stats that simply measure the distance to every
+ * Pokemon. Used by StatKdTree when only a few candidates are allowed, and as the reference the
+ * tree is checked against.
+ */
+public class BruteForceNeighbours {
+  /**
+   * Returns the (at most) k Pokemon whose stats are closest to the target, closest first.
+   * @param statColumns the stat columns of a Pokedex
+   * @param target the stats to search around, indexed by Stat.ordinal()
+   * @param k the number of Pokemon to return
+   * @param weights the weight of each stat, indexed by Stat.ordinal(), or null for equal weights
+   * @param candidates the ordinals to choose from, or null for every Pokemon
+   * @return the k nearest Pokemon, closest first
+   */
+  public static List<Neighbour> nearest(StatColumns statColumns, int[] target, int k,
+      double[] weights, BitSet candidates) {
+    List<Neighbour> all = withinRadius(statColumns, target, Double.POSITIVE_INFINITY, weights,
+        candidates);
+    return new ArrayList<>(all.subList(0, Math.max(0, Math.min(k, all.size()))));
+  }
+
+  /**
+   * Returns the Pokemon whose stats are within the given distance of the target, closest first.
+   * @param statColumns the stat columns of a Pokedex
+   * @param target the stats to search around, indexed by Stat.ordinal()
+   * @param radius the largest distance to include
+   * @param weights the weight of each stat, indexed by Stat.ordinal(), or null for equal weights
+   * @param candidates the ordinals to choose from, or null for every Pokemon
+   * @return the Pokemon within the radius, closest first
+   */
+  public static List<Neighbour> withinRadius(StatColumns statColumns, int[] target,
+      double radius, double[] weights, BitSet candidates) {
+    double[] checkedWeights = StatKdTree.checkWeights(weights);
+    Stat[] stats = Stat.values();
+    List<Neighbour> results = new ArrayList<>();
+    for (int ordinal = 0; ordinal < statColumns.size(); ordinal++) {
+      if (candidates != null && !candidates.get(ordinal)) {
+        continue;
+      }
+      double distance = 0;
+      for (Stat stat : stats) {
+        double difference = statColumns.get(StatColumn.forStat(stat), ordinal)
+            - target[stat.ordinal()];
+        distance += checkedWeights[stat.ordinal()] * difference * difference;
+      }
+      distance = Math.sqrt(distance);
+      if (distance <= radius) {
+        results.add(new Neighbour(ordinal, distance));
+      }
+    }
+    Collections.sort(results);
+    return results;
+  }
+}
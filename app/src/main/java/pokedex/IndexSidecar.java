@@ -0,0 +1,407 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import pokedex.Pokedex.PokedexBuilder;
+
+/**
+ * Persists the indexes of a Pokedex (the name index with its trigram postings, the type bitmaps,
+ * the rank arrays and the k-d tree) in a sidecar file next to pokedex.db, so that startup can
+ * load them instead of building them again. The file is tagged with a SHA-256 hash of the
+ * indexed content of the Pokemon and its payload is checked with a CRC32: a sidecar that is
+ * stale (the Pokemon changed) or corrupt is ignored, the indexes are rebuilt and the sidecar is
+ * written again.
+ *
+ * <p>The cheap parts of a Pokedex (the id lookups, the stat columns and the stat aggregates) are
+ * always built.
+ */
+public class IndexSidecar {
+  public static final String SIDECAR_FILE = "pokedex.idx";
+  private static final int MAGIC = 0x50494458;
+  private static final int VERSION = 1;
+  private static final int HASH_BYTES = 32;
+  // Magic, version, content hash, number of Pokemon, build time, payload length and CRC32
+  private static final int HEADER_SIZE = 4 + 4 + HASH_BYTES + 4 + 8 + 4 + 8;
+
+  /**
+   * The raw arrays of the persisted indexes, as read from a sidecar.
+   */
+  static class Indexes {
+    int[] nameOrdinals;
+    Map<String, int[]> namePostings;
+    int[] typeIds;
+    BitSet[] typeBitmaps;
+    int[][] rankOrders;
+    int[][] rankRanks;
+    int[] kdOrdinals;
+    byte[] kdSplitAxes;
+  }
+
+  /**
+   * The Pokedex returned by load, with how it was built and how long it took.
+   */
+  public static class LoadResult {
+    private final Pokedex pokedex;
+    private final String rebuildReason;
+    private final long elapsedNanos;
+    private final long buildNanos;
+
+    private LoadResult(Pokedex pokedex, String rebuildReason, long elapsedNanos,
+        long buildNanos) {
+      this.pokedex = pokedex;
+      this.rebuildReason = rebuildReason;
+      this.elapsedNanos = elapsedNanos;
+      this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Returns the Pokedex.
+     * @return the Pokedex
+     */
+    public Pokedex getPokedex() {
+      return pokedex;
+    }
+
+    /**
+     * Returns whether or not the indexes were loaded from the sidecar.
+     * @return whether or not the indexes were loaded from the sidecar
+     */
+    public boolean isLoaded() {
+      return rebuildReason == null;
+    }
+
+    /**
+     * Returns why the indexes had to be rebuilt (e.g. the sidecar was stale), or null if they
+     * were loaded.
+     * @return why the indexes were rebuilt, or null
+     */
+    public String getRebuildReason() {
+      return rebuildReason;
+    }
+
+    /**
+     * Returns how long it took to get the Pokedex, in milliseconds.
+     * @return how long it took to get the Pokedex
+     */
+    public double getElapsedMillis() {
+      return elapsedNanos / 1e6;
+    }
+
+    /**
+     * Returns how long building the Pokedex took when the sidecar was written, or just now if it
+     * was rebuilt, in milliseconds.
+     * @return how long building the Pokedex takes
+     */
+    public double getBuildMillis() {
+      return buildNanos / 1e6;
+    }
+
+    /**
+     * Returns how much startup time loading the sidecar saved over building the Pokedex, in
+     * milliseconds (0 if it was rebuilt).
+     * @return how much time loading the sidecar saved
+     */
+    public double getSavedMillis() {
+      return isLoaded() ? Math.max(0, buildNanos - elapsedNanos) / 1e6 : 0;
+    }
+
+    @Override
+    public String toString() {
+      if (isLoaded()) {
+        return String.format("Loaded indexes in %.1f ms, saving %.1f ms", getElapsedMillis(),
+            getSavedMillis());
+      }
+      return String.format("Rebuilt indexes in %.1f ms (%s)", getElapsedMillis(), rebuildReason);
+    }
+  }
+
+  /**
+   * Returns a Pokedex of the given Pokemon, with its indexes loaded from the sidecar if it
+   * matches them. Otherwise the indexes are built and the sidecar is written for the next start.
+   * @param file the sidecar file
+   * @param pokemon the Pokemon of the Pokedex
+   * @return the Pokedex, with how it was built
+   */
+  public static LoadResult load(File file, List<Pokemon> pokemon) {
+    long start = System.nanoTime();
+    PokedexBuilder builder = new PokedexBuilder(pokemon.size());
+    for (Pokemon next : pokemon) {
+      builder.addPokemon(next);
+    }
+    byte[] hash = contentHash(builder.getPokemon());
+    String reason;
+    try {
+      ByteBuffer buffer = readFile(file);
+      reason = checkHeader(buffer, hash, builder.getPokemon().size());
+      if (reason == null) {
+        long buildNanos = buffer.getLong(4 + 4 + HASH_BYTES + 4);
+        Indexes indexes = readIndexes(buffer, builder.getPokemon().size());
+        Pokedex pokedex = builder.build(indexes);
+        return new LoadResult(pokedex, null, System.nanoTime() - start, buildNanos);
+      }
+    } catch (IOException exception) {
+      reason = file.exists() ? "unreadable: " + exception.getMessage() : "no sidecar";
+    } catch (BufferUnderflowException | IllegalArgumentException
+        | IndexOutOfBoundsException exception) {
+      reason = "corrupt";
+    }
+    long buildStart = System.nanoTime();
+    Pokedex pokedex = builder.build();
+    long buildNanos = System.nanoTime() - buildStart;
+    try {
+      write(file, pokedex, buildNanos);
+    } catch (IOException exception) {
+      reason += ", and could not be written: " + exception.getMessage();
+    }
+    return new LoadResult(pokedex, reason, System.nanoTime() - start, buildNanos);
+  }
+
+  /**
+   * Writes the indexes of the Pokedex to the sidecar file. The sidecar is written to a
+   * temporary file next to it and then moved into place.
+   * @param file the sidecar file
+   * @param pokedex the Pokedex whose indexes are written
+   * @param buildNanos how long building the Pokedex took, reported by later loads as time saved
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(File file, Pokedex pokedex, long buildNanos) throws IOException {
+    byte[] payload = writeIndexes(pokedex);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).put(contentHash(pokedex.getPokedex()))
+        .putInt(pokedex.size()).putLong(buildNanos).putInt(payload.length)
+        .putLong(crc.getValue());
+    header.flip();
+    File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+    try (RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+        FileChannel channel = output.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload)};
+      while (buffers[1].hasRemaining()) {
+        channel.write(buffers);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Returns a SHA-256 hash of everything the persisted indexes depend on: the id, name, stats
+   * and types of every Pokemon, in ordinal order. (Height, weight, abilities and moves are not
+   * indexed.)
+   * @param pokemon the Pokemon, in ordinal order
+   * @return the hash of the Pokemon
+   */
+  public static byte[] contentHash(List<Pokemon> pokemon) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-256 is not available", exception);
+    }
+    ByteBuffer record = ByteBuffer.allocate(4 + 4 + Stat.values().length + Pokemon.MAX_TYPES + 2);
+    for (Pokemon next : pokemon) {
+      record.clear();
+      byte[] name = NameIndex.normalize(next.getName()).getBytes(StandardCharsets.UTF_8);
+      record.putInt(next.getId()).putInt(name.length);
+      for (Stat stat : Stat.values()) {
+        record.put((byte) next.getStat(stat));
+      }
+      for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+        record.put((byte) next.getType(index));
+      }
+      record.putShort((short) next.getBaseExperience());
+      digest.update(record.array(), 0, record.position());
+      digest.update(name);
+    }
+    return digest.digest();
+  }
+
+  private static ByteBuffer readFile(File file) throws IOException {
+    try (RandomAccessFile input = new RandomAccessFile(file, "r");
+        FileChannel channel = input.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Sidecar too large: " + channel.size() + " bytes");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new IOException("Sidecar ended early");
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  /**
+   * Returns why the sidecar cannot be used for the Pokemon with the given hash, or null if it
+   * can. Leaves the buffer positioned at the payload.
+   */
+  private static String checkHeader(ByteBuffer buffer, byte[] hash, int size) {
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+      return "not a sidecar";
+    }
+    if (buffer.getInt() != VERSION) {
+      return "old version";
+    }
+    byte[] storedHash = new byte[HASH_BYTES];
+    buffer.get(storedHash);
+    if (!Arrays.equals(storedHash, hash) || buffer.getInt() != size) {
+      return "stale";
+    }
+    buffer.getLong();
+    int length = buffer.getInt();
+    long storedCrc = buffer.getLong();
+    if (length != buffer.remaining()) {
+      return "corrupt";
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+    return crc.getValue() == storedCrc ? null : "corrupt";
+  }
+
+  private static byte[] writeIndexes(Pokedex pokedex) {
+    int size = pokedex.size();
+    NameIndex nameIndex = pokedex.getNameIndex();
+    TypeIndex typeIndex = pokedex.getTypeIndex();
+    RankIndex rankIndex = pokedex.getRankIndex();
+    StatKdTree statKdTree = pokedex.getStatKdTree();
+    Map<String, byte[]> grams = new HashMap<>();
+    int length = 4 * size + 4;
+    for (Map.Entry<String, int[]> entry : nameIndex.postings().entrySet()) {
+      byte[] gram = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      grams.put(entry.getKey(), gram);
+      length += 4 + gram.length + 4 + 4 * entry.getValue().length;
+    }
+    long[][] bitmaps = new long[typeIndex.slotBitmaps().length][];
+    length += 4;
+    for (int slot = 0; slot < bitmaps.length; slot++) {
+      bitmaps[slot] = typeIndex.slotBitmaps()[slot].toLongArray();
+      length += 4 + 4 + 8 * bitmaps[slot].length;
+    }
+    length += 4 + rankIndex.orders().length * 2 * 4 * size;
+    length += 4 * size + size;
+
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    putInts(buffer, nameIndex.sortedOrdinals());
+    buffer.putInt(grams.size());
+    for (Map.Entry<String, int[]> entry : nameIndex.postings().entrySet()) {
+      byte[] gram = grams.get(entry.getKey());
+      buffer.putInt(gram.length).put(gram).putInt(entry.getValue().length);
+      putInts(buffer, entry.getValue());
+    }
+    buffer.putInt(bitmaps.length);
+    for (int slot = 0; slot < bitmaps.length; slot++) {
+      buffer.putInt(typeIndex.slotTypeIds()[slot]).putInt(bitmaps[slot].length);
+      buffer.asLongBuffer().put(bitmaps[slot]);
+      buffer.position(buffer.position() + 8 * bitmaps[slot].length);
+    }
+    buffer.putInt(rankIndex.orders().length);
+    for (int column = 0; column < rankIndex.orders().length; column++) {
+      putInts(buffer, rankIndex.orders()[column]);
+      putInts(buffer, rankIndex.ranks()[column]);
+    }
+    putInts(buffer, statKdTree.ordinals());
+    buffer.put(statKdTree.splitAxes());
+    return buffer.array();
+  }
+
+  private static Indexes readIndexes(ByteBuffer buffer, int size) {
+    Indexes indexes = new Indexes();
+    indexes.nameOrdinals = getInts(buffer, size);
+    int numGrams = checkCount(buffer.getInt(), buffer.remaining());
+    indexes.namePostings = new HashMap<>(numGrams * 2);
+    for (int gram = 0; gram < numGrams; gram++) {
+      byte[] bytes = new byte[checkCount(buffer.getInt(), buffer.remaining())];
+      buffer.get(bytes);
+      indexes.namePostings.put(new String(bytes, StandardCharsets.UTF_8),
+          getInts(buffer, buffer.getInt()));
+    }
+    int numSlots = checkCount(buffer.getInt(), buffer.remaining());
+    indexes.typeIds = new int[numSlots];
+    indexes.typeBitmaps = new BitSet[numSlots];
+    for (int slot = 0; slot < numSlots; slot++) {
+      indexes.typeIds[slot] = buffer.getInt();
+      long[] words = new long[checkCount(buffer.getInt(), buffer.remaining() / 8)];
+      buffer.asLongBuffer().get(words);
+      buffer.position(buffer.position() + 8 * words.length);
+      indexes.typeBitmaps[slot] = BitSet.valueOf(words);
+    }
+    int numColumns = buffer.getInt();
+    if (numColumns != StatColumn.values().length) {
+      throw new IllegalArgumentException("Sidecar has " + numColumns + " rank columns");
+    }
+    indexes.rankOrders = new int[numColumns][];
+    indexes.rankRanks = new int[numColumns][];
+    for (int column = 0; column < numColumns; column++) {
+      indexes.rankOrders[column] = getInts(buffer, size);
+      indexes.rankRanks[column] = getInts(buffer, size);
+    }
+    indexes.kdOrdinals = getInts(buffer, size);
+    indexes.kdSplitAxes = new byte[size];
+    buffer.get(indexes.kdSplitAxes);
+    if (buffer.hasRemaining()) {
+      throw new IllegalArgumentException("Sidecar has " + buffer.remaining() + " extra bytes");
+    }
+    return indexes;
+  }
+
+  private static void putInts(ByteBuffer buffer, int[] values) {
+    buffer.asIntBuffer().put(values);
+    buffer.position(buffer.position() + 4 * values.length);
+  }
+
+  private static int[] getInts(ByteBuffer buffer, int count) {
+    int[] values = new int[checkCount(count, buffer.remaining() / 4)];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + 4 * values.length);
+    return values;
+  }
+
+  // A corrupt count fails here instead of allocating a huge array
+  private static int checkCount(int count, int max) {
+    if (count < 0 || count > max) {
+      throw new IllegalArgumentException("Bad count in sidecar: " + count);
+    }
+    return count;
+  }
+}
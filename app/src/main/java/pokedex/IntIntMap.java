@@ -0,0 +1,149 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Arrays;
+
+/**
+ * A compact map from int keys to int values using open addressing with linear probing. Unlike a
+ * HashMap, it stores no boxed keys or entry objects, which makes it cheap for looking up the sparse
+ * ids of alternate forms (e.g. 10001 and up) without a dense array spanning all of them.
+ */
+public class IntIntMap {
+  private static final int EMPTY = Integer.MIN_VALUE;
+  private static final int MIN_CAPACITY = 8;
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  /**
+   * Creates an IntIntMap with room for the expected number of entries before it has to grow.
+   * @param expectedSize the expected number of entries
+   */
+  public IntIntMap(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    // Keeps the load factor at or under one half
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /**
+   * Creates a copy of the given IntIntMap.
+   * @param other the map to be copied
+   */
+  public IntIntMap(IntIntMap other) {
+    keys = other.keys.clone();
+    values = other.values.clone();
+    size = other.size;
+  }
+
+  /**
+   * Maps the key to the value, replacing any previous value.
+   * @param key the key (any int except Integer.MIN_VALUE)
+   * @param value the value to be associated with the key
+   */
+  public void put(int key, int value) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Key " + key + " is reserved");
+    }
+    int slot = findSlot(key);
+    if (keys[slot] == EMPTY) {
+      keys[slot] = key;
+      size++;
+    }
+    values[slot] = value;
+    if (size * 2 > keys.length) {
+      resize(keys.length << 1);
+    }
+  }
+
+  /**
+   * Returns the value mapped to the key, or the default value if the key is not in the map.
+   * @param key the key to be looked up
+   * @param defaultValue the value to return when the key is absent
+   * @return the value mapped to the key, or defaultValue
+   */
+  public int get(int key, int defaultValue) {
+    int slot = findSlot(key);
+    return keys[slot] == key && key != EMPTY ? values[slot] : defaultValue;
+  }
+
+  /**
+   * Returns whether or not the key is in the map.
+   * @param key the key to be looked up
+   * @return whether or not the key is in the map
+   */
+  public boolean containsKey(int key) {
+    return key != EMPTY && keys[findSlot(key)] == key;
+  }
+
+  /**
+   * Returns the number of entries in the map.
+   * @return the number of entries in the map
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all the entries from the map.
+   */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  private int findSlot(int key) {
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    size = 0;
+    for (int index = 0; index < oldKeys.length; index++) {
+      if (oldKeys[index] != EMPTY) {
+        put(oldKeys[index], oldValues[index]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  // Spreads consecutive ids (10001, 10002, ...) across the table
+  private static int mix(int key) {
+    int hash = key * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,423 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index over the names of the Pokemon in a Pokedex. It supports prefix lookups (through a
+ * sorted array of names) and typo-tolerant lookups (through a trigram inverted index whose
+ * candidates are scored with a bounded Damerau-Levenshtein distance).
+ */
+public class NameIndex {
+  // Padding used so that the first and last characters of a name form their own trigrams
+  private static final String PADDING = "$$";
+  private static final int GRAM_LENGTH = 3;
+  // A single edit (or transposition) can destroy at most this many trigrams
+  private static final int GRAMS_PER_EDIT = 4;
+  private static final int[] NO_POSTINGS = new int[0];
+
+  private final Pokemon[] pokemon;
+  private final String[] names;
+  // Ordinals sorted by name, used for prefix lookups
+  private final int[] sortedOrdinals;
+  // Trigram -> ordinals of the names containing that trigram (in ascending order)
+  private final Map<String, int[]> postings;
+
+  /**
+   * Creates a NameIndex over the given Pokemon. The position of each Pokemon in the list is used
+   * as its ordinal.
+   * @param pokemon the Pokemon to be indexed
+   */
+  public NameIndex(List<Pokemon> pokemon) {
+    int size = pokemon.size();
+    this.pokemon = pokemon.toArray(new Pokemon[size]);
+    names = new String[size];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      names[ordinal] = normalize(this.pokemon[ordinal].getName());
+    }
+    sortedOrdinals = sortByName(names);
+    postings = buildPostings(names);
+  }
+
+  /**
+   * Creates a NameIndex over the given Pokemon from the sorted ordinals and trigram postings of
+   * an index built earlier over the same Pokemon (see IndexSidecar).
+   */
+  NameIndex(List<Pokemon> pokemon, int[] sortedOrdinals, Map<String, int[]> postings) {
+    int size = pokemon.size();
+    this.pokemon = pokemon.toArray(new Pokemon[size]);
+    names = new String[size];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      names[ordinal] = normalize(this.pokemon[ordinal].getName());
+    }
+    this.sortedOrdinals = sortedOrdinals;
+    this.postings = postings;
+  }
+
+  /**
+   * Returns the number of names in the index.
+   * @return the number of names in the index
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the Pokemon whose names start with the given prefix, in alphabetical order.
+   * @param prefix the prefix of the names to be found
+   * @return the Pokemon whose names start with the prefix
+   */
+  public List<Pokemon> searchPrefix(String prefix) {
+    int[] range = prefixRange(normalize(prefix));
+    List<Pokemon> results = new ArrayList<>(range[1] - range[0]);
+    for (int index = range[0]; index < range[1]; index++) {
+      results.add(pokemon[sortedOrdinals[index]]);
+    }
+    return results;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon whose names start with the given prefix.
+   * @param prefix the prefix of the names to be found
+   * @return the ordinals of the matching Pokemon, in alphabetical order of their names
+   */
+  public int[] prefixOrdinals(String prefix) {
+    int[] range = prefixRange(normalize(prefix));
+    return Arrays.copyOfRange(sortedOrdinals, range[0], range[1]);
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon with exactly the given name, or -1 if there is none.
+   * @param name the name of the Pokemon (case insensitive)
+   * @return the ordinal of the Pokemon with the given name, or -1 if there is none
+   */
+  public int ordinalOf(String name) {
+    String key = normalize(name);
+    int index = lowerBound(key);
+    if (index < sortedOrdinals.length && names[sortedOrdinals[index]].equals(key)) {
+      return sortedOrdinals[index];
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the Pokemon whose names best match the given (possibly misspelled) query. Names
+   * within the allowed edit distance of the query are ranked by edit distance, then by how long a
+   * prefix they share with the query, then by length. Names that start with the query are also
+   * returned as matches with a distance of 0.
+   * @param query the name being searched for
+   * @param limit the maximum number of results to return
+   * @return the best matching Pokemon, best match first
+   */
+  public List<Pokemon> search(String query, int limit) {
+    String key = normalize(query);
+    if (key.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+    int maxDistance = maxDistance(key.length());
+    List<Match> matches = new ArrayList<>();
+    for (int ordinal : candidates(key, maxDistance)) {
+      addIfClose(matches, ordinal, key, maxDistance);
+    }
+
+    // Names that start with the query are always relevant (e.g. "char" -> "charmander")
+    int[] range = prefixRange(key);
+    for (int index = range[0]; index < range[1]; index++) {
+      int ordinal = sortedOrdinals[index];
+      if (!containsOrdinal(matches, ordinal)) {
+        matches.add(new Match(ordinal, 0, key.length(), names[ordinal].length()));
+      }
+    }
+
+    Collections.sort(matches, MATCH_ORDER);
+    List<Pokemon> results = new ArrayList<>(Math.min(limit, matches.size()));
+    for (int index = 0; index < matches.size() && index < limit; index++) {
+      results.add(pokemon[matches.get(index).ordinal]);
+    }
+    return results;
+  }
+
+  /**
+   * Returns the number of names that the trigram filter leaves to be scored by edit distance in a
+   * search for the query (the rest of the names are known to be too far from it).
+   * @param query the name being searched for
+   * @return the number of candidate names of the search
+   */
+  public int countCandidates(String query) {
+    String key = normalize(query);
+    return key.isEmpty() ? 0 : candidates(key, maxDistance(key.length())).length;
+  }
+
+  /**
+   * Returns the optimal string alignment (restricted Damerau-Levenshtein) distance between the
+   * two strings, or maxDistance + 1 as soon as the distance is known to exceed maxDistance.
+   * @param source the first string
+   * @param target the second string
+   * @param maxDistance the largest distance of interest
+   * @return the distance between the strings, or maxDistance + 1 if it is larger than maxDistance
+   */
+  public static int boundedDistance(String source, String target, int maxDistance) {
+    int sourceLength = source.length();
+    int targetLength = target.length();
+    if (Math.abs(sourceLength - targetLength) > maxDistance) {
+      return maxDistance + 1;
+    }
+    int[] previousPrevious = new int[targetLength + 1];
+    int[] previous = new int[targetLength + 1];
+    int[] current = new int[targetLength + 1];
+    for (int column = 0; column <= targetLength; column++) {
+      previous[column] = column;
+    }
+    for (int row = 1; row <= sourceLength; row++) {
+      current[0] = row;
+      int rowMinimum = row;
+      char sourceChar = source.charAt(row - 1);
+      for (int column = 1; column <= targetLength; column++) {
+        char targetChar = target.charAt(column - 1);
+        int cost = sourceChar == targetChar ? 0 : 1;
+        int distance = Math.min(Math.min(previous[column] + 1, current[column - 1] + 1),
+            previous[column - 1] + cost);
+        // Adjacent transposition (e.g. "mewtow" -> "mewtwo")
+        if (row > 1 && column > 1 && sourceChar == target.charAt(column - 2)
+            && source.charAt(row - 2) == targetChar) {
+          distance = Math.min(distance, previousPrevious[column - 2] + 1);
+        }
+        current[column] = distance;
+        rowMinimum = Math.min(rowMinimum, distance);
+      }
+      // No alignment can get back under the bound once a whole row exceeds it
+      if (rowMinimum > maxDistance) {
+        return maxDistance + 1;
+      }
+      int[] recycled = previousPrevious;
+      previousPrevious = previous;
+      previous = current;
+      current = recycled;
+    }
+    return Math.min(previous[targetLength], maxDistance + 1);
+  }
+
+  /**
+   * Returns the name in the form that is stored in the index (trimmed and lower case).
+   * @param name the name to be normalized
+   * @return the normalized name
+   */
+  public static String normalize(String name) {
+    return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns the ordinals sorted by name, as persisted by IndexSidecar.
+   */
+  int[] sortedOrdinals() {
+    return sortedOrdinals;
+  }
+
+  /**
+   * Returns the ordinals of the names containing each trigram, as persisted by IndexSidecar.
+   */
+  Map<String, int[]> postings() {
+    return postings;
+  }
+
+  /**
+   * Returns the most edits allowed in a query of the given length. The padded query has length + 2
+   * trigrams and each edit destroys at most GRAMS_PER_EDIT of them, so this is the largest distance
+   * for which a name within it must still share a trigram with the query (e.g. 1 edit for
+   * "eevee" or "mewtwo", 2 for "squirtle"); otherwise the trigrams could not filter anything.
+   */
+  private static int maxDistance(int length) {
+    return Math.min(3, (length + PADDING.length() - 1) / GRAMS_PER_EDIT);
+  }
+
+  /**
+   * Returns the ordinals of the names that share enough trigrams with the key to be within
+   * maxDistance of it (and are close enough in length).
+   */
+  private int[] candidates(String key, int maxDistance) {
+    if (maxDistance == 0) {
+      // Only the exact name, which is found as a prefix match
+      return NO_POSTINGS;
+    }
+    // Every name within maxDistance shares at least this many trigrams with the query, which is
+    // always at least 1 given maxDistance(length)
+    int minShared = key.length() + PADDING.length() - GRAMS_PER_EDIT * maxDistance;
+    int[] shared = countSharedGrams(key);
+    int[] candidates = new int[names.length];
+    int count = 0;
+    for (int ordinal = 0; ordinal < names.length; ordinal++) {
+      if (shared[ordinal] >= minShared
+          && Math.abs(names[ordinal].length() - key.length()) <= maxDistance) {
+        candidates[count++] = ordinal;
+      }
+    }
+    return Arrays.copyOf(candidates, count);
+  }
+
+  private void addIfClose(List<Match> matches, int ordinal, String key, int maxDistance) {
+    String name = names[ordinal];
+    int distance = boundedDistance(key, name, maxDistance);
+    if (distance <= maxDistance) {
+      matches.add(new Match(ordinal, distance, commonPrefixLength(key, name), name.length()));
+    }
+  }
+
+  private static boolean containsOrdinal(List<Match> matches, int ordinal) {
+    for (Match match : matches) {
+      if (match.ordinal == ordinal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int commonPrefixLength(String first, String second) {
+    int length = Math.min(first.length(), second.length());
+    int index = 0;
+    while (index < length && first.charAt(index) == second.charAt(index)) {
+      index++;
+    }
+    return index;
+  }
+
+  private int[] countSharedGrams(String key) {
+    int[] shared = new int[names.length];
+    String padded = PADDING + key + PADDING;
+    for (int start = 0; start + GRAM_LENGTH <= padded.length(); start++) {
+      int[] ordinals = postings.get(padded.substring(start, start + GRAM_LENGTH));
+      for (int ordinal : ordinals == null ? NO_POSTINGS : ordinals) {
+        shared[ordinal]++;
+      }
+    }
+    return shared;
+  }
+
+  private int[] prefixRange(String prefix) {
+    int start = lowerBound(prefix);
+    int end = start;
+    while (end < sortedOrdinals.length && names[sortedOrdinals[end]].startsWith(prefix)) {
+      end++;
+    }
+    return new int[] {start, end};
+  }
+
+  private int lowerBound(String key) {
+    int low = 0;
+    int high = sortedOrdinals.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (names[sortedOrdinals[middle]].compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static int[] sortByName(final String[] names) {
+    Integer[] boxed = new Integer[names.length];
+    for (int ordinal = 0; ordinal < names.length; ordinal++) {
+      boxed[ordinal] = ordinal;
+    }
+    Arrays.sort(boxed, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        int comparison = names[first].compareTo(names[second]);
+        return comparison != 0 ? comparison : Integer.compare(first, second);
+      }
+    });
+    int[] sorted = new int[names.length];
+    for (int index = 0; index < sorted.length; index++) {
+      sorted[index] = boxed[index];
+    }
+    return sorted;
+  }
+
+  private static Map<String, int[]> buildPostings(String[] names) {
+    Map<String, List<Integer>> lists = new HashMap<>();
+    for (int ordinal = 0; ordinal < names.length; ordinal++) {
+      String padded = PADDING + names[ordinal] + PADDING;
+      for (int start = 0; start + GRAM_LENGTH <= padded.length(); start++) {
+        String gram = padded.substring(start, start + GRAM_LENGTH);
+        List<Integer> ordinals = lists.get(gram);
+        if (ordinals == null) {
+          ordinals = new ArrayList<>();
+          lists.put(gram, ordinals);
+        }
+        // A gram repeated within one name is only counted once
+        if (ordinals.isEmpty() || ordinals.get(ordinals.size() - 1) != ordinal) {
+          ordinals.add(ordinal);
+        }
+      }
+    }
+    Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+    for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+      List<Integer> ordinals = entry.getValue();
+      int[] array = new int[ordinals.size()];
+      for (int index = 0; index < array.length; index++) {
+        array[index] = ordinals.get(index);
+      }
+      postings.put(entry.getKey(), array);
+    }
+    return postings;
+  }
+
+  private static final Comparator<Match> MATCH_ORDER = new Comparator<Match>() {
+    @Override
+    public int compare(Match first, Match second) {
+      if (first.distance != second.distance) {
+        return Integer.compare(first.distance, second.distance);
+      } else if (first.sharedPrefix != second.sharedPrefix) {
+        return Integer.compare(second.sharedPrefix, first.sharedPrefix);
+      } else if (first.length != second.length) {
+        return Integer.compare(first.length, second.length);
+      }
+      return Integer.compare(first.ordinal, second.ordinal);
+    }
+  };
+
+  /**
+   * A candidate name that is close enough to the query to be returned.
+   */
+  private static class Match {
+    private final int ordinal;
+    private final int distance;
+    private final int sharedPrefix;
+    private final int length;
+
+    private Match(int ordinal, int distance, int sharedPrefix, int length) {
+      this.ordinal = ordinal;
+      this.distance = distance;
+      this.sharedPrefix = sharedPrefix;
+      this.length = length;
+    }
+  }
+}
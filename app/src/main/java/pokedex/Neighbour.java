@@ -0,0 +1,84 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+/**
+ * A Pokemon found by a nearest neighbour search, together with its distance from the query.
+ */
+public class Neighbour implements Comparable<Neighbour> {
+  private final int ordinal;
+  private final double distance;
+
+  /**
+   * Creates a Neighbour.
+   * @param ordinal the ordinal of the Pokemon
+   * @param distance the distance of the Pokemon from the query
+   */
+  public Neighbour(int ordinal, double distance) {
+    this.ordinal = ordinal;
+    this.distance = distance;
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon.
+   * @return the ordinal of the Pokemon
+   */
+  public int getOrdinal() {
+    return ordinal;
+  }
+
+  /**
+   * Returns the (weighted Euclidean) distance of the Pokemon from the query.
+   * @return the distance of the Pokemon from the query
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * Orders Neighbours from closest to farthest, with ties broken by ordinal.
+   */
+  @Override
+  public int compareTo(Neighbour other) {
+    int comparison = Double.compare(distance, other.distance);
+    return comparison != 0 ? comparison : Integer.compare(ordinal, other.ordinal);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof Neighbour)) {
+      return false;
+    }
+    Neighbour neighbour = (Neighbour) object;
+    return ordinal == neighbour.ordinal && distance == neighbour.distance;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * ordinal + Double.valueOf(distance).hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("(%d, %.2f)", ordinal, distance);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of Pokemon, and the cursor to read the page after it with.
+ */
+public class Page {
+  private final List<Pokemon> pokemon;
+  private final String nextCursor;
+
+  /**
+   * Creates a Page.
+   * @param pokemon the Pokemon on the page, in order
+   * @param nextCursor the encoded cursor of the next page, or null if this is the last page
+   */
+  public Page(List<Pokemon> pokemon, String nextCursor) {
+    this.pokemon = Collections.unmodifiableList(pokemon);
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Returns the Pokemon on the page, in order.
+   * @return the Pokemon on the page
+   */
+  public List<Pokemon> getPokemon() {
+    return pokemon;
+  }
+
+  /**
+   * Returns the opaque cursor to pass back to read the next page, or null if this is the last
+   * page.
+   * @return the cursor of the next page, or null
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Returns whether there is a page after this one.
+   * @return whether there is a page after this one
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
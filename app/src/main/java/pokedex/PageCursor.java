@@ -0,0 +1,164 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * The position after the last Pokemon of a page: the sort order, and the sort value and id of
+ * that last Pokemon. Pages are read by seeking to the first Pokemon after this key (keyset
+ * pagination) rather than skipping an offset, so a page costs the same however deep it is, and
+ * Pokemon added or removed before the cursor don't shift the pages after it.
+ *
+ * <p>A cursor is handed to clients as an opaque string, which is checksummed so that a string
+ * that was not made by encode() is rejected instead of silently seeking somewhere.
+ */
+public class PageCursor {
+  private static final byte VERSION = 1;
+  // The sort code of id order; StatColumn sort codes start after it
+  private static final int BY_ID = 0;
+  private static final int PAYLOAD_BYTES = 10;
+  private static final int CHECKSUM_BYTES = 4;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private final StatColumn column;
+  private final int value;
+  private final int id;
+
+  /**
+   * Creates a cursor positioned after the Pokemon with the given id, in id order.
+   * @param id the id of the last Pokemon of the page
+   */
+  public PageCursor(int id) {
+    this(null, 0, id);
+  }
+
+  /**
+   * Creates a cursor positioned after the Pokemon with the given value and id, in the order of
+   * the column (highest value first, ties by id).
+   * @param column the column the pages are sorted by, or null for id order
+   * @param value the value in the column of the last Pokemon of the page
+   * @param id the id of the last Pokemon of the page
+   */
+  public PageCursor(StatColumn column, int value, int id) {
+    this.column = column;
+    this.value = value;
+    this.id = id;
+  }
+
+  /**
+   * Returns the cursor encoded in the given string.
+   * @param cursor a string returned by encode()
+   * @return the decoded cursor
+   */
+  public static PageCursor decode(String cursor) {
+    int length = (PAYLOAD_BYTES + CHECKSUM_BYTES) * 2;
+    if (cursor == null || cursor.length() != length) {
+      throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(PAYLOAD_BYTES + CHECKSUM_BYTES);
+    for (int index = 0; index < length; index += 2) {
+      int high = Character.digit(cursor.charAt(index), 16);
+      int low = Character.digit(cursor.charAt(index + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+      }
+      bytes.put((byte) (high << 4 | low));
+    }
+    bytes.flip();
+    byte version = bytes.get();
+    int sort = bytes.get() & 0xFF;
+    int value = bytes.getInt();
+    int id = bytes.getInt();
+    int checksum = bytes.getInt();
+    StatColumn[] columns = StatColumn.values();
+    if (version != VERSION || sort > columns.length
+        || checksum != checksum(bytes.array(), PAYLOAD_BYTES)) {
+      throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+    }
+    return new PageCursor(sort == BY_ID ? null : columns[sort - 1], value, id);
+  }
+
+  /**
+   * Returns the cursor as an opaque string that decode() turns back into the same cursor.
+   * @return the encoded cursor
+   */
+  public String encode() {
+    ByteBuffer bytes = ByteBuffer.allocate(PAYLOAD_BYTES + CHECKSUM_BYTES);
+    bytes.put(VERSION);
+    bytes.put((byte) (column == null ? BY_ID : column.ordinal() + 1));
+    bytes.putInt(value);
+    bytes.putInt(id);
+    bytes.putInt(checksum(bytes.array(), PAYLOAD_BYTES));
+    StringBuilder encoded = new StringBuilder(bytes.capacity() * 2);
+    for (byte current : bytes.array()) {
+      encoded.append(HEX_DIGITS[(current >> 4) & 0xF]).append(HEX_DIGITS[current & 0xF]);
+    }
+    return encoded.toString();
+  }
+
+  /**
+   * Returns the column the pages are sorted by, or null for id order.
+   * @return the column the pages are sorted by, or null
+   */
+  public StatColumn getColumn() {
+    return column;
+  }
+
+  /**
+   * Returns the value in the column of the last Pokemon of the page (0 in id order).
+   * @return the value of the last Pokemon of the page
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the id of the last Pokemon of the page.
+   * @return the id of the last Pokemon of the page
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Checks that the cursor is for pages sorted by the given column.
+   * @param expected the column the pages are sorted by, or null for id order
+   */
+  void checkColumn(StatColumn expected) {
+    if (column != expected) {
+      throw new IllegalArgumentException("Cursor is for pages sorted by "
+          + (column == null ? "id" : column) + ", not " + (expected == null ? "id" : expected));
+    }
+  }
+
+  private static int checksum(byte[] bytes, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, length);
+    return (int) crc.getValue();
+  }
+
+  @Override
+  public String toString() {
+    return "PageCursor[" + (column == null ? "id" : column + "=" + value) + ", id=" + id + "]";
+  }
+}
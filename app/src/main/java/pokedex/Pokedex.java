@@ -18,45 +18,417 @@
  *      this program. If not, see http://www.gnu.org/licenses.
  */
 
+
 package pokedex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * This class represent a Pokedex, an encyclopedia containing information about Pokemon.
+ * A Pokedex is an immutable snapshot: it is built (together with its indexes) by a
+ * PokedexBuilder and never changes afterwards, so it can be read from any thread without locking.
+ * A newer snapshot is published through a PokedexHolder.
  */
 public class Pokedex {
-  private static List<Pokemon> pokedex;
+  // National dex ids below this are stored densely, anything above (alternate forms) sparsely
+  public static final int DENSE_ID_LIMIT = 10000;
+  public static final int NOT_FOUND = -1;
+  private final List<Pokemon> pokedex;
+  // National dex id -> position in pokedex (NOT_FOUND for ids not in the Pokedex)
+  private final int[] nationalOrdinals;
+  // Sparse form id -> position in pokedex
+  private final IntIntMap formOrdinals;
+  // The ordinals sorted by id, and the ids in that order
+  private final int[] idOrder;
+  private final int[] sortedIds;
+  private final NameIndex nameIndex;
+  private final StatColumns statColumns;
+  private final TypeIndex typeIndex;
+  private final RankIndex rankIndex;
+  private final StatKdTree statKdTree;
+  private final StatAggregates statAggregates;
+
+  /**
+   * A class used to build a Pokedex.
+   */
+  public static class PokedexBuilder {
+    private final List<Pokemon> pokedex;
+    private int[] nationalOrdinals;
+    private final IntIntMap formOrdinals;
+    // The Pokedex this builder started from (if any), and the ordinals changed since
+    private Pokedex base;
+    private final BitSet changed = new BitSet();
+
+    /**
+     * Creates a PokedexBuilder that allows for the current total number of Pokemon.
+     * @param numPokemons the expected number of Pokemon
+     */
+    public PokedexBuilder(int numPokemons) {
+      pokedex = new ArrayList<>(numPokemons);
+      nationalOrdinals = newOrdinals(Math.min(numPokemons, DENSE_ID_LIMIT - 1) + 1);
+      formOrdinals = new IntIntMap(0);
+    }
+
+    /**
+     * Creates a PokedexBuilder starting from the Pokemon of an existing Pokedex, which is left
+     * untouched. Used to build the next snapshot of a Pokedex off to the side.
+     * @param base the Pokedex to start from
+     */
+    public PokedexBuilder(Pokedex base) {
+      pokedex = new ArrayList<>(base.pokedex);
+      nationalOrdinals = base.nationalOrdinals.clone();
+      formOrdinals = new IntIntMap(base.formOrdinals);
+      this.base = base;
+    }
+
+    /**
+     * Builds a Pokedex with the Pokemon added so far. The builder may keep being used afterwards
+     * without affecting the built Pokedex.
+     * @return a newly created Pokedex
+     */
+    public Pokedex build() {
+      return new Pokedex(this);
+    }
+
+    /**
+     * Builds a Pokedex with the Pokemon added so far, using the given prebuilt indexes.
+     */
+    Pokedex build(IndexSidecar.Indexes prebuilt) {
+      return new Pokedex(this, prebuilt);
+    }
+
+    /**
+     * Returns the Pokemon added so far, in ordinal order.
+     */
+    List<Pokemon> getPokemon() {
+      return pokedex;
+    }
+
+    /**
+     * Returns the PokedexBuilder instance after adding the given Pokemon. A Pokemon with the same
+     * id as one already added replaces it.
+     * @param pokemon the Pokemon to be added to the Pokedex
+     * @return the PokedexBuilder instance to be used to build a Pokedex
+     */
+    public PokedexBuilder addPokemon(Pokemon pokemon) {
+      int id = pokemon.getId();
+      int ordinal = ordinalOf(nationalOrdinals, formOrdinals, id);
+      if (ordinal == NOT_FOUND) {
+        pokedex.add(pokemon);
+        ordinal = pokedex.size() - 1;
+      } else {
+        pokedex.set(ordinal, pokemon);
+      }
+      changed.set(ordinal);
+      if (id >= 0 && id < DENSE_ID_LIMIT) {
+        if (id >= nationalOrdinals.length) {
+          int[] grown = newOrdinals(Math.min(Math.max(id + 1, nationalOrdinals.length * 2),
+              DENSE_ID_LIMIT));
+          System.arraycopy(nationalOrdinals, 0, grown, 0, nationalOrdinals.length);
+          nationalOrdinals = grown;
+        }
+        nationalOrdinals[id] = ordinal;
+      } else {
+        formOrdinals.put(id, ordinal);
+      }
+      return this;
+    }
+
+    /**
+     * Returns the PokedexBuilder instance after removing all the Pokemon.
+     * @return the PokedexBuilder instance to be used to build a Pokedex
+     */
+    public PokedexBuilder clear() {
+      pokedex.clear();
+      Arrays.fill(nationalOrdinals, NOT_FOUND);
+      formOrdinals.clear();
+      base = null;
+      changed.clear();
+      return this;
+    }
+  }
+
+  /**
+   * Creates a Pokedex with the Pokemon added to the PokedexBuilder, and builds its indexes.
+   * @param builder the PokedexBuilder object which contains all the Pokemon
+   */
+  private Pokedex(PokedexBuilder builder) {
+    this(builder, null);
+  }
+
+  /**
+   * Creates a Pokedex with the Pokemon added to the PokedexBuilder, taking the name, type, rank
+   * and k-d tree indexes from the given prebuilt ones (loaded by IndexSidecar) instead of
+   * building them.
+   * @param builder the PokedexBuilder object which contains all the Pokemon
+   * @param prebuilt indexes built earlier over the same Pokemon, or null to build them
+   */
+  private Pokedex(PokedexBuilder builder, IndexSidecar.Indexes prebuilt) {
+    pokedex = Collections.unmodifiableList(new ArrayList<>(builder.pokedex));
+    nationalOrdinals = builder.nationalOrdinals.clone();
+    formOrdinals = new IntIntMap(builder.formOrdinals);
+    idOrder = new int[pokedex.size()];
+    sortedIds = new int[pokedex.size()];
+    sortById();
+    statColumns = new StatColumns(pokedex);
+    if (prebuilt != null) {
+      nameIndex = new NameIndex(pokedex, prebuilt.nameOrdinals, prebuilt.namePostings);
+      typeIndex = new TypeIndex(pokedex.size(), prebuilt.typeIds, prebuilt.typeBitmaps);
+      statAggregates = new StatAggregates(pokedex, statColumns);
+      rankIndex = new RankIndex(pokedex.size(), prebuilt.rankOrders, prebuilt.rankRanks);
+      statKdTree = new StatKdTree(statColumns, prebuilt.kdOrdinals, prebuilt.kdSplitAxes);
+      return;
+    }
+    nameIndex = new NameIndex(pokedex);
+    if (builder.base != null) {
+      // Only the Pokemon that changed since the base snapshot need to be re-indexed
+      typeIndex = builder.base.typeIndex.update(builder.base.pokedex, pokedex, builder.changed);
+      statAggregates = builder.base.statAggregates.update(builder.base.pokedex, pokedex,
+          builder.changed);
+    } else {
+      typeIndex = new TypeIndex(pokedex);
+      statAggregates = new StatAggregates(pokedex, statColumns);
+    }
+    // Ties are broken by id so that page cursors (value, id) match the leaderboard order
+    rankIndex = new RankIndex(statColumns, idOrder);
+    statKdTree = new StatKdTree(statColumns);
+  }
+
+  /**
+   * Returns the Pokemon with the given id, or null if it is not in the Pokedex.
+   * @param id the id of the Pokemon (national dex id or form id)
+   * @return the Pokemon with the given id, or null if there is none
+   */
+  public Pokemon getPokemon(int id) {
+    int ordinal = ordinalOf(id);
+    return ordinal == NOT_FOUND ? null : pokedex.get(ordinal);
+  }
+
+  /**
+   * Returns the position of the Pokemon with the given id in this Pokedex, or NOT_FOUND. The
+   * positions (ordinals) are what the indexes of the Pokedex are keyed by.
+   * @param id the id of the Pokemon (national dex id or form id)
+   * @return the ordinal of the Pokemon with the given id, or NOT_FOUND if there is none
+   */
+  public int ordinalOf(int id) {
+    return ordinalOf(nationalOrdinals, formOrdinals, id);
+  }
 
   /**
-   * Creates a Pokedex that allows for the current total number of Pokemon.
+   * Returns the Pokemon at the given position in this Pokedex.
+   * @param ordinal the position of the Pokemon
+   * @return the Pokemon at the given position
    */
-  public Pokedex(int numPokemons) {
-    pokedex = new ArrayList<>(numPokemons);
+  public Pokemon getByOrdinal(int ordinal) {
+    return pokedex.get(ordinal);
   }
 
   /**
-   * Adds the given Pokemon to the Pokedex.
-   * @param pokemon the Pokemon to be added to the Pokedex
+   * Returns the number of Pokemon in the Pokedex.
+   * @return the number of Pokemon in the Pokedex
    */
-  public void addPokemon(Pokemon pokemon) {
-    pokedex.add(pokemon);
+  public int size() {
+    return pokedex.size();
   }
-  
+
   /**
-   * Returns the list of Pokemon in the Pokedex.
+   * Returns the read-only list of Pokemon in the Pokedex.
    * @return the list of Pokemon in the Pokedex
    */
   public List<Pokemon> getPokedex() {
     return pokedex;
   }
-  
+
+  /**
+   * Returns the index over the names of the Pokemon in the Pokedex.
+   * @return the index over the names of the Pokemon
+   */
+  public NameIndex getNameIndex() {
+    return nameIndex;
+  }
+
+  /**
+   * Returns the columnar copy of the stats of the Pokemon, keyed by ordinal.
+   * @return the columnar copy of the stats of the Pokemon
+   */
+  public StatColumns getStatColumns() {
+    return statColumns;
+  }
+
+  /**
+   * Returns the bitmap index over the types of the Pokemon, keyed by ordinal.
+   * @return the bitmap index over the types of the Pokemon
+   */
+  public TypeIndex getTypeIndex() {
+    return typeIndex;
+  }
+
   /**
-   * Clears the Pokedex.
+   * Returns the precomputed leaderboards of every stat column, keyed by ordinal.
+   * @return the precomputed leaderboards of every stat column
    */
-  public void clear() {
-    pokedex.clear();
+  public RankIndex getRankIndex() {
+    return rankIndex;
+  }
+
+  /**
+   * Returns the (at most) k Pokemon with the highest values in the column, highest first.
+   * @param column the column to rank by (e.g. StatColumn.SPEED)
+   * @param k the number of Pokemon to return
+   * @return the top k Pokemon
+   */
+  public List<Pokemon> getTop(StatColumn column, int k) {
+    return toPokemon(rankIndex.topK(column, k));
+  }
+
+  /**
+   * Returns the (at most) k Pokemon of the given type with the highest values in the column,
+   * highest first.
+   * @param column the column to rank by (e.g. StatColumn.SPEED)
+   * @param typeId the id of the type
+   * @param k the number of Pokemon to return
+   * @return the top k Pokemon of the type
+   */
+  public List<Pokemon> getTopOfType(StatColumn column, int typeId, int k) {
+    return toPokemon(rankIndex.topK(column, k, typeIndex.withType(typeId)));
+  }
+
+  /**
+   * Returns the rank of the Pokemon with the given id in the column (1 for the highest value,
+   * tied Pokemon share a rank), or NOT_FOUND if it is not in the Pokedex.
+   * @param id the id of the Pokemon
+   * @param column the column to rank by
+   * @return the rank of the Pokemon, or NOT_FOUND
+   */
+  public int getRank(int id, StatColumn column) {
+    int ordinal = ordinalOf(id);
+    return ordinal == NOT_FOUND ? NOT_FOUND : rankIndex.rankOf(column, ordinal);
+  }
+
+  /**
+   * Returns the k-d tree over the base stats of the Pokemon, keyed by ordinal.
+   * @return the k-d tree over the base stats of the Pokemon
+   */
+  public StatKdTree getStatKdTree() {
+    return statKdTree;
+  }
+
+  /**
+   * Returns the distributions of every stat column over every type. Snapshots built from a base
+   * snapshot update the base's aggregates with only the Pokemon that changed.
+   * @return the distributions of every stat column over every type
+   */
+  public StatAggregates getStatAggregates() {
+    return statAggregates;
+  }
+
+  /**
+   * Returns the distribution (count, sum, min, max, mean, quantiles and histogram) of the column
+   * over the Pokemon with the given type, or over every Pokemon for StatAggregates.ALL_TYPES.
+   * @param column the column
+   * @param typeId the id of the type, or StatAggregates.ALL_TYPES
+   * @return the distribution of the column
+   */
+  public StatDistribution getStatDistribution(StatColumn column, int typeId) {
+    return statAggregates.getDistribution(column, typeId);
+  }
+
+  /**
+   * Returns the (at most) k Pokemon whose base stats are most similar to those of the Pokemon with
+   * the given id, most similar first. The Pokemon itself is not included.
+   * @param id the id of the Pokemon
+   * @param k the number of Pokemon to return
+   * @param weights the weight of each stat, indexed by Stat.ordinal(), or null for equal weights
+   * @param typeId only Pokemon of this type are returned, or Pokemon.NO_TYPE for any type
+   * @return the most similar Pokemon, or an empty list if there is no Pokemon with the id
+   */
+  public List<Pokemon> getSimilar(int id, int k, double[] weights, int typeId) {
+    int ordinal = ordinalOf(id);
+    if (ordinal == NOT_FOUND) {
+      return Collections.emptyList();
+    }
+    Pokemon pokemon = pokedex.get(ordinal);
+    int[] target = new int[Stat.values().length];
+    for (Stat stat : Stat.values()) {
+      target[stat.ordinal()] = pokemon.getStat(stat);
+    }
+    BitSet candidates = typeId == Pokemon.NO_TYPE ? typeIndex.all() : typeIndex.withType(typeId);
+    candidates.clear(ordinal);
+    List<Pokemon> similar = new ArrayList<>(k);
+    for (Neighbour neighbour : statKdTree.nearest(target, k, weights, candidates)) {
+      similar.add(pokedex.get(neighbour.getOrdinal()));
+    }
+    return similar;
+  }
+
+  /**
+   * Returns the Pokemon whose names best match the given query, tolerating typos such as
+   * "Charizrd" or "Mewtow".
+   * @param query the name being searched for
+   * @param limit the maximum number of results to return
+   * @return the best matching Pokemon, best match first
+   */
+  public List<Pokemon> searchName(String query, int limit) {
+    return nameIndex.search(query, limit);
+  }
+
+  /**
+   * Returns the page of (at most) limit Pokemon after the cursor, in id order.
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the most Pokemon on the page
+   * @return the page of Pokemon
+   */
+  public Page getPage(String cursor, int limit) {
+    checkLimit(limit);
+    int start = 0;
+    if (cursor != null) {
+      PageCursor after = PageCursor.decode(cursor);
+      after.checkColumn(null);
+      // The position of the first id after the cursor's, whether or not that id still exists
+      start = Arrays.binarySearch(sortedIds, after.getId());
+      start = start >= 0 ? start + 1 : -start - 1;
+    }
+    int end = Math.min(start + limit, idOrder.length);
+    List<Pokemon> page = new ArrayList<>(Math.max(0, end - start));
+    for (int index = start; index < end; index++) {
+      page.add(pokedex.get(idOrder[index]));
+    }
+    String next = end < idOrder.length ? new PageCursor(sortedIds[end - 1]).encode() : null;
+    return new Page(page, next);
+  }
+
+  /**
+   * Returns the page of (at most) limit Pokemon after the cursor, sorted by the column with the
+   * highest value first and ties by id. The page is read from the RankIndex's precomputed order,
+   * so its cost doesn't depend on how deep it is.
+   * @param column the column to sort by
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the most Pokemon on the page
+   * @return the page of Pokemon
+   */
+  public Page getPage(StatColumn column, String cursor, int limit) {
+    checkLimit(limit);
+    int start = 0;
+    if (cursor != null) {
+      PageCursor after = PageCursor.decode(cursor);
+      after.checkColumn(column);
+      start = positionAfter(column, after.getValue(), after.getId());
+    }
+    int end = Math.min(start + limit, pokedex.size());
+    List<Pokemon> page = new ArrayList<>(Math.max(0, end - start));
+    for (int position = start; position < end; position++) {
+      page.add(pokedex.get(rankIndex.ordinalAt(column, position)));
+    }
+    String next = null;
+    if (end < pokedex.size()) {
+      Pokemon last = page.get(page.size() - 1);
+      next = new PageCursor(column, column.valueOf(last), last.getId()).encode();
+    }
+    return new Page(page, next);
   }
 
   @Override
@@ -67,4 +439,63 @@ public class Pokedex {
     }
     return pokedexPokemon.substring(0, pokedexPokemon.length() - 1);
   }
+
+  private List<Pokemon> toPokemon(int[] ordinals) {
+    List<Pokemon> result = new ArrayList<>(ordinals.length);
+    for (int ordinal : ordinals) {
+      result.add(pokedex.get(ordinal));
+    }
+    return result;
+  }
+
+  private void sortById() {
+    long[] keys = new long[pokedex.size()];
+    for (int ordinal = 0; ordinal < keys.length; ordinal++) {
+      keys[ordinal] = (long) pokedex.get(ordinal).getId() << Integer.SIZE | ordinal;
+    }
+    Arrays.sort(keys);
+    for (int index = 0; index < keys.length; index++) {
+      sortedIds[index] = (int) (keys[index] >> Integer.SIZE);
+      idOrder[index] = (int) keys[index];
+    }
+  }
+
+  /**
+   * Returns the first position in the column's order after the given value and id, found by
+   * binary search so that the Pokemon with that id doesn't have to still exist.
+   */
+  private int positionAfter(StatColumn column, int value, int id) {
+    int low = 0;
+    int high = pokedex.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int ordinal = rankIndex.ordinalAt(column, middle);
+      int middleValue = statColumns.get(column, ordinal);
+      if (middleValue > value || (middleValue == value && pokedex.get(ordinal).getId() <= id)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static void checkLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Page limit must be positive: " + limit);
+    }
+  }
+
+  private static int ordinalOf(int[] nationalOrdinals, IntIntMap formOrdinals, int id) {
+    if (id >= 0 && id < DENSE_ID_LIMIT) {
+      return id < nationalOrdinals.length ? nationalOrdinals[id] : NOT_FOUND;
+    }
+    return formOrdinals.get(id, NOT_FOUND);
+  }
+
+  private static int[] newOrdinals(int length) {
+    int[] ordinals = new int[length];
+    Arrays.fill(ordinals, NOT_FOUND);
+    return ordinals;
+  }
 }
@@ -0,0 +1,93 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current Pokedex snapshot. Readers call getPokedex() and keep using the snapshot they
+ * got for as long as they need it, without ever taking a lock; writers build the next snapshot off
+ * to the side and swap it in atomically, so a reader never sees a half-updated Pokedex.
+ */
+public class PokedexHolder {
+  private final AtomicReference<Pokedex> current;
+
+  /**
+   * Used by refresh(Refresher) to build the next snapshot from the current one.
+   */
+  public interface Refresher {
+    /**
+     * Returns the next snapshot of the Pokedex, built from the current one (which must not be
+     * assumed to be the latest: it may be called again if another writer got there first).
+     * @param current the current snapshot
+     * @return the next snapshot
+     */
+    Pokedex refresh(Pokedex current);
+  }
+
+  /**
+   * Creates a PokedexHolder holding the given initial snapshot.
+   * @param initial the initial snapshot of the Pokedex
+   */
+  public PokedexHolder(Pokedex initial) {
+    if (initial == null) {
+      throw new IllegalArgumentException("The initial Pokedex cannot be null");
+    }
+    current = new AtomicReference<>(initial);
+  }
+
+  /**
+   * Returns the current snapshot of the Pokedex. This never blocks.
+   * @return the current snapshot of the Pokedex
+   */
+  public Pokedex getPokedex() {
+    return current.get();
+  }
+
+  /**
+   * Replaces the current snapshot with the given one and returns the one it replaced.
+   * @param next the new snapshot of the Pokedex
+   * @return the snapshot that was replaced
+   */
+  public Pokedex swap(Pokedex next) {
+    if (next == null) {
+      throw new IllegalArgumentException("The Pokedex cannot be null");
+    }
+    return current.getAndSet(next);
+  }
+
+  /**
+   * Builds the next snapshot from the current one and publishes it, retrying if another writer
+   * published a snapshot in the meantime so that no update is lost.
+   * @param refresher used to build the next snapshot from the current one
+   * @return the snapshot that was published
+   */
+  public Pokedex refresh(Refresher refresher) {
+    while (true) {
+      Pokedex previous = current.get();
+      Pokedex next = refresher.refresh(previous);
+      if (current.compareAndSet(previous, next)) {
+        return next;
+      }
+    }
+  }
+}
@@ -0,0 +1,345 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the Pokedex in a PokedexHolder when its data changes, without restarting the process.
+ * A reload is triggered explicitly with reload(File), or by a watcher started with startWatching()
+ * when one of the watched files is replaced.
+ *
+ * <p>The next Pokedex (with all its indexes) is loaded and validated on a background thread and
+ * only then swapped in, so a reload that fails leaves the current Pokedex in place. Queries that
+ * got the old Pokedex from the holder finish against it; once they drop it, nothing references it
+ * and its memory is reclaimed. Reloads run one at a time, and triggers that arrive while one is
+ * waiting to run are folded into it.
+ */
+public class PokedexReloader implements Closeable {
+  // How long a watched file has to stay unchanged before it is reloaded, so that a file which is
+  // still being written (or is written in several steps) is only loaded once it is complete
+  public static final long QUIET_MILLIS = 250;
+
+  /**
+   * Loads a Pokedex from a file.
+   */
+  public interface Loader {
+    /**
+     * Returns a new Pokedex built from the given file.
+     * @param file the file that changed
+     * @return a new Pokedex
+     * @throws Exception if the file cannot be loaded
+     */
+    Pokedex load(File file) throws Exception;
+  }
+
+  private final PokedexHolder holder;
+  private final Loader loader;
+  private final List<File> files;
+  private final ExecutorService executor;
+  private final Object lock = new Object();
+  // The reload that is queued but not started yet, and the file it should load
+  private FutureTask<Pokedex> pending;
+  private File pendingFile;
+  private Thread watcher;
+  private WatchService watchService;
+  private int reloads;
+  private int failures;
+  private Exception lastError;
+  private long lastReloadMillis;
+
+  /**
+   * Creates a PokedexReloader that publishes to the given holder.
+   * @param holder the holder of the current Pokedex
+   * @param loader used to load a new Pokedex from a file
+   * @param files the files watched by startWatching(), which must be in the same directory
+   */
+  public PokedexReloader(PokedexHolder holder, Loader loader, File... files) {
+    if (holder == null || loader == null || files.length == 0) {
+      throw new IllegalArgumentException("A holder, a loader and a file are needed");
+    }
+    this.holder = holder;
+    this.loader = loader;
+    this.files = new ArrayList<>();
+    for (File file : files) {
+      this.files.add(file.getAbsoluteFile());
+      if (!directory(file).equals(directory(files[0]))) {
+        throw new IllegalArgumentException("The watched files must be in the same directory");
+      }
+    }
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pokedex-reloader");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Reloads the Pokedex from the given file in the background. If a reload is already waiting to
+   * run it is reused (loading this file instead) rather than queueing another one.
+   * @param file the file to load the Pokedex from
+   * @return the reload, whose result is the Pokedex that was swapped in, or which fails with the
+   *     reason the Pokedex in the file was not swapped in
+   */
+  public Future<Pokedex> reload(File file) {
+    synchronized (lock) {
+      if (executor.isShutdown()) {
+        throw new IllegalStateException("The reloader is closed");
+      }
+      pendingFile = file;
+      if (pending == null) {
+        pending = new FutureTask<>(new Callable<Pokedex>() {
+          @Override
+          public Pokedex call() throws Exception {
+            File next;
+            synchronized (lock) {
+              next = pendingFile;
+              pending = null;
+            }
+            return load(next);
+          }
+        });
+        executor.execute(pending);
+      }
+      return pending;
+    }
+  }
+
+  /**
+   * Starts watching the files given to the constructor: when one of them is created or modified
+   * (and then left alone for QUIET_MILLIS), it is reloaded. Does nothing if already watching.
+   * @throws IOException if the directory of the files cannot be watched
+   */
+  public synchronized void startWatching() throws IOException {
+    if (watcher != null) {
+      return;
+    }
+    final WatchService service = FileSystems.getDefault().newWatchService();
+    directory(files.get(0)).register(service, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+    watchService = service;
+    watcher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          watch(service);
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+          // Stopped watching
+        }
+      }
+    }, "pokedex-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * Stops watching the files. Reloads that were already triggered still run.
+   */
+  public synchronized void stopWatching() {
+    if (watcher == null) {
+      return;
+    }
+    try {
+      watchService.close();
+    } catch (IOException exception) {
+      // Already closed
+    }
+    watcher.interrupt();
+    watcher = null;
+    watchService = null;
+  }
+
+  /**
+   * Stops watching and stops the reload thread, after any reload already running.
+   */
+  @Override
+  public void close() {
+    stopWatching();
+    executor.shutdown();
+  }
+
+  /**
+   * Returns the number of reloads that swapped in a new Pokedex.
+   * @return the number of successful reloads
+   */
+  public int getReloads() {
+    synchronized (lock) {
+      return reloads;
+    }
+  }
+
+  /**
+   * Returns the number of reloads that failed, leaving the Pokedex as it was.
+   * @return the number of failed reloads
+   */
+  public int getFailures() {
+    synchronized (lock) {
+      return failures;
+    }
+  }
+
+  /**
+   * Returns why the last failed reload failed, or null if none has.
+   * @return the error of the last failed reload, or null
+   */
+  public Exception getLastError() {
+    synchronized (lock) {
+      return lastError;
+    }
+  }
+
+  /**
+   * Returns how long the last successful reload took to load and validate the Pokedex.
+   * @return the duration of the last successful reload in milliseconds
+   */
+  public long getLastReloadMillis() {
+    synchronized (lock) {
+      return lastReloadMillis;
+    }
+  }
+
+  /**
+   * Checks that the Pokedex is consistent: it isn't empty, every Pokemon has a name, and its
+   * id and name indexes find every Pokemon.
+   * @param pokedex the Pokedex to check
+   * @throws IllegalStateException if the Pokedex is not consistent
+   */
+  public static void validate(Pokedex pokedex) {
+    if (pokedex == null || pokedex.size() == 0) {
+      throw new IllegalStateException("The Pokedex is empty");
+    }
+    NameIndex names = pokedex.getNameIndex();
+    for (int ordinal = 0; ordinal < pokedex.size(); ordinal++) {
+      Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+      if (pokemon == null || pokemon.getName() == null) {
+        throw new IllegalStateException("Missing Pokemon or name at ordinal " + ordinal);
+      }
+      if (pokedex.ordinalOf(pokemon.getId()) != ordinal
+          || names.ordinalOf(pokemon.getName()) == Pokedex.NOT_FOUND) {
+        throw new IllegalStateException("The indexes don't match Pokemon #" + pokemon.getId());
+      }
+    }
+  }
+
+  private Pokedex load(File file) throws Exception {
+    long start = System.nanoTime();
+    Pokedex next;
+    try {
+      next = loader.load(file);
+      validate(next);
+    } catch (Exception exception) {
+      synchronized (lock) {
+        failures++;
+        lastError = exception;
+      }
+      throw exception;
+    }
+    // The previous Pokedex is not kept here: readers still using it keep it alive until they are
+    // done with it
+    holder.swap(next);
+    synchronized (lock) {
+      reloads++;
+      lastReloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+    return next;
+  }
+
+  private void watch(WatchService service) throws InterruptedException {
+    while (true) {
+      File changed = changedFile(service.take());
+      // Waits for the file to stay unchanged, taking in any further events
+      while (changed != null) {
+        WatchKey key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          report(reload(changed));
+          break;
+        }
+        File next = changedFile(key);
+        if (next != null) {
+          changed = next;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the watched file that the events are about (the last one, if there are several), or
+   * null if they are about none of them. Resets the key so that it keeps receiving events.
+   */
+  private File changedFile(WatchKey key) {
+    File changed = null;
+    Path directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.context() instanceof Path) {
+        File file = directory.resolve((Path) event.context()).toFile().getAbsoluteFile();
+        if (files.contains(file)) {
+          changed = file;
+        }
+      }
+    }
+    key.reset();
+    return changed;
+  }
+
+  /**
+   * Reports a reload triggered by the watcher if it fails, since no caller waits for it. This runs
+   * on the reload thread after the reload, so the reload is done by then.
+   */
+  private void report(final Future<Pokedex> reload) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          reload.get();
+        } catch (InterruptedException | ExecutionException exception) {
+          System.err.println("Uh-oh! Could not reload the Pokedex: " + exception.getCause());
+        }
+      }
+    });
+  }
+
+  private static Path directory(File file) {
+    return file.getAbsoluteFile().getParentFile().toPath();
+  }
+}
@@ -22,27 +22,38 @@
 package pokedex;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * A class used to represent a Pokemon in the Pokedex.
+ * A class used to represent a Pokemon in the Pokedex. To keep a whole Pokedex small in memory,
+ * the stats are packed one byte each into a long, the (at most two) types into a short, and the
+ * height and weight are kept as ints in the units PokeAPI uses (decimetres and hectograms).
  */
 public class Pokemon {
+  // The largest id a type can have when packed into a Pokemon (each one is stored in a byte)
+  public static final int MAX_TYPE_ID = 255;
+  public static final int NO_TYPE = 0;
+  public static final int MAX_TYPES = 2;
+  private static final int BITS_PER_STAT = 8;
+  private static final int STAT_MASK = 0xFF;
+  private static final int BITS_PER_TYPE = 8;
+  private static final int TYPE_MASK = 0xFF;
+  private static final double DECIMETRES_PER_METRE = 10;
+  private static final double HECTOGRAMS_PER_KILOGRAM = 10;
+
   // All fields for a Pokemon
   private int id;
   private String name;
-  private int baseExperience;
-  private double height;
-  private double weight;
+  private short baseExperience;
+  private int heightDecimetres;
+  private int weightHectograms;
   private List<String> abilities;
   private List<String> moves;
-  private int hp;
-  private int attack;
-  private int defense;
-  private int specialAttack;
-  private int specialDefense;
-  private int speed;
-  private List<Integer> types;
+  // One unsigned byte per Stat, indexed by Stat.ordinal()
+  private long stats;
+  // The first type in the low byte and the second type in the high byte (NO_TYPE if absent)
+  private short types;
   
   /**
    * A class used to build a Pokemon.
@@ -52,18 +63,13 @@ public class Pokemon {
     private int id;
     // Optional fields
     private String name;
-    private int baseExperience;
-    private double height;
-    private double weight;
+    private short baseExperience;
+    private int heightDecimetres;
+    private int weightHectograms;
     private List<String> abilities;
     private List<String> moves;
-    private int hp;
-    private int attack;
-    private int defense;
-    private int specialAttack;
-    private int specialDefense;
-    private int speed;
-    private List<Integer> types;
+    private long stats;
+    private short types;
     
     /**
      * Builds a Pokemon with the specified fields.
@@ -97,17 +103,29 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setBaseExperience(int baseExperience) {
-      this.baseExperience = baseExperience;
+      if (baseExperience < 0 || baseExperience > Short.MAX_VALUE) {
+        throw new IllegalArgumentException("Base experience out of range: " + baseExperience);
+      }
+      this.baseExperience = (short) baseExperience;
       return this;
     }
     
     /**
      * Returns the PokemonBuilder instance after setting the weight.
-     * @param weight the weight to be set
+     * @param weight the weight to be set (in kilograms)
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setWeight(double weight) {
-      this.weight = weight;
+      return setWeightHectograms((int) Math.round(weight * HECTOGRAMS_PER_KILOGRAM));
+    }
+
+    /**
+     * Returns the PokemonBuilder instance after setting the weight.
+     * @param weightHectograms the weight to be set (in hectograms, as given by PokeAPI)
+     * @return the PokemonBuilder instance to be used to build a Pokemon
+     */
+    public PokemonBuilder setWeightHectograms(int weightHectograms) {
+      this.weightHectograms = weightHectograms;
       return this;
     }
     
@@ -130,6 +148,21 @@ public class Pokemon {
       this.moves = moves;
       return this;
     }
+
+    /**
+     * Returns the PokemonBuilder instance after setting the given base stat.
+     * @param stat the stat to be set
+     * @param value the number of points (0 to Stat.MAX_VALUE)
+     * @return the PokemonBuilder instance to be used to build a Pokemon
+     */
+    public PokemonBuilder setStat(Stat stat, int value) {
+      if (value < 0 || value > Stat.MAX_VALUE) {
+        throw new IllegalArgumentException(stat + " out of range: " + value);
+      }
+      int shift = stat.ordinal() * BITS_PER_STAT;
+      stats = (stats & ~((long) STAT_MASK << shift)) | ((long) value << shift);
+      return this;
+    }
     
     /**
      * Returns the PokemonBuilder instance after setting the health points.
@@ -137,8 +170,7 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setHp(int hp) {
-      this.hp = hp;
-      return this;
+      return setStat(Stat.HP, hp);
     }
     
     /**
@@ -147,8 +179,7 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setAttack(int attack) {
-      this.attack = attack;
-      return this;
+      return setStat(Stat.ATTACK, attack);
     }
     
     /**
@@ -157,8 +188,7 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setDefense(int defense) {
-      this.defense = defense;
-      return this;
+      return setStat(Stat.DEFENSE, defense);
     }
     
     /**
@@ -167,8 +197,7 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setSpecialAttack(int specialAttack) {
-      this.specialAttack = specialAttack;
-      return this;
+      return setStat(Stat.SPECIAL_ATTACK, specialAttack);
     }
     
     /**
@@ -177,8 +206,7 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setSpecialDefense(int specialDefense) {
-      this.specialDefense = specialDefense;
-      return this;
+      return setStat(Stat.SPECIAL_DEFENSE, specialDefense);
     }
    
     /**
@@ -187,27 +215,44 @@ public class Pokemon {
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setSpeed(int speed) {
-      this.speed = speed;
-      return this;
+      return setStat(Stat.SPEED, speed);
     }
 
     /**
      * Returns the PokemonBuilder instance after setting the height.
-     * @param height the height to be set
+     * @param height the height to be set (in metres)
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setHeight(double height) {
-      this.height = height;
+      return setHeightDecimetres((int) Math.round(height * DECIMETRES_PER_METRE));
+    }
+
+    /**
+     * Returns the PokemonBuilder instance after setting the height.
+     * @param heightDecimetres the height to be set (in decimetres, as given by PokeAPI)
+     * @return the PokemonBuilder instance to be used to build a Pokemon
+     */
+    public PokemonBuilder setHeightDecimetres(int heightDecimetres) {
+      this.heightDecimetres = heightDecimetres;
       return this;
     }
     
     /**
      * Returns the PokemonBuilder instance after setting the types.
-     * @param types the types to be set
+     * @param types the ids of the types to be set (at most two)
      * @return the PokemonBuilder instance to be used to build a Pokemon
      */
     public PokemonBuilder setTypes(List<Integer> types) {
-      this.types = types;
+      short packed = 0;
+      if (types != null) {
+        if (types.size() > MAX_TYPES) {
+          throw new IllegalArgumentException("A Pokemon has at most two types: " + types);
+        }
+        for (int index = 0; index < types.size(); index++) {
+          packed = packType(packed, index, types.get(index));
+        }
+      }
+      this.types = packed;
       return this;
     }
   }
@@ -220,16 +265,11 @@ public class Pokemon {
     id = builder.id;
     name = builder.name;
     baseExperience = builder.baseExperience;
-    height = builder.height;
-    weight = builder.weight;
+    heightDecimetres = builder.heightDecimetres;
+    weightHectograms = builder.weightHectograms;
     abilities = builder.abilities;
     moves = builder.moves;
-    hp = builder.hp;
-    attack = builder.attack;
-    defense = builder.defense;
-    specialAttack = builder.specialAttack;
-    specialDefense = builder.specialDefense;
-    speed = builder.speed;
+    stats = builder.stats;
     types = builder.types;
   }
   
@@ -240,7 +280,6 @@ public class Pokemon {
   public Pokemon() {
     abilities = new ArrayList<>();
     moves = new ArrayList<>();
-    types = new ArrayList<>();
   }
 
   /**
@@ -272,7 +311,15 @@ public class Pokemon {
    * @return the weight of the Pokemon
    */
   public double getWeight() {
-    return weight;
+    return weightHectograms / HECTOGRAMS_PER_KILOGRAM;
+  }
+
+  /**
+   * Returns the weight of the Pokemon in hectograms (the unit PokeAPI uses).
+   * @return the weight of the Pokemon in hectograms
+   */
+  public int getWeightHectograms() {
+    return weightHectograms;
   }
 
   /**
@@ -296,7 +343,7 @@ public class Pokemon {
    * @return the base health points of the Pokemon
    */
   public int getHp() {
-    return hp;
+    return getStat(Stat.HP);
   }
   
   /**
@@ -304,7 +351,7 @@ public class Pokemon {
    * @return the base attack points of the Pokemon.
    */
   public int getAttack() {
-    return attack;
+    return getStat(Stat.ATTACK);
   }
 
   /**
@@ -312,7 +359,7 @@ public class Pokemon {
    * @return the base defense points of the Pokemon
    */
   public int getDefense() {
-    return defense;
+    return getStat(Stat.DEFENSE);
   }
 
   /**
@@ -320,7 +367,7 @@ public class Pokemon {
    * @return the base specialAttack of the Pokemon
    */
   public int getSpecialAttack() {
-    return specialAttack;
+    return getStat(Stat.SPECIAL_ATTACK);
   }
  
   /**
@@ -328,7 +375,7 @@ public class Pokemon {
    * @return the base special defense points of the Pokemon
    */
   public int getSpecialDefense() {
-    return specialDefense;
+    return getStat(Stat.SPECIAL_DEFENSE);
   }
 
   /**
@@ -336,7 +383,28 @@ public class Pokemon {
    * @return the base speed points of the Pokemon
    */
   public int getSpeed() {
-    return speed;
+    return getStat(Stat.SPEED);
+  }
+
+  /**
+   * Returns the given base stat of the Pokemon.
+   * @param stat the stat to be returned
+   * @return the number of points the Pokemon has in the stat
+   */
+  public int getStat(Stat stat) {
+    return (int) (stats >>> (stat.ordinal() * BITS_PER_STAT)) & STAT_MASK;
+  }
+
+  /**
+   * Returns the sum of all the base stats of the Pokemon.
+   * @return the base stat total of the Pokemon
+   */
+  public int getBaseStatTotal() {
+    int total = 0;
+    for (long packed = stats; packed != 0; packed >>>= BITS_PER_STAT) {
+      total += (int) packed & STAT_MASK;
+    }
+    return total;
   }
 
   /**
@@ -344,7 +412,33 @@ public class Pokemon {
    * @return the types of the Pokemon
    */
   public List<Integer> getTypes() {
-    return types;
+    List<Integer> typeIds = new ArrayList<>(MAX_TYPES);
+    for (int index = 0; index < MAX_TYPES; index++) {
+      int type = getType(index);
+      if (type != NO_TYPE) {
+        typeIds.add(type);
+      }
+    }
+    return Collections.unmodifiableList(typeIds);
+  }
+
+  /**
+   * Returns the id of the first (index 0) or second (index 1) type of the Pokemon, or NO_TYPE if
+   * it does not have one.
+   * @param index the position of the type (0 or 1)
+   * @return the id of the type, or NO_TYPE
+   */
+  public int getType(int index) {
+    return (types >>> (index * BITS_PER_TYPE)) & TYPE_MASK;
+  }
+
+  /**
+   * Returns whether or not the Pokemon has the given type.
+   * @param type the id of the type
+   * @return whether or not the Pokemon has the type
+   */
+  public boolean hasType(int type) {
+    return type != NO_TYPE && (getType(0) == type || getType(1) == type);
   }
 
   /**
@@ -352,7 +446,13 @@ public class Pokemon {
    * @param type the ID of the type to add to the types
    */
   public void addType(int type) {
-    types.add(type);
+    for (int index = 0; index < MAX_TYPES; index++) {
+      if (getType(index) == NO_TYPE) {
+        types = packType(types, index, type);
+        return;
+      }
+    }
+    throw new IllegalStateException("A Pokemon has at most two types");
   }
 
   /**
@@ -376,7 +476,15 @@ public class Pokemon {
    * @return the height of the Pokemon in metres
    */
   public double getHeight() {
-    return height;
+    return heightDecimetres / DECIMETRES_PER_METRE;
+  }
+
+  /**
+   * Returns the height of the Pokemon in decimetres (the unit PokeAPI uses).
+   * @return the height of the Pokemon in decimetres
+   */
+  public int getHeightDecimetres() {
+    return heightDecimetres;
   }
   
   @Override
@@ -391,16 +499,20 @@ public class Pokemon {
    */
   private boolean checkAllFields(Pokemon pokemon) {
     return this.id == pokemon.getId() && this.name.equals(pokemon.getName())
-        && this.hp == pokemon.getHp() && this.speed == pokemon.getSpeed()
-        && this.specialDefense == pokemon.getSpecialDefense()
-        && this.specialAttack == pokemon.getSpecialAttack()
-        && this.attack == pokemon.getAttack()
-        && this.defense == pokemon.getDefense()
-        && this.height == pokemon.getHeight()
-        && this.weight == pokemon.getWeight()
-        && this.types.equals(pokemon.getTypes())
+        && this.stats == pokemon.stats
+        && this.heightDecimetres == pokemon.getHeightDecimetres()
+        && this.weightHectograms == pokemon.getWeightHectograms()
+        && this.types == pokemon.types
         && this.baseExperience == pokemon.getBaseExperience();
   }
+
+  private static short packType(short types, int index, int type) {
+    if (type <= NO_TYPE || type > MAX_TYPE_ID) {
+      throw new IllegalArgumentException("Type id out of range: " + type);
+    }
+    int shift = index * BITS_PER_TYPE;
+    return (short) ((types & ~(TYPE_MASK << shift)) | (type << shift));
+  }
   
   @Override
   public boolean equals(Object object) {
@@ -0,0 +1,173 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Precomputed leaderboards for every StatColumn: the ordinals sorted from highest to lowest
+ * value (ties in ordinal order, or in a given order such as by id), the inverse of that
+ * permutation, and the competition rank of every Pokemon. Top-K becomes a slice of an array and
+ * a rank becomes an array lookup.
+ */
+public class RankIndex {
+  private final int size;
+  // Indexed by StatColumn.ordinal(), then by position (highest value first)
+  private final int[][] orders;
+  // Indexed by StatColumn.ordinal(), then by Pokemon ordinal
+  private final int[][] positions;
+  private final int[][] ranks;
+
+  /**
+   * Creates a RankIndex from the stat columns of a Pokedex, with ties in ordinal order.
+   * @param statColumns the stat columns of the Pokedex
+   */
+  public RankIndex(StatColumns statColumns) {
+    this(statColumns, null);
+  }
+
+  /**
+   * Creates a RankIndex from the stat columns of a Pokedex, with ties in the given order.
+   * @param statColumns the stat columns of the Pokedex
+   * @param tieOrder every ordinal once, in the order ties should keep, or null for ordinal order
+   */
+  public RankIndex(StatColumns statColumns, int[] tieOrder) {
+    size = statColumns.size();
+    StatColumn[] columns = StatColumn.values();
+    orders = new int[columns.length][];
+    positions = new int[columns.length][size];
+    ranks = new int[columns.length][size];
+    for (StatColumn column : columns) {
+      int[] order = statColumns.sortDescending(column, tieOrder);
+      int[] position = positions[column.ordinal()];
+      int[] rank = ranks[column.ordinal()];
+      for (int index = 0; index < size; index++) {
+        int ordinal = order[index];
+        position[ordinal] = index;
+        // Ties share the rank of the first Pokemon with that value (1, 2, 2, 4, ...)
+        boolean tied = index > 0
+            && statColumns.get(column, order[index - 1]) == statColumns.get(column, ordinal);
+        rank[ordinal] = tied ? rank[order[index - 1]] : index + 1;
+      }
+      orders[column.ordinal()] = order;
+    }
+  }
+
+  /**
+   * Creates a RankIndex from the orders and ranks of an index built earlier over the same Pokemon
+   * (see IndexSidecar). The positions are the inverse of the orders.
+   */
+  RankIndex(int size, int[][] orders, int[][] ranks) {
+    this.size = size;
+    this.orders = orders;
+    this.ranks = ranks;
+    positions = new int[orders.length][size];
+    for (int column = 0; column < orders.length; column++) {
+      for (int index = 0; index < size; index++) {
+        positions[column][orders[column][index]] = index;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of Pokemon covered by the index.
+   * @return the number of Pokemon covered by the index
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ordinals of the (at most) k Pokemon with the highest values in the column,
+   * highest first.
+   * @param column the column to rank by
+   * @param k the number of Pokemon to return
+   * @return the ordinals of the top k Pokemon
+   */
+  public int[] topK(StatColumn column, int k) {
+    return Arrays.copyOf(orders[column.ordinal()], Math.max(0, Math.min(k, size)));
+  }
+
+  /**
+   * Returns the ordinals of the (at most) k Pokemon among the candidates with the highest values
+   * in the column, highest first. For example, the candidates can be the Pokemon of one type
+   * from the TypeIndex.
+   * @param column the column to rank by
+   * @param k the number of Pokemon to return
+   * @param candidates the ordinals of the Pokemon to choose from
+   * @return the ordinals of the top k candidates
+   */
+  public int[] topK(StatColumn column, int k, BitSet candidates) {
+    int[] order = orders[column.ordinal()];
+    int[] top = new int[Math.max(0, Math.min(k, candidates.cardinality()))];
+    int count = 0;
+    // Walks the precomputed order and stops as soon as k candidates are found
+    for (int index = 0; index < size && count < top.length; index++) {
+      if (candidates.get(order[index])) {
+        top[count++] = order[index];
+      }
+    }
+    return top;
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon at the given position when sorted by the column, highest
+   * first.
+   * @param column the column to rank by
+   * @param position the position (0 is the highest value)
+   * @return the ordinal of the Pokemon at the position
+   */
+  public int ordinalAt(StatColumn column, int position) {
+    return orders[column.ordinal()][position];
+  }
+
+  /**
+   * Returns the position of the Pokemon when sorted by the column, highest first. Unlike the
+   * rank, every Pokemon has a different position (ties are broken by the tie order).
+   * @param column the column to rank by
+   * @param ordinal the ordinal of the Pokemon
+   * @return the position of the Pokemon (0 is the highest value)
+   */
+  public int positionOf(StatColumn column, int ordinal) {
+    return positions[column.ordinal()][ordinal];
+  }
+
+  /**
+   * Returns the rank of the Pokemon in the column: 1 for the highest value, with tied Pokemon
+   * sharing the same rank.
+   * @param column the column to rank by
+   * @param ordinal the ordinal of the Pokemon
+   * @return the rank of the Pokemon (1 is the highest value)
+   */
+  public int rankOf(StatColumn column, int ordinal) {
+    return ranks[column.ordinal()][ordinal];
+  }
+
+  int[][] orders() {
+    return orders;
+  }
+
+  int[][] ranks() {
+    return ranks;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+/**
+ * The base stats of a Pokemon, in the order they are packed into a Pokemon.
+ */
+public enum Stat {
+  HP("hp"),
+  ATTACK("attack"),
+  DEFENSE("defense"),
+  SPECIAL_ATTACK("special-attack"),
+  SPECIAL_DEFENSE("special-defense"),
+  SPEED("speed");
+
+  // The largest value a base stat can have (each one is stored in a single byte)
+  public static final int MAX_VALUE = 255;
+  private final String apiName;
+
+  private Stat(String apiName) {
+    this.apiName = apiName;
+  }
+
+  /**
+   * Returns the name PokeAPI uses for the stat (e.g. special-attack).
+   * @return the name PokeAPI uses for the stat
+   */
+  public String getApiName() {
+    return apiName;
+  }
+
+  /**
+   * Returns the Stat with the given PokeAPI name, or null if there is none.
+   * @param apiName the name PokeAPI uses for the stat
+   * @return the Stat with the given name, or null if there is none
+   */
+  public static Stat fromApiName(String apiName) {
+    for (Stat stat : values()) {
+      if (stat.apiName.equals(apiName)) {
+        return stat;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The distribution of every StatColumn over every type, and over the whole Pokedex. A Pokemon
+ * with two types counts towards both. The distributions are built in one pass over the
+ * StatColumns, split across cores with fork/join, and can be updated from an older snapshot's
+ * aggregates by removing and re-adding only the Pokemon that changed.
+ */
+public class StatAggregates {
+  // The group that holds every Pokemon, whatever its types
+  public static final int ALL_TYPES = Pokemon.NO_TYPE;
+  // Pokedexes smaller than this are aggregated on the calling thread
+  private static final int LEAF_SIZE = 4096;
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+  private static final int NUM_COLUMNS = StatColumn.values().length;
+  // distributions[typeId][column.ordinal()], null for types no Pokemon has
+  private final StatDistribution[][] distributions;
+
+  /**
+   * Creates StatAggregates for the given Pokemon.
+   * @param pokemon the Pokemon, in ordinal order
+   * @param statColumns the columns of the same Pokemon
+   */
+  public StatAggregates(List<Pokemon> pokemon, StatColumns statColumns) {
+    AggregateTask task = new AggregateTask(pokemon, statColumns, 0, pokemon.size());
+    distributions = pokemon.size() < LEAF_SIZE ? task.compute() : POOL.invoke(task);
+  }
+
+  private StatAggregates(StatDistribution[][] distributions) {
+    this.distributions = distributions;
+  }
+
+  /**
+   * Returns new StatAggregates for the next snapshot of the Pokedex, given these aggregates of the
+   * previous one. Only the distributions of the groups a changed Pokemon was or is in are copied;
+   * the rest are shared with these aggregates, which are left unchanged.
+   * @param previous the Pokemon of the previous snapshot, in ordinal order
+   * @param next the Pokemon of the next snapshot, in ordinal order
+   * @param changed the ordinals of the Pokemon that were replaced or added in the next snapshot
+   * @return the StatAggregates of the next snapshot
+   */
+  public StatAggregates update(List<Pokemon> previous, List<Pokemon> next, BitSet changed) {
+    StatDistribution[][] updated = distributions.clone();
+    boolean[] copied = new boolean[updated.length];
+    for (int ordinal = changed.nextSetBit(0); ordinal >= 0;
+        ordinal = changed.nextSetBit(ordinal + 1)) {
+      if (ordinal < previous.size()) {
+        Pokemon old = previous.get(ordinal);
+        for (int group : groupsOf(old)) {
+          StatDistribution[] columns = copyOnWrite(updated, copied, group);
+          for (StatColumn column : StatColumn.values()) {
+            columns[column.ordinal()].remove(column.valueOf(old));
+          }
+        }
+      }
+      Pokemon current = next.get(ordinal);
+      for (int group : groupsOf(current)) {
+        StatDistribution[] columns = copyOnWrite(updated, copied, group);
+        for (StatColumn column : StatColumn.values()) {
+          columns[column.ordinal()].add(column.valueOf(current));
+        }
+      }
+    }
+    // Drops the groups that no Pokemon is in anymore
+    for (int group = 0; group < updated.length; group++) {
+      if (copied[group] && updated[group][0].getCount() == 0) {
+        updated[group] = null;
+      }
+    }
+    return new StatAggregates(updated);
+  }
+
+  /**
+   * Returns the ids of the types at least one Pokemon has, from lowest to highest.
+   * @return the ids of the types at least one Pokemon has
+   */
+  public int[] getTypeIds() {
+    int count = 0;
+    for (int typeId = ALL_TYPES + 1; typeId < distributions.length; typeId++) {
+      if (distributions[typeId] != null) {
+        count++;
+      }
+    }
+    int[] typeIds = new int[count];
+    count = 0;
+    for (int typeId = ALL_TYPES + 1; typeId < distributions.length; typeId++) {
+      if (distributions[typeId] != null) {
+        typeIds[count++] = typeId;
+      }
+    }
+    return typeIds;
+  }
+
+  /**
+   * Returns the distribution of the column over the Pokemon with the given type, or over every
+   * Pokemon for ALL_TYPES. The distribution is empty if no Pokemon has the type.
+   * @param column the column
+   * @param typeId the id of the type, or ALL_TYPES
+   * @return the distribution of the column
+   */
+  public StatDistribution getDistribution(StatColumn column, int typeId) {
+    if (typeId < ALL_TYPES || typeId > Pokemon.MAX_TYPE_ID) {
+      throw new IllegalArgumentException("Invalid type id: " + typeId);
+    }
+    if (distributions[typeId] == null) {
+      return new StatDistribution();
+    }
+    return distributions[typeId][column.ordinal()];
+  }
+
+  /**
+   * Returns the distribution of the column over every Pokemon.
+   * @param column the column
+   * @return the distribution of the column
+   */
+  public StatDistribution getDistribution(StatColumn column) {
+    return getDistribution(column, ALL_TYPES);
+  }
+
+  private static StatDistribution[] copyOnWrite(StatDistribution[][] distributions,
+      boolean[] copied, int group) {
+    if (!copied[group]) {
+      StatDistribution[] columns = new StatDistribution[NUM_COLUMNS];
+      for (int column = 0; column < NUM_COLUMNS; column++) {
+        columns[column] = distributions[group] == null ? new StatDistribution()
+            : distributions[group][column].copy();
+      }
+      distributions[group] = columns;
+      copied[group] = true;
+    }
+    return distributions[group];
+  }
+
+  private static int[] groupsOf(Pokemon pokemon) {
+    int first = pokemon.getType(0);
+    int second = pokemon.getType(1);
+    if (second != Pokemon.NO_TYPE) {
+      return new int[] {ALL_TYPES, first, second};
+    } else if (first != Pokemon.NO_TYPE) {
+      return new int[] {ALL_TYPES, first};
+    }
+    return new int[] {ALL_TYPES};
+  }
+
+  /**
+   * Aggregates a range of ordinals, splitting it in half until it is small enough to aggregate
+   * directly, and merging the halves' distributions.
+   */
+  private static class AggregateTask extends RecursiveTask<StatDistribution[][]> {
+    private static final long serialVersionUID = 1L;
+    private final List<Pokemon> pokemon;
+    private final StatColumns statColumns;
+    private final int from;
+    private final int to;
+
+    AggregateTask(List<Pokemon> pokemon, StatColumns statColumns, int from, int to) {
+      this.pokemon = pokemon;
+      this.statColumns = statColumns;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected StatDistribution[][] compute() {
+      if (to - from <= LEAF_SIZE) {
+        return aggregate();
+      }
+      int middle = (from + to) >>> 1;
+      AggregateTask left = new AggregateTask(pokemon, statColumns, from, middle);
+      AggregateTask right = new AggregateTask(pokemon, statColumns, middle, to);
+      right.fork();
+      StatDistribution[][] merged = left.compute();
+      StatDistribution[][] other = right.join();
+      for (int group = 0; group < merged.length; group++) {
+        if (other[group] == null) {
+          continue;
+        } else if (merged[group] == null) {
+          merged[group] = other[group];
+          continue;
+        }
+        for (int column = 0; column < NUM_COLUMNS; column++) {
+          merged[group][column].addAll(other[group][column]);
+        }
+      }
+      return merged;
+    }
+
+    private StatDistribution[][] aggregate() {
+      StatDistribution[][] groups = new StatDistribution[Pokemon.MAX_TYPE_ID + 1][];
+      boolean[] created = new boolean[groups.length];
+      for (int ordinal = from; ordinal < to; ordinal++) {
+        for (int group : groupsOf(pokemon.get(ordinal))) {
+          StatDistribution[] columns = copyOnWrite(groups, created, group);
+          for (StatColumn column : StatColumn.values()) {
+            columns[column.ordinal()].add(statColumns.get(column, ordinal));
+          }
+        }
+      }
+      return groups;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+/**
+ * The numeric columns of a Pokemon that can be filtered, sorted and aggregated on: the six base
+ * stats, the base stat total and the base experience.
+ */
+public enum StatColumn {
+  HP(Stat.HP),
+  ATTACK(Stat.ATTACK),
+  DEFENSE(Stat.DEFENSE),
+  SPECIAL_ATTACK(Stat.SPECIAL_ATTACK),
+  SPECIAL_DEFENSE(Stat.SPECIAL_DEFENSE),
+  SPEED(Stat.SPEED),
+  BASE_STAT_TOTAL(null),
+  BASE_EXPERIENCE(null);
+
+  private final Stat stat;
+
+  private StatColumn(Stat stat) {
+    this.stat = stat;
+  }
+
+  /**
+   * Returns the StatColumn holding the given base stat.
+   * @param stat the base stat
+   * @return the StatColumn holding the stat
+   */
+  public static StatColumn forStat(Stat stat) {
+    return values()[stat.ordinal()];
+  }
+
+  /**
+   * Returns the value of this column for the given Pokemon.
+   * @param pokemon the Pokemon
+   * @return the value of this column for the Pokemon
+   */
+  public int valueOf(Pokemon pokemon) {
+    if (stat != null) {
+      return pokemon.getStat(stat);
+    } else if (this == BASE_STAT_TOTAL) {
+      return pokemon.getBaseStatTotal();
+    }
+    return pokemon.getBaseExperience();
+  }
+
+  /**
+   * Returns the largest value this column can hold.
+   * @return the largest value of this column
+   */
+  public int maxValue() {
+    if (stat != null) {
+      return Stat.MAX_VALUE;
+    } else if (this == BASE_STAT_TOTAL) {
+      return Stat.MAX_VALUE * Stat.values().length;
+    }
+    return Short.MAX_VALUE;
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A struct-of-arrays copy of the numeric columns of a Pokedex: one int array per StatColumn,
+ * indexed by the ordinal of the Pokemon. Filters, sorts and aggregates run as tight loops over a
+ * single array instead of calling getters on every Pokemon object.
+ */
+public class StatColumns {
+  private static final int BITS_PER_WORD = 64;
+  private static final int NO_VALUE = -1;
+  private final int size;
+  private final int[][] columns;
+
+  /**
+   * Creates StatColumns holding the columns of the given Pokemon, in order.
+   * @param pokemon the Pokemon whose columns are to be stored
+   */
+  public StatColumns(List<Pokemon> pokemon) {
+    size = pokemon.size();
+    StatColumn[] statColumns = StatColumn.values();
+    columns = new int[statColumns.length][size];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      Pokemon current = pokemon.get(ordinal);
+      for (StatColumn column : statColumns) {
+        columns[column.ordinal()][ordinal] = column.valueOf(current);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of Pokemon in the columns.
+   * @return the number of Pokemon
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value of the column for the Pokemon with the given ordinal.
+   * @param column the column
+   * @param ordinal the ordinal of the Pokemon
+   * @return the value of the column for the Pokemon
+   */
+  public int get(StatColumn column, int ordinal) {
+    return columns[column.ordinal()][ordinal];
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon whose value in the column is between min and max
+   * (inclusive).
+   * @param column the column to filter on
+   * @param min the smallest value to keep
+   * @param max the largest value to keep
+   * @return the ordinals of the matching Pokemon
+   */
+  public BitSet filterRange(StatColumn column, int min, int max) {
+    int[] values = columns[column.ordinal()];
+    // Every value is non-negative, so clamping min at 0 (and giving up on an empty range, which
+    // leaves max non-negative) keeps both value - min and max - value from overflowing
+    min = Math.max(min, 0);
+    if (max < min) {
+      return new BitSet();
+    }
+    long[] words = new long[(size + BITS_PER_WORD - 1) / BITS_PER_WORD];
+    for (int word = 0; word < words.length; word++) {
+      int start = word * BITS_PER_WORD;
+      int end = Math.min(start + BITS_PER_WORD, size);
+      long bits = 0;
+      // Branch-free: the sign bit of (value - min) | (max - value) is set when out of range
+      for (int ordinal = start; ordinal < end; ordinal++) {
+        int value = values[ordinal];
+        long inRange = ((value - min) | (max - value)) >>> 31 ^ 1;
+        bits |= inRange << (ordinal - start);
+      }
+      words[word] = bits;
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Narrows the candidates down to the Pokemon whose value in the column is between min and max
+   * (inclusive).
+   * @param column the column to filter on
+   * @param min the smallest value to keep
+   * @param max the largest value to keep
+   * @param candidates the ordinals to be narrowed down (modified in place)
+   */
+  public void retainRange(StatColumn column, int min, int max, BitSet candidates) {
+    int[] values = columns[column.ordinal()];
+    for (int ordinal = candidates.nextSetBit(0); ordinal >= 0;
+        ordinal = candidates.nextSetBit(ordinal + 1)) {
+      if (values[ordinal] < min || values[ordinal] > max) {
+        candidates.clear(ordinal);
+      }
+    }
+  }
+
+  /**
+   * Returns the ordinals of all the Pokemon sorted by the column, highest value first (ties keep
+   * ordinal order). Since the values are small non-negative ints this is a counting sort.
+   * @param column the column to sort by
+   * @return the ordinals sorted by the column, highest first
+   */
+  public int[] sortDescending(StatColumn column) {
+    return sortDescending(column, null);
+  }
+
+  /**
+   * Returns the ordinals of all the Pokemon sorted by the column, highest value first, with ties
+   * kept in the order they have in tieOrder (e.g. the ordinals sorted by id).
+   * @param column the column to sort by
+   * @param tieOrder every ordinal once, in the order ties should keep, or null for ordinal order
+   * @return the ordinals sorted by the column, highest first
+   */
+  public int[] sortDescending(StatColumn column, int[] tieOrder) {
+    if (tieOrder != null && tieOrder.length != size) {
+      throw new IllegalArgumentException("Tie order has " + tieOrder.length + " ordinals, not "
+          + size);
+    }
+    int[] values = columns[column.ordinal()];
+    int max = max(column);
+    int[] starts = new int[max + 2];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      starts[max - values[ordinal] + 1]++;
+    }
+    for (int bucket = 1; bucket < starts.length; bucket++) {
+      starts[bucket] += starts[bucket - 1];
+    }
+    int[] sorted = new int[size];
+    for (int index = 0; index < size; index++) {
+      // The counting sort is stable, so ties come out in the order they go in
+      int ordinal = tieOrder == null ? index : tieOrder[index];
+      sorted[starts[max - values[ordinal]]++] = ordinal;
+    }
+    return sorted;
+  }
+
+  /**
+   * Returns the sum of the column over all the Pokemon.
+   * @param column the column to be summed
+   * @return the sum of the column
+   */
+  public long sum(StatColumn column) {
+    int[] values = columns[column.ordinal()];
+    long sum = 0;
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      sum += values[ordinal];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the sum of the column over the given Pokemon.
+   * @param column the column to be summed
+   * @param ordinals the ordinals of the Pokemon to be included
+   * @return the sum of the column over the Pokemon
+   */
+  public long sum(StatColumn column, BitSet ordinals) {
+    int[] values = columns[column.ordinal()];
+    long sum = 0;
+    for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0;
+        ordinal = ordinals.nextSetBit(ordinal + 1)) {
+      sum += values[ordinal];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the mean of the column over all the Pokemon (0 if there are none).
+   * @param column the column to be averaged
+   * @return the mean of the column
+   */
+  public double mean(StatColumn column) {
+    return size == 0 ? 0 : (double) sum(column) / size;
+  }
+
+  /**
+   * Returns the smallest value of the column, or -1 if there are no Pokemon.
+   * @param column the column
+   * @return the smallest value of the column, or -1
+   */
+  public int min(StatColumn column) {
+    int[] values = columns[column.ordinal()];
+    if (size == 0) {
+      return NO_VALUE;
+    }
+    int min = values[0];
+    for (int ordinal = 1; ordinal < size; ordinal++) {
+      min = Math.min(min, values[ordinal]);
+    }
+    return min;
+  }
+
+  /**
+   * Returns the largest value of the column, or -1 if there are no Pokemon.
+   * @param column the column
+   * @return the largest value of the column, or -1
+   */
+  public int max(StatColumn column) {
+    int[] values = columns[column.ordinal()];
+    int max = NO_VALUE;
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      max = Math.max(max, values[ordinal]);
+    }
+    return max;
+  }
+}
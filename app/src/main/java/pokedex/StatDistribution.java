@@ -0,0 +1,281 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Arrays;
+
+/**
+ * The distribution of one StatColumn over a group of Pokemon, kept as an exact histogram with a
+ * count for every value between the smallest and largest value seen. Quantiles are exact, and
+ * values can be removed as well as added, which lets a distribution follow a changing Pokedex.
+ */
+public class StatDistribution {
+  private static final int INITIAL_RANGE = 64;
+  // counts[index] is the number of values equal to offset + index
+  private int offset;
+  private int[] counts;
+  private int count;
+  private long sum;
+  private int min = Integer.MAX_VALUE;
+  private int max = Integer.MIN_VALUE;
+
+  StatDistribution() {
+    counts = new int[0];
+  }
+
+  private StatDistribution(StatDistribution other) {
+    offset = other.offset;
+    counts = other.counts.clone();
+    count = other.count;
+    sum = other.sum;
+    min = other.min;
+    max = other.max;
+  }
+
+  /**
+   * Returns the number of values in the distribution.
+   * @return the number of values
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the sum of the values in the distribution.
+   * @return the sum of the values
+   */
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * Returns the smallest value in the distribution.
+   * @return the smallest value
+   */
+  public int getMin() {
+    checkNotEmpty();
+    return min;
+  }
+
+  /**
+   * Returns the largest value in the distribution.
+   * @return the largest value
+   */
+  public int getMax() {
+    checkNotEmpty();
+    return max;
+  }
+
+  /**
+   * Returns the mean of the values in the distribution.
+   * @return the mean of the values
+   */
+  public double getMean() {
+    checkNotEmpty();
+    return (double) sum / count;
+  }
+
+  /**
+   * Returns the median of the values in the distribution (the lower median for an even count).
+   * @return the median of the values
+   */
+  public int getMedian() {
+    return getQuantile(0.5);
+  }
+
+  /**
+   * Returns the smallest value that at least the given fraction of the values are less than or
+   * equal to (the nearest-rank quantile), e.g. 0.9 for the 90th percentile.
+   * @param quantile the fraction of the values, from 0 to 1
+   * @return the value at the quantile
+   */
+  public int getQuantile(double quantile) {
+    if (!(quantile >= 0 && quantile <= 1)) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+    }
+    checkNotEmpty();
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int index = min - offset; ; index++) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return offset + index;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of values in each bucket of the given width, where bucket i holds the
+   * values from i * bucketWidth to (i + 1) * bucketWidth - 1, up to the bucket of the largest
+   * value.
+   * @param bucketWidth the number of values in each bucket
+   * @return the number of values in each bucket
+   */
+  public int[] getHistogram(int bucketWidth) {
+    if (bucketWidth < 1) {
+      throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidth);
+    }
+    if (count == 0) {
+      return new int[0];
+    }
+    int[] buckets = new int[max / bucketWidth + 1];
+    for (int value = min; value <= max; value++) {
+      buckets[value / bucketWidth] += counts[value - offset];
+    }
+    return buckets;
+  }
+
+  /**
+   * Adds a value to the distribution.
+   * @param value the value, which can't be negative
+   */
+  void add(int value) {
+    if (value < offset || value >= offset + counts.length) {
+      grow(value);
+    }
+    counts[value - offset]++;
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Removes a value that was added to the distribution.
+   * @param value the value
+   */
+  void remove(int value) {
+    int index = value - offset;
+    if (index < 0 || index >= counts.length || counts[index] == 0) {
+      throw new IllegalArgumentException("Value not in the distribution: " + value);
+    }
+    counts[index]--;
+    count--;
+    sum -= value;
+    if (count == 0) {
+      min = Integer.MAX_VALUE;
+      max = Integer.MIN_VALUE;
+      return;
+    }
+    // Moves the bounds in past values that no longer have a count
+    while (counts[min - offset] == 0) {
+      min++;
+    }
+    while (counts[max - offset] == 0) {
+      max--;
+    }
+  }
+
+  /**
+   * Adds all of the values of another distribution to this one.
+   * @param other the distribution to add
+   */
+  void addAll(StatDistribution other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (other.min < offset || other.max >= offset + counts.length) {
+      grow(other.min);
+      grow(other.max);
+    }
+    for (int value = other.min; value <= other.max; value++) {
+      counts[value - offset] += other.counts[value - other.offset];
+    }
+    count += other.count;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Returns a copy of the distribution that can be changed without changing this one.
+   * @return a copy of the distribution
+   */
+  StatDistribution copy() {
+    return new StatDistribution(this);
+  }
+
+  private void grow(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Value can't be negative: " + value);
+    }
+    if (counts.length == 0) {
+      offset = value;
+      counts = new int[INITIAL_RANGE];
+      return;
+    }
+    int end = offset + counts.length;
+    if (value >= offset && value < end) {
+      return;
+    }
+    // Doubles the range towards the value (at least), without going below 0
+    int newOffset = offset;
+    int newEnd = end;
+    if (value < offset) {
+      newOffset = Math.max(0, Math.min(value, offset - counts.length));
+    } else {
+      newEnd = Math.max(value + 1, end + counts.length);
+    }
+    int[] grown = new int[newEnd - newOffset];
+    System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+    offset = newOffset;
+    counts = grown;
+  }
+
+  private void checkNotEmpty() {
+    if (count == 0) {
+      throw new IllegalStateException("The distribution is empty");
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (count == 0) {
+      return "StatDistribution[count=0]";
+    }
+    return "StatDistribution[count=" + count + ", min=" + min + ", max=" + max + ", mean="
+        + String.format("%.2f", getMean()) + ", median=" + getMedian() + "]";
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof StatDistribution)) {
+      return false;
+    }
+    StatDistribution other = (StatDistribution) object;
+    if (count != other.count || sum != other.sum) {
+      return false;
+    }
+    if (count == 0) {
+      return true;
+    }
+    return min == other.min && max == other.max
+        && Arrays.equals(Arrays.copyOfRange(counts, min - offset, max - offset + 1),
+            Arrays.copyOfRange(other.counts, other.min - other.offset, other.max - other.offset
+                + 1));
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (31 * count + sum);
+  }
+}
@@ -0,0 +1,394 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A k-d tree over the six base stats of the Pokemon in a Pokedex, answering "which Pokemon have
+ * the most similar stats" (k nearest neighbours) and "which Pokemon are within this distance"
+ * (radius) queries. Distances are Euclidean, optionally weighted per stat, and the search can be
+ * restricted to a set of candidates (e.g. the Pokemon of a type).
+ */
+public class StatKdTree {
+  public static final int DIMENSIONS = Stat.values().length;
+  // Ranges this small are scanned instead of split further
+  private static final int LEAF_SIZE = 8;
+  // Below this fraction of the Pokedex, filtered searches just check every candidate
+  private static final double BRUTE_FORCE_FRACTION = 1.0 / 32;
+  private final StatColumns statColumns;
+  private final int size;
+  // The stats of the Pokemon at each position of the tree, DIMENSIONS ints per position
+  private final int[] points;
+  // The ordinal of the Pokemon at each position of the tree
+  private final int[] ordinals;
+  // The axis the range whose middle is at this position is split on
+  private final byte[] splitAxes;
+
+  /**
+   * Creates a StatKdTree over the base stats in the given stat columns.
+   * @param statColumns the stat columns of a Pokedex
+   */
+  public StatKdTree(StatColumns statColumns) {
+    this.statColumns = statColumns;
+    size = statColumns.size();
+    points = new int[size * DIMENSIONS];
+    ordinals = new int[size];
+    splitAxes = new byte[size];
+    Stat[] stats = Stat.values();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      ordinals[ordinal] = ordinal;
+      for (int axis = 0; axis < DIMENSIONS; axis++) {
+        points[ordinal * DIMENSIONS + axis] = statColumns.get(StatColumn.forStat(stats[axis]),
+            ordinal);
+      }
+    }
+    build(0, size);
+  }
+
+  /**
+   * Creates a StatKdTree over the given stat columns from the ordinals (in tree order) and split
+   * axes of a tree built earlier over the same Pokemon (see IndexSidecar).
+   */
+  StatKdTree(StatColumns statColumns, int[] ordinals, byte[] splitAxes) {
+    this.statColumns = statColumns;
+    size = statColumns.size();
+    points = new int[size * DIMENSIONS];
+    this.ordinals = ordinals;
+    this.splitAxes = splitAxes;
+    Stat[] stats = Stat.values();
+    for (int position = 0; position < size; position++) {
+      for (int axis = 0; axis < DIMENSIONS; axis++) {
+        points[position * DIMENSIONS + axis] = statColumns.get(
+            StatColumn.forStat(stats[axis]), ordinals[position]);
+      }
+    }
+  }
+
+  /**
+   * Returns the (at most) k Pokemon whose stats are closest to the target, closest first.
+   * @param target the stats to search around, indexed by Stat.ordinal()
+   * @param k the number of Pokemon to return
+   * @param weights the weight of each stat, indexed by Stat.ordinal(), or null for equal weights
+   * @param candidates the ordinals to choose from, or null for every Pokemon
+   * @return the k nearest Pokemon, closest first
+   */
+  public List<Neighbour> nearest(int[] target, int k, double[] weights, BitSet candidates) {
+    double[] checkedWeights = checkWeights(weights);
+    if (k <= 0 || size == 0) {
+      return Collections.emptyList();
+    }
+    if (candidates != null && candidates.cardinality() < size * BRUTE_FORCE_FRACTION) {
+      return BruteForceNeighbours.nearest(statColumns, target, k, checkedWeights, candidates);
+    }
+    NearestSearch search = new NearestSearch(target, k, checkedWeights, candidates);
+    search.visit(0, size);
+    return search.results();
+  }
+
+  /**
+   * Returns the Pokemon whose stats are within the given distance of the target, closest first.
+   * @param target the stats to search around, indexed by Stat.ordinal()
+   * @param radius the largest distance to include
+   * @param weights the weight of each stat, indexed by Stat.ordinal(), or null for equal weights
+   * @param candidates the ordinals to choose from, or null for every Pokemon
+   * @return the Pokemon within the radius, closest first
+   */
+  public List<Neighbour> withinRadius(int[] target, double radius, double[] weights,
+      BitSet candidates) {
+    double[] checkedWeights = checkWeights(weights);
+    List<Neighbour> results = new ArrayList<>();
+    withinRadius(0, size, target, radius * radius, checkedWeights, candidates, results);
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * Returns the number of Pokemon in the tree.
+   * @return the number of Pokemon in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  int[] ordinals() {
+    return ordinals;
+  }
+
+  byte[] splitAxes() {
+    return splitAxes;
+  }
+
+  private double squaredDistance(int position, int[] target, double[] weights) {
+    double distance = 0;
+    int offset = position * DIMENSIONS;
+    for (int axis = 0; axis < DIMENSIONS; axis++) {
+      double difference = points[offset + axis] - target[axis];
+      distance += weights[axis] * difference * difference;
+    }
+    return distance;
+  }
+
+  static double[] checkWeights(double[] weights) {
+    if (weights == null) {
+      double[] equal = new double[DIMENSIONS];
+      Arrays.fill(equal, 1);
+      return equal;
+    }
+    if (weights.length != DIMENSIONS) {
+      throw new IllegalArgumentException("Expected " + DIMENSIONS + " weights");
+    }
+    for (double weight : weights) {
+      if (weight < 0) {
+        throw new IllegalArgumentException("Weights cannot be negative");
+      }
+    }
+    return weights;
+  }
+
+  private void build(int low, int high) {
+    if (high - low <= LEAF_SIZE) {
+      return;
+    }
+    int axis = widestAxis(low, high);
+    int middle = (low + high) >>> 1;
+    select(low, high - 1, middle, axis);
+    splitAxes[middle] = (byte) axis;
+    build(low, middle);
+    build(middle + 1, high);
+  }
+
+  private int widestAxis(int low, int high) {
+    int widest = 0;
+    int widestSpread = -1;
+    for (int axis = 0; axis < DIMENSIONS; axis++) {
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (int position = low; position < high; position++) {
+        int value = points[position * DIMENSIONS + axis];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      if (max - min > widestSpread) {
+        widestSpread = max - min;
+        widest = axis;
+      }
+    }
+    return widest;
+  }
+
+  // Quickselect: moves the position with the kth smallest value on the axis to position k
+  private void select(int low, int high, int k, int axis) {
+    while (low < high) {
+      int pivot = points[((low + high) >>> 1) * DIMENSIONS + axis];
+      int left = low;
+      int right = high;
+      while (left <= right) {
+        while (points[left * DIMENSIONS + axis] < pivot) {
+          left++;
+        }
+        while (points[right * DIMENSIONS + axis] > pivot) {
+          right--;
+        }
+        if (left <= right) {
+          swap(left++, right--);
+        }
+      }
+      if (k <= right) {
+        high = right;
+      } else if (k >= left) {
+        low = left;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int first, int second) {
+    int ordinal = ordinals[first];
+    ordinals[first] = ordinals[second];
+    ordinals[second] = ordinal;
+    for (int axis = 0; axis < DIMENSIONS; axis++) {
+      int value = points[first * DIMENSIONS + axis];
+      points[first * DIMENSIONS + axis] = points[second * DIMENSIONS + axis];
+      points[second * DIMENSIONS + axis] = value;
+    }
+  }
+
+  private void withinRadius(int low, int high, int[] target, double squaredRadius,
+      double[] weights, BitSet candidates, List<Neighbour> results) {
+    if (high - low <= LEAF_SIZE) {
+      for (int position = low; position < high; position++) {
+        if (candidates == null || candidates.get(ordinals[position])) {
+          double distance = squaredDistance(position, target, weights);
+          if (distance <= squaredRadius) {
+            results.add(new Neighbour(ordinals[position], Math.sqrt(distance)));
+          }
+        }
+      }
+      return;
+    }
+    int middle = (low + high) >>> 1;
+    int axis = splitAxes[middle];
+    double difference = target[axis] - points[middle * DIMENSIONS + axis];
+    if (candidates == null || candidates.get(ordinals[middle])) {
+      double distance = squaredDistance(middle, target, weights);
+      if (distance <= squaredRadius) {
+        results.add(new Neighbour(ordinals[middle], Math.sqrt(distance)));
+      }
+    }
+    boolean farSideInRange = weights[axis] * difference * difference <= squaredRadius;
+    if (difference <= 0 || farSideInRange) {
+      withinRadius(low, middle, target, squaredRadius, weights, candidates, results);
+    }
+    if (difference >= 0 || farSideInRange) {
+      withinRadius(middle + 1, high, target, squaredRadius, weights, candidates, results);
+    }
+  }
+
+  /**
+   * The state of a k nearest neighbour search: the k closest Pokemon found so far, kept in a
+   * max-heap on distance so that the farthest of them can be replaced.
+   */
+  private class NearestSearch {
+    private final int[] target;
+    private final double[] weights;
+    private final BitSet candidates;
+    private final double[] heapDistances;
+    private final int[] heapOrdinals;
+    private int heapSize;
+
+    private NearestSearch(int[] target, int k, double[] weights, BitSet candidates) {
+      this.target = target;
+      this.weights = weights;
+      this.candidates = candidates;
+      heapDistances = new double[k];
+      heapOrdinals = new int[k];
+    }
+
+    private void visit(int low, int high) {
+      if (high - low <= LEAF_SIZE) {
+        for (int position = low; position < high; position++) {
+          offer(position);
+        }
+        return;
+      }
+      int middle = (low + high) >>> 1;
+      int axis = splitAxes[middle];
+      double difference = target[axis] - points[middle * DIMENSIONS + axis];
+      offer(middle);
+      // Searches the side the target is on first, then the other side only if it can hold
+      // something closer than the farthest neighbour found so far
+      boolean lowFirst = difference <= 0;
+      if (lowFirst) {
+        visit(low, middle);
+      } else {
+        visit(middle + 1, high);
+      }
+      if (heapSize < heapDistances.length
+          || weights[axis] * difference * difference <= heapDistances[0]) {
+        if (lowFirst) {
+          visit(middle + 1, high);
+        } else {
+          visit(low, middle);
+        }
+      }
+    }
+
+    private void offer(int position) {
+      int ordinal = ordinals[position];
+      if (candidates != null && !candidates.get(ordinal)) {
+        return;
+      }
+      double distance = squaredDistance(position, target, weights);
+      if (heapSize < heapDistances.length) {
+        heapDistances[heapSize] = distance;
+        heapOrdinals[heapSize] = ordinal;
+        siftUp(heapSize++);
+      } else if (distance < heapDistances[0]
+          || (distance == heapDistances[0] && ordinal < heapOrdinals[0])) {
+        heapDistances[0] = distance;
+        heapOrdinals[0] = ordinal;
+        siftDown(0);
+      }
+    }
+
+    private List<Neighbour> results() {
+      List<Neighbour> results = new ArrayList<>(heapSize);
+      for (int index = 0; index < heapSize; index++) {
+        results.add(new Neighbour(heapOrdinals[index], Math.sqrt(heapDistances[index])));
+      }
+      Collections.sort(results);
+      return results;
+    }
+
+    // The root of the heap is the farthest neighbour (ties: the highest ordinal)
+    private boolean isFarther(int first, int second) {
+      return heapDistances[first] > heapDistances[second]
+          || (heapDistances[first] == heapDistances[second]
+              && heapOrdinals[first] > heapOrdinals[second]);
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (!isFarther(index, parent)) {
+          return;
+        }
+        swapHeap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int farthest = index;
+        int left = 2 * index + 1;
+        int right = left + 1;
+        if (left < heapSize && isFarther(left, farthest)) {
+          farthest = left;
+        }
+        if (right < heapSize && isFarther(right, farthest)) {
+          farthest = right;
+        }
+        if (farthest == index) {
+          return;
+        }
+        swapHeap(index, farthest);
+        index = farthest;
+      }
+    }
+
+    private void swapHeap(int first, int second) {
+      double distance = heapDistances[first];
+      heapDistances[first] = heapDistances[second];
+      heapDistances[second] = distance;
+      int ordinal = heapOrdinals[first];
+      heapOrdinals[first] = heapOrdinals[second];
+      heapOrdinals[second] = ordinal;
+    }
+  }
+}
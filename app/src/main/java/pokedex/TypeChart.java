@@ -0,0 +1,196 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Arrays;
+
+/**
+ * The damage multiplier of every attacking type against every defending type, compiled into a
+ * dense n by n matrix of fixed-point bytes (ONE is a multiplier of 1, so 0, 2, 4 and 8 stand for
+ * 0, 0.5, 1 and 2). The matrix row/column of every type id up to Pokemon.MAX_TYPE_ID is kept in
+ * a plain array, so looking up a single-type matchup is three array reads and a dual-type
+ * matchup is twice that. Larger type ids fall back to a hash lookup.
+ */
+public class TypeChart {
+  // The fixed-point value of a multiplier of 1 (neutral damage)
+  public static final int ONE = 4;
+  public static final int PERCENT_PER_UNIT = 100 / ONE;
+  private static final int NO_INDEX = -1;
+  // Type id -> row/column of the matrix
+  private final IntIntMap indexes;
+  // Type id -> row/column of the matrix, for type ids from 0 to Pokemon.MAX_TYPE_ID
+  private final int[] smallIndexes;
+  private final int[] typeIds;
+  // factors[attacking * typeIds.length + defending]
+  private final byte[] factors;
+
+  /**
+   * A class used to build a TypeChart.
+   */
+  public static class TypeChartBuilder {
+    private final IntIntMap indexes = new IntIntMap(0);
+    private int[] typeIds = new int[0];
+    private int[] attacking = new int[0];
+    private int[] defending = new int[0];
+    private int[] percents = new int[0];
+    private int numRelations;
+
+    /**
+     * Builds a TypeChart. Pairs of types with no damage relation set are neutral.
+     * @return a newly created TypeChart
+     */
+    public TypeChart build() {
+      return new TypeChart(this);
+    }
+
+    /**
+     * Returns the TypeChartBuilder instance after adding a type. Types in a damage relation are
+     * added automatically, so this is only needed for types with no relations at all.
+     * @param typeId the id of the type
+     * @return the TypeChartBuilder instance to be used to build a TypeChart
+     */
+    public TypeChartBuilder addType(int typeId) {
+      if (!indexes.containsKey(typeId)) {
+        indexes.put(typeId, typeIds.length);
+        typeIds = Arrays.copyOf(typeIds, typeIds.length + 1);
+        typeIds[typeIds.length - 1] = typeId;
+      }
+      return this;
+    }
+
+    /**
+     * Returns the TypeChartBuilder instance after setting the damage an attacking type does to a
+     * defending type.
+     * @param attackingTypeId the id of the attacking type
+     * @param defendingTypeId the id of the defending type
+     * @param percent the damage in percent of normal damage (0, 50, 100 or 200)
+     * @return the TypeChartBuilder instance to be used to build a TypeChart
+     */
+    public TypeChartBuilder setDamage(int attackingTypeId, int defendingTypeId, int percent) {
+      if (percent < 0 || percent % PERCENT_PER_UNIT != 0 || percent / PERCENT_PER_UNIT > 127) {
+        throw new IllegalArgumentException("Unsupported damage percent: " + percent);
+      }
+      addType(attackingTypeId);
+      addType(defendingTypeId);
+      if (numRelations == percents.length) {
+        int capacity = Math.max(16, numRelations * 2);
+        attacking = Arrays.copyOf(attacking, capacity);
+        defending = Arrays.copyOf(defending, capacity);
+        percents = Arrays.copyOf(percents, capacity);
+      }
+      attacking[numRelations] = attackingTypeId;
+      defending[numRelations] = defendingTypeId;
+      percents[numRelations] = percent;
+      numRelations++;
+      return this;
+    }
+  }
+
+  private TypeChart(TypeChartBuilder builder) {
+    indexes = new IntIntMap(builder.indexes);
+    typeIds = builder.typeIds.clone();
+    smallIndexes = new int[Pokemon.MAX_TYPE_ID + 1];
+    Arrays.fill(smallIndexes, NO_INDEX);
+    for (int index = 0; index < typeIds.length; index++) {
+      if (typeIds[index] >= 0 && typeIds[index] < smallIndexes.length) {
+        smallIndexes[typeIds[index]] = index;
+      }
+    }
+    factors = new byte[typeIds.length * typeIds.length];
+    Arrays.fill(factors, (byte) ONE);
+    for (int relation = 0; relation < builder.numRelations; relation++) {
+      int attacking = indexes.get(builder.attacking[relation], NO_INDEX);
+      int defending = indexes.get(builder.defending[relation], NO_INDEX);
+      factors[attacking * typeIds.length + defending] =
+          (byte) (builder.percents[relation] / PERCENT_PER_UNIT);
+    }
+  }
+
+  /**
+   * Returns the ids of the types in the chart, in the order they were added.
+   * @return the ids of the types in the chart
+   */
+  public int[] getTypeIds() {
+    return typeIds.clone();
+  }
+
+  /**
+   * Returns the fixed-point damage factor of the attacking type against a single defending type
+   * (ONE is neutral). Types not in the chart (or Pokemon.NO_TYPE) are neutral.
+   * @param attackingTypeId the id of the attacking type
+   * @param defendingTypeId the id of the defending type
+   * @return the fixed-point damage factor
+   */
+  public int factor(int attackingTypeId, int defendingTypeId) {
+    int attacking = indexOf(attackingTypeId);
+    int defending = indexOf(defendingTypeId);
+    if (attacking == NO_INDEX || defending == NO_INDEX) {
+      return ONE;
+    }
+    return factors[attacking * typeIds.length + defending];
+  }
+
+  private int indexOf(int typeId) {
+    if (typeId >= 0 && typeId < smallIndexes.length) {
+      return smallIndexes[typeId];
+    }
+    return indexes.get(typeId, NO_INDEX);
+  }
+
+  /**
+   * Returns the fixed-point damage factor of the attacking type against a Pokemon with the two
+   * defending types (ONE is neutral, so the result ranges from 0 to 4 * ONE). Pass
+   * Pokemon.NO_TYPE as the second type of a single-typed Pokemon.
+   * @param attackingTypeId the id of the attacking type
+   * @param firstTypeId the id of the first defending type
+   * @param secondTypeId the id of the second defending type, or Pokemon.NO_TYPE
+   * @return the fixed-point damage factor
+   */
+  public int factor(int attackingTypeId, int firstTypeId, int secondTypeId) {
+    return factor(attackingTypeId, firstTypeId) * factor(attackingTypeId, secondTypeId) / ONE;
+  }
+
+  /**
+   * Returns the damage multiplier of the attacking type against a Pokemon (e.g. 0.25, 1 or 4).
+   * @param attackingTypeId the id of the attacking type
+   * @param defender the defending Pokemon
+   * @return the damage multiplier
+   */
+  public double multiplier(int attackingTypeId, Pokemon defender) {
+    return (double) factor(attackingTypeId, defender.getType(0), defender.getType(1)) / ONE;
+  }
+
+  /**
+   * Returns the fixed-point damage factor of the attacking type against every possible defending
+   * type id from 0 to Pokemon.MAX_TYPE_ID, so that a batch of Pokemon can be scored with plain
+   * array reads.
+   * @param attackingTypeId the id of the attacking type
+   * @return the damage factors, indexed by defending type id
+   */
+  public byte[] attackRow(int attackingTypeId) {
+    byte[] row = new byte[Pokemon.MAX_TYPE_ID + 1];
+    for (int defendingTypeId = 0; defendingTypeId < row.length; defendingTypeId++) {
+      row[defendingTypeId] = (byte) factor(attackingTypeId, defendingTypeId);
+    }
+    return row;
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A bitmap index over the types of the Pokemon in a Pokedex: one BitSet per type id, with a bit
+ * set for the ordinal of every Pokemon of that type. Questions such as "Water and Flying",
+ * "Dragon but not Flying" or "any of Fire, Water or Grass" become a few bitwise operations.
+ */
+public class TypeIndex {
+  private static final int NO_SLOT = -1;
+  private final int size;
+  // Type id -> position of its bitmap in bitmaps
+  private final IntIntMap slots;
+  // Only grown while the index is being built, before it is published
+  private int[] typeIds;
+  private BitSet[] bitmaps;
+
+  /**
+   * Creates a TypeIndex over the given Pokemon. The position of each Pokemon in the list is used
+   * as its ordinal.
+   * @param pokemon the Pokemon to be indexed
+   */
+  public TypeIndex(List<Pokemon> pokemon) {
+    this(pokemon.size(), new IntIntMap(0), new int[0], new BitSet[0]);
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      setTypes(pokemon.get(ordinal), ordinal);
+    }
+  }
+
+  private TypeIndex(int size, IntIntMap slots, int[] typeIds, BitSet[] bitmaps) {
+    this.size = size;
+    this.slots = slots;
+    this.typeIds = typeIds;
+    this.bitmaps = bitmaps;
+  }
+
+  /**
+   * Creates a TypeIndex from the type ids and bitmaps (in slot order) of an index built earlier
+   * over the same Pokemon (see IndexSidecar).
+   */
+  TypeIndex(int size, int[] typeIds, BitSet[] bitmaps) {
+    this(size, new IntIntMap(typeIds.length), typeIds, bitmaps);
+    for (int slot = 0; slot < typeIds.length; slot++) {
+      slots.put(typeIds[slot], slot);
+    }
+  }
+
+  /**
+   * Returns a new TypeIndex for the next snapshot of a Pokedex, built from this one by only
+   * looking at the Pokemon that changed. This index is left untouched.
+   * @param previous the Pokemon this index was built from
+   * @param next the Pokemon of the next snapshot
+   * @param changed the ordinals of the Pokemon that were added or replaced
+   * @return the TypeIndex over the next Pokemon
+   */
+  public TypeIndex update(List<Pokemon> previous, List<Pokemon> next, BitSet changed) {
+    BitSet[] copied = new BitSet[bitmaps.length];
+    for (int slot = 0; slot < bitmaps.length; slot++) {
+      copied[slot] = (BitSet) bitmaps[slot].clone();
+    }
+    TypeIndex updated = new TypeIndex(next.size(), new IntIntMap(slots), typeIds.clone(), copied);
+    return updated.applyChanges(previous, next, changed);
+  }
+
+  /**
+   * Returns the number of Pokemon covered by the index.
+   * @return the number of Pokemon covered by the index
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ids of the types that at least one Pokemon has, in ascending order.
+   * @return the ids of the indexed types
+   */
+  public int[] getTypeIds() {
+    int[] sorted = typeIds.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon with the given type.
+   * @param typeId the id of the type
+   * @return the ordinals of the Pokemon with the type
+   */
+  public BitSet withType(int typeId) {
+    int slot = slots.get(typeId, NO_SLOT);
+    return slot == NO_SLOT ? new BitSet() : (BitSet) bitmaps[slot].clone();
+  }
+
+  /**
+   * Returns the number of Pokemon with the given type.
+   * @param typeId the id of the type
+   * @return the number of Pokemon with the type
+   */
+  public int count(int typeId) {
+    int slot = slots.get(typeId, NO_SLOT);
+    return slot == NO_SLOT ? 0 : bitmaps[slot].cardinality();
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon that have all of the given types.
+   * @param typeIds the ids of the types
+   * @return the ordinals of the Pokemon with all the types
+   */
+  public BitSet allOf(int... typeIds) {
+    if (typeIds.length == 0) {
+      return all();
+    }
+    BitSet result = withType(typeIds[0]);
+    for (int index = 1; index < typeIds.length; index++) {
+      int slot = slots.get(typeIds[index], NO_SLOT);
+      if (slot == NO_SLOT) {
+        return new BitSet();
+      }
+      result.and(bitmaps[slot]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon that have at least one of the given types.
+   * @param typeIds the ids of the types
+   * @return the ordinals of the Pokemon with any of the types
+   */
+  public BitSet anyOf(int... typeIds) {
+    BitSet result = new BitSet(size);
+    for (int typeId : typeIds) {
+      int slot = slots.get(typeId, NO_SLOT);
+      if (slot != NO_SLOT) {
+        result.or(bitmaps[slot]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon that have none of the given types.
+   * @param typeIds the ids of the types
+   * @return the ordinals of the Pokemon with none of the types
+   */
+  public BitSet noneOf(int... typeIds) {
+    BitSet result = all();
+    result.andNot(anyOf(typeIds));
+    return result;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon that have the included type but not the excluded one
+   * (e.g. "Dragon but not Flying").
+   * @param includedTypeId the id of the type the Pokemon must have
+   * @param excludedTypeId the id of the type the Pokemon must not have
+   * @return the ordinals of the matching Pokemon
+   */
+  public BitSet withTypeExcluding(int includedTypeId, int excludedTypeId) {
+    BitSet result = withType(includedTypeId);
+    int slot = slots.get(excludedTypeId, NO_SLOT);
+    if (slot != NO_SLOT) {
+      result.andNot(bitmaps[slot]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ordinals of every Pokemon covered by the index.
+   * @return the ordinals of every Pokemon
+   */
+  public BitSet all() {
+    BitSet result = new BitSet(size);
+    result.set(0, size);
+    return result;
+  }
+
+  int[] slotTypeIds() {
+    return typeIds;
+  }
+
+  BitSet[] slotBitmaps() {
+    return bitmaps;
+  }
+
+  private TypeIndex applyChanges(List<Pokemon> previous, List<Pokemon> next, BitSet changed) {
+    for (int ordinal = changed.nextSetBit(0); ordinal >= 0;
+        ordinal = changed.nextSetBit(ordinal + 1)) {
+      if (ordinal < previous.size()) {
+        Pokemon old = previous.get(ordinal);
+        for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+          int slot = slots.get(old.getType(index), NO_SLOT);
+          if (slot != NO_SLOT) {
+            bitmaps[slot].clear(ordinal);
+          }
+        }
+      }
+      if (ordinal < next.size()) {
+        setTypes(next.get(ordinal), ordinal);
+      }
+    }
+    return this;
+  }
+
+  private void setTypes(Pokemon pokemon, int ordinal) {
+    for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+      int typeId = pokemon.getType(index);
+      if (typeId != Pokemon.NO_TYPE) {
+        bitmapFor(typeId).set(ordinal);
+      }
+    }
+  }
+
+  private BitSet bitmapFor(int typeId) {
+    int slot = slots.get(typeId, NO_SLOT);
+    if (slot == NO_SLOT) {
+      slot = bitmaps.length;
+      slots.put(typeId, slot);
+      typeIds = Arrays.copyOf(typeIds, slot + 1);
+      typeIds[slot] = typeId;
+      bitmaps = Arrays.copyOf(bitmaps, slot + 1);
+      bitmaps[slot] = new BitSet(size);
+    }
+    return bitmaps[slot];
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package pokedex;
+
+/**
+ * Scores attacking types against the Pokemon of a Pokedex. The defending types of every Pokemon
+ * are copied into two byte arrays so that one attacking type can be scored against the whole
+ * Pokedex in a single tight loop.
+ */
+public class TypeMatchups {
+  private final TypeChart typeChart;
+  // The first and second type of each Pokemon, by ordinal (Pokemon.NO_TYPE if absent)
+  private final byte[] firstTypes;
+  private final byte[] secondTypes;
+
+  /**
+   * Creates TypeMatchups for the Pokemon of the given Pokedex.
+   * @param typeChart the damage multipliers between types
+   * @param pokedex the Pokedex whose Pokemon are the defenders
+   */
+  public TypeMatchups(TypeChart typeChart, Pokedex pokedex) {
+    this.typeChart = typeChart;
+    int size = pokedex.size();
+    firstTypes = new byte[size];
+    secondTypes = new byte[size];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+      firstTypes[ordinal] = (byte) pokemon.getType(0);
+      secondTypes[ordinal] = (byte) pokemon.getType(1);
+    }
+  }
+
+  /**
+   * Returns the damage chart these matchups are scored with.
+   * @return the damage chart
+   */
+  public TypeChart getTypeChart() {
+    return typeChart;
+  }
+
+  /**
+   * Returns the fixed-point damage factor (TypeChart.ONE is neutral) of the attacking type
+   * against the Pokemon with the given ordinal.
+   * @param attackingTypeId the id of the attacking type
+   * @param ordinal the ordinal of the defending Pokemon
+   * @return the fixed-point damage factor
+   */
+  public int score(int attackingTypeId, int ordinal) {
+    return typeChart.factor(attackingTypeId, firstTypes[ordinal] & 0xFF,
+        secondTypes[ordinal] & 0xFF);
+  }
+
+  /**
+   * Returns the fixed-point damage factor (TypeChart.ONE is neutral) of the attacking type
+   * against every Pokemon, indexed by ordinal.
+   * @param attackingTypeId the id of the attacking type
+   * @return the fixed-point damage factors, indexed by ordinal
+   */
+  public byte[] scoreAll(int attackingTypeId) {
+    byte[] row = typeChart.attackRow(attackingTypeId);
+    byte[] scores = new byte[firstTypes.length];
+    for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+      scores[ordinal] = (byte) (row[firstTypes[ordinal] & 0xFF] * row[secondTypes[ordinal] & 0xFF]
+          / TypeChart.ONE);
+    }
+    return scores;
+  }
+
+  /**
+   * Returns the number of Pokemon the attacking type does more than neutral damage to.
+   * @param attackingTypeId the id of the attacking type
+   * @return the number of Pokemon hit super effectively
+   */
+  public int countSuperEffective(int attackingTypeId) {
+    int count = 0;
+    for (byte score : scoreAll(attackingTypeId)) {
+      if (score > TypeChart.ONE) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,516 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import pokedex.NameIndex;
+import pokedex.Pokedex;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+import pokedex.StatColumns;
+
+/**
+ * A condition on a Pokemon used in the where clause of a Query. Conditions are created with the
+ * static factory methods (e.g. hasType(11), statAtLeast(StatColumn.SPEED, 100)) and combined
+ * with and, or and not.
+ */
+public abstract class Condition {
+  // Used as the selectivity of conditions that cannot be estimated (e.g. abilities)
+  static final double UNKNOWN_SELECTIVITY = 0.1;
+
+  /**
+   * Returns a Condition that holds for the Pokemon with exactly the given name.
+   * @param name the name (case insensitive)
+   * @return the Condition
+   */
+  public static Condition nameIs(String name) {
+    return new NameCondition(name, false);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon whose names start with the given prefix.
+   * @param prefix the prefix of the name (case insensitive)
+   * @return the Condition
+   */
+  public static Condition nameStartsWith(String prefix) {
+    return new NameCondition(prefix, true);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon with the given type.
+   * @param typeId the id of the type
+   * @return the Condition
+   */
+  public static Condition hasType(int typeId) {
+    return new TypeCondition(typeId);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon whose value in the column is between min and
+   * max (inclusive).
+   * @param column the column (a base stat, the base stat total or the base experience)
+   * @param min the smallest value
+   * @param max the largest value
+   * @return the Condition
+   */
+  public static Condition statBetween(StatColumn column, int min, int max) {
+    return new StatCondition(column, min, max);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon whose value in the column is at least min.
+   * @param column the column (a base stat, the base stat total or the base experience)
+   * @param min the smallest value
+   * @return the Condition
+   */
+  public static Condition statAtLeast(StatColumn column, int min) {
+    return new StatCondition(column, min, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon whose value in the column is at most max.
+   * @param column the column (a base stat, the base stat total or the base experience)
+   * @param max the largest value
+   * @return the Condition
+   */
+  public static Condition statAtMost(StatColumn column, int max) {
+    return new StatCondition(column, 0, max);
+  }
+
+  /**
+   * Returns a Condition that holds for the Pokemon with the given ability.
+   * @param ability the name of the ability (case insensitive)
+   * @return the Condition
+   */
+  public static Condition hasAbility(String ability) {
+    return new AbilityCondition(ability);
+  }
+
+  /**
+   * Returns a Condition that holds when all of the given conditions hold.
+   * @param conditions the conditions
+   * @return the Condition
+   */
+  public static Condition and(Condition... conditions) {
+    return new CompositeCondition(Kind.AND, conditions);
+  }
+
+  /**
+   * Returns a Condition that holds when any of the given conditions hold.
+   * @param conditions the conditions
+   * @return the Condition
+   */
+  public static Condition or(Condition... conditions) {
+    return new CompositeCondition(Kind.OR, conditions);
+  }
+
+  /**
+   * Returns a Condition that holds when the given condition does not.
+   * @param condition the condition
+   * @return the Condition
+   */
+  public static Condition not(Condition condition) {
+    return new CompositeCondition(Kind.NOT, condition);
+  }
+
+  /**
+   * The kinds of conditions.
+   */
+  enum Kind {
+    NAME, TYPE, STAT, ABILITY, AND, OR, NOT
+  }
+
+  /**
+   * Returns the kind of the condition.
+   * @return the kind of the condition
+   */
+  abstract Kind kind();
+
+  /**
+   * Returns whether or not the condition holds for the Pokemon with the given ordinal.
+   * @param pokedex the Pokedex the ordinal belongs to
+   * @param ordinal the ordinal of the Pokemon
+   * @return whether or not the condition holds
+   */
+  abstract boolean matches(Pokedex pokedex, int ordinal);
+
+  /**
+   * Returns the ordinals for which the condition holds using one of the indexes of the Pokedex,
+   * or null if the condition cannot be answered by an index.
+   * @param pokedex the Pokedex to be searched
+   * @return the matching ordinals, or null if there is no index for the condition
+   */
+  BitSet lookup(Pokedex pokedex) {
+    return null;
+  }
+
+  /**
+   * Returns the name of the index lookup() uses, or null if there is none.
+   * @return the name of the index, or null
+   */
+  String indexName() {
+    return null;
+  }
+
+  /**
+   * Returns the estimated fraction (0 to 1) of the Pokedex for which the condition holds.
+   * @param pokedex the Pokedex
+   * @return the estimated selectivity
+   */
+  abstract double selectivity(Pokedex pokedex);
+
+  /**
+   * Returns the conditions this condition is made of (empty for a simple condition).
+   * @return the child conditions
+   */
+  List<Condition> children() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Appends the shape of the condition (the condition with its constants left out) to the
+   * builder. Queries with the same shape share a cached plan.
+   * @param shape the builder the shape is appended to
+   */
+  abstract void appendShape(StringBuilder shape);
+
+  /**
+   * A condition on the name of the Pokemon, answered by the name index.
+   */
+  private static class NameCondition extends Condition {
+    private final String name;
+    private final boolean prefix;
+
+    private NameCondition(String name, boolean prefix) {
+      this.name = NameIndex.normalize(name);
+      this.prefix = prefix;
+    }
+
+    @Override
+    Kind kind() {
+      return Kind.NAME;
+    }
+
+    @Override
+    boolean matches(Pokedex pokedex, int ordinal) {
+      String actual = NameIndex.normalize(pokedex.getByOrdinal(ordinal).getName());
+      return prefix ? actual.startsWith(name) : actual.equals(name);
+    }
+
+    @Override
+    BitSet lookup(Pokedex pokedex) {
+      BitSet ordinals = new BitSet(pokedex.size());
+      if (prefix) {
+        for (int ordinal : pokedex.getNameIndex().prefixOrdinals(name)) {
+          ordinals.set(ordinal);
+        }
+      } else {
+        int ordinal = pokedex.getNameIndex().ordinalOf(name);
+        if (ordinal != Pokedex.NOT_FOUND) {
+          ordinals.set(ordinal);
+        }
+      }
+      return ordinals;
+    }
+
+    @Override
+    String indexName() {
+      return "name index";
+    }
+
+    @Override
+    double selectivity(Pokedex pokedex) {
+      if (pokedex.size() == 0) {
+        return 0;
+      } else if (prefix) {
+        return (double) pokedex.getNameIndex().prefixOrdinals(name).length / pokedex.size();
+      }
+      return 1.0 / pokedex.size();
+    }
+
+    @Override
+    void appendShape(StringBuilder shape) {
+      shape.append(prefix ? "namePrefix" : "name");
+    }
+
+    @Override
+    public String toString() {
+      return prefix ? "name starts with '" + name + "'" : "name = '" + name + "'";
+    }
+  }
+
+  /**
+   * A condition on the types of the Pokemon, answered by the type bitmaps.
+   */
+  private static class TypeCondition extends Condition {
+    private final int typeId;
+
+    private TypeCondition(int typeId) {
+      this.typeId = typeId;
+    }
+
+    @Override
+    Kind kind() {
+      return Kind.TYPE;
+    }
+
+    @Override
+    boolean matches(Pokedex pokedex, int ordinal) {
+      return pokedex.getByOrdinal(ordinal).hasType(typeId);
+    }
+
+    @Override
+    BitSet lookup(Pokedex pokedex) {
+      return pokedex.getTypeIndex().withType(typeId);
+    }
+
+    @Override
+    String indexName() {
+      return "type bitmap";
+    }
+
+    @Override
+    double selectivity(Pokedex pokedex) {
+      return pokedex.size() == 0 ? 0
+          : (double) pokedex.getTypeIndex().count(typeId) / pokedex.size();
+    }
+
+    @Override
+    void appendShape(StringBuilder shape) {
+      shape.append("type");
+    }
+
+    @Override
+    public String toString() {
+      return "type = " + typeId;
+    }
+  }
+
+  /**
+   * A range condition on a numeric column of the Pokemon, answered by the stat columns.
+   */
+  private static class StatCondition extends Condition {
+    private final StatColumn column;
+    private final int min;
+    private final int max;
+
+    private StatCondition(StatColumn column, int min, int max) {
+      this.column = column;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    Kind kind() {
+      return Kind.STAT;
+    }
+
+    @Override
+    boolean matches(Pokedex pokedex, int ordinal) {
+      int value = pokedex.getStatColumns().get(column, ordinal);
+      return value >= min && value <= max;
+    }
+
+    @Override
+    BitSet lookup(Pokedex pokedex) {
+      return pokedex.getStatColumns().filterRange(column, min, max);
+    }
+
+    @Override
+    String indexName() {
+      return "stat column";
+    }
+
+    @Override
+    double selectivity(Pokedex pokedex) {
+      // Assumes the values are spread evenly between the smallest and largest one
+      StatColumns columns = pokedex.getStatColumns();
+      int low = Math.max(min, columns.min(column));
+      int high = Math.min(max, columns.max(column));
+      if (low > high) {
+        return 0;
+      }
+      return (high - low + 1.0) / (columns.max(column) - columns.min(column) + 1.0);
+    }
+
+    @Override
+    void appendShape(StringBuilder shape) {
+      shape.append("stat:").append(column);
+    }
+
+    @Override
+    public String toString() {
+      if (max == Integer.MAX_VALUE) {
+        return column + " >= " + min;
+      } else if (min <= 0) {
+        return column + " <= " + max;
+      }
+      return column + " between " + min + " and " + max;
+    }
+  }
+
+  /**
+   * A condition on the abilities of the Pokemon. There is no index for it, so it needs a scan.
+   */
+  private static class AbilityCondition extends Condition {
+    private final String ability;
+
+    private AbilityCondition(String ability) {
+      this.ability = ability.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    Kind kind() {
+      return Kind.ABILITY;
+    }
+
+    @Override
+    boolean matches(Pokedex pokedex, int ordinal) {
+      Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+      if (pokemon.getAbilities() == null) {
+        return false;
+      }
+      for (String actual : pokemon.getAbilities()) {
+        if (ability.equalsIgnoreCase(actual)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    double selectivity(Pokedex pokedex) {
+      return UNKNOWN_SELECTIVITY;
+    }
+
+    @Override
+    void appendShape(StringBuilder shape) {
+      shape.append("ability");
+    }
+
+    @Override
+    public String toString() {
+      return "ability = '" + ability + "'";
+    }
+  }
+
+  /**
+   * The AND, OR or NOT of other conditions.
+   */
+  private static class CompositeCondition extends Condition {
+    private final Kind kind;
+    private final List<Condition> children;
+
+    private CompositeCondition(Kind kind, Condition... children) {
+      if (children.length == 0) {
+        throw new IllegalArgumentException(kind + " needs at least one condition");
+      }
+      this.kind = kind;
+      this.children = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(children)));
+    }
+
+    @Override
+    Kind kind() {
+      return kind;
+    }
+
+    @Override
+    boolean matches(Pokedex pokedex, int ordinal) {
+      switch (kind) {
+        case AND:
+          for (Condition child : children) {
+            if (!child.matches(pokedex, ordinal)) {
+              return false;
+            }
+          }
+          return true;
+        case OR:
+          for (Condition child : children) {
+            if (child.matches(pokedex, ordinal)) {
+              return true;
+            }
+          }
+          return false;
+        default: // NOT
+          return !children.get(0).matches(pokedex, ordinal);
+      }
+    }
+
+    @Override
+    double selectivity(Pokedex pokedex) {
+      // Assumes the child conditions are independent of each other
+      switch (kind) {
+        case AND:
+          double all = 1;
+          for (Condition child : children) {
+            all *= child.selectivity(pokedex);
+          }
+          return all;
+        case OR:
+          double none = 1;
+          for (Condition child : children) {
+            none *= 1 - child.selectivity(pokedex);
+          }
+          return 1 - none;
+        default: // NOT
+          return 1 - children.get(0).selectivity(pokedex);
+      }
+    }
+
+    @Override
+    List<Condition> children() {
+      return children;
+    }
+
+    @Override
+    void appendShape(StringBuilder shape) {
+      shape.append(kind).append('(');
+      for (int index = 0; index < children.size(); index++) {
+        if (index > 0) {
+          shape.append(',');
+        }
+        children.get(index).appendShape(shape);
+      }
+      shape.append(')');
+    }
+
+    @Override
+    public String toString() {
+      if (kind == Kind.NOT) {
+        return "NOT (" + children.get(0) + ")";
+      }
+      StringBuilder description = new StringBuilder("(");
+      for (int index = 0; index < children.size(); index++) {
+        if (index > 0) {
+          description.append(' ').append(kind).append(' ');
+        }
+        description.append(children.get(index));
+      }
+      return description.append(')').toString();
+    }
+  }
+}
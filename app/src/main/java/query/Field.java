@@ -0,0 +1,73 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+
+/**
+ * The fields of a Pokemon that a Query can project.
+ */
+public enum Field {
+  ID(null),
+  NAME(null),
+  TYPES(null),
+  HEIGHT(null),
+  WEIGHT(null),
+  HP(StatColumn.HP),
+  ATTACK(StatColumn.ATTACK),
+  DEFENSE(StatColumn.DEFENSE),
+  SPECIAL_ATTACK(StatColumn.SPECIAL_ATTACK),
+  SPECIAL_DEFENSE(StatColumn.SPECIAL_DEFENSE),
+  SPEED(StatColumn.SPEED),
+  BASE_STAT_TOTAL(StatColumn.BASE_STAT_TOTAL),
+  BASE_EXPERIENCE(StatColumn.BASE_EXPERIENCE);
+
+  private final StatColumn column;
+
+  private Field(StatColumn column) {
+    this.column = column;
+  }
+
+  /**
+   * Returns the value of the field for the given Pokemon.
+   * @param pokemon the Pokemon
+   * @return the value of the field
+   */
+  public Object valueOf(Pokemon pokemon) {
+    if (column != null) {
+      return column.valueOf(pokemon);
+    }
+    switch (this) {
+      case ID:
+        return pokemon.getId();
+      case NAME:
+        return pokemon.getName();
+      case TYPES:
+        return pokemon.getTypes();
+      case HEIGHT:
+        return pokemon.getHeight();
+      default: // WEIGHT
+        return pokemon.getWeight();
+    }
+  }
+}
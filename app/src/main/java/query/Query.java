@@ -0,0 +1,179 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import pokedex.StatColumn;
+
+/**
+ * A query over a Pokedex: which Pokemon to find (a Condition), how to sort them, how many to
+ * return, and which fields to project. Queries are built with a QueryBuilder and run by a
+ * QueryEngine.
+ */
+public class Query {
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
+  private final Condition condition;
+  private final StatColumn sortColumn;
+  private final boolean descending;
+  private final int limit;
+  private final List<Field> fields;
+
+  /**
+   * A class used to build a Query.
+   */
+  public static class QueryBuilder {
+    private Condition condition;
+    private StatColumn sortColumn;
+    private boolean descending;
+    private int limit = NO_LIMIT;
+    private List<Field> fields = Collections.emptyList();
+
+    /**
+     * Builds a Query with the specified clauses.
+     * @return a newly created Query
+     */
+    public Query build() {
+      return new Query(this);
+    }
+
+    /**
+     * Returns the QueryBuilder instance after setting the condition the Pokemon must meet. Without
+     * one, every Pokemon matches.
+     * @param condition the condition
+     * @return the QueryBuilder instance to be used to build a Query
+     */
+    public QueryBuilder where(Condition condition) {
+      this.condition = condition;
+      return this;
+    }
+
+    /**
+     * Returns the QueryBuilder instance after setting the column to sort by. Without one, the
+     * Pokemon are returned in Pokedex order.
+     * @param sortColumn the column to sort by
+     * @param descending whether the highest values come first
+     * @return the QueryBuilder instance to be used to build a Query
+     */
+    public QueryBuilder sortBy(StatColumn sortColumn, boolean descending) {
+      this.sortColumn = sortColumn;
+      this.descending = descending;
+      return this;
+    }
+
+    /**
+     * Returns the QueryBuilder instance after setting the largest number of Pokemon to return.
+     * @param limit the largest number of Pokemon to return
+     * @return the QueryBuilder instance to be used to build a Query
+     */
+    public QueryBuilder limit(int limit) {
+      if (limit < 0) {
+        throw new IllegalArgumentException("The limit cannot be negative: " + limit);
+      }
+      this.limit = limit;
+      return this;
+    }
+
+    /**
+     * Returns the QueryBuilder instance after setting the fields to project into the rows of the
+     * result.
+     * @param fields the fields to project
+     * @return the QueryBuilder instance to be used to build a Query
+     */
+    public QueryBuilder select(Field... fields) {
+      this.fields = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(fields)));
+      return this;
+    }
+  }
+
+  private Query(QueryBuilder builder) {
+    condition = builder.condition;
+    sortColumn = builder.sortColumn;
+    descending = builder.descending;
+    limit = builder.limit;
+    fields = builder.fields;
+  }
+
+  /**
+   * Returns the condition the Pokemon must meet, or null if every Pokemon matches.
+   * @return the condition, or null
+   */
+  public Condition getCondition() {
+    return condition;
+  }
+
+  /**
+   * Returns the column to sort by, or null to keep Pokedex order.
+   * @return the column to sort by, or null
+   */
+  public StatColumn getSortColumn() {
+    return sortColumn;
+  }
+
+  /**
+   * Returns whether the highest values of the sort column come first.
+   * @return whether the sort is descending
+   */
+  public boolean isDescending() {
+    return descending;
+  }
+
+  /**
+   * Returns the largest number of Pokemon to return.
+   * @return the limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the fields to project into the rows of the result.
+   * @return the fields to project
+   */
+  public List<Field> getFields() {
+    return fields;
+  }
+
+  /**
+   * Returns the shape of the query: everything that affects its plan except the constants in the
+   * condition. Queries with the same shape share a cached plan.
+   * @return the shape of the query
+   */
+  String shape() {
+    StringBuilder shape = new StringBuilder();
+    if (condition != null) {
+      condition.appendShape(shape);
+    }
+    shape.append("|sort:").append(sortColumn).append(descending ? " desc" : " asc");
+    shape.append("|limit:").append(limit == NO_LIMIT ? "none" : "some");
+    return shape.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "WHERE " + (condition == null ? "true" : condition.toString())
+        + (sortColumn == null ? "" : " ORDER BY " + sortColumn + (descending ? " DESC" : " ASC"))
+        + (limit == NO_LIMIT ? "" : " LIMIT " + limit);
+  }
+}
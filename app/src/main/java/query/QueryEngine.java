@@ -0,0 +1,326 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import pokedex.Pokedex;
+import pokedex.Pokemon;
+import pokedex.RankIndex;
+import pokedex.StatColumn;
+import query.QueryPlan.Access;
+import query.QueryPlan.Node;
+import query.QueryPlan.SortStrategy;
+
+/**
+ * Runs Queries against Pokedex snapshots. A cost-based planner decides, from the estimated
+ * selectivity of each part of the condition, which parts are answered by an index (name index,
+ * type bitmaps, stat columns), which are checked row by row, and which need a full scan. Plans
+ * are cached by query shape, per snapshot.
+ *
+ * <p>A cached plan was chosen for the selectivity of the query it was made for, and is reused for
+ * queries of the same shape with other constants; it is only a hint about how to run them
+ * quickly. Every plan gives the same results: in particular both sort strategies put tied
+ * Pokemon in the order of the RankIndex (by id).
+ */
+public class QueryEngine {
+  public static final int DEFAULT_PLAN_CACHE_SIZE = 64;
+  // Below this fraction of the Pokedex, candidates are checked row by row instead of evaluating
+  // another index
+  private static final double RESIDUAL_FRACTION = 1.0 / 16;
+  // Below this fraction of the Pokedex, the matches are sorted instead of walking the sort order
+  private static final double SORT_MATCHES_FRACTION = 1.0 / 8;
+  private final Map<String, QueryPlan> planCache;
+  private long planCacheHits;
+  private long planCacheMisses;
+
+  /**
+   * Creates a QueryEngine with a plan cache of DEFAULT_PLAN_CACHE_SIZE query shapes.
+   */
+  public QueryEngine() {
+    this(DEFAULT_PLAN_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a QueryEngine with a plan cache of the given number of query shapes.
+   * @param planCacheSize the number of query shapes whose plans are kept
+   */
+  public QueryEngine(final int planCacheSize) {
+    planCache = new LinkedHashMap<String, QueryPlan>(planCacheSize * 2, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+        return size() > planCacheSize;
+      }
+    };
+  }
+
+  /**
+   * Runs the query against the given snapshot of the Pokedex.
+   * @param pokedex the snapshot of the Pokedex to be searched
+   * @param query the query to be run
+   * @return the result of the query
+   */
+  public QueryResult execute(Pokedex pokedex, Query query) {
+    QueryPlan plan = plan(pokedex, query);
+    BitSet matches = plan.execute(pokedex, query.getCondition());
+    int totalMatches = matches.cardinality();
+    int[] ordinals = order(pokedex, query, plan.getSortStrategy(), matches);
+    List<Pokemon> pokemon = new ArrayList<>(ordinals.length);
+    for (int ordinal : ordinals) {
+      pokemon.add(pokedex.getByOrdinal(ordinal));
+    }
+    return new QueryResult(pokemon, query.getFields(), totalMatches, query, plan);
+  }
+
+  /**
+   * Returns a readable description of how the query would be run against the given snapshot.
+   * @param pokedex the snapshot of the Pokedex
+   * @param query the query
+   * @return the description of the plan
+   */
+  public String explain(Pokedex pokedex, Query query) {
+    return plan(pokedex, query).explain(query);
+  }
+
+  /**
+   * Returns the plan for the query, from the cache if a query of the same shape was already
+   * planned for this snapshot.
+   * @param pokedex the snapshot of the Pokedex
+   * @param query the query
+   * @return the plan for the query
+   */
+  public QueryPlan plan(Pokedex pokedex, Query query) {
+    String shape = query.shape();
+    synchronized (planCache) {
+      QueryPlan cached = planCache.get(shape);
+      if (cached != null && cached.isFor(pokedex)) {
+        planCacheHits++;
+        return cached;
+      }
+      planCacheMisses++;
+    }
+    QueryPlan plan = createPlan(pokedex, query);
+    synchronized (planCache) {
+      planCache.put(shape, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the number of queries whose plan came from the cache.
+   * @return the number of plan cache hits
+   */
+  public long getPlanCacheHits() {
+    synchronized (planCache) {
+      return planCacheHits;
+    }
+  }
+
+  /**
+   * Returns the number of queries that had to be planned.
+   * @return the number of plan cache misses
+   */
+  public long getPlanCacheMisses() {
+    synchronized (planCache) {
+      return planCacheMisses;
+    }
+  }
+
+  private static QueryPlan createPlan(Pokedex pokedex, Query query) {
+    Condition condition = query.getCondition();
+    Node root;
+    double selectivity;
+    if (condition == null) {
+      root = new Node(Access.ALL, 1);
+      selectivity = 1;
+    } else {
+      root = planCondition(pokedex, condition);
+      selectivity = condition.selectivity(pokedex);
+    }
+    SortStrategy sortStrategy;
+    if (query.getSortColumn() == null) {
+      sortStrategy = SortStrategy.NONE;
+    } else if (selectivity < SORT_MATCHES_FRACTION) {
+      sortStrategy = SortStrategy.SORT_MATCHES;
+    } else {
+      sortStrategy = SortStrategy.WALK_SORTED_ORDER;
+    }
+    return new QueryPlan(root, sortStrategy, selectivity, pokedex);
+  }
+
+  private static Node planCondition(Pokedex pokedex, Condition condition) {
+    double selectivity = condition.selectivity(pokedex);
+    switch (condition.kind()) {
+      case AND:
+        return planAnd(pokedex, condition, selectivity);
+      case OR:
+        List<Condition> children = condition.children();
+        Node[] childNodes = new Node[children.size()];
+        for (int index = 0; index < childNodes.length; index++) {
+          childNodes[index] = planCondition(pokedex, children.get(index));
+          // A single scan checking every branch beats one scan per branch
+          if (childNodes[index].getAccess() == Access.SCAN) {
+            return new Node(Access.SCAN, selectivity);
+          }
+        }
+        return new Node(Access.UNION, selectivity, childNodes, identity(childNodes.length), null);
+      case NOT:
+        Node child = planCondition(pokedex, condition.children().get(0));
+        if (child.getAccess() == Access.SCAN) {
+          return new Node(Access.SCAN, selectivity);
+        }
+        return new Node(Access.COMPLEMENT, selectivity, new Node[] {child}, identity(1), null);
+      default:
+        return new Node(condition.indexName() != null ? Access.INDEX : Access.SCAN, selectivity);
+    }
+  }
+
+  private static Node planAnd(Pokedex pokedex, Condition condition, double selectivity) {
+    final List<Condition> children = condition.children();
+    final double[] selectivities = new double[children.size()];
+    Node[] childNodes = new Node[children.size()];
+    Integer[] order = new Integer[children.size()];
+    int driver = -1;
+    for (int index = 0; index < order.length; index++) {
+      selectivities[index] = children.get(index).selectivity(pokedex);
+      childNodes[index] = planCondition(pokedex, children.get(index));
+      order[index] = index;
+    }
+    // Most selective first, so that the candidate set shrinks as fast as possible
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return Double.compare(selectivities[first], selectivities[second]);
+      }
+    });
+    for (int index = 0; index < order.length && driver == -1; index++) {
+      if (childNodes[order[index]].getAccess() != Access.SCAN) {
+        driver = index;
+      }
+    }
+    if (driver == -1) {
+      // Nothing can be answered by an index, so check every condition in one pass
+      return new Node(Access.SCAN, selectivity);
+    }
+    // The most selective child that has an index drives, the rest follow in selectivity order
+    List<Integer> applied = new ArrayList<>(Arrays.asList(order));
+    applied.add(0, applied.remove(driver));
+    int[] appliedOrder = new int[order.length];
+    Node[] appliedNodes = new Node[order.length];
+    boolean[] residual = new boolean[order.length];
+    double remaining = 1;
+    for (int index = 0; index < appliedOrder.length; index++) {
+      int child = applied.get(index);
+      appliedOrder[index] = child;
+      appliedNodes[index] = childNodes[child];
+      residual[index] = index > 0 && (childNodes[child].getAccess() == Access.SCAN
+          || remaining < RESIDUAL_FRACTION);
+      remaining *= selectivities[child];
+    }
+    return new Node(Access.INTERSECT, selectivity, appliedNodes, appliedOrder, residual);
+  }
+
+  private static int[] order(Pokedex pokedex, Query query, SortStrategy sortStrategy,
+      BitSet matches) {
+    int limit = query.getLimit();
+    int[] ordinals = new int[Math.min(limit, matches.cardinality())];
+    int count = 0;
+    switch (sortStrategy) {
+      case NONE:
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && count < ordinals.length;
+            ordinal = matches.nextSetBit(ordinal + 1)) {
+          ordinals[count++] = ordinal;
+        }
+        return ordinals;
+      case WALK_SORTED_ORDER:
+        RankIndex rankIndex = pokedex.getRankIndex();
+        StatColumn column = query.getSortColumn();
+        if (query.isDescending()) {
+          for (int position = 0; position < rankIndex.size() && count < ordinals.length;
+              position++) {
+            int ordinal = rankIndex.ordinalAt(column, position);
+            if (matches.get(ordinal)) {
+              ordinals[count++] = ordinal;
+            }
+          }
+          return ordinals;
+        }
+        // Walks the groups of tied Pokemon from the lowest value up, but each group forwards, so
+        // that ties keep the tie order as they do when sorting the matches
+        for (int last = rankIndex.size() - 1; last >= 0 && count < ordinals.length; ) {
+          // A group starts at the position of its rank
+          int first = rankIndex.rankOf(column, rankIndex.ordinalAt(column, last)) - 1;
+          for (int position = first; position <= last && count < ordinals.length; position++) {
+            int ordinal = rankIndex.ordinalAt(column, position);
+            if (matches.get(ordinal)) {
+              ordinals[count++] = ordinal;
+            }
+          }
+          last = first - 1;
+        }
+        return ordinals;
+      default: // SORT_MATCHES
+        final RankIndex ranks = pokedex.getRankIndex();
+        final StatColumn sortColumn = query.getSortColumn();
+        final boolean descending = query.isDescending();
+        List<Integer> all = new ArrayList<>(matches.cardinality());
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0;
+            ordinal = matches.nextSetBit(ordinal + 1)) {
+          all.add(ordinal);
+        }
+        // Positions are by value (highest first), then by the tie order; ascending reverses the
+        // groups of tied values (their ranks) but not the tie order within them
+        Collections.sort(all, new Comparator<Integer>() {
+          @Override
+          public int compare(Integer first, Integer second) {
+            if (!descending) {
+              int firstRank = ranks.rankOf(sortColumn, first);
+              int secondRank = ranks.rankOf(sortColumn, second);
+              if (firstRank != secondRank) {
+                return Integer.compare(secondRank, firstRank);
+              }
+            }
+            return Integer.compare(ranks.positionOf(sortColumn, first),
+                ranks.positionOf(sortColumn, second));
+          }
+        });
+        for (int index = 0; index < ordinals.length; index++) {
+          ordinals[index] = all.get(index);
+        }
+        return ordinals;
+    }
+  }
+
+  private static int[] identity(int length) {
+    int[] identity = new int[length];
+    for (int index = 0; index < length; index++) {
+      identity[index] = index;
+    }
+    return identity;
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import pokedex.Pokedex;
+
+/**
+ * How a QueryEngine runs a query: which index (or scan) answers each part of the condition, in
+ * which order the parts of an AND are applied, and how the matches are sorted. A plan depends
+ * only on the shape of a query, so it is cached and reused for queries that differ only in their
+ * constants.
+ */
+public class QueryPlan {
+  /**
+   * The ways a condition can be evaluated.
+   */
+  enum Access {
+    // Every Pokemon matches (no condition)
+    ALL,
+    // The condition is answered by one of the indexes of the Pokedex
+    INDEX,
+    // The condition is checked against every Pokemon
+    SCAN,
+    // AND: start from the first child, then intersect or filter with the others in order
+    INTERSECT,
+    // OR: the union of the children
+    UNION,
+    // NOT: the complement of the child
+    COMPLEMENT
+  }
+
+  /**
+   * The ways the matching Pokemon can be sorted.
+   */
+  enum SortStrategy {
+    // Pokedex order, nothing to do
+    NONE,
+    // Few matches: sort just the matches
+    SORT_MATCHES,
+    // Many matches: walk the precomputed order of the sort column and keep the matches
+    WALK_SORTED_ORDER
+  }
+
+  private final Node root;
+  private final SortStrategy sortStrategy;
+  private final double selectivity;
+  // The snapshot the plan was made for; held weakly so old snapshots can be freed
+  private final WeakReference<Pokedex> pokedex;
+
+  QueryPlan(Node root, SortStrategy sortStrategy, double selectivity, Pokedex pokedex) {
+    this.root = root;
+    this.sortStrategy = sortStrategy;
+    this.selectivity = selectivity;
+    this.pokedex = new WeakReference<>(pokedex);
+  }
+
+  /**
+   * Returns whether the plan was made for the given snapshot of the Pokedex.
+   * @param pokedex the snapshot of the Pokedex
+   * @return whether the plan was made for the snapshot
+   */
+  boolean isFor(Pokedex pokedex) {
+    return this.pokedex.get() == pokedex;
+  }
+
+  /**
+   * Returns how the matches are sorted.
+   * @return how the matches are sorted
+   */
+  SortStrategy getSortStrategy() {
+    return sortStrategy;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon matching the condition, following this plan.
+   * @param pokedex the Pokedex to be searched
+   * @param condition the condition of the query (of the shape the plan was made for)
+   * @return the ordinals of the matching Pokemon
+   */
+  BitSet execute(Pokedex pokedex, Condition condition) {
+    return execute(root, pokedex, condition);
+  }
+
+  /**
+   * Returns a readable description of how the given query is run with this plan.
+   * @param query the query (of the shape the plan was made for)
+   * @return the description of the plan
+   */
+  public String explain(Query query) {
+    StringBuilder explain = new StringBuilder();
+    explain.append(String.format(Locale.ROOT, "QUERY %s (est. %.1f%%)%n", query,
+        selectivity * 100));
+    explain(root, query.getCondition(), 1, explain);
+    if (sortStrategy == SortStrategy.SORT_MATCHES) {
+      explain.append("  SORT matches by ").append(query.getSortColumn()).append('\n');
+    } else if (sortStrategy == SortStrategy.WALK_SORTED_ORDER) {
+      explain.append("  WALK precomputed order of ").append(query.getSortColumn()).append('\n');
+    }
+    return explain.toString();
+  }
+
+  private static BitSet execute(Node node, Pokedex pokedex, Condition condition) {
+    BitSet result;
+    switch (node.access) {
+      case ALL:
+        result = new BitSet(pokedex.size());
+        result.set(0, pokedex.size());
+        return result;
+      case INDEX:
+        return condition.lookup(pokedex);
+      case SCAN:
+        result = new BitSet(pokedex.size());
+        for (int ordinal = 0; ordinal < pokedex.size(); ordinal++) {
+          if (condition.matches(pokedex, ordinal)) {
+            result.set(ordinal);
+          }
+        }
+        return result;
+      case INTERSECT:
+        List<Condition> children = condition.children();
+        result = execute(node.children[0], pokedex, children.get(node.order[0]));
+        for (int index = 1; index < node.order.length && !result.isEmpty(); index++) {
+          Condition child = children.get(node.order[index]);
+          if (node.residual[index]) {
+            // Cheaper to check the few remaining candidates than to evaluate the whole child
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0;
+                ordinal = result.nextSetBit(ordinal + 1)) {
+              if (!child.matches(pokedex, ordinal)) {
+                result.clear(ordinal);
+              }
+            }
+          } else {
+            result.and(execute(node.children[index], pokedex, child));
+          }
+        }
+        return result;
+      case UNION:
+        result = new BitSet(pokedex.size());
+        for (int index = 0; index < node.children.length; index++) {
+          result.or(execute(node.children[index], pokedex, condition.children().get(index)));
+        }
+        return result;
+      default: // COMPLEMENT
+        result = new BitSet(pokedex.size());
+        result.set(0, pokedex.size());
+        result.andNot(execute(node.children[0], pokedex, condition.children().get(0)));
+        return result;
+    }
+  }
+
+  private static void explain(Node node, Condition condition, int depth, StringBuilder explain) {
+    for (int indent = 0; indent < depth; indent++) {
+      explain.append("  ");
+    }
+    switch (node.access) {
+      case ALL:
+        explain.append("ALL");
+        break;
+      case INDEX:
+        explain.append("INDEX ").append(condition.indexName()).append(" [").append(condition)
+            .append(']');
+        break;
+      case SCAN:
+        explain.append("SCAN [").append(condition).append(']');
+        break;
+      default:
+        explain.append(node.access);
+        break;
+    }
+    explain.append(String.format(Locale.ROOT, " (est. %.1f%%)%n", node.selectivity * 100));
+    for (int index = 0; node.children != null && index < node.children.length; index++) {
+      Condition child = condition.children().get(node.order[index]);
+      if (node.residual != null && node.residual[index]) {
+        for (int indent = 0; indent <= depth; indent++) {
+          explain.append("  ");
+        }
+        explain.append("FILTER candidates [").append(child).append("]\n");
+      } else {
+        explain(node.children[index], child, depth + 1, explain);
+      }
+    }
+  }
+
+  /**
+   * A node of the plan, mirroring a node of the condition.
+   */
+  static class Node {
+    private final Access access;
+    private final double selectivity;
+    // For composite conditions: the children (in the order they are applied), the position of
+    // each in the condition's children, and whether it is checked row by row
+    private final Node[] children;
+    private final int[] order;
+    private final boolean[] residual;
+
+    Node(Access access, double selectivity) {
+      this(access, selectivity, null, null, null);
+    }
+
+    Node(Access access, double selectivity, Node[] children, int[] order, boolean[] residual) {
+      this.access = access;
+      this.selectivity = selectivity;
+      this.children = children;
+      this.order = order;
+      this.residual = residual;
+    }
+
+    Access getAccess() {
+      return access;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import pokedex.Pokemon;
+
+/**
+ * The result of running a Query: the matching Pokemon (sorted and limited), their projected rows,
+ * and the plan that was used to find them.
+ */
+public class QueryResult {
+  private final List<Pokemon> pokemon;
+  private final List<Field> fields;
+  private final int totalMatches;
+  private final Query query;
+  private final QueryPlan plan;
+
+  QueryResult(List<Pokemon> pokemon, List<Field> fields, int totalMatches, Query query,
+      QueryPlan plan) {
+    this.pokemon = Collections.unmodifiableList(pokemon);
+    this.fields = fields;
+    this.totalMatches = totalMatches;
+    this.query = query;
+    this.plan = plan;
+  }
+
+  /**
+   * Returns the matching Pokemon, sorted and limited as the Query asked.
+   * @return the matching Pokemon
+   */
+  public List<Pokemon> getPokemon() {
+    return pokemon;
+  }
+
+  /**
+   * Returns the projected fields of the matching Pokemon, one row per Pokemon.
+   * @return the rows of the result
+   */
+  public List<Map<Field, Object>> getRows() {
+    List<Map<Field, Object>> rows = new ArrayList<>(pokemon.size());
+    for (Pokemon current : pokemon) {
+      Map<Field, Object> row = new EnumMap<>(Field.class);
+      for (Field field : fields) {
+        row.put(field, field.valueOf(current));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the number of Pokemon that matched the condition, before the limit was applied.
+   * @return the number of matching Pokemon
+   */
+  public int getTotalMatches() {
+    return totalMatches;
+  }
+
+  /**
+   * Returns the plan that was used to run the query.
+   * @return the plan of the query
+   */
+  public QueryPlan getPlan() {
+    return plan;
+  }
+
+  /**
+   * Returns a readable description of how the query was run.
+   * @return the description of the plan
+   */
+  public String explain() {
+    return plan.explain(query);
+  }
+}
@@ -0,0 +1,267 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import database.ConnectionPool;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+  private static final String SQL = "SELECT * FROM pokemon WHERE id = ?";
+  private AtomicInteger opened;
+  private AtomicInteger prepared;
+  // The fake connections that no longer respond
+  private List<Connection> dead;
+  // Whether the factory fails to open connections
+  private volatile boolean failing;
+  private ConnectionPool.ConnectionFactory factory;
+
+  /**
+   * Creates a factory of fake connections that count the statements they prepare, for each test
+   * case.
+   */
+  @Before
+  public void setUp() {
+    opened = new AtomicInteger();
+    prepared = new AtomicInteger();
+    dead = new ArrayList<>();
+    failing = false;
+    factory = new ConnectionPool.ConnectionFactory() {
+      @Override
+      public Connection open(boolean write) throws SQLException {
+        if (failing) {
+          throw new SQLException("unable to open database file");
+        }
+        opened.incrementAndGet();
+        return fakeConnection();
+      }
+    };
+  }
+
+  /**
+   * Tests that a statement is prepared once per connection, and that closing it keeps it cached.
+   */
+  @Test
+  public void testStatementCache() throws SQLException {
+    ConnectionPool pool = new ConnectionPool(factory, 1, 4, 60000);
+    for (int lookup = 0; lookup < 3; lookup++) {
+      try (Connection connection = pool.getReadConnection()) {
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        Assert.assertSame(connection, statement.getConnection());
+        statement.close();
+      }
+    }
+    Assert.assertEquals(1, prepared.get());
+    try (Connection connection = pool.getReadConnection()) {
+      for (int index = 0; index < 5; index++) {
+        connection.prepareStatement(SQL + " OR id = " + index).close();
+      }
+      // The least recently used statement was evicted
+      connection.prepareStatement(SQL).close();
+    }
+    Assert.assertEquals(7, prepared.get());
+    pool.close();
+  }
+
+  /**
+   * Tests that preparing a statement while its cached one is still open returns a new statement,
+   * and that the cached one is kept.
+   */
+  @Test
+  public void testNestedStatements() throws SQLException {
+    ConnectionPool pool = new ConnectionPool(factory, 1, 4, 60000);
+    try (Connection connection = pool.getReadConnection()) {
+      PreparedStatement outer = connection.prepareStatement(SQL);
+      PreparedStatement inner = connection.prepareStatement(SQL);
+      Assert.assertEquals(2, prepared.get());
+      inner.close();
+      outer.close();
+      // Closing twice doesn't hand the cached statement out while it is in use
+      outer.close();
+      PreparedStatement first = connection.prepareStatement(SQL);
+      outer.close();
+      PreparedStatement second = connection.prepareStatement(SQL);
+      Assert.assertEquals(3, prepared.get());
+      first.close();
+      second.close();
+      connection.prepareStatement(SQL).close();
+      Assert.assertEquals(3, prepared.get());
+    }
+    pool.close();
+  }
+
+  /**
+   * Tests that a thread times out when every connection is in use, that the wait is counted, and
+   * that a connection cannot be used once it is returned.
+   */
+  @Test
+  public void testTimeout() throws SQLException {
+    ConnectionPool pool = new ConnectionPool(factory, 1, 4, 60000);
+    Connection connection = pool.getReadConnection();
+    try {
+      pool.getReadConnection(20);
+      Assert.fail("Got a second read connection from a pool of one");
+    } catch (SQLTimeoutException expected) {
+      // The only read connection is in use
+    }
+    Assert.assertNotNull(pool.getWriteConnection(0));
+    connection.close();
+    Assert.assertTrue(connection.isClosed());
+    try {
+      connection.prepareStatement(SQL);
+      Assert.fail("Used a connection returned to the pool");
+    } catch (SQLException expected) {
+      Assert.assertEquals("The connection has been returned to the pool", expected.getMessage());
+    }
+    pool.getReadConnection(0).close();
+    Assert.assertEquals(2, pool.getReadStats().getAcquired());
+    Assert.assertEquals(1, pool.getReadStats().getTimeouts());
+    Assert.assertEquals(1, pool.getReadStats().getIdle());
+    Assert.assertEquals(1, pool.getWriteStats().getAcquired());
+  }
+
+  /**
+   * Tests that a connection which fails its health check is reopened.
+   */
+  @Test
+  public void testHealthCheck() throws SQLException {
+    ConnectionPool pool = new ConnectionPool(factory, 1, 4, 0);
+    Connection connection = pool.getReadConnection();
+    connection.prepareStatement(SQL).close();
+    dead.add(connection.unwrap(Connection.class));
+    connection.close();
+    try (Connection reopened = pool.getReadConnection()) {
+      Assert.assertTrue(reopened.isValid(1));
+      reopened.prepareStatement(SQL).close();
+    }
+    Assert.assertEquals(3, opened.get());
+    Assert.assertEquals(2, prepared.get());
+    Assert.assertEquals(1, pool.getReadStats().getReconnects());
+  }
+
+  /**
+   * Tests that a connection which couldn't be reopened is checked again before it is handed out,
+   * rather than handing out the closed connection.
+   */
+  @Test
+  public void testFailedReopen() throws SQLException {
+    ConnectionPool pool = new ConnectionPool(factory, 1, 4, 60000);
+    Connection connection = pool.getReadConnection();
+    dead.add(connection.unwrap(Connection.class));
+    // Fails while being returned, so it is checked before its next use
+    connection.close();
+    failing = true;
+    try {
+      pool.getReadConnection();
+      Assert.fail("Reopened a connection while the database couldn't be opened");
+    } catch (SQLException expected) {
+      Assert.assertEquals("unable to open database file", expected.getMessage());
+    }
+    failing = false;
+    try (Connection reopened = pool.getReadConnection()) {
+      Assert.assertTrue(reopened.isValid(1));
+    }
+    Assert.assertEquals(1, pool.getReadStats().getReconnects());
+  }
+
+  /**
+   * Tests that many threads share the read connections.
+   */
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    final ConnectionPool pool = new ConnectionPool(factory, 4, 4, 60000);
+    final AtomicInteger failures = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int lookup = 0; lookup < 100; lookup++) {
+            try (Connection connection = pool.getReadConnection()) {
+              connection.prepareStatement(SQL).close();
+            } catch (SQLException exception) {
+              failures.incrementAndGet();
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(0, failures.get());
+    Assert.assertEquals(800, pool.getReadStats().getAcquired());
+    Assert.assertEquals(4, pool.getReadStats().getIdle());
+    Assert.assertTrue(prepared.get() <= 4);
+  }
+
+  private Connection fakeConnection() {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+              case "prepareStatement":
+                prepared.incrementAndGet();
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+                      @Override
+                      public Object invoke(Object statement, Method method, Object[] args) {
+                        return null;
+                      }
+                    });
+              case "isValid":
+                return !dead.contains(proxy);
+              case "isClosed":
+                return false;
+              case "getAutoCommit":
+                if (dead.contains(proxy)) {
+                  throw new SQLException("The database connection is closed");
+                }
+                return true;
+              case "unwrap":
+                return proxy;
+              case "equals":
+                return proxy == args[0];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              default:
+                return null;
+            }
+          }
+        });
+  }
+}
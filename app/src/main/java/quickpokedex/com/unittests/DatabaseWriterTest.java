@@ -0,0 +1,234 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import database.DatabaseWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabaseWriterTest {
+  private static final int PRODUCERS = 8;
+  private static final int WRITES_PER_PRODUCER = 200;
+  // Rows written in the open transaction, and rows committed
+  private List<Integer> pending;
+  private List<Integer> committed;
+  private Connection connection;
+
+  /**
+   * Creates a fake connection that keeps the rows of the open transaction apart from the
+   * committed ones, and takes a millisecond to commit, for each test case.
+   */
+  @Before
+  public void setUp() {
+    pending = new ArrayList<>();
+    committed = Collections.synchronizedList(new ArrayList<Integer>());
+    connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            switch (method.getName()) {
+              case "setSavepoint":
+                return savepoint(pending.size());
+              case "rollback":
+                int size = args == null ? 0 : ((Savepoint) args[0]).getSavepointId();
+                pending.subList(size, pending.size()).clear();
+                return null;
+              case "commit":
+                Thread.sleep(1);
+                committed.addAll(pending);
+                pending.clear();
+                return null;
+              default:
+                return null;
+            }
+          }
+        });
+  }
+
+  /**
+   * Tests that the writes of concurrent producers are all committed, sharing transactions.
+   */
+  @Test
+  public void testGroupCommit() throws Exception {
+    final DatabaseWriter writer = new DatabaseWriter(connection);
+    final List<Future<Void>> futures = Collections.synchronizedList(new ArrayList<Future<Void>>());
+    List<Thread> producers = new ArrayList<>();
+    for (int producer = 0; producer < PRODUCERS; producer++) {
+      final int first = producer * WRITES_PER_PRODUCER;
+      producers.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int row = first; row < first + WRITES_PER_PRODUCER; row++) {
+            futures.add(writer.submit(insert(row)));
+          }
+        }
+      }));
+    }
+    for (Thread producer : producers) {
+      producer.start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    writer.close();
+    Assert.assertEquals(PRODUCERS * WRITES_PER_PRODUCER, committed.size());
+    Assert.assertEquals(PRODUCERS * WRITES_PER_PRODUCER, writer.getWrites());
+    Assert.assertTrue(writer.getCommits() < PRODUCERS * WRITES_PER_PRODUCER);
+  }
+
+  /**
+   * Tests that a failed write is rolled back without failing the others in its transaction.
+   */
+  @Test
+  public void testFailedWrite() throws Exception {
+    DatabaseWriter writer = new DatabaseWriter(connection, 10, 50);
+    Future<Void> before = writer.submit(insert(1));
+    Future<Void> failed = writer.submit(new DatabaseWriter.Command() {
+      @Override
+      public void execute(Connection connection) throws SQLException {
+        insert(2).execute(connection);
+        throw new SQLException("constraint failed");
+      }
+    });
+    Future<Void> after = writer.submit(insert(3));
+    before.get();
+    after.get();
+    try {
+      failed.get();
+      Assert.fail("The failed write succeeded");
+    } catch (ExecutionException expected) {
+      Assert.assertEquals("constraint failed", expected.getCause().getMessage());
+    }
+    writer.close();
+    Assert.assertEquals("[1, 3]", committed.toString());
+    Assert.assertEquals(2, writer.getWrites());
+  }
+
+  /**
+   * Tests that an Error thrown on the writer thread fails the current and queued writes, and
+   * closes the writer instead of leaving their Futures hanging.
+   */
+  @Test
+  public void testWriterFailure() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch queued = new CountDownLatch(1);
+    final Error error = new StackOverflowError();
+    DatabaseWriter writer = new DatabaseWriter(connection, 1, 0);
+    Future<Void> failing = writer.submit(new DatabaseWriter.Command() {
+      @Override
+      public void execute(Connection connection) {
+        started.countDown();
+        try {
+          queued.await();
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        throw error;
+      }
+    });
+    started.await();
+    List<Future<Void>> futures = new ArrayList<>();
+    futures.add(failing);
+    futures.add(writer.submit(insert(1)));
+    futures.add(writer.submit(insert(2)));
+    queued.countDown();
+    for (Future<Void> future : futures) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        Assert.fail("A write succeeded after the writer failed");
+      } catch (ExecutionException expected) {
+        Assert.assertSame(error, expected.getCause());
+      }
+    }
+    try {
+      writer.submit(insert(3));
+      Assert.fail("Wrote after the writer failed");
+    } catch (IllegalStateException expected) {
+      Assert.assertEquals("The writer is closed", expected.getMessage());
+    }
+    writer.close();
+    Assert.assertTrue(committed.isEmpty());
+  }
+
+  /**
+   * Tests that closing commits the queued writes, and that nothing can be written afterwards.
+   */
+  @Test
+  public void testClose() throws Exception {
+    DatabaseWriter writer = new DatabaseWriter(connection, 5, 1000);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int row = 0; row < 12; row++) {
+      futures.add(writer.submit(insert(row)));
+    }
+    writer.close();
+    for (Future<Void> future : futures) {
+      Assert.assertTrue(future.isDone());
+    }
+    Assert.assertEquals(12, committed.size());
+    try {
+      writer.submit(insert(12));
+      Assert.fail("Wrote after closing");
+    } catch (IllegalStateException expected) {
+      Assert.assertEquals("The writer is closed", expected.getMessage());
+    }
+  }
+
+  private DatabaseWriter.Command insert(final int row) {
+    return new DatabaseWriter.Command() {
+      @Override
+      public void execute(Connection connection) {
+        pending.add(row);
+      }
+    };
+  }
+
+  private static Savepoint savepoint(final int size) {
+    return new Savepoint() {
+      @Override
+      public int getSavepointId() {
+        return size;
+      }
+
+      @Override
+      public String getSavepointName() {
+        return null;
+      }
+    };
+  }
+}
@@ -0,0 +1,229 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import database.Database;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+import snapshot.Dataset;
+import snapshot.DatasetPatch;
+import util.Pair;
+
+public class DatasetPatchTest {
+  private static final int POKEDEX_SIZE = 1000;
+  private List<Pair<Integer, String>> types;
+  private TypeChart chart;
+  private List<Pokemon> pokemon;
+  private Dataset base;
+
+  /**
+   * Creates a synthetic base dataset for each test case.
+   */
+  @Before
+  public void setUp() {
+    types = new ArrayList<>();
+    for (int typeId = 1; typeId <= 18; typeId++) {
+      types.add(new PokemonTypePair<Integer, String>(typeId, "type" + typeId));
+    }
+    chart = SyntheticPokedex.generateTypeChart(45);
+    pokemon = SyntheticPokedex.generate(POKEDEX_SIZE, 45);
+    base = new Dataset(types, chart, pokemon);
+  }
+
+  /**
+   * Tests that fixing one stat of one Pokemon makes a small patch, which applies to the base and
+   * makes the target.
+   */
+  @Test
+  public void testStatFix() throws IOException {
+    List<Pokemon> fixed = new ArrayList<>(pokemon);
+    Pokemon old = fixed.get(500);
+    fixed.set(500, copy(old, old.getName(), old.getAttack() + 5));
+    Dataset target = new Dataset(types, chart, fixed);
+    DatasetPatch patch = DatasetPatch.diff(base, target);
+    Assert.assertArrayEquals(new int[] {old.getId()}, patch.getUpsertedPokemonIds());
+    Assert.assertEquals(0, patch.getDeletedPokemonIds().length);
+    Assert.assertTrue(patch.getChartCells().isEmpty());
+    Assert.assertTrue(write(patch, true).length < 128);
+    assertSame(target, patch.apply(base));
+    Assert.assertTrue(DatasetPatch.diff(base, base).isEmpty());
+    assertSame(base, DatasetPatch.diff(base, base).apply(base));
+  }
+
+  /**
+   * Tests a patch that adds, removes and renames types and Pokemon and changes the type chart.
+   */
+  @Test
+  public void testInsertsAndDeletes() {
+    List<Pair<Integer, String>> newTypes = new ArrayList<>(types.subList(1, types.size()));
+    newTypes.set(0, new PokemonTypePair<Integer, String>(2, "fighting"));
+    newTypes.add(new PokemonTypePair<Integer, String>(19, "type19"));
+    TypeChartBuilder builder = new TypeChartBuilder();
+    for (int attacking = 2; attacking <= 19; attacking++) {
+      for (int defending = 2; defending <= 19; defending++) {
+        builder.setDamage(attacking, defending, attacking == 19 || defending == 19 ? 200
+            : chart.factor(attacking, defending) * TypeChart.PERCENT_PER_UNIT);
+      }
+    }
+    builder.setDamage(3, 4, chart.factor(3, 4) == 0 ? 100 : 0);
+    List<Pokemon> newPokemon = new ArrayList<>(pokemon.subList(10, pokemon.size()));
+    newPokemon.set(0, copy(newPokemon.get(0), "renamed", newPokemon.get(0).getAttack()));
+    newPokemon.add(new PokemonBuilder(10033).setName("venusaur-mega").setBaseExperience(281)
+        .setTypes(Arrays.asList(12, 4)).setAbilities(Arrays.asList("thick-fat"))
+        .setMoves(Arrays.asList("tackle", "growl")).build());
+    Dataset target = new Dataset(newTypes, builder.build(), newPokemon);
+    DatasetPatch patch = DatasetPatch.diff(base, target);
+    Assert.assertArrayEquals(new int[] {1}, patch.getDeletedTypeIds());
+    Assert.assertEquals("[(2, fighting), (19, type19)]", patch.getUpsertedTypes().toString());
+    Assert.assertArrayEquals(new int[] {1}, patch.getRemovedChartTypeIds());
+    Assert.assertEquals(10, patch.getDeletedPokemonIds().length);
+    Assert.assertArrayEquals(new int[] {newPokemon.get(0).getId(), 10033},
+        patch.getUpsertedPokemonIds());
+    assertSame(target, patch.apply(base));
+  }
+
+  /**
+   * Tests that a patch is rejected by a dataset it was not made from.
+   */
+  @Test
+  public void testWrongBase() {
+    List<Pokemon> fewer = new ArrayList<>(pokemon.subList(1, pokemon.size()));
+    DatasetPatch patch = DatasetPatch.diff(base, new Dataset(types, chart, fewer));
+    try {
+      patch.apply(new Dataset(types, chart, fewer));
+      Assert.fail("Applied a patch to the wrong dataset");
+    } catch (IllegalArgumentException expected) {
+      // The hash of the dataset is not the hash of the patch's base
+    }
+  }
+
+  /**
+   * Tests that a patch reads back as it was written, with and without DEFLATE, and that input
+   * which is not a patch or is cut short is rejected.
+   */
+  @Test
+  public void testReadWrite() throws IOException {
+    List<Pokemon> changed = new ArrayList<>(pokemon);
+    for (int index = 0; index < POKEDEX_SIZE; index += 7) {
+      Pokemon old = changed.get(index);
+      changed.set(index, copy(old, old.getName() + "-x", old.getAttack() + 1));
+    }
+    Dataset target = new Dataset(types, chart, changed.subList(3, POKEDEX_SIZE));
+    DatasetPatch patch = DatasetPatch.diff(base, target);
+    for (boolean deflate : new boolean[] {false, true}) {
+      byte[] bytes = write(patch, deflate);
+      DatasetPatch read = DatasetPatch.read(new ByteArrayInputStream(bytes));
+      Assert.assertEquals(patch.toString(), read.toString());
+      assertSame(target, read.apply(base));
+      try {
+        DatasetPatch.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2)));
+        Assert.fail("Read a truncated patch");
+      } catch (IOException expected) {
+        // The patch ends early
+      }
+    }
+    try {
+      DatasetPatch.read(new ByteArrayInputStream("SQLite format 3".getBytes("UTF-8")));
+      Assert.fail("Read a file that is not a patch");
+    } catch (IOException expected) {
+      // Wrong magic number
+    }
+  }
+
+  /**
+   * Tests that a patch applied inside a transaction of the caller's joins it, so rolling that
+   * transaction back undoes the patch.
+   */
+  @Test
+  public void testApplyInCallerTransaction() throws IOException, SQLException {
+    File file = File.createTempFile("pokedex", ".db");
+    try (Connection connection = Database.getConnection(file)) {
+      Database.defineSchema(connection);
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      base.write(output, false);
+      Database.importDataset(connection, new ByteArrayInputStream(output.toByteArray()));
+      // The database doesn't keep abilities and moves, so the patch is made from what it has
+      Dataset stored = Database.getDataset(connection);
+      List<Pokemon> fixed = new ArrayList<>(stored.getPokemon());
+      Pokemon old = fixed.get(500);
+      fixed.set(500, copy(old, old.getName(), old.getAttack() + 5));
+      DatasetPatch patch = DatasetPatch.diff(stored, new Dataset(types, chart, fixed));
+
+      connection.setAutoCommit(false);
+      Database.applyPatch(connection, patch);
+      Assert.assertFalse(connection.getAutoCommit());
+      Assert.assertEquals(old.getAttack() + 5,
+          Database.getPokemon(connection, old.getId()).getAttack());
+      connection.rollback();
+      connection.setAutoCommit(true);
+      Assert.assertEquals(old.getAttack(),
+          Database.getPokemon(connection, old.getId()).getAttack());
+
+      Database.applyPatch(connection, patch);
+      Assert.assertEquals(old.getAttack() + 5,
+          Database.getPokemon(connection, old.getId()).getAttack());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static Pokemon copy(Pokemon old, String name, int attack) {
+    return new PokemonBuilder(old.getId()).setName(name)
+        .setBaseExperience(old.getBaseExperience()).setHeightDecimetres(old.getHeightDecimetres())
+        .setWeightHectograms(old.getWeightHectograms()).setHp(old.getHp()).setAttack(attack)
+        .setDefense(old.getDefense()).setSpecialAttack(old.getSpecialAttack())
+        .setSpecialDefense(old.getSpecialDefense()).setSpeed(old.getSpeed())
+        .setTypes(old.getTypes()).setAbilities(old.getAbilities()).setMoves(old.getMoves())
+        .build();
+  }
+
+  private static byte[] write(DatasetPatch patch, boolean deflate) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    patch.write(output, deflate);
+    return output.toByteArray();
+  }
+
+  private static void assertSame(Dataset expected, Dataset actual) {
+    Assert.assertArrayEquals(expected.contentHash(), actual.contentHash());
+    Assert.assertEquals(expected.getPokemon().size(), actual.getPokemon().size());
+    for (int index = 0; index < expected.getPokemon().size(); index++) {
+      Assert.assertEquals(expected.getPokemon().get(index).getName(),
+          actual.getPokemon().get(index).getName());
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.TypeChart;
+import snapshot.DatasetReader;
+import snapshot.DatasetWriter;
+import util.Pair;
+
+public class DatasetTest {
+  private static final int POKEDEX_SIZE = 1000;
+  private List<Pair<Integer, String>> types;
+  private TypeChart chart;
+  private List<Pokemon> pokemon;
+
+  /**
+   * Creates the types, type chart and Pokemon of a synthetic dataset, including Pokemon with
+   * abilities and moves, a form id (far from the previous id) and an empty name, for each test
+   * case.
+   */
+  @Before
+  public void setUp() {
+    types = new ArrayList<>();
+    for (int typeId = 1; typeId <= 18; typeId++) {
+      types.add(new PokemonTypePair<Integer, String>(typeId, "type" + typeId));
+    }
+    types.add(new PokemonTypePair<Integer, String>(10001, "unknown"));
+    chart = SyntheticPokedex.generateTypeChart(44);
+    pokemon = SyntheticPokedex.generate(POKEDEX_SIZE, 44);
+    for (int index = 0; index < POKEDEX_SIZE; index += 10) {
+      Pokemon old = pokemon.get(index);
+      pokemon.set(index, new PokemonBuilder(old.getId()).setName(old.getName())
+          .setHp(old.getHp()).setSpeed(old.getSpeed()).setTypes(old.getTypes())
+          .setAbilities(Arrays.asList("overgrow", "ability" + index % 30))
+          .setMoves(Arrays.asList("tackle", "growl", "move" + index)).build());
+    }
+    pokemon.add(new PokemonBuilder(10033).setName("venusaur-mega").setBaseExperience(281)
+        .setTypes(Arrays.asList(12, 4)).build());
+    pokemon.add(new PokemonBuilder(5).setName("").build());
+  }
+
+  /**
+   * Tests that a dataset reads back as it was written, with and without DEFLATE.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    for (boolean deflate : new boolean[] {false, true}) {
+      DatasetReader reader = new DatasetReader(new ByteArrayInputStream(write(deflate)));
+      List<Pair<Integer, String>> readTypes = reader.readTypes();
+      Assert.assertEquals(types.toString(), readTypes.toString());
+      TypeChart readChart = reader.readTypeChart();
+      Assert.assertArrayEquals(chart.getTypeIds(), readChart.getTypeIds());
+      for (int attacking : chart.getTypeIds()) {
+        Assert.assertArrayEquals(chart.attackRow(attacking), readChart.attackRow(attacking));
+      }
+      for (Pokemon expected : pokemon) {
+        Pokemon actual = reader.readPokemon();
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getAbilities(), actual.getAbilities());
+        Assert.assertEquals(expected.getMoves(), actual.getMoves());
+      }
+      Assert.assertNull(reader.readPokemon());
+      Assert.assertNull(reader.readPokemon());
+    }
+  }
+
+  /**
+   * Tests that sections can be skipped when writing (they are written empty) and when reading,
+   * but not written or read out of order.
+   */
+  @Test
+  public void testSections() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    DatasetWriter writer = new DatasetWriter(output, true);
+    writer.writePokemon(pokemon.get(0));
+    try {
+      writer.writeTypes(types);
+      Assert.fail("Wrote types after Pokemon");
+    } catch (IllegalStateException expected) {
+      // The types section is already written (empty)
+    }
+    writer.finish();
+    DatasetReader reader = new DatasetReader(new ByteArrayInputStream(output.toByteArray()));
+    Assert.assertTrue(reader.readTypes().isEmpty());
+    Assert.assertNull(reader.readTypeChart());
+    Assert.assertEquals(pokemon.get(0), reader.readPokemon());
+    Assert.assertNull(reader.readPokemon());
+
+    reader = new DatasetReader(new ByteArrayInputStream(write(false)));
+    Assert.assertEquals(pokemon.get(0), reader.readPokemon());
+    try {
+      reader.readTypes();
+      Assert.fail("Read types after Pokemon");
+    } catch (IllegalStateException expected) {
+      // The types section was skipped
+    }
+  }
+
+  /**
+   * Tests that the compressed dataset is smaller, and that input which is not a dataset or is
+   * cut short is rejected.
+   */
+  @Test
+  public void testBadInput() throws IOException {
+    byte[] plain = write(false);
+    byte[] deflated = write(true);
+    Assert.assertTrue(deflated.length < plain.length);
+    try {
+      new DatasetReader(new ByteArrayInputStream("SQLite format 3".getBytes("UTF-8")));
+      Assert.fail("Read a file that is not a dataset");
+    } catch (IOException expected) {
+      Assert.assertEquals("Not a Pokedex dataset", expected.getMessage());
+    }
+    for (byte[] dataset : new byte[][] {plain, deflated}) {
+      DatasetReader reader = new DatasetReader(new ByteArrayInputStream(
+          Arrays.copyOf(dataset, dataset.length / 2)));
+      try {
+        while (reader.readPokemon() != null) {
+          continue;
+        }
+        Assert.fail("Read a truncated dataset");
+      } catch (IOException expected) {
+        // The dataset ends before its END tag
+      }
+    }
+  }
+
+  private byte[] write(boolean deflate) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (DatasetWriter writer = new DatasetWriter(output, deflate)) {
+      writer.writeTypes(types);
+      writer.writeTypeChart(chart);
+      for (Pokemon next : pokemon) {
+        writer.writePokemon(next);
+      }
+      Assert.assertEquals(pokemon.size(), writer.getCount());
+    }
+    return output.toByteArray();
+  }
+}
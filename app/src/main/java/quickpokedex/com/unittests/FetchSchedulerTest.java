@@ -0,0 +1,142 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokeapi.FetchPriority;
+import pokeapi.FetchScheduler;
+import pokeapi.FetchStats;
+import pokedex.Pokemon;
+
+public class FetchSchedulerTest {
+  private static final int CONCURRENCY = 2;
+  private static final int BULK_FETCHES = 200;
+  private static final long FETCH_MILLIS = 2;
+  private FetchScheduler scheduler;
+  private AtomicInteger fetched;
+
+  /**
+   * Creates a scheduler over a fake fetcher that takes a couple of milliseconds per Pokemon for
+   * each test case.
+   */
+  @Before
+  public void setUp() {
+    fetched = new AtomicInteger();
+    scheduler = new FetchScheduler(CONCURRENCY, new FetchScheduler.Fetcher() {
+      @Override
+      public Pokemon fetch(int id) {
+        try {
+          Thread.sleep(FETCH_MILLIS);
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        fetched.incrementAndGet();
+        return new Pokemon.PokemonBuilder(id).setName("pokemon" + id).build();
+      }
+    });
+  }
+
+  /**
+   * Shuts the scheduler down after each test case.
+   */
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Tests that an interactive fetch, and a bulk fetch promoted to interactive, finish long before
+   * the bulk fetches queued ahead of them.
+   */
+  @Test
+  public void testInteractiveJumpsQueue() throws Exception {
+    List<Future<Pokemon>> bulk = new ArrayList<>();
+    for (int id = 1; id <= BULK_FETCHES; id++) {
+      bulk.add(scheduler.submit(id, FetchPriority.BULK));
+    }
+    Future<Pokemon> interactive = scheduler.submit(BULK_FETCHES + 1, FetchPriority.INTERACTIVE);
+    Future<Pokemon> promoted = scheduler.submit(BULK_FETCHES, FetchPriority.INTERACTIVE);
+    Assert.assertEquals(BULK_FETCHES + 1, interactive.get().getId());
+    Assert.assertEquals(BULK_FETCHES, promoted.get().getId());
+    // Both submissions share the one fetch
+    Assert.assertSame(promoted.get(), bulk.get(BULK_FETCHES - 1).get());
+    Assert.assertTrue("Waited for " + fetched.get() + " fetches", fetched.get() < BULK_FETCHES / 4);
+    for (Future<Pokemon> fetch : bulk) {
+      fetch.get();
+    }
+    Assert.assertEquals(BULK_FETCHES + 1, fetched.get());
+  }
+
+  /**
+   * Tests that cancelling a submission leaves the other submissions of the same fetch waiting,
+   * and that a fetch is cancelled once all of its submissions are.
+   */
+  @Test
+  public void testCancelSubmission() throws Exception {
+    List<Future<Pokemon>> bulk = new ArrayList<>();
+    for (int id = 1; id <= BULK_FETCHES; id++) {
+      bulk.add(scheduler.submit(id, FetchPriority.BULK));
+    }
+    Future<Pokemon> lookup = scheduler.submit(BULK_FETCHES, FetchPriority.INTERACTIVE);
+    // Cancelled first, before the fetch it shares with the lookup can finish
+    Assert.assertTrue(bulk.get(BULK_FETCHES - 1).cancel(false));
+    for (Future<Pokemon> fetch : bulk) {
+      fetch.cancel(false);
+    }
+    Assert.assertFalse(lookup.isCancelled());
+    Assert.assertEquals(BULK_FETCHES, lookup.get().getId());
+    Assert.assertTrue("Fetched " + fetched.get(), fetched.get() < BULK_FETCHES / 4);
+    Assert.assertEquals(0, scheduler.getStats().getQueueDepth(FetchPriority.BULK));
+  }
+
+  /**
+   * Tests the queue depths and started counts of each priority.
+   */
+  @Test
+  public void testStats() throws Exception {
+    List<Future<Pokemon>> fetches = new ArrayList<>();
+    for (int id = 1; id <= BULK_FETCHES; id++) {
+      fetches.add(scheduler.submit(id, id % 2 == 0 ? FetchPriority.BULK
+          : FetchPriority.PREFETCH));
+    }
+    FetchStats stats = scheduler.getStats();
+    Assert.assertTrue(stats.getQueueDepth(FetchPriority.BULK) > 0);
+    Assert.assertEquals(0, stats.getQueueDepth(FetchPriority.INTERACTIVE));
+    for (Future<Pokemon> fetch : fetches) {
+      fetch.get();
+    }
+    stats = scheduler.getStats();
+    Assert.assertEquals(0, stats.getQueueDepth(FetchPriority.BULK));
+    Assert.assertEquals(BULK_FETCHES / 2, stats.getStarted(FetchPriority.BULK));
+    Assert.assertEquals(BULK_FETCHES / 2, stats.getStarted(FetchPriority.PREFETCH));
+    // Every prefetch is started before any bulk fetch that was queued after it
+    Assert.assertTrue(stats.getAverageWaitMillis(FetchPriority.PREFETCH)
+        < stats.getAverageWaitMillis(FetchPriority.BULK));
+  }
+}
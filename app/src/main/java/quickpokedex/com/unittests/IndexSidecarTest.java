@@ -0,0 +1,149 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.IndexSidecar;
+import pokedex.IndexSidecar.LoadResult;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.StatColumn;
+
+public class IndexSidecarTest {
+  private static final int POKEDEX_SIZE = 2000;
+  private List<Pokemon> pokemon;
+  private File file;
+
+  /**
+   * Generates a synthetic Pokedex and picks a sidecar file that does not exist yet, for each test
+   * case.
+   */
+  @Before
+  public void setUp() throws IOException {
+    pokemon = SyntheticPokedex.generate(POKEDEX_SIZE, 43);
+    file = File.createTempFile("pokedex", ".idx");
+    file.delete();
+  }
+
+  /**
+   * Deletes the sidecar after each test case.
+   */
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Tests that the first load builds the indexes and writes the sidecar, and that the next load
+   * reads them back and answers every kind of query the same way as a freshly built Pokedex.
+   */
+  @Test
+  public void testRoundTrip() {
+    LoadResult first = IndexSidecar.load(file, pokemon);
+    Assert.assertFalse(first.isLoaded());
+    Assert.assertEquals("no sidecar", first.getRebuildReason());
+    Assert.assertTrue(file.exists());
+    LoadResult second = IndexSidecar.load(file, pokemon);
+    Assert.assertTrue(second.isLoaded());
+    Assert.assertNull(second.getRebuildReason());
+
+    Pokedex expected = build(pokemon);
+    Pokedex actual = second.getPokedex();
+    for (int id = 1; id <= POKEDEX_SIZE; id += 37) {
+      String name = expected.getPokemon(id).getName();
+      Assert.assertEquals(expected.searchName(name, 5), actual.searchName(name, 5));
+      Assert.assertEquals(expected.searchName(name.substring(1), 5),
+          actual.searchName(name.substring(1), 5));
+      Assert.assertEquals(expected.getSimilar(id, 5, null, Pokemon.NO_TYPE),
+          actual.getSimilar(id, 5, null, Pokemon.NO_TYPE));
+      for (StatColumn column : StatColumn.values()) {
+        Assert.assertEquals(expected.getRank(id, column), actual.getRank(id, column));
+      }
+    }
+    for (StatColumn column : StatColumn.values()) {
+      Assert.assertEquals(expected.getTop(column, 20), actual.getTop(column, 20));
+    }
+    for (int typeId : expected.getTypeIndex().getTypeIds()) {
+      Assert.assertEquals(expected.getTypeIndex().withType(typeId),
+          actual.getTypeIndex().withType(typeId));
+      Assert.assertEquals(expected.getTopOfType(StatColumn.SPEED, typeId, 5),
+          actual.getTopOfType(StatColumn.SPEED, typeId, 5));
+    }
+  }
+
+  /**
+   * Tests that a sidecar written for other Pokemon is ignored as stale and replaced.
+   */
+  @Test
+  public void testStaleSidecar() {
+    IndexSidecar.load(file, pokemon);
+    Pokemon old = pokemon.get(10);
+    pokemon.set(10, new PokemonBuilder(old.getId()).setName(old.getName())
+        .setHp(old.getHp() + 1).setTypes(old.getTypes()).build());
+    LoadResult stale = IndexSidecar.load(file, pokemon);
+    Assert.assertFalse(stale.isLoaded());
+    Assert.assertEquals("stale", stale.getRebuildReason());
+    Assert.assertEquals(old.getHp() + 1, stale.getPokedex().getPokemon(old.getId()).getHp());
+    Assert.assertTrue(IndexSidecar.load(file, pokemon).isLoaded());
+  }
+
+  /**
+   * Tests that a sidecar with a damaged or missing payload is ignored as corrupt and replaced.
+   */
+  @Test
+  public void testCorruptSidecar() throws IOException {
+    IndexSidecar.load(file, pokemon);
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.seek(output.length() / 2);
+      int damaged = output.read() ^ 0x10;
+      output.seek(output.length() / 2);
+      output.write(damaged);
+    }
+    LoadResult corrupt = IndexSidecar.load(file, pokemon);
+    Assert.assertEquals("corrupt", corrupt.getRebuildReason());
+    Assert.assertTrue(IndexSidecar.load(file, pokemon).isLoaded());
+
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.setLength(output.length() - 100);
+    }
+    Assert.assertEquals("corrupt", IndexSidecar.load(file, pokemon).getRebuildReason());
+    Assert.assertEquals(POKEDEX_SIZE, IndexSidecar.load(file, pokemon).getPokedex().size());
+  }
+
+  private static Pokedex build(List<Pokemon> pokemon) {
+    PokedexBuilder builder = new PokedexBuilder(pokemon.size());
+    for (Pokemon next : pokemon) {
+      builder.addPokemon(next);
+    }
+    return builder.build();
+  }
+}
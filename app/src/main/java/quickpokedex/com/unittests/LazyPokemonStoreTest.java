@@ -0,0 +1,279 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import database.Database;
+import database.LazyPokemonStore;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokeapi.FetchScheduler;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+
+public class LazyPokemonStoreTest {
+  private static final int COUNT = 6;
+  private File file;
+  private Connection database;
+  // The database connection, counting the Pokemon inserted through it
+  private Connection connection;
+  private final AtomicInteger inserts = new AtomicInteger();
+  private FetchScheduler scheduler;
+  private LazyPokemonStore store;
+  // The fetches of each id, and of each name (by the id in the name)
+  private final AtomicIntegerArray fetches = new AtomicIntegerArray(COUNT + 1);
+  private final AtomicIntegerArray nameFetches = new AtomicIntegerArray(COUNT + 1);
+  private final AtomicInteger countLookups = new AtomicInteger();
+  // The fetch of blockedId waits for fetchGate, and every count lookup waits for countGate
+  private volatile int blockedId;
+  private final CountDownLatch blockedFetchStarted = new CountDownLatch(1);
+  private final CountDownLatch fetchGate = new CountDownLatch(1);
+  private volatile CountDownLatch countGate = new CountDownLatch(0);
+
+  /**
+   * Creates an empty database in a temporary file and a store over it whose fetches and other
+   * PokeAPI lookups are faked, for each test case.
+   */
+  @Before
+  public void setUp() throws IOException, SQLException {
+    file = File.createTempFile("pokedex", ".db");
+    database = Database.getConnection(file);
+    Database.defineSchema(database);
+    connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("prepareStatement")
+                && ((String) args[0]).startsWith("INSERT OR REPLACE INTO pokemon(")) {
+              inserts.incrementAndGet();
+            }
+            try {
+              return method.invoke(database, args);
+            } catch (InvocationTargetException exception) {
+              throw exception.getCause();
+            }
+          }
+        });
+    scheduler = new FetchScheduler(2, new FetchScheduler.Fetcher() {
+      @Override
+      public Pokemon fetch(int id) {
+        fetches.incrementAndGet(id);
+        if (id == blockedId) {
+          blockedFetchStarted.countDown();
+          awaitGate(fetchGate);
+        }
+        return createPokemon(id);
+      }
+    });
+    store = new LazyPokemonStore(connection, scheduler, new LazyPokemonStore.Source() {
+      @Override
+      public int getNumPokemon() {
+        countLookups.incrementAndGet();
+        awaitGate(countGate);
+        return COUNT;
+      }
+
+      @Override
+      public TypeChart getTypeChart() {
+        return SyntheticPokedex.generateTypeChart(49);
+      }
+
+      @Override
+      public Pokemon getPokemon(String name) {
+        int id = Integer.parseInt(name.substring("pokemon".length()));
+        nameFetches.incrementAndGet(id);
+        return createPokemon(id);
+      }
+    });
+  }
+
+  /**
+   * Stops the filler and the scheduler, and deletes the database, after each test case.
+   */
+  @After
+  public void tearDown() throws InterruptedException, SQLException {
+    store.stopFiller();
+    fetchGate.countDown();
+    countGate.countDown();
+    store.awaitFiller(0);
+    scheduler.shutdown();
+    database.close();
+    file.delete();
+  }
+
+  /**
+   * Tests that a lookup by id of a Pokemon that isn't saved yet fetches and saves it, once.
+   */
+  @Test
+  public void testFetchOnMissById() throws SQLException {
+    Assert.assertEquals("pokemon3", store.getPokemon(3).getName());
+    Assert.assertNotNull(Database.getPokemon(database, 3));
+    Assert.assertEquals("pokemon3", store.getPokemon(3).getName());
+    Assert.assertEquals(1, fetches.get(3));
+    Assert.assertEquals(1, inserts.get());
+  }
+
+  /**
+   * Tests that a lookup by name of a Pokemon that isn't saved yet fetches and saves it, once.
+   */
+  @Test
+  public void testFetchOnMissByName() throws SQLException {
+    Assert.assertEquals(4, store.getPokemon(" Pokemon4 ").getId());
+    Assert.assertNotNull(Database.getPokemon(database, 4));
+    Assert.assertEquals(4, store.getPokemon("pokemon4").getId());
+    Assert.assertEquals(1, nameFetches.get(4));
+    Assert.assertEquals(0, fetches.get(4));
+  }
+
+  /**
+   * Tests that the filler doesn't save again a Pokemon that a lookup saved after the filler
+   * queued it.
+   */
+  @Test
+  public void testFillerSkipsLookedUpIds() throws InterruptedException, SQLException {
+    // The filler waits for the fetch of 1 before it saves anything
+    blockedId = 1;
+    store.startFiller();
+    blockedFetchStarted.await();
+    // Takes over the filler's queued fetch of 4, and saves it
+    Assert.assertEquals("pokemon4", store.getPokemon(4).getName());
+    fetchGate.countDown();
+    Assert.assertTrue(store.awaitFiller(0));
+    assertSaved(1, 2, 3, 4, 5, 6);
+    for (int id = 1; id <= COUNT; id++) {
+      Assert.assertEquals(1, fetches.get(id));
+    }
+    Assert.assertEquals(COUNT, inserts.get());
+  }
+
+  /**
+   * Tests that a stopped filler keeps what it saved, and that starting it again fetches only the
+   * rest.
+   */
+  @Test
+  public void testStopAndRestart() throws InterruptedException, SQLException {
+    blockedId = 3;
+    store.startFiller();
+    blockedFetchStarted.await();
+    while (!isSaved(2)) {
+      Thread.sleep(1);
+    }
+    store.stopFiller();
+    Assert.assertTrue(store.awaitFiller(0));
+    assertSaved(1, 2);
+    fetchGate.countDown();
+
+    store.startFiller();
+    Assert.assertTrue(store.awaitFiller(0));
+    assertSaved(1, 2, 3, 4, 5, 6);
+    Assert.assertEquals(1, fetches.get(1));
+    Assert.assertEquals(1, fetches.get(2));
+    Assert.assertEquals(COUNT, inserts.get());
+  }
+
+  /**
+   * Tests that starting the filler again while the stopped one is still finishing waits for it,
+   * so that only one filler runs at a time.
+   */
+  @Test
+  public void testRestartWhileStopping() throws InterruptedException, SQLException {
+    // Held shut until the restart is waiting, so the first filler is stuck looking up the count
+    countGate = new CountDownLatch(1);
+    store.startFiller();
+    while (countLookups.get() == 0) {
+      Thread.sleep(1);
+    }
+    store.stopFiller();
+    Thread restart = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        store.startFiller();
+      }
+    });
+    restart.start();
+    while (restart.getState() != Thread.State.WAITING
+        && restart.getState() != Thread.State.TERMINATED) {
+      Thread.sleep(1);
+    }
+    Assert.assertTrue("The restart did not wait for the stopped filler", restart.isAlive());
+    Assert.assertEquals(1, countLookups.get());
+    countGate.countDown();
+    restart.join();
+    Assert.assertTrue(store.awaitFiller(0));
+    Assert.assertEquals(2, countLookups.get());
+    assertSaved(1, 2, 3, 4, 5, 6);
+    for (int id = 1; id <= COUNT; id++) {
+      Assert.assertEquals(1, fetches.get(id));
+    }
+    Assert.assertEquals(COUNT, inserts.get());
+  }
+
+  /**
+   * Waits for the gate to open (in a fetch or a count lookup).
+   */
+  private static void awaitGate(CountDownLatch gate) {
+    try {
+      gate.await();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean isSaved(int id) throws SQLException {
+    synchronized (connection) {
+      return Database.getPokemonIds(database).get(id);
+    }
+  }
+
+  /**
+   * Asserts that exactly the Pokemon with the given ids are in the database.
+   */
+  private void assertSaved(int... ids) throws SQLException {
+    BitSet expected = new BitSet();
+    for (int id : ids) {
+      expected.set(id);
+    }
+    synchronized (connection) {
+      Assert.assertEquals(expected, Database.getPokemonIds(database));
+    }
+  }
+
+  private static Pokemon createPokemon(int id) {
+    return new Pokemon.PokemonBuilder(id).setName("pokemon" + id)
+        .setTypes(Arrays.asList(1 + id % 3)).build();
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.NameIndex;
+import pokedex.Pokemon;
+
+public class NameIndexTest {
+  private static final String[] NAMES = {"bulbasaur", "charmander", "charmeleon", "charizard",
+    "mew", "mewtwo", "pikachu", "raichu"};
+  private NameIndex nameIndex;
+
+  /**
+   * Creates a NameIndex over a handful of Pokemon for each test case.
+   */
+  @Before
+  public void setUp() {
+    List<Pokemon> pokemon = new ArrayList<>();
+    for (int index = 0; index < NAMES.length; index++) {
+      pokemon.add(new Pokemon.PokemonBuilder(index + 1).setName(NAMES[index]).build());
+    }
+    nameIndex = new NameIndex(pokemon);
+  }
+
+  /**
+   * Tests that a misspelled name (a missing letter) still finds the right Pokemon first.
+   */
+  @Test
+  public void testSearchMissingLetter() {
+    List<Pokemon> results = nameIndex.search("Charizrd", 3);
+    Assert.assertEquals("charizard", results.get(0).getName());
+  }
+
+  /**
+   * Tests that a transposition of two letters still finds the right Pokemon first.
+   */
+  @Test
+  public void testSearchTransposition() {
+    List<Pokemon> results = nameIndex.search("Mewtow", 3);
+    Assert.assertEquals("mewtwo", results.get(0).getName());
+  }
+
+  /**
+   * Tests that an exact name is ranked ahead of longer names that start with it.
+   */
+  @Test
+  public void testSearchExactBeforePrefix() {
+    List<Pokemon> results = nameIndex.search("mew", 5);
+    Assert.assertEquals("mew", results.get(0).getName());
+    Assert.assertEquals("mewtwo", results.get(1).getName());
+  }
+
+  /**
+   * Tests that a prefix search returns every name starting with the prefix in order.
+   */
+  @Test
+  public void testSearchPrefix() {
+    List<Pokemon> results = nameIndex.searchPrefix("char");
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals("charizard", results.get(0).getName());
+    Assert.assertEquals("charmander", results.get(1).getName());
+    Assert.assertEquals("charmeleon", results.get(2).getName());
+  }
+
+  /**
+   * Tests that the trigrams leave only a few candidate names to score, including for the query
+   * lengths (5-6 and 9-10 letters) where every name used to be scored.
+   */
+  @Test
+  public void testCandidatesArePruned() {
+    Assert.assertEquals(1, nameIndex.countCandidates("mewtow"));
+    Assert.assertEquals(1, nameIndex.countCandidates("pikachi"));
+    Assert.assertEquals(1, nameIndex.countCandidates("raichy"));
+    // The three names starting with "ch"
+    Assert.assertEquals(3, nameIndex.countCandidates("charmandr"));
+    Assert.assertEquals(0, nameIndex.countCandidates("mw"));
+    Assert.assertEquals("raichu", nameIndex.search("raichy", 1).get(0).getName());
+    Assert.assertEquals("charmander", nameIndex.search("charmandr", 1).get(0).getName());
+  }
+
+  /**
+   * Tests the bounded distance, including giving up once the bound is exceeded.
+   */
+  @Test
+  public void testBoundedDistance() {
+    Assert.assertEquals(1, NameIndex.boundedDistance("mewtow", "mewtwo", 2));
+    Assert.assertEquals(1, NameIndex.boundedDistance("charizrd", "charizard", 2));
+    Assert.assertEquals(3, NameIndex.boundedDistance("pikachu", "bulbasaur", 2));
+  }
+}
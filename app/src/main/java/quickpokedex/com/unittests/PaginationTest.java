@@ -0,0 +1,158 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Page;
+import pokedex.PageCursor;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+
+public class PaginationTest {
+  private static final int POKEDEX_SIZE = 1000;
+  private static final int PAGE_SIZE = 37;
+  private Pokedex pokedex;
+
+  /**
+   * Creates a synthetic Pokedex, added in reverse id order so that ordinals and ids disagree, for
+   * each test case.
+   */
+  @Before
+  public void setUp() {
+    List<Pokemon> pokemon = SyntheticPokedex.generate(POKEDEX_SIZE, 38);
+    Collections.reverse(pokemon);
+    PokedexBuilder builder = new PokedexBuilder(POKEDEX_SIZE);
+    for (Pokemon current : pokemon) {
+      builder.addPokemon(current);
+    }
+    pokedex = builder.build();
+  }
+
+  /**
+   * Tests that walking every page in id order and in the order of a column visits every Pokemon
+   * once, in order.
+   */
+  @Test
+  public void testWalkPages() {
+    List<Pokemon> byId = new ArrayList<>(pokedex.getPokedex());
+    Collections.sort(byId, new Comparator<Pokemon>() {
+      @Override
+      public int compare(Pokemon left, Pokemon right) {
+        return Integer.compare(left.getId(), right.getId());
+      }
+    });
+    Assert.assertEquals(ids(byId), ids(walk(null)));
+    for (final StatColumn column : StatColumn.values()) {
+      List<Pokemon> sorted = new ArrayList<>(byId);
+      Collections.sort(sorted, new Comparator<Pokemon>() {
+        @Override
+        public int compare(Pokemon left, Pokemon right) {
+          return Integer.compare(column.valueOf(right), column.valueOf(left));
+        }
+      });
+      Assert.assertEquals(ids(sorted), ids(walk(column)));
+    }
+  }
+
+  /**
+   * Tests that a cursor keeps its place when the Pokemon it points after is removed from the next
+   * snapshot, and when new Pokemon are added before it.
+   */
+  @Test
+  public void testCursorIsStable() {
+    Page first = pokedex.getPage(StatColumn.SPEED, null, PAGE_SIZE);
+    Page second = pokedex.getPage(StatColumn.SPEED, first.getNextCursor(), PAGE_SIZE);
+    Pokemon last = first.getPokemon().get(PAGE_SIZE - 1);
+    PokedexBuilder builder = new PokedexBuilder(POKEDEX_SIZE);
+    for (Pokemon pokemon : pokedex.getPokedex()) {
+      if (pokemon.getId() != last.getId()) {
+        builder.addPokemon(pokemon);
+      }
+    }
+    builder.addPokemon(new Pokemon.PokemonBuilder(POKEDEX_SIZE + 1).setName("fastest")
+        .setSpeed(255).build());
+    Pokedex next = builder.build();
+    Assert.assertEquals(ids(second.getPokemon()),
+        ids(next.getPage(StatColumn.SPEED, first.getNextCursor(), PAGE_SIZE).getPokemon()));
+  }
+
+  /**
+   * Tests that cursors survive being encoded, and that tampered cursors and cursors for another
+   * sort order are rejected.
+   */
+  @Test
+  public void testCursorEncoding() {
+    PageCursor cursor = new PageCursor(StatColumn.BASE_STAT_TOTAL, 600, 150);
+    PageCursor decoded = PageCursor.decode(cursor.encode());
+    Assert.assertEquals(StatColumn.BASE_STAT_TOTAL, decoded.getColumn());
+    Assert.assertEquals(600, decoded.getValue());
+    Assert.assertEquals(150, decoded.getId());
+    String encoded = cursor.encode();
+    String tampered = encoded.substring(0, 4) + (encoded.charAt(4) == '0' ? '1' : '0')
+        + encoded.substring(5);
+    for (String invalid : Arrays.asList(tampered, "", "not a cursor")) {
+      try {
+        PageCursor.decode(invalid);
+        Assert.fail("Decoded " + invalid);
+      } catch (IllegalArgumentException expected) {
+        // Expected
+      }
+    }
+    try {
+      pokedex.getPage(StatColumn.SPEED, encoded, PAGE_SIZE);
+      Assert.fail("Used a base stat total cursor for speed");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
+  }
+
+  private List<Pokemon> walk(StatColumn column) {
+    List<Pokemon> walked = new ArrayList<>();
+    String cursor = null;
+    do {
+      Page page = column == null ? pokedex.getPage(cursor, PAGE_SIZE)
+          : pokedex.getPage(column, cursor, PAGE_SIZE);
+      Assert.assertTrue(page.getPokemon().size() <= PAGE_SIZE);
+      walked.addAll(page.getPokemon());
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return walked;
+  }
+
+  private static List<Integer> ids(List<Pokemon> pokemon) {
+    List<Integer> ids = new ArrayList<>(pokemon.size());
+    for (Pokemon current : pokemon) {
+      ids.add(current.getId());
+    }
+    return ids;
+  }
+}
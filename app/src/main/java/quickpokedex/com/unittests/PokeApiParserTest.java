@@ -30,11 +30,18 @@ import org.junit.Test;
 import pokeapi.PokeApiParser;
 import pokedex.Pokemon;
 import pokedex.Pokemon.PokemonBuilder;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
 
 public class PokeApiParserTest {
   private static final int ACTUAL_COUNT = 811;
   private static final String COUNT_PATH = "src/unittests/resources/count.json";
   private static final String POKEMON_PATH = "src/unittests/resources/pokemon.json";
+  private static final String TYPE_PATH = "src/unittests/resources/type.json";
+  // The type in type.json (Fire) and types it is super and not very effective against
+  private static final int FIRE = 10;
+  private static final int GRASS = 12;
+  private static final int WATER = 11;
   /* Bulbasaur information (same Pokemon as in pokemon.json). 
     Correct as of Generation VI (Jan 22 2017) */
   private static final int ID = 1;
@@ -99,6 +106,38 @@ public class PokeApiParserTest {
     }
   }
   
+  /**
+   * Tests the parsing of a Pokemon looked up by name, where the ID comes from the response.
+   */
+  @Test
+  public void testParsePokemonByName() throws IOException {
+    String response;
+    // Reads the pokemon.json file from resources
+    try (BufferedReader br = new BufferedReader(new FileReader(POKEMON_PATH))) {
+      response = jsonToString(br);
+    }
+    Assert.assertEquals(createPokemon(), PokeApiParser.parsePokemon(response).build());
+  }
+
+  /**
+   * Tests the parsing of the damage relations of Fire (same type as in type.json) and checks
+   * that only the damage Fire does to other types is added to the chart.
+   */
+  @Test
+  public void testParseDamageRelations() throws IOException {
+    String response;
+    // Reads the type.json file from resources
+    try (BufferedReader br = new BufferedReader(new FileReader(TYPE_PATH))) {
+      response = jsonToString(br);
+    }
+    TypeChart chart =
+        PokeApiParser.parseDamageRelations(response, FIRE, new TypeChartBuilder()).build();
+    Assert.assertEquals(2 * TypeChart.ONE, chart.factor(FIRE, GRASS));
+    Assert.assertEquals(TypeChart.ONE / 2, chart.factor(FIRE, WATER));
+    // Water resisting Fire is in type.json as half_damage_from, which is Water's relation
+    Assert.assertEquals(TypeChart.ONE, chart.factor(WATER, FIRE));
+  }
+
   private String jsonToString(BufferedReader br) throws IOException {
     String currentLine;
     String response = "";
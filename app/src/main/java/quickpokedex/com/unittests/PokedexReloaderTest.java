@@ -0,0 +1,137 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.PokedexHolder;
+import pokedex.PokedexReloader;
+
+public class PokedexReloaderTest {
+  private File directory;
+  private File file;
+  private PokedexHolder holder;
+  private PokedexReloader reloader;
+
+  /**
+   * Creates a reloader whose files hold the size of a synthetic Pokedex, for each test case.
+   */
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("reloader").toFile();
+    file = new File(directory, "pokedex.bin");
+    holder = new PokedexHolder(SyntheticPokedex.generatePokedex(10, 46));
+    reloader = new PokedexReloader(holder, new PokedexReloader.Loader() {
+      @Override
+      public Pokedex load(File file) throws IOException {
+        String size = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        return SyntheticPokedex.generatePokedex(Integer.parseInt(size.trim()), 46);
+      }
+    }, file);
+  }
+
+  /**
+   * Deletes the files of the test case.
+   */
+  @After
+  public void tearDown() {
+    reloader.close();
+    for (File child : directory.listFiles()) {
+      child.delete();
+    }
+    directory.delete();
+  }
+
+  /**
+   * Tests that an explicit reload swaps in the new Pokedex, while a reader of the old one keeps
+   * it.
+   */
+  @Test
+  public void testReload() throws Exception {
+    Pokedex old = holder.getPokedex();
+    write("20");
+    Pokedex reloaded = reloader.reload(file).get();
+    Assert.assertSame(reloaded, holder.getPokedex());
+    Assert.assertEquals(20, reloaded.size());
+    Assert.assertEquals(10, old.size());
+    Assert.assertEquals(1, reloader.getReloads());
+    Assert.assertEquals(0, reloader.getFailures());
+  }
+
+  /**
+   * Tests that a Pokedex which can't be loaded or isn't consistent is not swapped in.
+   */
+  @Test
+  public void testFailedReload() throws Exception {
+    Pokedex old = holder.getPokedex();
+    for (String size : new String[] {"not a size", "0"}) {
+      write(size);
+      try {
+        reloader.reload(file).get();
+        Assert.fail("Swapped in a Pokedex of " + size);
+      } catch (ExecutionException expected) {
+        Assert.assertSame(reloader.getLastError(), expected.getCause());
+      }
+      Assert.assertSame(old, holder.getPokedex());
+    }
+    Assert.assertEquals(2, reloader.getFailures());
+    try {
+      PokedexReloader.validate(new PokedexBuilder(1).build());
+      Assert.fail("Validated an empty Pokedex");
+    } catch (IllegalStateException expected) {
+      Assert.assertEquals("The Pokedex is empty", expected.getMessage());
+    }
+  }
+
+  /**
+   * Tests that the watcher reloads a watched file once it is written.
+   */
+  @Test
+  public void testWatch() throws Exception {
+    reloader.startWatching();
+    write("30");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (holder.getPokedex().size() != 30 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    Assert.assertEquals(30, holder.getPokedex().size());
+    // Files that aren't watched are ignored
+    Files.write(new File(directory, "pokedex.idx").toPath(), new byte[] {1});
+    Thread.sleep(PokedexReloader.QUIET_MILLIS * 2);
+    Assert.assertEquals(1, reloader.getReloads());
+  }
+
+  private void write(String size) throws IOException {
+    Files.write(file.toPath(), size.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.StatColumn;
+import snapshot.PokedexSnapshot;
+
+public class PokedexSnapshotTest {
+  private static final int POKEDEX_SIZE = 1000;
+  private List<Pokemon> pokemon;
+  private File file;
+  private PokedexSnapshot snapshot;
+
+  /**
+   * Writes a snapshot of a synthetic Pokedex (in reverse id order, with one Pokemon that has
+   * abilities and moves) to a temporary file and maps it, for each test case.
+   */
+  @Before
+  public void setUp() throws IOException {
+    pokemon = SyntheticPokedex.generate(POKEDEX_SIZE, 42);
+    pokemon.set(0, new PokemonBuilder(1).setName("bulbasaur").setHp(45).setAttack(49)
+        .setTypes(Arrays.asList(12, 4))
+        .setAbilities(new ArrayList<>(Arrays.asList("overgrow", "chlorophyll")))
+        .setMoves(new ArrayList<>(Arrays.asList("tackle", "vine-whip"))).build());
+    Collections.reverse(pokemon);
+    file = File.createTempFile("pokedex", ".bin");
+    PokedexSnapshot.write(file, pokemon);
+    snapshot = PokedexSnapshot.open(file);
+  }
+
+  /**
+   * Deletes the snapshot file after each test case.
+   */
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Tests that every Pokemon reads back from the snapshot as it was written, by id and by name.
+   */
+  @Test
+  public void testLookups() {
+    Assert.assertEquals(POKEDEX_SIZE, snapshot.size());
+    for (Pokemon expected : pokemon) {
+      Pokemon actual = snapshot.getPokemon(expected.getId());
+      Assert.assertEquals(expected, actual);
+      Assert.assertEquals(expected.getTypes(), actual.getTypes());
+      Assert.assertEquals(expected.getName(), snapshot.getPokemon(expected.getName()).getName());
+    }
+    Pokemon bulbasaur = snapshot.getPokemon(" Bulbasaur ");
+    Assert.assertEquals(1, bulbasaur.getId());
+    Assert.assertEquals(Arrays.asList("overgrow", "chlorophyll"), bulbasaur.getAbilities());
+    Assert.assertEquals(Arrays.asList("tackle", "vine-whip"), bulbasaur.getMoves());
+    Assert.assertNull(snapshot.getPokemon(POKEDEX_SIZE + 1));
+    Assert.assertNull(snapshot.getPokemon(0));
+    Assert.assertNull(snapshot.getPokemon("missingno"));
+  }
+
+  /**
+   * Tests that the rank and type sections agree with a Pokedex built from the same Pokemon.
+   */
+  @Test
+  public void testIndexSections() {
+    PokedexBuilder builder = new PokedexBuilder(POKEDEX_SIZE);
+    for (Pokemon next : pokemon) {
+      builder.addPokemon(next);
+    }
+    Pokedex pokedex = builder.build();
+    for (StatColumn column : StatColumn.values()) {
+      Assert.assertEquals(ids(pokedex.getTop(column, 50)), ids(snapshot.getTop(column, 50)));
+      for (int ordinal = 0; ordinal < POKEDEX_SIZE; ordinal += 97) {
+        Assert.assertEquals(column.valueOf(snapshot.getByOrdinal(ordinal)),
+            snapshot.getValue(column, ordinal));
+      }
+    }
+    for (int typeId : pokedex.getTypeIndex().getTypeIds()) {
+      List<Integer> expected = new ArrayList<>();
+      for (Pokemon next : pokedex.getPokedex()) {
+        if (next.hasType(typeId)) {
+          expected.add(next.getId());
+        }
+      }
+      Collections.sort(expected);
+      List<Integer> actual = new ArrayList<>();
+      for (int ordinal : snapshot.ordinalsOfType(typeId)) {
+        actual.add(snapshot.getId(ordinal));
+      }
+      Assert.assertEquals(expected, actual);
+    }
+    Assert.assertEquals(0, snapshot.ordinalsOfType(Pokemon.NO_TYPE).length);
+    Assert.assertEquals(POKEDEX_SIZE, snapshot.toPokedex().size());
+  }
+
+  /**
+   * Tests that a snapshot written from a database is only current until the database changes.
+   */
+  @Test
+  public void testSourceStamp() throws IOException {
+    Assert.assertEquals(PokedexSnapshot.NO_SOURCE, snapshot.getSourceStamp());
+    File database = File.createTempFile("pokedex", ".db");
+    try {
+      Files.write(database.toPath(), new byte[] {1, 2, 3});
+      PokedexSnapshot.write(file, pokemon, PokedexSnapshot.sourceStamp(database));
+      Assert.assertTrue(PokedexSnapshot.open(file).isFrom(database));
+      Files.write(database.toPath(), new byte[] {1, 2, 3, 4});
+      Assert.assertFalse(PokedexSnapshot.open(file).isFrom(database));
+    } finally {
+      database.delete();
+    }
+  }
+
+  /**
+   * Tests that a truncated file or one that is not a snapshot is rejected when it is opened.
+   */
+  @Test
+  public void testRejectsBadFiles() throws IOException {
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.setLength(output.length() - 1);
+    }
+    try {
+      PokedexSnapshot.open(file);
+      Assert.fail("Opened a truncated snapshot");
+    } catch (IOException expected) {
+      Assert.assertTrue(expected.getMessage().startsWith("Truncated"));
+    }
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.writeInt(0);
+    }
+    try {
+      PokedexSnapshot.open(file);
+      Assert.fail("Opened a file that is not a snapshot");
+    } catch (IOException expected) {
+      Assert.assertEquals("Not a Pokedex snapshot", expected.getMessage());
+    }
+  }
+
+  private static List<Integer> ids(List<Pokemon> pokemon) {
+    List<Integer> ids = new ArrayList<>();
+    for (Pokemon next : pokemon) {
+      ids.add(next.getId());
+    }
+    return ids;
+  }
+}
@@ -18,39 +18,44 @@
  *      this program. If not, see http://www.gnu.org/licenses.
  */
 
+
 package unittests;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.PokedexHolder;
 import pokedex.Pokemon;
+import pokedex.StatColumn;
 
 public class PokedexTest {
   private static final int TEST_POKEDEX_SIZE = 2;
-  private Pokedex pokedex;
+  private PokedexBuilder pokedexBuilder;
   private Pokemon pokemon1;
   private Pokemon pokemon2;
 
   /**
-   * Creates a Pokedex with two Pokemon for each test case.
+   * Creates a PokedexBuilder and two Pokemon for each test case.
    */
   @Before
   public void setUp() {
-    pokedex = new Pokedex(TEST_POKEDEX_SIZE);
+    pokedexBuilder = new PokedexBuilder(TEST_POKEDEX_SIZE);
     pokemon1 = new Pokemon.PokemonBuilder(1).setName("Bulbasaur").build();
     pokemon2 = new Pokemon.PokemonBuilder(2).setName("Ivysaur").build();
   }
 
   /**
-   * After each test case, empty out the Pokedex.
+   * After each test case, empty out the PokedexBuilder.
    */
   @After
   public void tearDown() {
-    pokedex.clear();
+    pokedexBuilder.clear();
   }
 
   /**
@@ -59,7 +64,7 @@ public class PokedexTest {
    */
   @Test
   public void testAddOnePokemon() {
-    pokedex.addPokemon(pokemon1);
+    Pokedex pokedex = pokedexBuilder.addPokemon(pokemon1).build();
     List<Pokemon> actualPokedex = new ArrayList<>();
     actualPokedex.add(pokemon1);
     Assert.assertEquals(pokedex.getPokedex(), actualPokedex);
@@ -71,11 +76,86 @@ public class PokedexTest {
    */
   @Test
   public void testAddMultiplePokemon() {
-    pokedex.addPokemon(pokemon1);
-    pokedex.addPokemon(pokemon2);
+    Pokedex pokedex = pokedexBuilder.addPokemon(pokemon1).addPokemon(pokemon2).build();
     List<Pokemon> actualPokedex = new ArrayList<>();
     actualPokedex.add(pokemon1);
     actualPokedex.add(pokemon2);
     Assert.assertEquals(pokedex.getPokedex(), actualPokedex);
   }
+
+  /**
+   * Tests looking up Pokemon by national dex id and by sparse form id.
+   */
+  @Test
+  public void testGetPokemonById() {
+    Pokemon form = new Pokemon.PokemonBuilder(10001).setName("deoxys-attack").build();
+    Pokedex pokedex = pokedexBuilder.addPokemon(pokemon1).addPokemon(pokemon2)
+        .addPokemon(form).build();
+    Assert.assertSame(pokemon1, pokedex.getPokemon(1));
+    Assert.assertSame(pokemon2, pokedex.getPokemon(2));
+    Assert.assertSame(form, pokedex.getPokemon(10001));
+    Assert.assertNull(pokedex.getPokemon(3));
+    Assert.assertNull(pokedex.getPokemon(10002));
+  }
+
+  /**
+   * Tests that a built Pokedex is not affected by Pokemon added to its builder afterwards.
+   */
+  @Test
+  public void testSnapshotIsImmutable() {
+    Pokedex pokedex = pokedexBuilder.addPokemon(pokemon1).build();
+    pokedexBuilder.addPokemon(pokemon2);
+    Assert.assertEquals(1, pokedex.size());
+    Assert.assertSame(pokemon1, pokedex.getPokedex().get(0));
+    Assert.assertNull(pokedex.getPokemon(2));
+  }
+
+  /**
+   * Tests that a refresh publishes a new snapshot while readers of the old one are unaffected.
+   */
+  @Test
+  public void testHolderRefresh() {
+    Pokedex original = pokedexBuilder.addPokemon(pokemon1).build();
+    PokedexHolder holder = new PokedexHolder(original);
+    Pokedex refreshed = holder.refresh(new PokedexHolder.Refresher() {
+      @Override
+      public Pokedex refresh(Pokedex current) {
+        return new PokedexBuilder(current).addPokemon(pokemon2).build();
+      }
+    });
+    Assert.assertSame(refreshed, holder.getPokedex());
+    Assert.assertEquals(2, refreshed.size());
+    Assert.assertEquals(1, original.size());
+  }
+
+  /**
+   * Tests the precomputed leaderboards: top K, top K of a type, and ranks with ties.
+   */
+  @Test
+  public void testLeaderboards() {
+    Pokedex pokedex = pokedexBuilder
+        .addPokemon(new Pokemon.PokemonBuilder(1).setName("Bulbasaur").setSpeed(45)
+            .setTypes(Arrays.asList(12, 4)).build())
+        .addPokemon(new Pokemon.PokemonBuilder(4).setName("Charmander").setSpeed(65)
+            .setTypes(Arrays.asList(10)).build())
+        .addPokemon(new Pokemon.PokemonBuilder(7).setName("Squirtle").setSpeed(43)
+            .setTypes(Arrays.asList(11)).build())
+        .addPokemon(new Pokemon.PokemonBuilder(43).setName("Oddish").setSpeed(30)
+            .setTypes(Arrays.asList(12, 4)).build())
+        .addPokemon(new Pokemon.PokemonBuilder(69).setName("Bellsprout").setSpeed(40)
+            .setTypes(Arrays.asList(12, 4)).build())
+        .addPokemon(new Pokemon.PokemonBuilder(152).setName("Chikorita").setSpeed(45)
+            .setTypes(Arrays.asList(12)).build())
+        .build();
+    List<Pokemon> top = pokedex.getTop(StatColumn.SPEED, 2);
+    Assert.assertEquals("Charmander", top.get(0).getName());
+    Assert.assertEquals("Bulbasaur", top.get(1).getName());
+    List<Pokemon> topGrass = pokedex.getTopOfType(StatColumn.SPEED, 12, 3);
+    Assert.assertEquals(3, topGrass.size());
+    Assert.assertEquals("Bellsprout", topGrass.get(2).getName());
+    // Bulbasaur and Chikorita tie for second
+    Assert.assertEquals(2, pokedex.getRank(1, StatColumn.SPEED));
+    Assert.assertEquals(2, pokedex.getRank(152, StatColumn.SPEED));
+    Assert.assertEquals(4, pokedex.getRank(7, StatColumn.SPEED));
+  }
 }
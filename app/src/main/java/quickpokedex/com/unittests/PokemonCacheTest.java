@@ -0,0 +1,178 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import database.Database;
+import database.PokemonCache;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokemon;
+
+public class PokemonCacheTest {
+  private static final int READERS = 8;
+  private File file;
+  private Connection connection;
+  private PokemonCache cache;
+
+  /**
+   * Creates a database of a few synthetic Pokemon in a temporary file and a cache over it, for
+   * each test case.
+   */
+  @Before
+  public void setUp() throws IOException, SQLException {
+    file = File.createTempFile("pokedex", ".db");
+    connection = Database.getConnection(file);
+    Database.defineSchema(connection);
+    for (Pokemon pokemon : SyntheticPokedex.generate(10, 49)) {
+      Database.insertPokemon(connection, pokemon);
+    }
+    cache = new PokemonCache(connection, 1 << 16);
+  }
+
+  /**
+   * Closes and deletes the database after each test case.
+   */
+  @After
+  public void tearDown() throws SQLException {
+    connection.close();
+    file.delete();
+  }
+
+  /**
+   * Tests that a miss reads the database and caches the Pokemon until it is invalidated.
+   */
+  @Test
+  public void testReadThrough() throws SQLException {
+    Pokemon pokemon = cache.getPokemon(1);
+    Assert.assertEquals(Database.getPokemon(connection, 1).getName(), pokemon.getName());
+    Assert.assertSame(pokemon, cache.getPokemon(1));
+    Assert.assertEquals(1, cache.getStats().getHitCount());
+    Assert.assertEquals(1, cache.getStats().getLoadSuccessCount());
+    Assert.assertNull(cache.getPokemon(100000));
+    Assert.assertEquals(1, cache.getStats().getLoadFailureCount());
+
+    Database.insertPokemon(connection, new Pokemon.PokemonBuilder(1).setName("renamed")
+        .setTypes(pokemon.getTypes()).build());
+    // Still cached until it is invalidated
+    Assert.assertSame(pokemon, cache.getPokemon(1));
+    cache.invalidate(1);
+    Assert.assertEquals("renamed", cache.getPokemon(1).getName());
+  }
+
+  /**
+   * Tests that concurrent misses on the same id share one database read.
+   */
+  @Test
+  public void testConcurrentMissesShareOneRead() throws InterruptedException {
+    final AtomicReferenceArray<Pokemon> results = new AtomicReferenceArray<>(READERS);
+    List<Thread> readers = new ArrayList<>();
+    for (int reader = 0; reader < READERS; reader++) {
+      readers.add(reader(reader, results));
+    }
+    // Holding the connection keeps the first read from finishing until every reader has missed
+    synchronized (connection) {
+      for (Thread reader : readers) {
+        reader.start();
+      }
+      awaitStates(readers, 1, READERS - 1);
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    for (int reader = 0; reader < READERS; reader++) {
+      Assert.assertSame(results.get(0), results.get(reader));
+    }
+    Assert.assertNotNull(results.get(0));
+    Assert.assertEquals(1, cache.getStats().getLoadSuccessCount());
+    Assert.assertEquals(READERS, cache.getStats().getMissCount());
+  }
+
+  /**
+   * Tests that a read that was running when its Pokemon was invalidated is returned but not
+   * cached.
+   */
+  @Test
+  public void testInvalidateDuringRead() throws InterruptedException, SQLException {
+    AtomicReferenceArray<Pokemon> results = new AtomicReferenceArray<>(1);
+    List<Thread> readers = new ArrayList<>();
+    readers.add(reader(0, results));
+    synchronized (connection) {
+      readers.get(0).start();
+      awaitStates(readers, 1, 0);
+      cache.invalidate(1);
+    }
+    readers.get(0).join();
+    Assert.assertNotNull(results.get(0));
+    Assert.assertNotSame(results.get(0), cache.getPokemon(1));
+    Assert.assertEquals(0, cache.getStats().getHitCount());
+    Assert.assertEquals(2, cache.getStats().getLoadSuccessCount());
+  }
+
+  /**
+   * Returns a thread (not started yet) that looks up Pokemon 1 into the given slot.
+   */
+  private Thread reader(final int slot, final AtomicReferenceArray<Pokemon> results) {
+    return new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          results.set(slot, cache.getPokemon(1));
+        } catch (SQLException exception) {
+          throw new IllegalStateException(exception);
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits until the given numbers of threads are blocked (on the connection) and waiting (for
+   * another thread's read).
+   */
+  private static void awaitStates(List<Thread> threads, int blocked, int waiting)
+      throws InterruptedException {
+    while (true) {
+      int blockedCount = 0;
+      int waitingCount = 0;
+      for (Thread thread : threads) {
+        if (thread.getState() == Thread.State.BLOCKED) {
+          blockedCount++;
+        } else if (thread.getState() == Thread.State.WAITING) {
+          waitingCount++;
+        }
+      }
+      if (blockedCount == blocked && waitingCount == waiting) {
+        return;
+      }
+      Thread.sleep(1);
+    }
+  }
+}
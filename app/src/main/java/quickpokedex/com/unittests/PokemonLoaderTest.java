@@ -0,0 +1,239 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import database.Database;
+import database.PokemonLoader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokemon;
+
+public class PokemonLoaderTest {
+  private Map<Integer, Pokemon> pokedex;
+  // The ids of each batch looked up
+  private List<Set<Integer>> batches;
+  private PokemonLoader.BatchSource source;
+
+  /**
+   * Creates a batch source over a synthetic Pokedex that records its batches, for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = new HashMap<>();
+    for (Pokemon pokemon : SyntheticPokedex.generate(500, 49)) {
+      pokedex.put(pokemon.getId(), pokemon);
+    }
+    batches = Collections.synchronizedList(new ArrayList<Set<Integer>>());
+    source = new PokemonLoader.BatchSource() {
+      @Override
+      public Map<Integer, Pokemon> load(Set<Integer> ids) {
+        batches.add(ids);
+        Map<Integer, Pokemon> found = new HashMap<>();
+        for (int id : ids) {
+          if (pokedex.containsKey(id)) {
+            found.put(id, pokedex.get(id));
+          }
+        }
+        return found;
+      }
+    };
+  }
+
+  /**
+   * Tests that the lookups of a scope are looked up in one batch when dispatched, each id once.
+   */
+  @Test
+  public void testDispatch() throws Exception {
+    PokemonLoader loader = new PokemonLoader(source, 0);
+    Future<Pokemon> first = loader.load(1);
+    Future<Pokemon> second = loader.load(2);
+    Future<Pokemon> again = loader.load(2);
+    Assert.assertNotSame(second, again);
+    Future<Pokemon> missing = loader.load(100000);
+    Assert.assertFalse(first.isDone());
+    loader.dispatch();
+    Assert.assertSame(pokedex.get(1), first.get());
+    Assert.assertSame(pokedex.get(2), second.get());
+    Assert.assertSame(pokedex.get(2), again.get());
+    Assert.assertNull(missing.get());
+    Assert.assertEquals("[[1, 2, 100000]]", batches.toString());
+    Assert.assertEquals(4, loader.getRequested());
+    Assert.assertEquals(1, loader.getBatches());
+    // The next scope starts a new batch
+    Assert.assertNotSame(second, loader.load(2));
+    loader.close();
+    Assert.assertEquals(2, batches.size());
+  }
+
+  /**
+   * Tests that concurrent lookups within the window share batches, and each gets its Pokemon.
+   */
+  @Test
+  public void testWindow() throws Exception {
+    final PokemonLoader loader = new PokemonLoader(source, 5);
+    final List<Future<Pokemon>> futures =
+        Collections.synchronizedList(new ArrayList<Future<Pokemon>>());
+    List<Thread> threads = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      final int first = thread * 50 + 1;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int id = first; id < first + 50; id++) {
+            futures.add(loader.load(id));
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int found = 0;
+    for (Future<Pokemon> future : futures) {
+      if (future.get() != null) {
+        found++;
+      }
+    }
+    loader.close();
+    Assert.assertEquals(400, found);
+    Assert.assertEquals(400, loader.getRequested());
+    Assert.assertTrue(loader.getBatches() < 400);
+  }
+
+  /**
+   * Tests that cancelling one caller's Future leaves the other callers of the same id alone, and
+   * that an id nobody waits for any more is left out of the batch.
+   */
+  @Test
+  public void testCancelOneCaller() throws Exception {
+    PokemonLoader loader = new PokemonLoader(source, 0);
+    Future<Pokemon> cancelled = loader.load(1);
+    Future<Pokemon> first = loader.load(1);
+    Future<Pokemon> second = loader.load(1);
+    Future<Pokemon> abandoned = loader.load(2);
+    Assert.assertTrue(cancelled.cancel(true));
+    Assert.assertTrue(abandoned.cancel(true));
+    Assert.assertFalse(first.isDone());
+    loader.dispatch();
+    Assert.assertTrue(cancelled.isCancelled());
+    Assert.assertSame(pokedex.get(1), first.get());
+    Assert.assertSame(pokedex.get(1), second.get());
+    Assert.assertEquals("[[1]]", batches.toString());
+    loader.close();
+  }
+
+  /**
+   * Tests that a failed batch fails each of its lookups.
+   */
+  @Test
+  public void testFailedBatch() throws Exception {
+    PokemonLoader loader = new PokemonLoader(new PokemonLoader.BatchSource() {
+      @Override
+      public Map<Integer, Pokemon> load(Set<Integer> ids) throws SQLException {
+        throw new SQLException("database is locked");
+      }
+    }, 0);
+    List<Future<Pokemon>> futures = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      futures.add(loader.load(id));
+    }
+    loader.dispatch();
+    for (Future<Pokemon> future : futures) {
+      try {
+        future.get();
+        Assert.fail("A lookup of a failed batch succeeded");
+      } catch (ExecutionException expected) {
+        Assert.assertEquals("database is locked", expected.getCause().getMessage());
+      }
+    }
+  }
+
+  /**
+   * Tests that Database.getPokemon looks up many ids in as few queries as the parameter limit
+   * allows.
+   */
+  @Test
+  public void testParameterLimit() throws SQLException {
+    final List<Integer> parameterCounts = new ArrayList<>();
+    Connection connection = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("prepareStatement")) {
+              String sql = (String) args[0];
+              parameterCounts.add(sql.length() - sql.replace("?", "").length());
+              return fake(PreparedStatement.class);
+            }
+            return null;
+          }
+        });
+    List<Integer> ids = new ArrayList<>();
+    for (int id = 1; id <= 2500; id++) {
+      ids.add(id);
+      ids.add(id);
+    }
+    Assert.assertTrue(Database.getPokemon(connection, ids).isEmpty());
+    Assert.assertEquals(999, Database.MAX_PARAMETERS);
+    Assert.assertEquals("[999, 999, 502]", parameterCounts.toString());
+  }
+
+  /**
+   * Returns a fake statement whose queries return no rows.
+   */
+  private static <T> T fake(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+              case "executeQuery":
+                return fake(ResultSet.class);
+              case "next":
+                return false;
+              default:
+                return null;
+            }
+          }
+        }));
+  }
+}
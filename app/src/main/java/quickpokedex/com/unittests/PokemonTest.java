@@ -0,0 +1,150 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.Stat;
+
+public class PokemonTest {
+
+  /**
+   * Tests that each stat keeps its own byte: setting one stat to 0 or Stat.MAX_VALUE leaves its
+   * neighbours as they were.
+   */
+  @Test
+  public void testStatRoundTrip() {
+    for (Stat stat : Stat.values()) {
+      PokemonBuilder builder = new PokemonBuilder(1);
+      for (Stat other : Stat.values()) {
+        builder.setStat(other, 100 + other.ordinal());
+      }
+      Pokemon high = builder.setStat(stat, Stat.MAX_VALUE).build();
+      Pokemon low = builder.setStat(stat, 0).build();
+      for (Stat other : Stat.values()) {
+        int expected = 100 + other.ordinal();
+        Assert.assertEquals(other == stat ? Stat.MAX_VALUE : expected, high.getStat(other));
+        Assert.assertEquals(other == stat ? 0 : expected, low.getStat(other));
+      }
+    }
+    PokemonBuilder builder = new PokemonBuilder(1);
+    for (Stat stat : Stat.values()) {
+      builder.setStat(stat, Stat.MAX_VALUE);
+    }
+    Assert.assertEquals(6 * Stat.MAX_VALUE, builder.build().getBaseStatTotal());
+    Assert.assertEquals(0, new PokemonBuilder(1).build().getBaseStatTotal());
+  }
+
+  /**
+   * Tests that stats and base experience outside what they are stored in are rejected.
+   */
+  @Test
+  public void testOutOfRange() {
+    for (int value : new int[] {-1, Stat.MAX_VALUE + 1}) {
+      try {
+        new PokemonBuilder(1).setSpeed(value);
+        Assert.fail("Set a speed of " + value);
+      } catch (IllegalArgumentException expected) {
+        Assert.assertEquals("SPEED out of range: " + value, expected.getMessage());
+      }
+    }
+    for (int value : new int[] {-1, Short.MAX_VALUE + 1}) {
+      try {
+        new PokemonBuilder(1).setBaseExperience(value);
+        Assert.fail("Set a base experience of " + value);
+      } catch (IllegalArgumentException expected) {
+        Assert.assertEquals("Base experience out of range: " + value, expected.getMessage());
+      }
+    }
+    Assert.assertEquals(Short.MAX_VALUE,
+        new PokemonBuilder(1).setBaseExperience(Short.MAX_VALUE).build().getBaseExperience());
+  }
+
+  /**
+   * Tests that two types pack into a Pokemon in order, and that a third type or a type id that
+   * doesn't fit is rejected.
+   */
+  @Test
+  public void testTypePacking() {
+    Pokemon pokemon = new PokemonBuilder(1).setTypes(Arrays.asList(Pokemon.MAX_TYPE_ID, 1))
+        .build();
+    Assert.assertEquals(Pokemon.MAX_TYPE_ID, pokemon.getType(0));
+    Assert.assertEquals(1, pokemon.getType(1));
+    Assert.assertEquals(Arrays.asList(Pokemon.MAX_TYPE_ID, 1), pokemon.getTypes());
+    Assert.assertTrue(pokemon.hasType(1));
+    Assert.assertFalse(pokemon.hasType(Pokemon.NO_TYPE));
+    Pokemon single = new PokemonBuilder(2).setTypes(Arrays.asList(12)).build();
+    Assert.assertEquals(Pokemon.NO_TYPE, single.getType(1));
+    Assert.assertEquals(Arrays.asList(12), single.getTypes());
+    try {
+      new PokemonBuilder(3).setTypes(Arrays.asList(1, 2, 3));
+      Assert.fail("Set three types");
+    } catch (IllegalArgumentException expected) {
+      Assert.assertEquals("A Pokemon has at most two types: [1, 2, 3]", expected.getMessage());
+    }
+    for (int type : new int[] {Pokemon.NO_TYPE, Pokemon.MAX_TYPE_ID + 1}) {
+      try {
+        new PokemonBuilder(3).setTypes(Arrays.asList(type));
+        Assert.fail("Set type " + type);
+      } catch (IllegalArgumentException expected) {
+        Assert.assertEquals("Type id out of range: " + type, expected.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Tests that addType fills the first then the second type, and throws once there are two.
+   */
+  @Test
+  public void testAddType() {
+    Pokemon pokemon = new Pokemon();
+    pokemon.addType(4);
+    pokemon.addType(12);
+    Assert.assertEquals(Arrays.asList(4, 12), pokemon.getTypes());
+    try {
+      pokemon.addType(1);
+      Assert.fail("Added a third type");
+    } catch (IllegalStateException expected) {
+      Assert.assertEquals("A Pokemon has at most two types", expected.getMessage());
+    }
+    Assert.assertEquals(Arrays.asList(4, 12), pokemon.getTypes());
+  }
+
+  /**
+   * Tests that heights and weights are stored in decimetres and hectograms (as PokeAPI gives
+   * them) and converted to metres and kilograms.
+   */
+  @Test
+  public void testHeightAndWeight() {
+    Pokemon pokemon = new PokemonBuilder(1).setHeight(0.7).setWeight(6.9).build();
+    Assert.assertEquals(7, pokemon.getHeightDecimetres());
+    Assert.assertEquals(69, pokemon.getWeightHectograms());
+    Assert.assertEquals(0.7, pokemon.getHeight(), 1e-9);
+    Assert.assertEquals(6.9, pokemon.getWeight(), 1e-9);
+    pokemon = new PokemonBuilder(2).setHeightDecimetres(145).setWeightHectograms(9999).build();
+    Assert.assertEquals(14.5, pokemon.getHeight(), 1e-9);
+    Assert.assertEquals(999.9, pokemon.getWeight(), 1e-9);
+  }
+}
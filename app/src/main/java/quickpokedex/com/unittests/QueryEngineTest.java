@@ -0,0 +1,175 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+import query.Condition;
+import query.Field;
+import query.Query;
+import query.QueryEngine;
+import query.QueryResult;
+
+public class QueryEngineTest {
+  private static final int WATER = 11;
+  private static final int FLYING = 3;
+  private static final int FIRE = 10;
+  private Pokedex pokedex;
+  private QueryEngine queryEngine;
+
+  /**
+   * Creates a Pokedex with a few Pokemon and a QueryEngine for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = new PokedexBuilder(5)
+        .addPokemon(createPokemon(6, "charizard", 100, "blaze", FIRE, FLYING))
+        .addPokemon(createPokemon(7, "squirtle", 43, "torrent", WATER))
+        .addPokemon(createPokemon(9, "blastoise", 78, "torrent", WATER))
+        .addPokemon(createPokemon(130, "gyarados", 81, "intimidate", WATER, FLYING))
+        .addPokemon(createPokemon(135, "jolteon", 130, "volt-absorb"))
+        .build();
+    queryEngine = new QueryEngine();
+  }
+
+  /**
+   * Tests an AND of a type and a stat range, sorted and limited.
+   */
+  @Test
+  public void testAndSortLimit() {
+    Query query = new Query.QueryBuilder()
+        .where(Condition.and(Condition.hasType(WATER),
+            Condition.statAtLeast(StatColumn.SPEED, 50)))
+        .sortBy(StatColumn.SPEED, true).limit(1).build();
+    QueryResult result = queryEngine.execute(pokedex, query);
+    Assert.assertEquals(2, result.getTotalMatches());
+    Assert.assertEquals(Arrays.asList("gyarados"), names(result));
+  }
+
+  /**
+   * Tests OR and NOT, including a condition that needs a scan (abilities).
+   */
+  @Test
+  public void testOrNotAndScan() {
+    Query query = new Query.QueryBuilder()
+        .where(Condition.or(Condition.hasAbility("torrent"),
+            Condition.not(Condition.hasType(WATER))))
+        .build();
+    Assert.assertEquals(Arrays.asList("charizard", "squirtle", "blastoise", "jolteon"),
+        names(queryEngine.execute(pokedex, query)));
+  }
+
+  /**
+   * Tests that the plan picks the type bitmap and that queries of the same shape reuse it.
+   */
+  @Test
+  public void testExplainAndPlanCache() {
+    Query first = new Query.QueryBuilder().where(Condition.and(Condition.hasType(FLYING),
+        Condition.nameStartsWith("gy"))).select(Field.NAME, Field.SPEED).build();
+    Query second = new Query.QueryBuilder().where(Condition.and(Condition.hasType(WATER),
+        Condition.nameStartsWith("bl"))).select(Field.NAME, Field.SPEED).build();
+    QueryResult result = queryEngine.execute(pokedex, first);
+    Assert.assertEquals("gyarados", result.getRows().get(0).get(Field.NAME));
+    Assert.assertEquals(81, result.getRows().get(0).get(Field.SPEED));
+    Assert.assertTrue(result.explain().contains("INDEX name index"));
+    Assert.assertEquals(Arrays.asList("blastoise"), names(queryEngine.execute(pokedex, second)));
+    Assert.assertEquals(1, queryEngine.getPlanCacheMisses());
+    Assert.assertEquals(1, queryEngine.getPlanCacheHits());
+  }
+
+  /**
+   * Tests that a name condition matches the same Pokemon whether it is answered by the name
+   * index or checked during a scan (an OR with an ability condition forces the scan).
+   */
+  @Test
+  public void testNameIndexAndScanAgree() {
+    Condition[] conditions = {Condition.nameIs(" Blastoise "), Condition.nameStartsWith(" BL")};
+    for (Condition condition : conditions) {
+      QueryResult indexed = queryEngine.execute(pokedex,
+          new Query.QueryBuilder().where(condition).build());
+      QueryResult scanned = queryEngine.execute(pokedex, new Query.QueryBuilder()
+          .where(Condition.or(condition, Condition.hasAbility("none"))).build());
+      Assert.assertTrue(indexed.explain().contains("INDEX name index"));
+      Assert.assertTrue(scanned.explain().contains("SCAN"));
+      Assert.assertEquals(Arrays.asList("blastoise"), names(indexed));
+      Assert.assertEquals(names(indexed), names(scanned));
+    }
+  }
+
+  /**
+   * Tests that both sort strategies (walking the sort order for many matches, sorting the
+   * matches for few) put tied Pokemon in id order, ascending and descending.
+   */
+  @Test
+  public void testTiesInIdOrder() {
+    PokedexBuilder builder = new PokedexBuilder(100);
+    // Added in reverse id order, so that ordinal order is not id order
+    for (int id = 100; id >= 1; id--) {
+      builder.addPokemon(createPokemon(id, "p" + id, id % 3, "none"));
+    }
+    Pokedex tied = builder.build();
+    for (boolean descending : new boolean[] {false, true}) {
+      QueryResult all = queryEngine.execute(tied, new Query.QueryBuilder()
+          .sortBy(StatColumn.SPEED, descending).build());
+      QueryResult few = queryEngine.execute(tied, new Query.QueryBuilder()
+          .where(Condition.nameStartsWith("p1")).sortBy(StatColumn.SPEED, descending).build());
+      Assert.assertFalse(all.explain().contains("SORT matches"));
+      Assert.assertTrue(few.explain().contains("SORT matches"));
+      List<String> expected = new ArrayList<>();
+      int previousSpeed = descending ? Integer.MAX_VALUE : -1;
+      int previousId = 0;
+      for (Pokemon pokemon : all.getPokemon()) {
+        // Sorted by speed, then by id
+        Assert.assertTrue(pokemon.getSpeed() == previousSpeed ? pokemon.getId() > previousId
+            : (pokemon.getSpeed() < previousSpeed) == descending);
+        previousSpeed = pokemon.getSpeed();
+        previousId = pokemon.getId();
+        if (pokemon.getName().startsWith("p1")) {
+          expected.add(pokemon.getName());
+        }
+      }
+      Assert.assertEquals(expected, names(few));
+    }
+  }
+
+  private static Pokemon createPokemon(int id, String name, int speed, String ability,
+      Integer... types) {
+    return new Pokemon.PokemonBuilder(id).setName(name).setSpeed(speed)
+        .setAbilities(Arrays.asList(ability)).setTypes(Arrays.asList(types)).build();
+  }
+
+  private static List<String> names(QueryResult result) {
+    List<String> names = new ArrayList<>();
+    for (Pokemon pokemon : result.getPokemon()) {
+      names.add(pokemon.getName());
+    }
+    return names;
+  }
+}
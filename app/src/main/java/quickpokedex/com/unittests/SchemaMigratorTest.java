@@ -0,0 +1,227 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import database.SchemaMigrator;
+import database.SchemaMigrator.Migration;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaMigratorTest {
+  private static final String SET_VERSION = "PRAGMA user_version = ";
+  // The committed user_version and statements, and those of the open transaction
+  private int version;
+  private List<String> committed;
+  private int pendingVersion;
+  private List<String> pending;
+  private Connection connection;
+
+  /**
+   * Creates a fake connection that keeps the statements and user_version of the open transaction
+   * apart from the committed ones, for each test case.
+   */
+  @Before
+  public void setUp() {
+    version = 0;
+    committed = new ArrayList<>();
+    pending = new ArrayList<>();
+    connection = fake(Connection.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "createStatement":
+            return fakeStatement();
+          case "getAutoCommit":
+            return true;
+          case "commit":
+            version = pendingVersion;
+            committed.addAll(pending);
+            pending.clear();
+            return null;
+          case "rollback":
+            pendingVersion = version;
+            pending.clear();
+            return null;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  /**
+   * Tests that a new database gets every migration, and an up-to-date one none.
+   */
+  @Test
+  public void testNewDatabase() throws SQLException {
+    Assert.assertEquals(SchemaMigrator.MIGRATIONS, SchemaMigrator.migrate(connection));
+    Assert.assertEquals(SchemaMigrator.LATEST_VERSION, SchemaMigrator.getVersion(connection));
+    Assert.assertTrue(committed.get(0).startsWith("CREATE TABLE IF NOT EXISTS pokemon("));
+    Assert.assertTrue(committed.contains(
+        "CREATE INDEX IF NOT EXISTS pokemon_name ON pokemon(name)"));
+    int statements = committed.size();
+    Assert.assertTrue(SchemaMigrator.migrate(connection).isEmpty());
+    Assert.assertEquals(statements, committed.size());
+  }
+
+  /**
+   * Tests that an older database only gets the migrations it doesn't have.
+   */
+  @Test
+  public void testUpgrade() throws SQLException {
+    version = 2;
+    pendingVersion = 2;
+    List<Migration> run = SchemaMigrator.migrate(connection);
+    Assert.assertEquals(SchemaMigrator.MIGRATIONS.subList(2, SchemaMigrator.LATEST_VERSION), run);
+    for (String statement : committed) {
+      Assert.assertTrue(statement, statement.startsWith("CREATE INDEX IF NOT EXISTS"));
+    }
+  }
+
+  /**
+   * Tests that the index names and sort expressions don't depend on the default locale (the
+   * Turkish lower case of I is a dotless i).
+   */
+  @Test
+  public void testTurkishLocale() throws SQLException {
+    Locale locale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr"));
+    try {
+      SchemaMigrator.migrate(connection);
+    } finally {
+      Locale.setDefault(locale);
+    }
+    Assert.assertTrue(committed.contains("CREATE INDEX IF NOT EXISTS pokemon_special_attack "
+        + "ON pokemon(special_attack DESC, id)"));
+    Assert.assertTrue(committed.contains("CREATE INDEX IF NOT EXISTS pokemon_hp "
+        + "ON pokemon(hp DESC, id)"));
+  }
+
+  /**
+   * Tests that a failed migration is rolled back, keeping the migrations before it.
+   */
+  @Test
+  public void testFailedMigration() {
+    List<Migration> migrations = Arrays.asList(step(1, "ALTER TABLE pokemon ADD COLUMN a"),
+        new Migration(2, "fails") {
+          @Override
+          public void migrate(Statement statement) throws SQLException {
+            statement.executeUpdate("ALTER TABLE pokemon ADD COLUMN b");
+            throw new SQLException("no such table: pokemon");
+          }
+        }, step(3, "ALTER TABLE pokemon ADD COLUMN c"));
+    try {
+      SchemaMigrator.migrate(connection, migrations);
+      Assert.fail("A failed migration was committed");
+    } catch (SQLException expected) {
+      Assert.assertEquals("Migration to v2 (fails) failed: no such table: pokemon",
+          expected.getMessage());
+    }
+    Assert.assertEquals(1, version);
+    Assert.assertEquals("[ALTER TABLE pokemon ADD COLUMN a]", committed.toString());
+  }
+
+  /**
+   * Tests that a database newer than the application, and migrations out of order, are rejected.
+   */
+  @Test
+  public void testBadVersions() throws SQLException {
+    version = SchemaMigrator.LATEST_VERSION + 1;
+    try {
+      SchemaMigrator.migrate(connection);
+      Assert.fail("Migrated a newer database");
+    } catch (SQLException expected) {
+      Assert.assertTrue(expected.getMessage().contains("is newer than this version"));
+    }
+    try {
+      SchemaMigrator.migrate(connection, Arrays.asList(step(2, "SELECT 1")));
+      Assert.fail("Ran a migration out of order");
+    } catch (IllegalArgumentException expected) {
+      Assert.assertEquals("Migration v2 (SELECT 1) is out of order", expected.getMessage());
+    }
+  }
+
+  private static Migration step(int version, final String sql) {
+    return new Migration(version, sql) {
+      @Override
+      public void migrate(Statement statement) throws SQLException {
+        statement.executeUpdate(sql);
+      }
+    };
+  }
+
+  private Statement fakeStatement() {
+    return fake(Statement.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "executeQuery":
+            return fakeVersion();
+          case "executeUpdate":
+            String sql = (String) args[0];
+            if (sql.startsWith(SET_VERSION)) {
+              pendingVersion = Integer.parseInt(sql.substring(SET_VERSION.length()));
+            } else {
+              pending.add(sql);
+            }
+            return 0;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  private ResultSet fakeVersion() {
+    final int[] rows = {1};
+    return fake(ResultSet.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "next":
+            return rows[0]-- > 0;
+          case "getInt":
+            return version;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  private static <T> T fake(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        handler));
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.StatAggregates;
+import pokedex.StatColumn;
+import pokedex.StatDistribution;
+
+public class StatAggregatesTest {
+  // Large enough for the aggregates to be split across fork/join tasks
+  private static final int POKEDEX_SIZE = 10000;
+  private static final int BUCKET_WIDTH = 100;
+  private Pokedex pokedex;
+
+  /**
+   * Creates a synthetic Pokedex for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = SyntheticPokedex.generatePokedex(POKEDEX_SIZE, 37);
+  }
+
+  /**
+   * Tests that the distribution of every column over every type agrees with sorting the values
+   * of the Pokemon with that type.
+   */
+  @Test
+  public void testDistributions() {
+    StatAggregates aggregates = pokedex.getStatAggregates();
+    List<Integer> typeIds = new ArrayList<>();
+    typeIds.add(StatAggregates.ALL_TYPES);
+    for (int typeId : aggregates.getTypeIds()) {
+      typeIds.add(typeId);
+    }
+    for (StatColumn column : StatColumn.values()) {
+      for (int typeId : typeIds) {
+        List<Integer> values = new ArrayList<>();
+        long sum = 0;
+        for (Pokemon pokemon : pokedex.getPokedex()) {
+          if (typeId == StatAggregates.ALL_TYPES || pokemon.hasType(typeId)) {
+            values.add(column.valueOf(pokemon));
+            sum += column.valueOf(pokemon);
+          }
+        }
+        Collections.sort(values);
+        StatDistribution distribution = aggregates.getDistribution(column, typeId);
+        Assert.assertEquals(values.size(), distribution.getCount());
+        Assert.assertEquals(sum, distribution.getSum());
+        Assert.assertEquals((int) values.get(0), distribution.getMin());
+        Assert.assertEquals((int) values.get(values.size() - 1), distribution.getMax());
+        Assert.assertEquals((double) sum / values.size(), distribution.getMean(), 1e-9);
+        Assert.assertEquals((int) values.get((values.size() - 1) / 2), distribution.getMedian());
+        int rank = (int) Math.ceil(0.9 * values.size());
+        Assert.assertEquals((int) values.get(rank - 1), distribution.getQuantile(0.9));
+        int[] histogram = distribution.getHistogram(BUCKET_WIDTH);
+        for (int value : values) {
+          histogram[value / BUCKET_WIDTH]--;
+        }
+        Assert.assertArrayEquals(new int[histogram.length], histogram);
+      }
+    }
+  }
+
+  /**
+   * Tests that the aggregates of a snapshot built from a base snapshot are the same as if they
+   * were built from scratch, and that the base's aggregates are left unchanged.
+   */
+  @Test
+  public void testIncrementalUpdate() {
+    StatDistribution before = pokedex.getStatDistribution(StatColumn.SPEED, 5);
+    int countBefore = before.getCount();
+    PokedexBuilder builder = new PokedexBuilder(pokedex);
+    // Moves every Pokemon of type 5 to type 6, and adds a new Pokemon with a type of its own
+    for (Pokemon pokemon : pokedex.getPokedex()) {
+      if (pokemon.getType(0) == 5) {
+        builder.addPokemon(new Pokemon.PokemonBuilder(pokemon.getId()).setName(pokemon.getName())
+            .setSpeed(pokemon.getSpeed() + 1).setTypes(Arrays.asList(6)).build());
+      }
+    }
+    builder.addPokemon(new Pokemon.PokemonBuilder(POKEDEX_SIZE + 1).setName("newmon")
+        .setSpeed(42).setTypes(Arrays.asList(200)).build());
+    Pokedex next = builder.build();
+
+    List<Pokemon> all = new ArrayList<>(next.getPokedex());
+    PokedexBuilder scratch = new PokedexBuilder(all.size());
+    for (Pokemon pokemon : all) {
+      scratch.addPokemon(pokemon);
+    }
+    StatAggregates expected = scratch.build().getStatAggregates();
+    Assert.assertArrayEquals(expected.getTypeIds(), next.getStatAggregates().getTypeIds());
+    for (StatColumn column : StatColumn.values()) {
+      Assert.assertEquals(expected.getDistribution(column),
+          next.getStatAggregates().getDistribution(column));
+      for (int typeId : expected.getTypeIds()) {
+        Assert.assertEquals(expected.getDistribution(column, typeId),
+            next.getStatDistribution(column, typeId));
+      }
+    }
+    Assert.assertEquals(42, next.getStatDistribution(StatColumn.SPEED, 200).getMedian());
+    Assert.assertEquals(countBefore, pokedex.getStatDistribution(StatColumn.SPEED, 5).getCount());
+  }
+}
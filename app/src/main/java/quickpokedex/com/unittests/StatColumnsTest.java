@@ -0,0 +1,97 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokemon;
+import pokedex.StatColumn;
+import pokedex.StatColumns;
+
+public class StatColumnsTest {
+  private StatColumns statColumns;
+
+  /**
+   * Creates StatColumns over three Pokemon for each test case.
+   */
+  @Before
+  public void setUp() {
+    List<Pokemon> pokemon = new ArrayList<>();
+    pokemon.add(new Pokemon.PokemonBuilder(1).setName("slowpoke").setSpeed(15)
+        .setSpecialAttack(40).build());
+    pokemon.add(new Pokemon.PokemonBuilder(2).setName("alakazam").setSpeed(120)
+        .setSpecialAttack(135).build());
+    pokemon.add(new Pokemon.PokemonBuilder(3).setName("jolteon").setSpeed(130)
+        .setSpecialAttack(110).build());
+    statColumns = new StatColumns(pokemon);
+  }
+
+  /**
+   * Tests combining two range filters ("speed over 100 and special attack over 110").
+   */
+  @Test
+  public void testFilterRange() {
+    BitSet matches = statColumns.filterRange(StatColumn.SPEED, 101, Integer.MAX_VALUE);
+    matches.and(statColumns.filterRange(StatColumn.SPECIAL_ATTACK, 111, Integer.MAX_VALUE));
+    BitSet expected = new BitSet();
+    expected.set(1);
+    Assert.assertEquals(expected, matches);
+  }
+
+  /**
+   * Tests that ranges with extreme or inverted bounds don't overflow into matching everything.
+   */
+  @Test
+  public void testFilterRangeBounds() {
+    Assert.assertTrue(statColumns.filterRange(StatColumn.SPEED, Integer.MIN_VALUE,
+        Integer.MIN_VALUE).isEmpty());
+    Assert.assertTrue(statColumns.filterRange(StatColumn.SPEED, 0, Integer.MIN_VALUE + 100)
+        .isEmpty());
+    Assert.assertTrue(statColumns.filterRange(StatColumn.SPEED, 130, 120).isEmpty());
+    Assert.assertEquals(3, statColumns.filterRange(StatColumn.SPEED, Integer.MIN_VALUE,
+        Integer.MAX_VALUE).cardinality());
+  }
+
+  /**
+   * Tests sorting by a column, highest value first.
+   */
+  @Test
+  public void testSortDescending() {
+    Assert.assertArrayEquals(new int[] {2, 1, 0}, statColumns.sortDescending(StatColumn.SPEED));
+    Assert.assertArrayEquals(new int[] {1, 2, 0},
+        statColumns.sortDescending(StatColumn.BASE_STAT_TOTAL));
+  }
+
+  /**
+   * Tests the sum, min, and max aggregates.
+   */
+  @Test
+  public void testAggregates() {
+    Assert.assertEquals(265, statColumns.sum(StatColumn.SPEED));
+    Assert.assertEquals(15, statColumns.min(StatColumn.SPEED));
+    Assert.assertEquals(130, statColumns.max(StatColumn.SPEED));
+  }
+}
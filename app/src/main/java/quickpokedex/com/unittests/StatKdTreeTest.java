@@ -0,0 +1,101 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.BruteForceNeighbours;
+import pokedex.Neighbour;
+import pokedex.Pokedex;
+import pokedex.StatKdTree;
+
+public class StatKdTreeTest {
+  private static final int POKEDEX_SIZE = 3000;
+  private static final int NUM_QUERIES = 200;
+  private Pokedex pokedex;
+  private Random random;
+
+  /**
+   * Creates a synthetic Pokedex for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = SyntheticPokedex.generatePokedex(POKEDEX_SIZE, 34);
+    random = new Random(34);
+  }
+
+  /**
+   * Tests that k nearest neighbour searches (weighted and filtered by type) give the same
+   * results as the brute force search.
+   */
+  @Test
+  public void testNearestMatchesBruteForce() {
+    StatKdTree tree = pokedex.getStatKdTree();
+    for (int query = 0; query < NUM_QUERIES; query++) {
+      int[] target = randomStats();
+      double[] weights = query % 2 == 0 ? null : randomWeights();
+      BitSet candidates = query % 3 == 0 ? pokedex.getTypeIndex().withType(1 + query % 18)
+          : null;
+      int k = 1 + random.nextInt(20);
+      List<Neighbour> expected = BruteForceNeighbours.nearest(pokedex.getStatColumns(), target,
+          k, weights, candidates);
+      Assert.assertEquals(expected, tree.nearest(target, k, weights, candidates));
+    }
+  }
+
+  /**
+   * Tests that radius searches give the same results as the brute force search.
+   */
+  @Test
+  public void testRadiusMatchesBruteForce() {
+    StatKdTree tree = pokedex.getStatKdTree();
+    for (int query = 0; query < NUM_QUERIES; query++) {
+      int[] target = randomStats();
+      double[] weights = query % 2 == 0 ? null : randomWeights();
+      double radius = 20 + random.nextInt(60);
+      List<Neighbour> expected = BruteForceNeighbours.withinRadius(pokedex.getStatColumns(),
+          target, radius, weights, null);
+      Assert.assertEquals(expected, tree.withinRadius(target, radius, weights, null));
+    }
+  }
+
+  private int[] randomStats() {
+    int[] stats = new int[StatKdTree.DIMENSIONS];
+    for (int index = 0; index < stats.length; index++) {
+      stats[index] = random.nextInt(256);
+    }
+    return stats;
+  }
+
+  private double[] randomWeights() {
+    double[] weights = new double[StatKdTree.DIMENSIONS];
+    for (int index = 0; index < weights.length; index++) {
+      weights[index] = random.nextInt(4) / 2.0;
+    }
+    return weights;
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import benchmarks.SyntheticPokedex;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+import team.TeamConstraints.TeamConstraintsBuilder;
+import team.TeamOptimizer;
+import team.TeamSearchResult;
+
+public class TeamOptimizerTest {
+  private static final int POKEDEX_SIZE = 300;
+  private static final int TEAM_SIZE = 6;
+  private Pokedex pokedex;
+  private TeamOptimizer optimizer;
+  private long target;
+
+  /**
+   * Creates a synthetic Pokedex and type chart for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = SyntheticPokedex.generatePokedex(POKEDEX_SIZE, 36);
+    TypeChart chart = SyntheticPokedex.generateTypeChart(36);
+    optimizer = new TeamOptimizer(chart, pokedex);
+    for (Pokemon pokemon : pokedex.getPokedex()) {
+      target |= optimizer.getCoverage(pokemon.getId());
+    }
+  }
+
+  /**
+   * Tests that the teams found cover every type, are ordered by base stat total, and that no
+   * smaller team covers every type.
+   */
+  @Test
+  public void testSmallestTeams() {
+    TeamSearchResult result = optimizer.optimize(new TeamConstraintsBuilder(TEAM_SIZE).build());
+    Assert.assertTrue(result.isComplete());
+    Assert.assertFalse(result.getTeams().isEmpty());
+    int previousTotal = Integer.MAX_VALUE;
+    for (List<Pokemon> team : result.getTeams()) {
+      Assert.assertEquals(result.getTeamSize(), team.size());
+      Assert.assertEquals(target, coverage(team));
+      Assert.assertTrue(total(team) <= previousTotal);
+      previousTotal = total(team);
+    }
+    Assert.assertFalse(hasCoveringTeam(0, result.getTeamSize() - 1, 0));
+  }
+
+  /**
+   * Tests that the teams found include, exclude, and limit the Pokemon of each type as asked.
+   */
+  @Test
+  public void testConstraints() {
+    Pokemon included = pokedex.getByOrdinal(0);
+    Pokemon excluded = optimizer.optimize(new TeamConstraintsBuilder(TEAM_SIZE).build())
+        .getTeams().get(0).get(0);
+    TeamSearchResult result = optimizer.optimize(new TeamConstraintsBuilder(TEAM_SIZE)
+        .mustInclude(included.getId()).exclude(excluded.getId()).setMaxPerType(1).setLimit(3)
+        .build());
+    Assert.assertTrue(result.getTeams().size() <= 3);
+    for (List<Pokemon> team : result.getTeams()) {
+      Assert.assertSame(included, team.get(0));
+      Assert.assertFalse(team.contains(excluded));
+      Assert.assertEquals(target, coverage(team));
+      int[] typeCounts = new int[Pokemon.MAX_TYPE_ID + 1];
+      for (Pokemon pokemon : team) {
+        for (int type : pokemon.getTypes()) {
+          Assert.assertEquals(1, ++typeCounts[type]);
+        }
+      }
+    }
+  }
+
+  private boolean hasCoveringTeam(int start, int slots, long covered) {
+    if (covered == target) {
+      return true;
+    }
+    for (int ordinal = start; slots > 0 && ordinal < pokedex.size(); ordinal++) {
+      long coverage = optimizer.getCoverage(pokedex.getByOrdinal(ordinal).getId());
+      if (hasCoveringTeam(ordinal + 1, slots - 1, covered | coverage)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private long coverage(List<Pokemon> team) {
+    long covered = 0;
+    for (Pokemon pokemon : team) {
+      covered |= optimizer.getCoverage(pokemon.getId());
+    }
+    return covered;
+  }
+
+  private static int total(List<Pokemon> team) {
+    int total = 0;
+    for (Pokemon pokemon : team) {
+      total += pokemon.getBaseStatTotal();
+    }
+    return total;
+  }
+}
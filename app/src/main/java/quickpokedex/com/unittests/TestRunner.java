@@ -45,6 +45,190 @@ public class TestRunner {
       System.out.println(failure.toString());
     }
 
+    result = JUnitCore.runClasses(NameIndexTest.class);
+
+    System.out.println("Running tests for NameIndex...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(StatColumnsTest.class);
+
+    System.out.println("Running tests for StatColumns...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(TypeIndexTest.class);
+
+    System.out.println("Running tests for TypeIndex...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(QueryEngineTest.class);
+
+    System.out.println("Running tests for QueryEngine...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(StatKdTreeTest.class);
+
+    System.out.println("Running tests for StatKdTree...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(TypeMatchupsTest.class);
+
+    System.out.println("Running tests for TypeMatchups...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(TeamOptimizerTest.class);
+
+    System.out.println("Running tests for TeamOptimizer...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(StatAggregatesTest.class);
+
+    System.out.println("Running tests for StatAggregates...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PaginationTest.class);
+
+    System.out.println("Running tests for Pagination...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(WTinyLfuCacheTest.class);
+
+    System.out.println("Running tests for WTinyLfuCache...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(FetchSchedulerTest.class);
+
+    System.out.println("Running tests for FetchScheduler...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PokedexSnapshotTest.class);
+
+    System.out.println("Running tests for PokedexSnapshot...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(IndexSidecarTest.class);
+
+    System.out.println("Running tests for IndexSidecar...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(DatasetTest.class);
+
+    System.out.println("Running tests for Dataset...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(DatasetPatchTest.class);
+
+    System.out.println("Running tests for DatasetPatch...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PokedexReloaderTest.class);
+
+    System.out.println("Running tests for PokedexReloader...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(DatabaseWriterTest.class);
+
+    System.out.println("Running tests for DatabaseWriter...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(ConnectionPoolTest.class);
+
+    System.out.println("Running tests for ConnectionPool...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PokemonLoaderTest.class);
+
+    System.out.println("Running tests for PokemonLoader...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(SchemaMigratorTest.class);
+
+    System.out.println("Running tests for SchemaMigrator...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PokemonTest.class);
+
+    System.out.println("Running tests for Pokemon...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(PokemonCacheTest.class);
+
+    System.out.println("Running tests for PokemonCache...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
+    result = JUnitCore.runClasses(LazyPokemonStoreTest.class);
+
+    System.out.println("Running tests for LazyPokemonStore...");
+
+    for (Failure failure : result.getFailures()) {
+      System.out.println(failure.toString());
+    }
+
     System.out.println("Everything has been tested!");
   }
 }
@@ -0,0 +1,95 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.TypeIndex;
+
+public class TypeIndexTest {
+  private static final int FIRE = 10;
+  private static final int WATER = 11;
+  private static final int GRASS = 12;
+  private static final int FLYING = 3;
+  private static final int DRAGON = 16;
+  private Pokedex pokedex;
+
+  /**
+   * Creates a Pokedex with a few single and dual typed Pokemon for each test case.
+   */
+  @Before
+  public void setUp() {
+    pokedex = new PokedexBuilder(4)
+        .addPokemon(createPokemon(6, "charizard", FIRE, FLYING))
+        .addPokemon(createPokemon(130, "gyarados", WATER, FLYING))
+        .addPokemon(createPokemon(149, "dragonite", DRAGON, FLYING))
+        .addPokemon(createPokemon(148, "dragonair", DRAGON))
+        .addPokemon(createPokemon(1, "bulbasaur", GRASS))
+        .build();
+  }
+
+  /**
+   * Tests the AND, AND NOT, and OR queries over the type bitmaps.
+   */
+  @Test
+  public void testQueries() {
+    TypeIndex typeIndex = pokedex.getTypeIndex();
+    Assert.assertEquals(ordinals(1), typeIndex.allOf(WATER, FLYING));
+    Assert.assertEquals(ordinals(3), typeIndex.withTypeExcluding(DRAGON, FLYING));
+    Assert.assertEquals(ordinals(0, 1, 4), typeIndex.anyOf(FIRE, WATER, GRASS));
+    Assert.assertEquals(ordinals(3, 4), typeIndex.noneOf(FLYING));
+    Assert.assertEquals(3, typeIndex.count(FLYING));
+  }
+
+  /**
+   * Tests that building a new snapshot from an old one updates the bitmaps of the Pokemon that
+   * changed, and leaves the old snapshot's bitmaps alone.
+   */
+  @Test
+  public void testIncrementalUpdate() {
+    // Gyarados loses Flying, and Pidgey (a new Pokemon) is added
+    Pokedex next = new PokedexBuilder(pokedex)
+        .addPokemon(createPokemon(130, "gyarados", WATER))
+        .addPokemon(createPokemon(16, "pidgey", FLYING))
+        .build();
+    Assert.assertEquals(ordinals(0, 2, 5), next.getTypeIndex().withType(FLYING));
+    Assert.assertEquals(ordinals(0, 1, 2), pokedex.getTypeIndex().withType(FLYING));
+  }
+
+  private static Pokemon createPokemon(int id, String name, Integer... types) {
+    return new Pokemon.PokemonBuilder(id).setName(name).setTypes(Arrays.asList(types)).build();
+  }
+
+  private static BitSet ordinals(int... ordinals) {
+    BitSet bitSet = new BitSet();
+    for (int ordinal : ordinals) {
+      bitSet.set(ordinal);
+    }
+    return bitSet;
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+import pokedex.TypeMatchups;
+
+public class TypeMatchupsTest {
+  private static final int NORMAL = 1;
+  private static final int FLYING = 3;
+  private static final int GROUND = 5;
+  private static final int GHOST = 8;
+  private static final int FIRE = 10;
+  private static final int WATER = 11;
+  private static final int GRASS = 12;
+  private static final int ELECTRIC = 13;
+  private static final int ICE = 15;
+  private static final int DRAGON = 16;
+  private TypeChart chart;
+  private Pokedex pokedex;
+
+  /**
+   * Creates a small type chart and a Pokedex with single and dual typed Pokemon for each test
+   * case.
+   */
+  @Before
+  public void setUp() {
+    chart = new TypeChartBuilder()
+        .setDamage(ICE, DRAGON, 200)
+        .setDamage(ICE, FLYING, 200)
+        .setDamage(ICE, GRASS, 200)
+        .setDamage(ICE, WATER, 50)
+        .setDamage(ICE, FIRE, 50)
+        .setDamage(ELECTRIC, GROUND, 0)
+        .setDamage(ELECTRIC, WATER, 200)
+        .setDamage(ELECTRIC, FLYING, 200)
+        .setDamage(NORMAL, GHOST, 0)
+        .build();
+    pokedex = new PokedexBuilder(4)
+        .addPokemon(createPokemon(149, "dragonite", DRAGON, FLYING))
+        .addPokemon(createPokemon(130, "gyarados", WATER, FLYING))
+        .addPokemon(createPokemon(6, "charizard", FIRE, FLYING))
+        .addPokemon(createPokemon(50, "diglett", GROUND))
+        .addPokemon(createPokemon(92, "gastly", GHOST))
+        .build();
+  }
+
+  /**
+   * Tests single and dual type matchups, including immunities and types that aren't in the
+   * chart.
+   */
+  @Test
+  public void testFactor() {
+    Assert.assertEquals(2 * TypeChart.ONE, chart.factor(ICE, GRASS));
+    Assert.assertEquals(4 * TypeChart.ONE, chart.factor(ICE, DRAGON, FLYING));
+    Assert.assertEquals(TypeChart.ONE, chart.factor(ICE, FIRE, FLYING));
+    Assert.assertEquals(0, chart.factor(ELECTRIC, GROUND, FLYING));
+    Assert.assertEquals(TypeChart.ONE, chart.factor(ICE, GROUND, Pokemon.NO_TYPE));
+    // Steel (9) isn't in the chart at all
+    Assert.assertEquals(TypeChart.ONE, chart.factor(9, 9));
+    Assert.assertEquals(4.0, chart.multiplier(ICE, pokedex.getPokemon(149)), 0.0);
+  }
+
+  /**
+   * Tests that scoring one attacking type against the whole Pokedex agrees with scoring each
+   * Pokemon on its own.
+   */
+  @Test
+  public void testScoreAll() {
+    TypeMatchups matchups = new TypeMatchups(chart, pokedex);
+    byte[] scores = matchups.scoreAll(ELECTRIC);
+    Assert.assertArrayEquals(new byte[] {8, 16, 8, 0, 4}, scores);
+    for (int attacking : chart.getTypeIds()) {
+      scores = matchups.scoreAll(attacking);
+      for (int ordinal = 0; ordinal < pokedex.size(); ordinal++) {
+        Assert.assertEquals(matchups.score(attacking, ordinal), scores[ordinal]);
+      }
+    }
+    Assert.assertEquals(1, matchups.countSuperEffective(ICE));
+  }
+
+  private static Pokemon createPokemon(int id, String name, Integer... types) {
+    return new Pokemon.PokemonBuilder(id).setName(name).setTypes(Arrays.asList(types)).build();
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package unittests;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import util.CacheStats;
+import util.WTinyLfuCache;
+
+public class WTinyLfuCacheTest {
+  private static final int CAPACITY = 100;
+  private static final int POPULAR_KEYS = 50;
+  private WTinyLfuCache<Integer, String> cache;
+
+  /**
+   * Creates a cache where every entry weighs the length of its value for each test case.
+   */
+  @Before
+  public void setUp() {
+    cache = new WTinyLfuCache<>(CAPACITY, CAPACITY, new WTinyLfuCache.Weigher<Integer, String>() {
+      @Override
+      public int weigh(Integer key, String value) {
+        return value.length();
+      }
+    });
+  }
+
+  /**
+   * Tests that the cache stays within its maximum weight, and that values heavier than the
+   * whole cache are not cached.
+   */
+  @Test
+  public void testBoundedByWeight() {
+    for (int key = 0; key < 1000; key++) {
+      get(key, key % 3 == 0 ? "xx" : "x");
+      Assert.assertTrue(cache.weightedSize() <= CAPACITY);
+    }
+    cache.put(-1, new String(new char[CAPACITY + 1]));
+    Assert.assertNull(cache.getIfPresent(-1));
+    Assert.assertTrue(cache.stats().getEvictionCount() > 0);
+  }
+
+  /**
+   * Tests that popular keys stay cached through a scan of keys that are each looked up once,
+   * which would flush a plain LRU cache.
+   */
+  @Test
+  public void testScanResistance() {
+    for (int round = 0; round < 10; round++) {
+      for (int key = 0; key < POPULAR_KEYS; key++) {
+        get(key, "x");
+      }
+    }
+    for (int key = POPULAR_KEYS; key < 10000; key++) {
+      get(key, "x");
+    }
+    int cached = 0;
+    for (int key = 0; key < POPULAR_KEYS; key++) {
+      if (cache.getIfPresent(key) != null) {
+        cached++;
+      }
+    }
+    Assert.assertTrue("Only " + cached + " popular keys cached", cached >= POPULAR_KEYS * 9 / 10);
+  }
+
+  /**
+   * Tests the hit and load counters, and that invalidated keys are loaded again.
+   */
+  @Test
+  public void testStatsAndInvalidation() {
+    get(1, "x");
+    get(1, "x");
+    cache.invalidate(1);
+    get(1, "x");
+    cache.invalidateAll();
+    Assert.assertEquals(0, cache.size());
+    CacheStats stats = cache.stats();
+    Assert.assertEquals(1, stats.getHitCount());
+    Assert.assertEquals(2, stats.getMissCount());
+    Assert.assertEquals(2, stats.getLoadSuccessCount());
+    Assert.assertEquals(1.0 / 3, stats.getHitRate(), 1e-9);
+  }
+
+  private String get(int key, String value) {
+    String cached = cache.getIfPresent(key);
+    if (cached == null) {
+      cache.recordLoadSuccess(0);
+      cache.put(key, value);
+      cached = value;
+    }
+    return cached;
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+import util.Pair;
+
+/**
+ * A whole dataset held in memory: the types, the type chart and the Pokemon, each sorted by id.
+ * Used where two datasets have to be compared (see DatasetPatch); everywhere else datasets are
+ * streamed with DatasetWriter and DatasetReader.
+ */
+public class Dataset {
+  private final List<Pair<Integer, String>> types;
+  private final TypeChart chart;
+  private final List<Pokemon> pokemon;
+
+  /**
+   * Creates a Dataset of the given types, type chart and Pokemon.
+   * @param types the types (type id, type name), with distinct ids
+   * @param chart the damage multipliers between types, or null for none
+   * @param pokemon the Pokemon, with distinct ids
+   */
+  public Dataset(List<Pair<Integer, String>> types, TypeChart chart, List<Pokemon> pokemon) {
+    this.types = new ArrayList<>(types);
+    Collections.sort(this.types, new Comparator<Pair<Integer, String>>() {
+      @Override
+      public int compare(Pair<Integer, String> first, Pair<Integer, String> second) {
+        return Integer.compare(first.getLeft(), second.getLeft());
+      }
+    });
+    this.chart = chart == null || chart.getTypeIds().length == 0 ? null : chart;
+    this.pokemon = new ArrayList<>(pokemon);
+    Collections.sort(this.pokemon, new Comparator<Pokemon>() {
+      @Override
+      public int compare(Pokemon first, Pokemon second) {
+        return Integer.compare(first.getId(), second.getId());
+      }
+    });
+    for (int index = 1; index < this.types.size(); index++) {
+      if (this.types.get(index).getLeft().equals(this.types.get(index - 1).getLeft())) {
+        throw new IllegalArgumentException("Duplicate type id: " + this.types.get(index));
+      }
+    }
+    for (int index = 1; index < this.pokemon.size(); index++) {
+      if (this.pokemon.get(index).getId() == this.pokemon.get(index - 1).getId()) {
+        throw new IllegalArgumentException("Duplicate Pokemon id: "
+            + this.pokemon.get(index).getId());
+      }
+    }
+  }
+
+  /**
+   * Reads a whole dataset written by DatasetWriter.
+   * @param input the stream to read from (left open)
+   * @return the dataset
+   * @throws IOException if the dataset cannot be read
+   */
+  public static Dataset read(InputStream input) throws IOException {
+    DatasetReader reader = new DatasetReader(input);
+    List<Pair<Integer, String>> types = reader.readTypes();
+    TypeChart chart = reader.readTypeChart();
+    List<Pokemon> pokemon = new ArrayList<>();
+    for (Pokemon next = reader.readPokemon(); next != null; next = reader.readPokemon()) {
+      pokemon.add(next);
+    }
+    return new Dataset(types, chart, pokemon);
+  }
+
+  /**
+   * Writes the dataset with a DatasetWriter.
+   * @param output the stream to write to (left open)
+   * @param deflate whether or not to compress the dataset
+   * @throws IOException if the dataset cannot be written
+   */
+  public void write(OutputStream output, boolean deflate) throws IOException {
+    DatasetWriter writer = new DatasetWriter(output, deflate);
+    writer.writeTypes(types);
+    writer.writeTypeChart(chart);
+    for (Pokemon next : pokemon) {
+      writer.writePokemon(next);
+    }
+    writer.finish();
+  }
+
+  /**
+   * Returns a SHA-256 hash of the content of the dataset: two datasets with the same types, chart
+   * and Pokemon have the same hash (the hash of their uncompressed encoding, which is the same
+   * since everything is sorted by id).
+   * @return the hash of the dataset
+   */
+  public byte[] contentHash() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      write(output, false);
+      return MessageDigest.getInstance("SHA-256").digest(output.toByteArray());
+    } catch (IOException exception) {
+      throw new IllegalStateException("Cannot write to memory", exception);
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-256 is not available", exception);
+    }
+  }
+
+  /**
+   * Returns the types, sorted by id.
+   * @return the types (type id, type name)
+   */
+  public List<Pair<Integer, String>> getTypes() {
+    return Collections.unmodifiableList(types);
+  }
+
+  /**
+   * Returns the type chart.
+   * @return the damage multipliers between types, or null if there is none
+   */
+  public TypeChart getTypeChart() {
+    return chart;
+  }
+
+  /**
+   * Returns the Pokemon, sorted by id.
+   * @return the Pokemon
+   */
+  public List<Pokemon> getPokemon() {
+    return Collections.unmodifiableList(pokemon);
+  }
+}
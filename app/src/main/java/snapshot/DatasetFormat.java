@@ -0,0 +1,185 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constants and primitive encodings of the dataset export format (pokedex.pdx), shared by
+ * DatasetWriter and DatasetReader.
+ *
+ * <p>A dataset starts with MAGIC, the version and a flags byte, and the rest of it is
+ * DEFLATE-compressed if FLAG_DEFLATE is set. Then come three sections, in order:
+ * <pre>
+ * types      count, then every type as an id (delta from the previous id) and its name
+ * chart      the number of types in the type chart (0 for none), their ids (as deltas), then
+ *            one byte per (attacking, defending) pair with the damage factor in TypeChart units
+ * pokemon    a RECORD tag followed by a Pokemon, repeated, and then an END tag
+ * </pre>
+ * A Pokemon is its id (a zigzag delta from the previous id), name, base experience, height,
+ * weight, six stat bytes, its type ids, abilities and moves. Abilities and moves go through a
+ * string dictionary built as the stream is written: a reference is 0 followed by a new string
+ * (which gets the next index), or 1 + the index of a string seen before. Every int is a varint.
+ */
+public final class DatasetFormat {
+  public static final String DATASET_FILE = "pokedex.pdx";
+  public static final int MAGIC = 0x50445845;
+  public static final int VERSION = 1;
+  public static final int FLAG_DEFLATE = 1;
+  static final int END = 0;
+  static final int RECORD = 1;
+  static final int NEW_STRING = 0;
+  // Strings are written as length + 1, so that 0 can stand for null
+  static final int NULL_STRING = 0;
+  static final int BUFFER_SIZE = 8192;
+  static final int MAX_COUNT = 1 << 20;
+
+  private DatasetFormat() {
+  }
+
+  static void writeVarInt(OutputStream output, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  // Zigzag maps small negative numbers to small varints too (0, -1, 1, -2 -> 0, 1, 2, 3)
+  static void writeSignedVarInt(OutputStream output, int value) throws IOException {
+    writeVarInt(output, (value << 1) ^ (value >> 31));
+  }
+
+  static int readVarInt(InputStream input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int next = readByte(input);
+      value |= (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in dataset");
+  }
+
+  static int readSignedVarInt(InputStream input) throws IOException {
+    int value = readVarInt(input);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static void writeString(OutputStream output, String string) throws IOException {
+    if (string == null) {
+      writeVarInt(output, NULL_STRING);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(output, bytes.length + 1);
+    output.write(bytes);
+  }
+
+  static String readString(InputStream input) throws IOException {
+    int length = readCount(input);
+    if (length == NULL_STRING) {
+      return null;
+    }
+    byte[] bytes = new byte[length - 1];
+    for (int read = 0; read < bytes.length; ) {
+      int chunk = input.read(bytes, read, bytes.length - read);
+      if (chunk < 0) {
+        throw new EOFException("Unexpected end of dataset");
+      }
+      read += chunk;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a list of strings, each one through the dictionary (string -> index) of the strings
+   * written so far.
+   */
+  static void writeList(OutputStream output, Map<String, Integer> dictionary, List<String> list)
+      throws IOException {
+    if (list == null) {
+      writeVarInt(output, 0);
+      return;
+    }
+    writeVarInt(output, list.size() + 1);
+    for (String string : list) {
+      Integer index = dictionary.get(string);
+      if (index == null) {
+        writeVarInt(output, NEW_STRING);
+        writeString(output, string);
+        dictionary.put(string, dictionary.size());
+      } else {
+        writeVarInt(output, index + 1);
+      }
+    }
+  }
+
+  /**
+   * Reads a list of strings written by writeList, adding the new strings to the dictionary.
+   */
+  static List<String> readList(InputStream input, List<String> dictionary) throws IOException {
+    int size = readCount(input);
+    if (size == 0) {
+      return null;
+    }
+    List<String> list = new ArrayList<>(size - 1);
+    for (int index = 0; index < size - 1; index++) {
+      int reference = readCount(input);
+      if (reference == NEW_STRING) {
+        String string = readString(input);
+        dictionary.add(string);
+        list.add(string);
+      } else if (reference - 1 < dictionary.size()) {
+        list.add(dictionary.get(reference - 1));
+      } else {
+        throw new IOException("Corrupt dataset: string " + reference);
+      }
+    }
+    return list;
+  }
+
+  // A corrupt count fails here instead of allocating a huge array
+  static int readCount(InputStream input) throws IOException {
+    int count = readVarInt(input);
+    if (count < 0 || count > MAX_COUNT) {
+      throw new IOException("Corrupt dataset: count " + count);
+    }
+    return count;
+  }
+
+  static int readByte(InputStream input) throws IOException {
+    int next = input.read();
+    if (next < 0) {
+      throw new EOFException("Unexpected end of dataset");
+    }
+    return next;
+  }
+}
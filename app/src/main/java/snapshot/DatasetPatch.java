@@ -0,0 +1,646 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import pokedex.IntIntMap;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.Stat;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+import util.Pair;
+
+/**
+ * The difference between two datasets: the types, type chart cells and Pokemon that were
+ * inserted, updated or deleted, keyed by id. An inserted Pokemon is sent whole, but an updated one
+ * only carries the fields that changed (and only the stats that changed), so a patch costs bytes
+ * in proportion to what changed. The patch also holds the content hashes of the dataset it was
+ * made from and the one it makes, and refuses to be applied to anything else.
+ *
+ * <p>The encoding starts with MAGIC, the version and a flags byte (DatasetFormat.FLAG_DEFLATE),
+ * then the two hashes, then each table's deletions and upserts, with every id a delta from the
+ * previous one and every int a varint, as in DatasetFormat.
+ */
+public class DatasetPatch {
+  public static final int MAGIC = 0x50445850;
+  public static final int VERSION = 1;
+  private static final int HASH_BYTES = 32;
+  // The fields an updated Pokemon can carry
+  private static final int NAME = 1;
+  private static final int BASE_EXPERIENCE = 1 << 1;
+  private static final int HEIGHT = 1 << 2;
+  private static final int WEIGHT = 1 << 3;
+  private static final int STATS = 1 << 4;
+  private static final int TYPES = 1 << 5;
+  private static final int ABILITIES = 1 << 6;
+  private static final int MOVES = 1 << 7;
+  private static final int ALL_FIELDS = (1 << 8) - 1;
+  private static final int ALL_STATS = (1 << Stat.values().length) - 1;
+
+  private final byte[] baseHash;
+  private final byte[] targetHash;
+  private final int[] deletedTypeIds;
+  private final List<Pair<Integer, String>> upsertedTypes;
+  // Types that were in the base chart but not in the target chart
+  private final int[] removedChartTypeIds;
+  // (attacking type id, defending type id, factor) of every cell that is new or changed
+  private final List<int[]> chartCells;
+  private final int[] deletedIds;
+  private final List<PokemonChange> inserted;
+  private final List<PokemonChange> updated;
+
+  /**
+   * The fields of one inserted or updated Pokemon.
+   */
+  private static class PokemonChange {
+    private final int id;
+    private int fields;
+    private int statMask;
+    private String name;
+    private int baseExperience;
+    private int height;
+    private int weight;
+    private final int[] stats = new int[Stat.values().length];
+    private List<Integer> types;
+    private List<String> abilities;
+    private List<String> moves;
+
+    private PokemonChange(int id) {
+      this.id = id;
+    }
+
+    /**
+     * Returns the change from the base Pokemon (or from nothing, for an insert) to the target,
+     * or null if they are the same.
+     */
+    private static PokemonChange between(Pokemon base, Pokemon target) {
+      PokemonChange change = new PokemonChange(target.getId());
+      change.name = target.getName();
+      change.baseExperience = target.getBaseExperience();
+      change.height = target.getHeightDecimetres();
+      change.weight = target.getWeightHectograms();
+      change.types = target.getTypes();
+      change.abilities = target.getAbilities();
+      change.moves = target.getMoves();
+      for (Stat stat : Stat.values()) {
+        change.stats[stat.ordinal()] = target.getStat(stat);
+        if (base == null || base.getStat(stat) != target.getStat(stat)) {
+          change.statMask |= 1 << stat.ordinal();
+        }
+      }
+      if (base == null) {
+        change.fields = ALL_FIELDS;
+        return change;
+      }
+      change.fields |= equal(base.getName(), target.getName()) ? 0 : NAME;
+      change.fields |= base.getBaseExperience() == target.getBaseExperience() ? 0
+          : BASE_EXPERIENCE;
+      change.fields |= base.getHeightDecimetres() == target.getHeightDecimetres() ? 0 : HEIGHT;
+      change.fields |= base.getWeightHectograms() == target.getWeightHectograms() ? 0 : WEIGHT;
+      change.fields |= change.statMask == 0 ? 0 : STATS;
+      change.fields |= base.getTypes().equals(target.getTypes()) ? 0 : TYPES;
+      change.fields |= equal(base.getAbilities(), target.getAbilities()) ? 0 : ABILITIES;
+      change.fields |= equal(base.getMoves(), target.getMoves()) ? 0 : MOVES;
+      return change.fields == 0 ? null : change;
+    }
+
+    /**
+     * Returns the base Pokemon (or nothing, for an insert) with this change applied.
+     */
+    private Pokemon applyTo(Pokemon base) {
+      PokemonBuilder builder = new PokemonBuilder(id);
+      boolean all = base == null;
+      builder.setName(all || (fields & NAME) != 0 ? name : base.getName());
+      builder.setBaseExperience(all || (fields & BASE_EXPERIENCE) != 0 ? baseExperience
+          : base.getBaseExperience());
+      builder.setHeightDecimetres(all || (fields & HEIGHT) != 0 ? height
+          : base.getHeightDecimetres());
+      builder.setWeightHectograms(all || (fields & WEIGHT) != 0 ? weight
+          : base.getWeightHectograms());
+      for (Stat stat : Stat.values()) {
+        boolean changed = all || (statMask & (1 << stat.ordinal())) != 0;
+        builder.setStat(stat, changed ? stats[stat.ordinal()] : base.getStat(stat));
+      }
+      builder.setTypes(all || (fields & TYPES) != 0 ? types : base.getTypes());
+      builder.setAbilities(all || (fields & ABILITIES) != 0 ? abilities : base.getAbilities());
+      builder.setMoves(all || (fields & MOVES) != 0 ? moves : base.getMoves());
+      return builder.build();
+    }
+
+    private void write(OutputStream output, Map<String, Integer> dictionary, boolean insert)
+        throws IOException {
+      if (!insert) {
+        DatasetFormat.writeVarInt(output, fields);
+      }
+      if ((fields & NAME) != 0) {
+        DatasetFormat.writeString(output, name);
+      }
+      if ((fields & BASE_EXPERIENCE) != 0) {
+        DatasetFormat.writeSignedVarInt(output, baseExperience);
+      }
+      if ((fields & HEIGHT) != 0) {
+        DatasetFormat.writeVarInt(output, height);
+      }
+      if ((fields & WEIGHT) != 0) {
+        DatasetFormat.writeVarInt(output, weight);
+      }
+      if ((fields & STATS) != 0) {
+        if (!insert) {
+          output.write(statMask);
+        }
+        for (int stat = 0; stat < stats.length; stat++) {
+          if ((statMask & (1 << stat)) != 0) {
+            output.write(stats[stat]);
+          }
+        }
+      }
+      if ((fields & TYPES) != 0) {
+        DatasetFormat.writeVarInt(output, types.size());
+        for (int typeId : types) {
+          DatasetFormat.writeVarInt(output, typeId);
+        }
+      }
+      if ((fields & ABILITIES) != 0) {
+        DatasetFormat.writeList(output, dictionary, abilities);
+      }
+      if ((fields & MOVES) != 0) {
+        DatasetFormat.writeList(output, dictionary, moves);
+      }
+    }
+
+    private static PokemonChange read(InputStream input, int id, List<String> dictionary,
+        boolean insert) throws IOException {
+      PokemonChange change = new PokemonChange(id);
+      change.fields = insert ? ALL_FIELDS : DatasetFormat.readVarInt(input);
+      if ((change.fields & ~ALL_FIELDS) != 0) {
+        throw new IOException("Corrupt patch: fields " + change.fields);
+      }
+      if ((change.fields & NAME) != 0) {
+        change.name = DatasetFormat.readString(input);
+      }
+      if ((change.fields & BASE_EXPERIENCE) != 0) {
+        change.baseExperience = DatasetFormat.readSignedVarInt(input);
+      }
+      if ((change.fields & HEIGHT) != 0) {
+        change.height = DatasetFormat.readVarInt(input);
+      }
+      if ((change.fields & WEIGHT) != 0) {
+        change.weight = DatasetFormat.readVarInt(input);
+      }
+      if ((change.fields & STATS) != 0) {
+        change.statMask = insert ? ALL_STATS : DatasetFormat.readByte(input) & ALL_STATS;
+        for (int stat = 0; stat < change.stats.length; stat++) {
+          if ((change.statMask & (1 << stat)) != 0) {
+            change.stats[stat] = DatasetFormat.readByte(input);
+          }
+        }
+      }
+      if ((change.fields & TYPES) != 0) {
+        int numTypes = DatasetFormat.readVarInt(input);
+        if (numTypes > Pokemon.MAX_TYPES) {
+          throw new IOException("Corrupt patch: " + numTypes + " types");
+        }
+        change.types = new ArrayList<>(numTypes);
+        for (int index = 0; index < numTypes; index++) {
+          change.types.add(DatasetFormat.readVarInt(input));
+        }
+      }
+      if ((change.fields & ABILITIES) != 0) {
+        change.abilities = DatasetFormat.readList(input, dictionary);
+      }
+      if ((change.fields & MOVES) != 0) {
+        change.moves = DatasetFormat.readList(input, dictionary);
+      }
+      return change;
+    }
+  }
+
+  private DatasetPatch(byte[] baseHash, byte[] targetHash, int[] deletedTypeIds,
+      List<Pair<Integer, String>> upsertedTypes, int[] removedChartTypeIds,
+      List<int[]> chartCells, int[] deletedIds, List<PokemonChange> inserted,
+      List<PokemonChange> updated) {
+    this.baseHash = baseHash;
+    this.targetHash = targetHash;
+    this.deletedTypeIds = deletedTypeIds;
+    this.upsertedTypes = upsertedTypes;
+    this.removedChartTypeIds = removedChartTypeIds;
+    this.chartCells = chartCells;
+    this.deletedIds = deletedIds;
+    this.inserted = inserted;
+    this.updated = updated;
+  }
+
+  /**
+   * Returns the patch that turns the base dataset into the target dataset. Both are walked in id
+   * order side by side, so this is linear in their size.
+   * @param base the dataset the patch applies to
+   * @param target the dataset the patch makes
+   * @return the patch from the base to the target
+   */
+  public static DatasetPatch diff(Dataset base, Dataset target) {
+    // Types
+    List<Integer> deletedTypes = new ArrayList<>();
+    List<Pair<Integer, String>> upsertedTypes = new ArrayList<>();
+    Map<Integer, String> baseTypes = new HashMap<>();
+    for (Pair<Integer, String> type : base.getTypes()) {
+      baseTypes.put(type.getLeft(), type.getRight());
+    }
+    for (Pair<Integer, String> type : target.getTypes()) {
+      if (!baseTypes.containsKey(type.getLeft())
+          || !equal(baseTypes.remove(type.getLeft()), type.getRight())) {
+        upsertedTypes.add(type);
+      }
+    }
+    deletedTypes.addAll(baseTypes.keySet());
+
+    // Type chart cells
+    TypeChart baseChart = base.getTypeChart();
+    TypeChart targetChart = target.getTypeChart();
+    int[] baseChartTypes = baseChart == null ? new int[0] : sorted(baseChart.getTypeIds());
+    int[] targetChartTypes = targetChart == null ? new int[0] : sorted(targetChart.getTypeIds());
+    List<Integer> removedChartTypes = new ArrayList<>();
+    for (int typeId : baseChartTypes) {
+      if (Arrays.binarySearch(targetChartTypes, typeId) < 0) {
+        removedChartTypes.add(typeId);
+      }
+    }
+    List<int[]> chartCells = new ArrayList<>();
+    for (int attacking : targetChartTypes) {
+      for (int defending : targetChartTypes) {
+        int factor = targetChart.factor(attacking, defending);
+        boolean inBase = Arrays.binarySearch(baseChartTypes, attacking) >= 0
+            && Arrays.binarySearch(baseChartTypes, defending) >= 0;
+        if (!inBase || baseChart.factor(attacking, defending) != factor) {
+          chartCells.add(new int[] {attacking, defending, factor});
+        }
+      }
+    }
+
+    // Pokemon
+    List<Integer> deletedIds = new ArrayList<>();
+    List<PokemonChange> inserted = new ArrayList<>();
+    List<PokemonChange> updated = new ArrayList<>();
+    List<Pokemon> basePokemon = base.getPokemon();
+    List<Pokemon> targetPokemon = target.getPokemon();
+    int baseIndex = 0;
+    int targetIndex = 0;
+    while (baseIndex < basePokemon.size() || targetIndex < targetPokemon.size()) {
+      int baseId = baseIndex < basePokemon.size() ? basePokemon.get(baseIndex).getId()
+          : Integer.MAX_VALUE;
+      int targetId = targetIndex < targetPokemon.size()
+          ? targetPokemon.get(targetIndex).getId() : Integer.MAX_VALUE;
+      if (baseId < targetId) {
+        deletedIds.add(baseId);
+        baseIndex++;
+      } else if (targetId < baseId) {
+        inserted.add(PokemonChange.between(null, targetPokemon.get(targetIndex++)));
+      } else {
+        PokemonChange change = PokemonChange.between(basePokemon.get(baseIndex++),
+            targetPokemon.get(targetIndex++));
+        if (change != null) {
+          updated.add(change);
+        }
+      }
+    }
+    return new DatasetPatch(base.contentHash(), target.contentHash(), sorted(deletedTypes),
+        upsertedTypes, sorted(removedChartTypes), chartCells, sorted(deletedIds), inserted,
+        updated);
+  }
+
+  /**
+   * Returns the dataset this patch makes from the given one.
+   * @param base the dataset the patch was made from
+   * @return the patched dataset
+   * @throws IllegalArgumentException if the patch was not made from this dataset
+   * @throws IllegalStateException if the patched dataset isn't the one the patch was made for
+   */
+  public Dataset apply(Dataset base) {
+    if (!Arrays.equals(base.contentHash(), baseHash)) {
+      throw new IllegalArgumentException("The patch was made for a different dataset");
+    }
+    // Types
+    Map<Integer, String> types = new HashMap<>();
+    for (Pair<Integer, String> type : base.getTypes()) {
+      types.put(type.getLeft(), type.getRight());
+    }
+    for (int typeId : deletedTypeIds) {
+      types.remove(typeId);
+    }
+    for (Pair<Integer, String> type : upsertedTypes) {
+      types.put(type.getLeft(), type.getRight());
+    }
+    List<Pair<Integer, String>> patchedTypes = new ArrayList<>();
+    for (Map.Entry<Integer, String> type : types.entrySet()) {
+      patchedTypes.add(new PokemonTypePair<Integer, String>(type.getKey(), type.getValue()));
+    }
+
+    // Type chart: the base's cells between the remaining types, then the new and changed cells
+    TypeChartBuilder chart = new TypeChartBuilder();
+    TypeChart baseChart = base.getTypeChart();
+    if (baseChart != null) {
+      for (int attacking : baseChart.getTypeIds()) {
+        for (int defending : baseChart.getTypeIds()) {
+          if (Arrays.binarySearch(removedChartTypeIds, attacking) < 0
+              && Arrays.binarySearch(removedChartTypeIds, defending) < 0) {
+            chart.setDamage(attacking, defending,
+                baseChart.factor(attacking, defending) * TypeChart.PERCENT_PER_UNIT);
+          }
+        }
+      }
+    }
+    for (int[] cell : chartCells) {
+      chart.setDamage(cell[0], cell[1], cell[2] * TypeChart.PERCENT_PER_UNIT);
+    }
+
+    // Pokemon
+    List<Pokemon> pokemon = new ArrayList<>(base.getPokemon().size() + inserted.size());
+    IntIntMap updatedIndexes = new IntIntMap(updated.size());
+    for (int index = 0; index < updated.size(); index++) {
+      updatedIndexes.put(updated.get(index).id, index);
+    }
+    for (Pokemon next : base.getPokemon()) {
+      int update = updatedIndexes.get(next.getId(), -1);
+      if (update >= 0) {
+        pokemon.add(updated.get(update).applyTo(next));
+      } else if (Arrays.binarySearch(deletedIds, next.getId()) < 0) {
+        pokemon.add(next);
+      }
+    }
+    for (PokemonChange change : inserted) {
+      pokemon.add(change.applyTo(null));
+    }
+    Dataset patched = new Dataset(patchedTypes, chart.build(), pokemon);
+    if (!Arrays.equals(patched.contentHash(), targetHash)) {
+      throw new IllegalStateException("The patched dataset does not match the patch");
+    }
+    return patched;
+  }
+
+  /**
+   * Writes the patch.
+   * @param output the stream to write to (left open)
+   * @param deflate whether or not to compress the patch with DEFLATE
+   * @throws IOException if the patch cannot be written
+   */
+  public void write(OutputStream output, boolean deflate) throws IOException {
+    output.write(new byte[] {
+        (byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC});
+    output.write(VERSION);
+    output.write(deflate ? DatasetFormat.FLAG_DEFLATE : 0);
+    DeflaterOutputStream deflater = null;
+    OutputStream body;
+    if (deflate) {
+      deflater = new DeflaterOutputStream(output, new Deflater(Deflater.BEST_COMPRESSION),
+          DatasetFormat.BUFFER_SIZE);
+      body = deflater;
+    } else {
+      body = new BufferedOutputStream(output, DatasetFormat.BUFFER_SIZE);
+    }
+    body.write(baseHash);
+    body.write(targetHash);
+    writeIds(body, deletedTypeIds);
+    DatasetFormat.writeVarInt(body, upsertedTypes.size());
+    int previous = 0;
+    for (Pair<Integer, String> type : upsertedTypes) {
+      DatasetFormat.writeSignedVarInt(body, type.getLeft() - previous);
+      DatasetFormat.writeString(body, type.getRight());
+      previous = type.getLeft();
+    }
+    writeIds(body, removedChartTypeIds);
+    DatasetFormat.writeVarInt(body, chartCells.size());
+    for (int[] cell : chartCells) {
+      DatasetFormat.writeVarInt(body, cell[0]);
+      DatasetFormat.writeVarInt(body, cell[1]);
+      body.write(cell[2]);
+    }
+    writeIds(body, deletedIds);
+    Map<String, Integer> dictionary = new HashMap<>();
+    for (List<PokemonChange> changes : Arrays.asList(inserted, updated)) {
+      DatasetFormat.writeVarInt(body, changes.size());
+      previous = 0;
+      for (PokemonChange change : changes) {
+        DatasetFormat.writeSignedVarInt(body, change.id - previous);
+        change.write(body, dictionary, changes == inserted);
+        previous = change.id;
+      }
+    }
+    if (deflater != null) {
+      deflater.finish();
+    }
+    body.flush();
+  }
+
+  /**
+   * Reads a patch written by write.
+   * @param input the stream to read from (left open)
+   * @return the patch
+   * @throws IOException if the stream is not a patch of this version, or is corrupt
+   */
+  public static DatasetPatch read(InputStream input) throws IOException {
+    int magic = 0;
+    for (int index = 0; index < 4; index++) {
+      magic = (magic << 8) | DatasetFormat.readByte(input);
+    }
+    if (magic != MAGIC) {
+      throw new IOException("Not a dataset patch");
+    }
+    int version = DatasetFormat.readByte(input);
+    if (version != VERSION) {
+      throw new IOException("Unsupported patch version: " + version);
+    }
+    boolean deflated = (DatasetFormat.readByte(input) & DatasetFormat.FLAG_DEFLATE) != 0;
+    // Not closed, so that the caller's stream is left open
+    InputStream body = new BufferedInputStream(deflated ? new InflaterInputStream(input) : input,
+        DatasetFormat.BUFFER_SIZE);
+    byte[] baseHash = readHash(body);
+    byte[] targetHash = readHash(body);
+    int[] deletedTypeIds = readIds(body);
+    int numTypes = DatasetFormat.readCount(body);
+    List<Pair<Integer, String>> upsertedTypes = new ArrayList<>(numTypes);
+    int previous = 0;
+    for (int index = 0; index < numTypes; index++) {
+      previous += DatasetFormat.readSignedVarInt(body);
+      String name = DatasetFormat.readString(body);
+      upsertedTypes.add(new PokemonTypePair<Integer, String>(previous, name));
+    }
+    int[] removedChartTypeIds = readIds(body);
+    int numCells = DatasetFormat.readCount(body);
+    List<int[]> chartCells = new ArrayList<>(numCells);
+    for (int index = 0; index < numCells; index++) {
+      chartCells.add(new int[] {DatasetFormat.readVarInt(body), DatasetFormat.readVarInt(body),
+          DatasetFormat.readByte(body)});
+    }
+    int[] deletedIds = readIds(body);
+    List<String> dictionary = new ArrayList<>();
+    List<List<PokemonChange>> changes = new ArrayList<>();
+    for (boolean insert : new boolean[] {true, false}) {
+      int count = DatasetFormat.readCount(body);
+      List<PokemonChange> list = new ArrayList<>(count);
+      previous = 0;
+      for (int index = 0; index < count; index++) {
+        previous += DatasetFormat.readSignedVarInt(body);
+        list.add(PokemonChange.read(body, previous, dictionary, insert));
+      }
+      changes.add(list);
+    }
+    return new DatasetPatch(baseHash, targetHash, deletedTypeIds, upsertedTypes,
+        removedChartTypeIds, chartCells, deletedIds, changes.get(0), changes.get(1));
+  }
+
+  /**
+   * Returns whether or not the patch changes anything.
+   * @return whether or not the patch is empty
+   */
+  public boolean isEmpty() {
+    return deletedTypeIds.length == 0 && upsertedTypes.isEmpty()
+        && removedChartTypeIds.length == 0 && chartCells.isEmpty() && deletedIds.length == 0
+        && inserted.isEmpty() && updated.isEmpty();
+  }
+
+  /**
+   * Returns the ids of the types the patch deletes.
+   * @return the ids of the deleted types
+   */
+  public int[] getDeletedTypeIds() {
+    return deletedTypeIds.clone();
+  }
+
+  /**
+   * Returns the types the patch inserts or renames.
+   * @return the inserted or renamed types (type id, type name)
+   */
+  public List<Pair<Integer, String>> getUpsertedTypes() {
+    return new ArrayList<>(upsertedTypes);
+  }
+
+  /**
+   * Returns the ids of the types the patch removes from the type chart.
+   * @return the ids of the types removed from the chart
+   */
+  public int[] getRemovedChartTypeIds() {
+    return removedChartTypeIds.clone();
+  }
+
+  /**
+   * Returns the type chart cells the patch inserts or changes, as (attacking type id, defending
+   * type id, damage factor in TypeChart units).
+   * @return the inserted or changed chart cells
+   */
+  public List<int[]> getChartCells() {
+    List<int[]> cells = new ArrayList<>(chartCells.size());
+    for (int[] cell : chartCells) {
+      cells.add(cell.clone());
+    }
+    return cells;
+  }
+
+  /**
+   * Returns the ids of the Pokemon the patch deletes.
+   * @return the ids of the deleted Pokemon
+   */
+  public int[] getDeletedPokemonIds() {
+    return deletedIds.clone();
+  }
+
+  /**
+   * Returns the ids of the Pokemon the patch inserts or updates, in id order.
+   * @return the ids of the inserted and updated Pokemon
+   */
+  public int[] getUpsertedPokemonIds() {
+    int[] ids = new int[inserted.size() + updated.size()];
+    int index = 0;
+    for (List<PokemonChange> changes : Arrays.asList(inserted, updated)) {
+      for (PokemonChange change : changes) {
+        ids[index++] = change.id;
+      }
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("types +%d -%d, chart cells %d (-%d types), Pokemon +%d ~%d -%d",
+        upsertedTypes.size(), deletedTypeIds.length, chartCells.size(),
+        removedChartTypeIds.length, inserted.size(), updated.size(), deletedIds.length);
+  }
+
+  private static void writeIds(OutputStream output, int[] ids) throws IOException {
+    DatasetFormat.writeVarInt(output, ids.length);
+    int previous = 0;
+    for (int id : ids) {
+      DatasetFormat.writeSignedVarInt(output, id - previous);
+      previous = id;
+    }
+  }
+
+  private static int[] readIds(InputStream input) throws IOException {
+    int[] ids = new int[DatasetFormat.readCount(input)];
+    int previous = 0;
+    for (int index = 0; index < ids.length; index++) {
+      previous += DatasetFormat.readSignedVarInt(input);
+      ids[index] = previous;
+    }
+    return ids;
+  }
+
+  private static byte[] readHash(InputStream input) throws IOException {
+    byte[] hash = new byte[HASH_BYTES];
+    for (int index = 0; index < HASH_BYTES; index++) {
+      hash[index] = (byte) DatasetFormat.readByte(input);
+    }
+    return hash;
+  }
+
+  private static int[] sorted(int[] values) {
+    int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  private static int[] sorted(List<Integer> values) {
+    int[] sorted = new int[values.size()];
+    for (int index = 0; index < sorted.length; index++) {
+      sorted[index] = values.get(index);
+    }
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  private static boolean equal(Object first, Object second) {
+    return first == null ? second == null : first.equals(second);
+  }
+}
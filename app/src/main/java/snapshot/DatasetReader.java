@@ -0,0 +1,188 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.PokemonTypePair;
+import pokedex.Stat;
+import pokedex.TypeChart;
+import pokedex.TypeChart.TypeChartBuilder;
+import util.Pair;
+
+/**
+ * Reads a dataset written by DatasetWriter. The sections are read in order and the Pokemon one
+ * at a time, so a dataset of any size can be streamed in without holding it in memory. Reading a
+ * later section skips the ones before it.
+ */
+public class DatasetReader implements Closeable {
+  private static final int TYPES = 0;
+  private static final int CHART = 1;
+  private static final int POKEMON = 2;
+  private static final int FINISHED = 3;
+  private final InputStream input;
+  private final List<String> dictionary = new ArrayList<>();
+  // The next section to be read
+  private int section = TYPES;
+  private int previousId;
+
+  /**
+   * Creates a DatasetReader that reads from the given stream, and reads the header.
+   * @param input the stream to read from
+   * @throws IOException if the stream is not a dataset of this version
+   */
+  public DatasetReader(InputStream input) throws IOException {
+    int magic = 0;
+    for (int index = 0; index < 4; index++) {
+      magic = (magic << 8) | DatasetFormat.readByte(input);
+    }
+    if (magic != DatasetFormat.MAGIC) {
+      throw new IOException("Not a Pokedex dataset");
+    }
+    int version = DatasetFormat.readByte(input);
+    if (version != DatasetFormat.VERSION) {
+      throw new IOException("Unsupported dataset version: " + version);
+    }
+    boolean deflated = (DatasetFormat.readByte(input) & DatasetFormat.FLAG_DEFLATE) != 0;
+    this.input = new BufferedInputStream(deflated ? new InflaterInputStream(input) : input,
+        DatasetFormat.BUFFER_SIZE);
+  }
+
+  /**
+   * Reads the types section.
+   * @return the types (type id, type name)
+   * @throws IOException if the types cannot be read
+   */
+  public List<Pair<Integer, String>> readTypes() throws IOException {
+    startSection(TYPES);
+    int count = DatasetFormat.readCount(input);
+    List<Pair<Integer, String>> types = new ArrayList<>(count);
+    int previous = 0;
+    for (int index = 0; index < count; index++) {
+      previous += DatasetFormat.readSignedVarInt(input);
+      String name = DatasetFormat.readString(input);
+      types.add(new PokemonTypePair<Integer, String>(previous, name));
+    }
+    return types;
+  }
+
+  /**
+   * Reads the type chart section.
+   * @return the damage multipliers between types, or null if the dataset has none
+   * @throws IOException if the chart cannot be read
+   */
+  public TypeChart readTypeChart() throws IOException {
+    startSection(CHART);
+    int[] typeIds = new int[DatasetFormat.readCount(input)];
+    int previous = 0;
+    for (int index = 0; index < typeIds.length; index++) {
+      previous += DatasetFormat.readSignedVarInt(input);
+      typeIds[index] = previous;
+    }
+    if (typeIds.length == 0) {
+      return null;
+    }
+    TypeChartBuilder chart = new TypeChartBuilder();
+    for (int attacking : typeIds) {
+      for (int defending : typeIds) {
+        chart.setDamage(attacking, defending,
+            DatasetFormat.readByte(input) * TypeChart.PERCENT_PER_UNIT);
+      }
+    }
+    return chart.build();
+  }
+
+  /**
+   * Reads the next Pokemon.
+   * @return the next Pokemon, or null if there are no more
+   * @throws IOException if the Pokemon cannot be read
+   */
+  public Pokemon readPokemon() throws IOException {
+    if (section == FINISHED) {
+      return null;
+    }
+    if (section != POKEMON) {
+      startSection(POKEMON);
+    }
+    int tag = DatasetFormat.readByte(input);
+    if (tag == DatasetFormat.END) {
+      section = FINISHED;
+      return null;
+    } else if (tag != DatasetFormat.RECORD) {
+      throw new IOException("Corrupt dataset: unknown tag " + tag);
+    }
+    previousId += DatasetFormat.readSignedVarInt(input);
+    PokemonBuilder builder = new PokemonBuilder(previousId)
+        .setName(DatasetFormat.readString(input))
+        .setBaseExperience(DatasetFormat.readSignedVarInt(input))
+        .setHeightDecimetres(DatasetFormat.readVarInt(input))
+        .setWeightHectograms(DatasetFormat.readVarInt(input));
+    for (Stat stat : Stat.values()) {
+      builder.setStat(stat, DatasetFormat.readByte(input));
+    }
+    int numTypes = DatasetFormat.readVarInt(input);
+    if (numTypes > Pokemon.MAX_TYPES) {
+      throw new IOException("Corrupt dataset: " + numTypes + " types");
+    }
+    List<Integer> types = new ArrayList<>(numTypes);
+    for (int index = 0; index < numTypes; index++) {
+      types.add(DatasetFormat.readVarInt(input));
+    }
+    builder.setTypes(types).setAbilities(DatasetFormat.readList(input, dictionary));
+    return builder.setMoves(DatasetFormat.readList(input, dictionary)).build();
+  }
+
+  /**
+   * Closes the underlying stream.
+   * @throws IOException if the stream cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  /**
+   * Moves on to the given section, skipping the sections before it.
+   */
+  private void startSection(int next) throws IOException {
+    if (next < section) {
+      throw new IllegalStateException("Dataset sections must be read in order");
+    }
+    while (section < next) {
+      if (section == TYPES) {
+        readTypes();
+      } else {
+        readTypeChart();
+      }
+    }
+    if (next != POKEMON) {
+      section++;
+    }
+  }
+}
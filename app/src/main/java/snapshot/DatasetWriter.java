@@ -0,0 +1,207 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import pokedex.Pokemon;
+import pokedex.Stat;
+import pokedex.TypeChart;
+import util.Pair;
+
+/**
+ * Writes a dataset (types, type chart and Pokemon) in the compact format described in
+ * DatasetFormat. The sections are written in order and the Pokemon one at a time, so a dataset
+ * of any size can be streamed out without holding it in memory. A section that is skipped is
+ * written empty.
+ */
+public class DatasetWriter implements Closeable {
+  private static final int TYPES = 0;
+  private static final int CHART = 1;
+  private static final int POKEMON = 2;
+  private static final int FINISHED = 3;
+  private final OutputStream output;
+  private final DeflaterOutputStream deflater;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  // The next section that can be written
+  private int section = TYPES;
+  private int previousId;
+  private int count;
+
+  /**
+   * Creates a DatasetWriter that writes to the given stream, and writes the header.
+   * @param output the stream to write to
+   * @param deflate whether or not to compress the dataset with DEFLATE
+   * @throws IOException if the header cannot be written
+   */
+  public DatasetWriter(OutputStream output, boolean deflate) throws IOException {
+    output.write(new byte[] {
+        (byte) (DatasetFormat.MAGIC >>> 24), (byte) (DatasetFormat.MAGIC >>> 16),
+        (byte) (DatasetFormat.MAGIC >>> 8), (byte) DatasetFormat.MAGIC});
+    output.write(DatasetFormat.VERSION);
+    output.write(deflate ? DatasetFormat.FLAG_DEFLATE : 0);
+    if (deflate) {
+      deflater = new DeflaterOutputStream(output, new Deflater(Deflater.BEST_COMPRESSION),
+          DatasetFormat.BUFFER_SIZE);
+      this.output = deflater;
+    } else {
+      deflater = null;
+      this.output = new BufferedOutputStream(output, DatasetFormat.BUFFER_SIZE);
+    }
+  }
+
+  /**
+   * Writes the types section.
+   * @param types the types (type id, type name)
+   * @throws IOException if the types cannot be written
+   */
+  public void writeTypes(List<Pair<Integer, String>> types) throws IOException {
+    startSection(TYPES);
+    DatasetFormat.writeVarInt(output, types.size());
+    int previous = 0;
+    for (Pair<Integer, String> type : types) {
+      DatasetFormat.writeSignedVarInt(output, type.getLeft() - previous);
+      DatasetFormat.writeString(output, type.getRight());
+      previous = type.getLeft();
+    }
+  }
+
+  /**
+   * Writes the type chart section.
+   * @param chart the damage multipliers between types, or null for none
+   * @throws IOException if the chart cannot be written
+   */
+  public void writeTypeChart(TypeChart chart) throws IOException {
+    startSection(CHART);
+    int[] typeIds = chart == null ? new int[0] : chart.getTypeIds();
+    // In id order, so that the same chart is always written the same way
+    Arrays.sort(typeIds);
+    DatasetFormat.writeVarInt(output, typeIds.length);
+    int previous = 0;
+    for (int typeId : typeIds) {
+      DatasetFormat.writeSignedVarInt(output, typeId - previous);
+      previous = typeId;
+    }
+    for (int attacking : typeIds) {
+      for (int defending : typeIds) {
+        output.write(chart.factor(attacking, defending));
+      }
+    }
+  }
+
+  /**
+   * Writes the next Pokemon. Pokemon written in id order take the least space.
+   * @param pokemon the Pokemon
+   * @throws IOException if the Pokemon cannot be written
+   */
+  public void writePokemon(Pokemon pokemon) throws IOException {
+    if (section != POKEMON) {
+      startSection(POKEMON);
+    }
+    output.write(DatasetFormat.RECORD);
+    DatasetFormat.writeSignedVarInt(output, pokemon.getId() - previousId);
+    previousId = pokemon.getId();
+    DatasetFormat.writeString(output, pokemon.getName());
+    DatasetFormat.writeSignedVarInt(output, pokemon.getBaseExperience());
+    DatasetFormat.writeVarInt(output, pokemon.getHeightDecimetres());
+    DatasetFormat.writeVarInt(output, pokemon.getWeightHectograms());
+    for (Stat stat : Stat.values()) {
+      output.write(pokemon.getStat(stat));
+    }
+    List<Integer> types = pokemon.getTypes();
+    DatasetFormat.writeVarInt(output, types.size());
+    for (int typeId : types) {
+      DatasetFormat.writeVarInt(output, typeId);
+    }
+    DatasetFormat.writeList(output, dictionary, pokemon.getAbilities());
+    DatasetFormat.writeList(output, dictionary, pokemon.getMoves());
+    count++;
+  }
+
+  /**
+   * Returns the number of Pokemon written so far.
+   * @return the number of Pokemon written
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Ends the dataset (writing any sections that were skipped) and flushes it, without closing
+   * the underlying stream.
+   * @throws IOException if the dataset cannot be written
+   */
+  public void finish() throws IOException {
+    if (section == FINISHED) {
+      return;
+    }
+    if (section != POKEMON) {
+      startSection(POKEMON);
+    }
+    output.write(DatasetFormat.END);
+    section = FINISHED;
+    if (deflater != null) {
+      deflater.finish();
+    }
+    output.flush();
+  }
+
+  /**
+   * Ends the dataset and closes the underlying stream.
+   * @throws IOException if the dataset cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Moves on to the given section, writing the sections before it empty if they were skipped.
+   */
+  private void startSection(int next) throws IOException {
+    if (next < section) {
+      throw new IllegalStateException("Dataset sections must be written in order");
+    }
+    while (section < next) {
+      if (section == TYPES || section == CHART) {
+        DatasetFormat.writeVarInt(output, 0);
+      }
+      section++;
+    }
+    // The types and chart sections are written at most once
+    if (next != POKEMON) {
+      section++;
+    }
+  }
+}
@@ -0,0 +1,688 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import pokedex.Pokedex;
+import pokedex.Pokedex.PokedexBuilder;
+import pokedex.Pokemon;
+import pokedex.Pokemon.PokemonBuilder;
+import pokedex.Stat;
+import pokedex.StatColumn;
+import pokedex.StatColumns;
+
+/**
+ * A read-only Pokedex backed by a memory-mapped snapshot file (pokedex.bin). The file holds
+ * fixed-width Pokemon records sorted by id, a string table, and prebuilt index sections (names,
+ * the rank order of every stat column and the Pokemon of every type), all at offsets given in
+ * the header. Opening a snapshot only maps the file: every lookup reads straight from the mapped
+ * buffer, so startup costs a few page faults instead of queries and parsing.
+ *
+ * <p>A snapshot written from a database records a stamp of the database file (see sourceStamp),
+ * so that a snapshot left behind by a database that has changed since (e.g. a patch was applied)
+ * can be told apart and ignored.
+ *
+ * <p>The layout (all ints big-endian):
+ * <pre>
+ * header     MAGIC, VERSION, count, the offset of every section below and the source stamp
+ * records    count records of RECORD_SIZE bytes, sorted by id (a Pokemon's ordinal)
+ * strings    each string as an unsigned short length and its UTF-8 bytes
+ * lists      each list as an int count and the string offsets of its elements
+ * names      the ordinals sorted by name (UTF-8 byte order)
+ * ranks      for every StatColumn, the ordinals sorted by it (highest first, ties by id)
+ * types      for every type id, the start and count of its ordinals in the postings
+ * postings   the ordinals of each type, in order
+ * </pre>
+ */
+public class PokedexSnapshot {
+  public static final String SNAPSHOT_FILE = "pokedex.bin";
+  public static final int MAGIC = 0x50444558;
+  public static final int VERSION = 2;
+  public static final int NOT_FOUND = -1;
+  // The source stamp of a snapshot that wasn't written from a database
+  public static final long NO_SOURCE = 0;
+  private static final int HEADER_SIZE = 64;
+  private static final int RECORD_SIZE = 40;
+  private static final int NO_STRING = -1;
+  private static final int MAX_STRING_BYTES = 0xFFFF;
+  private static final int NUM_TYPE_IDS = Pokemon.MAX_TYPE_ID + 1;
+  // Header fields
+  private static final int COUNT = 8;
+  private static final int RECORDS = 12;
+  private static final int STRINGS = 16;
+  private static final int LISTS = 20;
+  private static final int NAMES = 24;
+  private static final int RANKS = 28;
+  private static final int TYPES = 32;
+  private static final int POSTINGS = 36;
+  private static final int LENGTH = 40;
+  private static final int SOURCE = 44;
+  // Record fields (the six base stats are one unsigned byte each, in Stat order)
+  private static final int ID = 0;
+  private static final int NAME = 4;
+  private static final int HEIGHT = 8;
+  private static final int WEIGHT = 12;
+  private static final int STATS = 16;
+  private static final int BASE_EXPERIENCE = 22;
+  private static final int TYPE_IDS = 24;
+  private static final int ABILITIES = 28;
+  private static final int MOVES = 32;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int records;
+  private final int strings;
+  private final int lists;
+  private final int names;
+  private final int ranks;
+  private final int types;
+  private final int postings;
+
+  private PokedexSnapshot(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a Pokedex snapshot");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported snapshot version: " + buffer.getInt(4));
+    }
+    if (buffer.getInt(LENGTH) != buffer.capacity()) {
+      throw new IOException("Truncated snapshot: " + buffer.capacity() + " of "
+          + buffer.getInt(LENGTH) + " bytes");
+    }
+    size = buffer.getInt(COUNT);
+    records = buffer.getInt(RECORDS);
+    strings = buffer.getInt(STRINGS);
+    lists = buffer.getInt(LISTS);
+    names = buffer.getInt(NAMES);
+    ranks = buffer.getInt(RANKS);
+    types = buffer.getInt(TYPES);
+    postings = buffer.getInt(POSTINGS);
+  }
+
+  /**
+   * Maps the given snapshot file. Only the header is read; the rest of the file is paged in as
+   * it is used.
+   * @param file the snapshot file
+   * @return the snapshot
+   * @throws IOException if the file cannot be read or is not a snapshot of this version
+   */
+  public static PokedexSnapshot open(File file) throws IOException {
+    try (RandomAccessFile input = new RandomAccessFile(file, "r");
+        FileChannel channel = input.getChannel()) {
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new PokedexSnapshot(mapped);
+    }
+  }
+
+  /**
+   * Wraps a snapshot that is already in memory (e.g. one just written by toBytes).
+   * @param bytes the bytes of the snapshot
+   * @return the snapshot
+   * @throws IOException if the bytes are not a snapshot of this version
+   */
+  public static PokedexSnapshot wrap(byte[] bytes) throws IOException {
+    return new PokedexSnapshot(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+  }
+
+  /**
+   * Writes a snapshot of the given Pokemon, which didn't come from a database, to the file.
+   * @param file the snapshot file
+   * @param pokemon the Pokemon (with distinct ids)
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(File file, List<Pokemon> pokemon) throws IOException {
+    write(file, pokemon, NO_SOURCE);
+  }
+
+  /**
+   * Writes a snapshot of the given Pokemon to the file. The snapshot is written to a temporary
+   * file next to it and then moved into place, so a reader never maps a half-written snapshot.
+   * @param file the snapshot file
+   * @param pokemon the Pokemon (with distinct ids)
+   * @param sourceStamp the sourceStamp of the database the Pokemon were read from, taken before
+   *     they were read
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(File file, List<Pokemon> pokemon, long sourceStamp)
+      throws IOException {
+    File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+    try (RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+        FileChannel channel = output.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer bytes = ByteBuffer.wrap(toBytes(pokemon, sourceStamp));
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Returns the bytes of a snapshot of the given Pokemon, which didn't come from a database.
+   * @param pokemon the Pokemon (with distinct ids)
+   * @return the bytes of the snapshot
+   */
+  public static byte[] toBytes(List<Pokemon> pokemon) {
+    return toBytes(pokemon, NO_SOURCE);
+  }
+
+  /**
+   * Returns the bytes of a snapshot of the given Pokemon.
+   * @param pokemon the Pokemon (with distinct ids)
+   * @param sourceStamp the sourceStamp of the database the Pokemon were read from
+   * @return the bytes of the snapshot
+   */
+  public static byte[] toBytes(List<Pokemon> pokemon, long sourceStamp) {
+    List<Pokemon> sorted = new ArrayList<>(pokemon);
+    Collections.sort(sorted, new Comparator<Pokemon>() {
+      @Override
+      public int compare(Pokemon first, Pokemon second) {
+        return Integer.compare(first.getId(), second.getId());
+      }
+    });
+    int count = sorted.size();
+    for (int ordinal = 1; ordinal < count; ordinal++) {
+      if (sorted.get(ordinal).getId() == sorted.get(ordinal - 1).getId()) {
+        throw new IllegalArgumentException("Duplicate Pokemon id: " + sorted.get(ordinal).getId());
+      }
+    }
+    StringTable table = new StringTable();
+    int[] nameOffsets = new int[count];
+    int[] abilityLists = new int[count];
+    int[] moveLists = new int[count];
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      Pokemon next = sorted.get(ordinal);
+      nameOffsets[ordinal] = table.add(next.getName());
+      abilityLists[ordinal] = table.addList(next.getAbilities());
+      moveLists[ordinal] = table.addList(next.getMoves());
+    }
+    int[] nameOrder = sortByName(sorted);
+    StatColumns statColumns = new StatColumns(sorted);
+    int[][] postingLists = postingLists(sorted);
+    int numPostings = 0;
+    for (int[] posting : postingLists) {
+      numPostings += posting.length;
+    }
+
+    int records = HEADER_SIZE;
+    int strings = records + count * RECORD_SIZE;
+    int lists = strings + table.strings.size();
+    int names = lists + table.lists.size();
+    int ranks = names + count * 4;
+    int types = ranks + StatColumn.values().length * count * 4;
+    int postings = types + NUM_TYPE_IDS * 8;
+    int length = postings + numPostings * 4;
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(records).putInt(strings)
+        .putInt(lists).putInt(names).putInt(ranks).putInt(types).putInt(postings).putInt(length)
+        .putLong(sourceStamp);
+
+    buffer.position(records);
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      Pokemon next = sorted.get(ordinal);
+      buffer.putInt(next.getId()).putInt(nameOffsets[ordinal])
+          .putInt(next.getHeightDecimetres()).putInt(next.getWeightHectograms());
+      for (Stat stat : Stat.values()) {
+        buffer.put((byte) next.getStat(stat));
+      }
+      buffer.putShort((short) next.getBaseExperience());
+      buffer.put((byte) next.getType(0)).put((byte) next.getType(1)).putShort((short) 0);
+      buffer.putInt(abilityLists[ordinal]).putInt(moveLists[ordinal]).putInt(0);
+    }
+    buffer.put(table.strings.toByteArray());
+    buffer.put(table.lists.toByteArray());
+    putInts(buffer, nameOrder);
+    for (StatColumn column : StatColumn.values()) {
+      // Ordinals are in id order, so ordinal order breaks ties by id
+      putInts(buffer, statColumns.sortDescending(column));
+    }
+    int start = 0;
+    for (int[] posting : postingLists) {
+      buffer.putInt(start).putInt(posting.length);
+      start += posting.length;
+    }
+    for (int[] posting : postingLists) {
+      putInts(buffer, posting);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Returns the sourceStamp of the database the snapshot was written from, or NO_SOURCE.
+   * @return the source stamp of the snapshot
+   */
+  public long getSourceStamp() {
+    return buffer.getLong(SOURCE);
+  }
+
+  /**
+   * Returns whether the snapshot was written from the current version of the database file, i.e.
+   * the file hasn't changed since.
+   * @param source the database file
+   * @return whether the snapshot is up to date with the database
+   */
+  public boolean isFrom(File source) {
+    return getSourceStamp() == sourceStamp(source);
+  }
+
+  /**
+   * Returns a stamp of the current version of a database file: a hash of the length and last
+   * modified time of the file and of its write-ahead log (if it has one). Any write to the
+   * database changes the stamp.
+   * @param source the database file
+   * @return the stamp of the database file
+   */
+  public static long sourceStamp(File source) {
+    long stamp = 1;
+    for (File file : new File[] {source, new File(source.getPath() + "-wal")}) {
+      stamp = 31 * (31 * stamp + file.lastModified()) + file.length();
+    }
+    return stamp == NO_SOURCE ? 1 : stamp;
+  }
+
+  /**
+   * Returns the number of Pokemon in the snapshot.
+   * @return the number of Pokemon in the snapshot
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon with the given id (its position in id order), or
+   * NOT_FOUND. This is a binary search over the records.
+   * @param id the id of the Pokemon
+   * @return the ordinal of the Pokemon, or NOT_FOUND if there is none
+   */
+  public int ordinalOf(int id) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int middleId = getId(middle);
+      if (middleId < id) {
+        low = middle + 1;
+      } else if (middleId > id) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon with the given name, or NOT_FOUND. This is a binary
+   * search over the name section, comparing against the mapped bytes.
+   * @param name the name of the Pokemon (case insensitive)
+   * @return the ordinal of the Pokemon, or NOT_FOUND if there is none
+   */
+  public int ordinalOf(String name) {
+    byte[] key = name.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int ordinal = buffer.getInt(names + middle * 4);
+      int comparison = compareString(buffer.getInt(record(ordinal) + NAME), key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return ordinal;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns the Pokemon with the given id, or null if it is not in the snapshot.
+   * @param id the id of the Pokemon
+   * @return the Pokemon with the given id, or null if there is none
+   */
+  public Pokemon getPokemon(int id) {
+    int ordinal = ordinalOf(id);
+    return ordinal == NOT_FOUND ? null : getByOrdinal(ordinal);
+  }
+
+  /**
+   * Returns the Pokemon with the given name, or null if it is not in the snapshot.
+   * @param name the name of the Pokemon (case insensitive)
+   * @return the Pokemon with the given name, or null if there is none
+   */
+  public Pokemon getPokemon(String name) {
+    int ordinal = ordinalOf(name);
+    return ordinal == NOT_FOUND ? null : getByOrdinal(ordinal);
+  }
+
+  /**
+   * Returns the Pokemon at the given position in id order, read from its record.
+   * @param ordinal the position of the Pokemon
+   * @return the Pokemon at the given position
+   */
+  public Pokemon getByOrdinal(int ordinal) {
+    int record = record(ordinal);
+    PokemonBuilder builder = new PokemonBuilder(buffer.getInt(record + ID))
+        .setName(readString(buffer.getInt(record + NAME)))
+        .setHeightDecimetres(buffer.getInt(record + HEIGHT))
+        .setWeightHectograms(buffer.getInt(record + WEIGHT))
+        .setBaseExperience(buffer.getShort(record + BASE_EXPERIENCE))
+        .setAbilities(readList(buffer.getInt(record + ABILITIES)))
+        .setMoves(readList(buffer.getInt(record + MOVES)));
+    for (Stat stat : Stat.values()) {
+      builder.setStat(stat, buffer.get(record + STATS + stat.ordinal()) & 0xFF);
+    }
+    List<Integer> typeIds = new ArrayList<>(Pokemon.MAX_TYPES);
+    for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+      int type = buffer.get(record + TYPE_IDS + index) & 0xFF;
+      if (type != Pokemon.NO_TYPE) {
+        typeIds.add(type);
+      }
+    }
+    return builder.setTypes(typeIds).build();
+  }
+
+  /**
+   * Returns the id of the Pokemon at the given position, without reading the rest of its record.
+   * @param ordinal the position of the Pokemon
+   * @return the id of the Pokemon
+   */
+  public int getId(int ordinal) {
+    return buffer.getInt(record(ordinal) + ID);
+  }
+
+  /**
+   * Returns the value of the column for the Pokemon at the given position, without reading the
+   * rest of its record.
+   * @param column the column
+   * @param ordinal the position of the Pokemon
+   * @return the value of the column for the Pokemon
+   */
+  public int getValue(StatColumn column, int ordinal) {
+    int record = record(ordinal);
+    if (column == StatColumn.BASE_EXPERIENCE) {
+      return buffer.getShort(record + BASE_EXPERIENCE);
+    }
+    if (column == StatColumn.BASE_STAT_TOTAL) {
+      int total = 0;
+      for (int stat = 0; stat < Stat.values().length; stat++) {
+        total += buffer.get(record + STATS + stat) & 0xFF;
+      }
+      return total;
+    }
+    return buffer.get(record + STATS + column.ordinal()) & 0xFF;
+  }
+
+  /**
+   * Returns the ordinal of the Pokemon at the given position of the column's rank section
+   * (position 0 has the highest value, ties by id).
+   * @param column the column
+   * @param position the position in the rank order
+   * @return the ordinal of the Pokemon at that position
+   */
+  public int ordinalAt(StatColumn column, int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+    }
+    return buffer.getInt(ranks + (column.ordinal() * size + position) * 4);
+  }
+
+  /**
+   * Returns the k Pokemon with the highest value in the column (ties by id), read from the rank
+   * section.
+   * @param column the column
+   * @param k the most Pokemon to return
+   * @return the Pokemon with the highest values, highest first
+   */
+  public List<Pokemon> getTop(StatColumn column, int k) {
+    int limit = Math.min(Math.max(k, 0), size);
+    List<Pokemon> top = new ArrayList<>(limit);
+    for (int position = 0; position < limit; position++) {
+      top.add(getByOrdinal(ordinalAt(column, position)));
+    }
+    return top;
+  }
+
+  /**
+   * Returns the ordinals of the Pokemon with the given type, in id order.
+   * @param typeId the id of the type
+   * @return the ordinals of the Pokemon with the type
+   */
+  public int[] ordinalsOfType(int typeId) {
+    if (typeId <= Pokemon.NO_TYPE || typeId > Pokemon.MAX_TYPE_ID) {
+      return new int[0];
+    }
+    int start = buffer.getInt(types + typeId * 8);
+    int[] ordinals = new int[buffer.getInt(types + typeId * 8 + 4)];
+    for (int index = 0; index < ordinals.length; index++) {
+      ordinals[index] = buffer.getInt(postings + (start + index) * 4);
+    }
+    return ordinals;
+  }
+
+  /**
+   * Returns every Pokemon in the snapshot, in id order.
+   * @return the Pokemon in the snapshot
+   */
+  public List<Pokemon> toPokemon() {
+    List<Pokemon> pokemon = new ArrayList<>(size);
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      pokemon.add(getByOrdinal(ordinal));
+    }
+    return pokemon;
+  }
+
+  /**
+   * Returns a Pokedex of every Pokemon in the snapshot (which builds the Pokedex's indexes).
+   * @return a Pokedex of the Pokemon in the snapshot
+   */
+  public Pokedex toPokedex() {
+    PokedexBuilder builder = new PokedexBuilder(size);
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      builder.addPokemon(getByOrdinal(ordinal));
+    }
+    return builder.build();
+  }
+
+  private int record(int ordinal) {
+    if (ordinal < 0 || ordinal >= size) {
+      throw new IndexOutOfBoundsException("Ordinal " + ordinal + " of " + size);
+    }
+    return records + ordinal * RECORD_SIZE;
+  }
+
+  private String readString(int offset) {
+    if (offset == NO_STRING) {
+      return null;
+    }
+    int length = buffer.getShort(strings + offset) & 0xFFFF;
+    byte[] bytes = new byte[length];
+    // A duplicate has its own position, so concurrent readers don't interfere
+    ByteBuffer view = buffer.duplicate();
+    view.position(strings + offset + 2);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private List<String> readList(int offset) {
+    int count = buffer.getInt(lists + offset);
+    List<String> list = new ArrayList<>(count);
+    for (int index = 0; index < count; index++) {
+      list.add(readString(buffer.getInt(lists + offset + 4 + index * 4)));
+    }
+    return list;
+  }
+
+  /**
+   * Compares the string at the offset with the key, byte by byte (unsigned).
+   */
+  private int compareString(int offset, byte[] key) {
+    if (offset == NO_STRING) {
+      return -1;
+    }
+    int length = buffer.getShort(strings + offset) & 0xFFFF;
+    int start = strings + offset + 2;
+    for (int index = 0; index < Math.min(length, key.length); index++) {
+      int difference = (buffer.get(start + index) & 0xFF) - (key[index] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - key.length;
+  }
+
+  private static int[] sortByName(List<Pokemon> pokemon) {
+    final byte[][] keys = new byte[pokemon.size()][];
+    Integer[] order = new Integer[pokemon.size()];
+    for (int ordinal = 0; ordinal < keys.length; ordinal++) {
+      String name = pokemon.get(ordinal).getName();
+      keys[ordinal] = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+      order[ordinal] = ordinal;
+    }
+    // Pokemon without a name sort first, as compareString has them
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        byte[] firstKey = keys[first];
+        byte[] secondKey = keys[second];
+        if (firstKey == null || secondKey == null) {
+          return firstKey == null ? (secondKey == null ? 0 : -1) : 1;
+        }
+        for (int index = 0; index < Math.min(firstKey.length, secondKey.length); index++) {
+          int difference = (firstKey[index] & 0xFF) - (secondKey[index] & 0xFF);
+          if (difference != 0) {
+            return difference;
+          }
+        }
+        return firstKey.length - secondKey.length;
+      }
+    });
+    int[] sorted = new int[order.length];
+    for (int index = 0; index < order.length; index++) {
+      sorted[index] = order[index];
+    }
+    return sorted;
+  }
+
+  private static int[][] postingLists(List<Pokemon> pokemon) {
+    int[] counts = new int[NUM_TYPE_IDS];
+    for (Pokemon next : pokemon) {
+      for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+        counts[next.getType(index)]++;
+      }
+    }
+    int[][] postingLists = new int[NUM_TYPE_IDS][];
+    for (int typeId = 0; typeId < NUM_TYPE_IDS; typeId++) {
+      postingLists[typeId] = new int[typeId == Pokemon.NO_TYPE ? 0 : counts[typeId]];
+    }
+    int[] filled = new int[NUM_TYPE_IDS];
+    for (int ordinal = 0; ordinal < pokemon.size(); ordinal++) {
+      for (int index = 0; index < Pokemon.MAX_TYPES; index++) {
+        int typeId = pokemon.get(ordinal).getType(index);
+        if (typeId != Pokemon.NO_TYPE) {
+          postingLists[typeId][filled[typeId]++] = ordinal;
+        }
+      }
+    }
+    return postingLists;
+  }
+
+  private static void putInts(ByteBuffer buffer, int[] values) {
+    for (int value : values) {
+      buffer.putInt(value);
+    }
+  }
+
+  /**
+   * The string and list sections being written, with every distinct string stored once.
+   */
+  private static class StringTable {
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream lists = new ByteArrayOutputStream();
+    private final Map<String, Integer> offsets = new HashMap<>();
+    private int emptyList = NO_STRING;
+
+    private int add(String string) {
+      if (string == null) {
+        return NO_STRING;
+      }
+      Integer offset = offsets.get(string);
+      if (offset == null) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+          throw new IllegalArgumentException("String too long for a snapshot: " + string);
+        }
+        offset = strings.size();
+        offsets.put(string, offset);
+        strings.write(bytes.length >>> 8);
+        strings.write(bytes.length);
+        strings.write(bytes, 0, bytes.length);
+      }
+      return offset;
+    }
+
+    private int addList(List<String> list) {
+      int count = list == null ? 0 : list.size();
+      if (count == 0 && emptyList != NO_STRING) {
+        return emptyList;
+      }
+      int offset = lists.size();
+      if (count == 0) {
+        emptyList = offset;
+      }
+      writeInt(lists, count);
+      for (int index = 0; index < count; index++) {
+        writeInt(lists, add(list.get(index)));
+      }
+      return offset;
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+      output.write(value >>> 24);
+      output.write(value >>> 16);
+      output.write(value >>> 8);
+      output.write(value);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package team;
+
+import java.util.Arrays;
+
+/**
+ * The constraints of a team coverage search: how big the team can be, which Pokemon it must
+ * include or can't include, how many Pokemon may share a type, and how long the search may run.
+ */
+public class TeamConstraints {
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
+  private final int maxTeamSize;
+  private final int[] mustInclude;
+  private final int[] excluded;
+  private final int maxPerType;
+  private final long timeBudgetMillis;
+  private final int limit;
+
+  /**
+   * A class used to build TeamConstraints.
+   */
+  public static class TeamConstraintsBuilder {
+    private final int maxTeamSize;
+    private int[] mustInclude = new int[0];
+    private int[] excluded = new int[0];
+    private int maxPerType = NO_LIMIT;
+    private long timeBudgetMillis = 1000;
+    private int limit = 10;
+
+    /**
+     * Constructs a TeamConstraintsBuilder for teams of at most the given size.
+     * @param maxTeamSize the largest team that will be searched for
+     */
+    public TeamConstraintsBuilder(int maxTeamSize) {
+      if (maxTeamSize < 1) {
+        throw new IllegalArgumentException("Team size must be positive: " + maxTeamSize);
+      }
+      this.maxTeamSize = maxTeamSize;
+    }
+
+    /**
+     * Builds the TeamConstraints.
+     * @return newly created TeamConstraints
+     */
+    public TeamConstraints build() {
+      if (mustInclude.length > maxTeamSize) {
+        throw new IllegalArgumentException("More Pokemon must be included than fit in a team");
+      }
+      return new TeamConstraints(this);
+    }
+
+    /**
+     * Returns the TeamConstraintsBuilder instance after requiring a Pokemon to be on every team.
+     * @param id the id of the Pokemon
+     * @return the TeamConstraintsBuilder instance to be used to build TeamConstraints
+     */
+    public TeamConstraintsBuilder mustInclude(int id) {
+      mustInclude = append(mustInclude, id);
+      return this;
+    }
+
+    /**
+     * Returns the TeamConstraintsBuilder instance after keeping a Pokemon off every team.
+     * @param id the id of the Pokemon
+     * @return the TeamConstraintsBuilder instance to be used to build TeamConstraints
+     */
+    public TeamConstraintsBuilder exclude(int id) {
+      excluded = append(excluded, id);
+      return this;
+    }
+
+    /**
+     * Returns the TeamConstraintsBuilder instance after setting how many Pokemon on a team may
+     * have the same type.
+     * @param maxPerType the most Pokemon on a team with any one type
+     * @return the TeamConstraintsBuilder instance to be used to build TeamConstraints
+     */
+    public TeamConstraintsBuilder setMaxPerType(int maxPerType) {
+      if (maxPerType < 1) {
+        throw new IllegalArgumentException("Max per type must be positive: " + maxPerType);
+      }
+      this.maxPerType = maxPerType;
+      return this;
+    }
+
+    /**
+     * Returns the TeamConstraintsBuilder instance after setting how long the search may run. A
+     * search that runs out of time returns the best teams it found so far.
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @return the TeamConstraintsBuilder instance to be used to build TeamConstraints
+     */
+    public TeamConstraintsBuilder setTimeBudgetMillis(long timeBudgetMillis) {
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("Time budget can't be negative: " + timeBudgetMillis);
+      }
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Returns the TeamConstraintsBuilder instance after setting the most teams to return.
+     * @param limit the most teams to return
+     * @return the TeamConstraintsBuilder instance to be used to build TeamConstraints
+     */
+    public TeamConstraintsBuilder setLimit(int limit) {
+      if (limit < 1) {
+        throw new IllegalArgumentException("Limit must be positive: " + limit);
+      }
+      this.limit = limit;
+      return this;
+    }
+
+    private static int[] append(int[] ids, int id) {
+      int[] appended = Arrays.copyOf(ids, ids.length + 1);
+      appended[ids.length] = id;
+      return appended;
+    }
+  }
+
+  private TeamConstraints(TeamConstraintsBuilder builder) {
+    maxTeamSize = builder.maxTeamSize;
+    mustInclude = builder.mustInclude.clone();
+    excluded = builder.excluded.clone();
+    maxPerType = builder.maxPerType;
+    timeBudgetMillis = builder.timeBudgetMillis;
+    limit = builder.limit;
+  }
+
+  /**
+   * Returns the largest team that will be searched for.
+   * @return the largest team size
+   */
+  public int getMaxTeamSize() {
+    return maxTeamSize;
+  }
+
+  /**
+   * Returns the ids of the Pokemon that must be on every team.
+   * @return the ids of the Pokemon that must be on every team
+   */
+  public int[] getMustInclude() {
+    return mustInclude.clone();
+  }
+
+  /**
+   * Returns the ids of the Pokemon that can't be on any team.
+   * @return the ids of the excluded Pokemon
+   */
+  public int[] getExcluded() {
+    return excluded.clone();
+  }
+
+  /**
+   * Returns the most Pokemon on a team with any one type (NO_LIMIT if unlimited).
+   * @return the most Pokemon on a team with any one type
+   */
+  public int getMaxPerType() {
+    return maxPerType;
+  }
+
+  /**
+   * Returns how long the search may run in milliseconds.
+   * @return the time budget in milliseconds
+   */
+  public long getTimeBudgetMillis() {
+    return timeBudgetMillis;
+  }
+
+  /**
+   * Returns the most teams to return.
+   * @return the most teams to return
+   */
+  public int getLimit() {
+    return limit;
+  }
+}
@@ -0,0 +1,469 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package team;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import pokedex.IntIntMap;
+import pokedex.Pokedex;
+import pokedex.Pokemon;
+import pokedex.TypeChart;
+
+/**
+ * Finds the smallest teams of Pokemon that cover every attacking type, where a Pokemon covers an
+ * attacking type if it resists it or one of its own types hits that type super effectively.
+ *
+ * <p>The coverage of each Pokemon is a bitmask with one bit per attacking type. Pokemon with the
+ * same types have the same coverage, so the search runs over the distinct type combinations
+ * (a few hundred at most) rather than over every Pokemon, and each combination stands for its
+ * Pokemon with the highest base stat total. Team sizes are tried from smallest to largest, and
+ * each size is a branch-and-bound search that drops a partial team once the types it is missing
+ * can't be covered by the combinations left to choose from, split into one fork/join task per
+ * first team member.
+ */
+public class TeamOptimizer {
+  public static final int MAX_COVERED_TYPES = Long.SIZE;
+  // How many partial teams a task looks at between checks of the deadline
+  private static final int DEADLINE_CHECK_INTERVAL = 1024;
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+  private static final int NO_CLASS = -1;
+  private final Pokedex pokedex;
+  // The attacking type of each bit of a coverage mask
+  private final int[] typeIds;
+  // The coverage mask of each Pokemon, by ordinal
+  private final long[] coverage;
+
+  /**
+   * Creates a TeamOptimizer for the Pokemon of the given Pokedex, covering every type in the
+   * chart.
+   * @param chart the damage multipliers between types
+   * @param pokedex the Pokedex to pick teams from
+   */
+  public TeamOptimizer(TypeChart chart, Pokedex pokedex) {
+    typeIds = chart.getTypeIds();
+    if (typeIds.length > MAX_COVERED_TYPES) {
+      throw new IllegalArgumentException("Too many types to cover: " + typeIds.length);
+    }
+    this.pokedex = pokedex;
+    coverage = new long[pokedex.size()];
+    for (int ordinal = 0; ordinal < coverage.length; ordinal++) {
+      Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+      int first = pokemon.getType(0);
+      int second = pokemon.getType(1);
+      for (int bit = 0; bit < typeIds.length; bit++) {
+        int attacking = typeIds[bit];
+        // Types that aren't in the chart (including Pokemon.NO_TYPE) are neutral
+        if (chart.factor(attacking, first, second) < TypeChart.ONE
+            || chart.factor(first, attacking) > TypeChart.ONE
+            || chart.factor(second, attacking) > TypeChart.ONE) {
+          coverage[ordinal] |= 1L << bit;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the ids of the attacking types, in the order of the bits of a coverage mask.
+   * @return the ids of the attacking types
+   */
+  public int[] getTypeIds() {
+    return typeIds.clone();
+  }
+
+  /**
+   * Returns the coverage mask of the Pokemon with the given id: bit i is set if it covers the
+   * attacking type getTypeIds()[i].
+   * @param id the id of the Pokemon
+   * @return the coverage mask of the Pokemon
+   */
+  public long getCoverage(int id) {
+    return coverage[checkedOrdinal(id)];
+  }
+
+  /**
+   * Returns the best teams of the smallest size, up to the constraint's maximum, that cover every
+   * attacking type some allowed Pokemon covers. Teams of the same size are ranked by the sum of
+   * their base stat totals.
+   * @param constraints the constraints the teams have to meet
+   * @return the best teams found
+   */
+  public TeamSearchResult optimize(TeamConstraints constraints) {
+    long deadline = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(constraints.getTimeBudgetMillis());
+    int maxPerType = constraints.getMaxPerType();
+    int[] typeCounts = new int[Pokemon.MAX_TYPE_ID + 1];
+    BitSet unavailable = new BitSet(coverage.length);
+    List<Pokemon> included = new ArrayList<>();
+    long covered = 0;
+    for (int id : constraints.getMustInclude()) {
+      int ordinal = checkedOrdinal(id);
+      if (unavailable.get(ordinal)) {
+        throw new IllegalArgumentException("Pokemon included twice: " + id);
+      }
+      unavailable.set(ordinal);
+      Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+      if (!addTypes(typeCounts, pokemon.getType(0), pokemon.getType(1), maxPerType)) {
+        throw new IllegalArgumentException("Included Pokemon have too many of one type");
+      }
+      included.add(pokemon);
+      covered |= coverage[ordinal];
+    }
+    BitSet includedOrdinals = (BitSet) unavailable.clone();
+    for (int id : constraints.getExcluded()) {
+      int ordinal = pokedex.ordinalOf(id);
+      if (ordinal != Pokedex.NOT_FOUND) {
+        if (includedOrdinals.get(ordinal)) {
+          throw new IllegalArgumentException("Pokemon both included and excluded: " + id);
+        }
+        unavailable.set(ordinal);
+      }
+    }
+
+    Search search = new Search(unavailable, covered, typeCounts, maxPerType, deadline,
+        constraints.getLimit());
+    List<ScoredTeam> best = Collections.emptyList();
+    if (covered == search.target) {
+      // The included Pokemon already cover everything
+      best = Collections.singletonList(new ScoredTeam(0, new int[0]));
+    } else {
+      for (int slots = 1; slots <= constraints.getMaxTeamSize() - included.size(); slots++) {
+        best = POOL.invoke(new SizeTask(search, slots));
+        if (!best.isEmpty() || search.stopped.get()) {
+          break;
+        }
+      }
+    }
+
+    List<List<Pokemon>> teams = new ArrayList<>(best.size());
+    for (ScoredTeam scored : best) {
+      List<Pokemon> team = new ArrayList<>(included);
+      for (int ordinal : scored.ordinals) {
+        team.add(pokedex.getByOrdinal(ordinal));
+      }
+      teams.add(Collections.unmodifiableList(team));
+    }
+    int[] uncovered = new int[typeIds.length - Long.bitCount(search.target)];
+    int next = 0;
+    for (int bit = 0; bit < typeIds.length; bit++) {
+      if ((search.target & (1L << bit)) == 0) {
+        uncovered[next++] = typeIds[bit];
+      }
+    }
+    return new TeamSearchResult(teams, uncovered, !search.stopped.get(), search.nodes.get());
+  }
+
+  private int checkedOrdinal(int id) {
+    int ordinal = pokedex.ordinalOf(id);
+    if (ordinal == Pokedex.NOT_FOUND) {
+      throw new IllegalArgumentException("No Pokemon with id " + id);
+    }
+    return ordinal;
+  }
+
+  private static boolean addTypes(int[] typeCounts, int first, int second, int maxPerType) {
+    typeCounts[first]++;
+    typeCounts[second]++;
+    if ((first != Pokemon.NO_TYPE && typeCounts[first] > maxPerType)
+        || (second != Pokemon.NO_TYPE && typeCounts[second] > maxPerType)) {
+      removeTypes(typeCounts, first, second);
+      return false;
+    }
+    return true;
+  }
+
+  private static void removeTypes(int[] typeCounts, int first, int second) {
+    typeCounts[first]--;
+    typeCounts[second]--;
+  }
+
+  /**
+   * The candidates of one search (one per distinct type combination) and the state shared by its
+   * tasks.
+   */
+  private class Search {
+    private final long included;
+    private final long target;
+    private final int[] includedTypeCounts;
+    private final int maxPerType;
+    private final long deadline;
+    private final int limit;
+    // The candidates, ordered from most to fewest types covered
+    private final long[] masks;
+    private final int[] firstTypes;
+    private final int[] secondTypes;
+    private final int[] ordinals;
+    private final int[] scores;
+    // The types covered by the candidates from index i on, and the most any one of them covers
+    private final long[] suffixCoverage;
+    private final int[] suffixMaxGain;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicLong nodes = new AtomicLong();
+
+    Search(BitSet unavailable, long included, int[] includedTypeCounts, int maxPerType,
+        long deadline, int limit) {
+      this.included = included;
+      this.includedTypeCounts = includedTypeCounts;
+      this.maxPerType = maxPerType;
+      this.deadline = deadline;
+      this.limit = limit;
+      // Keeps the Pokemon with the highest base stat total of each type combination
+      IntIntMap classes = new IntIntMap(64);
+      final int[] best = new int[coverage.length];
+      int count = 0;
+      for (int ordinal = unavailable.nextClearBit(0); ordinal < coverage.length;
+          ordinal = unavailable.nextClearBit(ordinal + 1)) {
+        if ((coverage[ordinal] & ~included) == 0) {
+          continue;
+        }
+        Pokemon pokemon = pokedex.getByOrdinal(ordinal);
+        int key = pokemon.getType(0) | pokemon.getType(1) << Byte.SIZE;
+        int index = classes.get(key, NO_CLASS);
+        if (index == NO_CLASS) {
+          classes.put(key, count);
+          best[count++] = ordinal;
+        } else if (pokemon.getBaseStatTotal()
+            > pokedex.getByOrdinal(best[index]).getBaseStatTotal()) {
+          best[index] = ordinal;
+        }
+      }
+      Integer[] order = new Integer[count];
+      for (int index = 0; index < count; index++) {
+        order[index] = best[index];
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer left, Integer right) {
+          int byCoverage = Long.bitCount(coverage[right]) - Long.bitCount(coverage[left]);
+          return byCoverage != 0 ? byCoverage : left - right;
+        }
+      });
+
+      masks = new long[count];
+      firstTypes = new int[count];
+      secondTypes = new int[count];
+      ordinals = new int[count];
+      scores = new int[count];
+      long reachable = included;
+      for (int index = 0; index < count; index++) {
+        Pokemon pokemon = pokedex.getByOrdinal(order[index]);
+        ordinals[index] = order[index];
+        masks[index] = coverage[order[index]];
+        firstTypes[index] = pokemon.getType(0);
+        secondTypes[index] = pokemon.getType(1);
+        scores[index] = pokemon.getBaseStatTotal();
+        reachable |= masks[index];
+      }
+      target = reachable;
+      suffixCoverage = new long[count + 1];
+      suffixMaxGain = new int[count + 1];
+      for (int index = count - 1; index >= 0; index--) {
+        suffixCoverage[index] = suffixCoverage[index + 1] | masks[index];
+        suffixMaxGain[index] = Math.max(suffixMaxGain[index + 1], Long.bitCount(masks[index]));
+      }
+    }
+  }
+
+  /**
+   * Searches for every team with the given number of Pokemon besides the included ones, with one
+   * subtask per first candidate.
+   */
+  private static class SizeTask extends RecursiveTask<List<ScoredTeam>> {
+    private static final long serialVersionUID = 1L;
+    private final Search search;
+    private final int slots;
+
+    SizeTask(Search search, int slots) {
+      this.search = search;
+      this.slots = slots;
+    }
+
+    @Override
+    protected List<ScoredTeam> compute() {
+      List<SubtreeTask> subtasks = new ArrayList<>(search.masks.length);
+      for (int first = 0; first < search.masks.length; first++) {
+        subtasks.add(new SubtreeTask(search, slots, first));
+      }
+      invokeAll(subtasks);
+      TopTeams top = new TopTeams(search.limit);
+      for (SubtreeTask subtask : subtasks) {
+        top.addAll(subtask.join());
+      }
+      return top.sorted();
+    }
+  }
+
+  /**
+   * Searches sequentially for every team whose first candidate is the given one.
+   */
+  private static class SubtreeTask extends RecursiveTask<TopTeams> {
+    private static final long serialVersionUID = 1L;
+    private final Search search;
+    private final int slots;
+    private final int first;
+    private final int[] typeCounts;
+    private final int[] chosen;
+    private final TopTeams top;
+    private long nodes;
+    private boolean stopped;
+
+    SubtreeTask(Search search, int slots, int first) {
+      this.search = search;
+      this.slots = slots;
+      this.first = first;
+      typeCounts = search.includedTypeCounts.clone();
+      chosen = new int[slots];
+      top = new TopTeams(search.limit);
+    }
+
+    @Override
+    protected TopTeams compute() {
+      if (addTypes(typeCounts, search.firstTypes[first], search.secondTypes[first],
+          search.maxPerType)) {
+        chosen[0] = first;
+        search(first + 1, 1, search.included | search.masks[first], search.scores[first]);
+      }
+      search.nodes.addAndGet(nodes);
+      return top;
+    }
+
+    private void search(int start, int depth, long covered, int score) {
+      if (stopped || (++nodes % DEADLINE_CHECK_INTERVAL == 0 && isPastDeadline())) {
+        return;
+      }
+      long missing = search.target & ~covered;
+      if (missing == 0) {
+        top.offer(score, chosen, depth, search.ordinals);
+        return;
+      }
+      int left = slots - depth;
+      // Stops once the missing types can't all be covered by the candidates that are left
+      if (left == 0 || (search.suffixCoverage[start] & missing) != missing
+          || Long.bitCount(missing) > left * search.suffixMaxGain[start]) {
+        return;
+      }
+      for (int next = start; next < search.masks.length; next++) {
+        // A candidate that covers nothing new can't be on a smallest team
+        if ((search.masks[next] & missing) == 0 || !addTypes(typeCounts,
+            search.firstTypes[next], search.secondTypes[next], search.maxPerType)) {
+          continue;
+        }
+        chosen[depth] = next;
+        search(next + 1, depth + 1, covered | search.masks[next], score + search.scores[next]);
+        removeTypes(typeCounts, search.firstTypes[next], search.secondTypes[next]);
+      }
+    }
+
+    private boolean isPastDeadline() {
+      if (search.stopped.get() || System.nanoTime() - search.deadline > 0) {
+        search.stopped.set(true);
+        stopped = true;
+      }
+      return stopped;
+    }
+  }
+
+  /**
+   * A team (without its included Pokemon) and the sum of its base stat totals.
+   */
+  private static class ScoredTeam {
+    private final int score;
+    // The ordinals of the Pokemon on the team, from lowest to highest
+    private final int[] ordinals;
+
+    ScoredTeam(int score, int[] ordinals) {
+      this.score = score;
+      this.ordinals = ordinals;
+    }
+  }
+
+  /**
+   * Keeps the best teams offered to it, up to a limit.
+   */
+  private static class TopTeams {
+    // Orders teams from worst to best: lower score first, then larger ordinals first
+    private static final Comparator<ScoredTeam> WORST_FIRST = new Comparator<ScoredTeam>() {
+      @Override
+      public int compare(ScoredTeam left, ScoredTeam right) {
+        if (left.score != right.score) {
+          return left.score < right.score ? -1 : 1;
+        }
+        for (int index = 0; index < left.ordinals.length; index++) {
+          if (left.ordinals[index] != right.ordinals[index]) {
+            return left.ordinals[index] > right.ordinals[index] ? -1 : 1;
+          }
+        }
+        return 0;
+      }
+    };
+    private final int limit;
+    private final PriorityQueue<ScoredTeam> worstFirst;
+
+    TopTeams(int limit) {
+      this.limit = limit;
+      worstFirst = new PriorityQueue<>(Math.min(limit, 64), WORST_FIRST);
+    }
+
+    void offer(int score, int[] chosen, int size, int[] ordinals) {
+      // Skips copying the team unless it would be kept
+      if (worstFirst.size() == limit && score < worstFirst.peek().score) {
+        return;
+      }
+      int[] team = new int[size];
+      for (int index = 0; index < size; index++) {
+        team[index] = ordinals[chosen[index]];
+      }
+      Arrays.sort(team);
+      add(new ScoredTeam(score, team));
+    }
+
+    void addAll(TopTeams other) {
+      for (ScoredTeam team : other.worstFirst) {
+        add(team);
+      }
+    }
+
+    List<ScoredTeam> sorted() {
+      List<ScoredTeam> sorted = new ArrayList<>(worstFirst);
+      Collections.sort(sorted, Collections.reverseOrder(WORST_FIRST));
+      return sorted;
+    }
+
+    private void add(ScoredTeam team) {
+      if (worstFirst.size() < limit) {
+        worstFirst.add(team);
+      } else if (WORST_FIRST.compare(team, worstFirst.peek()) > 0) {
+        worstFirst.poll();
+        worstFirst.add(team);
+      }
+    }
+  }
+}
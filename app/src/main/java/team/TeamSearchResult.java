@@ -0,0 +1,88 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package team;
+
+import java.util.Collections;
+import java.util.List;
+import pokedex.Pokemon;
+
+/**
+ * The result of a team coverage search: the best teams of the smallest size found, best first.
+ */
+public class TeamSearchResult {
+  private final List<List<Pokemon>> teams;
+  private final int[] uncoveredTypeIds;
+  private final boolean complete;
+  private final long nodesVisited;
+
+  TeamSearchResult(List<List<Pokemon>> teams, int[] uncoveredTypeIds, boolean complete,
+      long nodesVisited) {
+    this.teams = Collections.unmodifiableList(teams);
+    this.uncoveredTypeIds = uncoveredTypeIds;
+    this.complete = complete;
+    this.nodesVisited = nodesVisited;
+  }
+
+  /**
+   * Returns the best teams found, ordered by base stat total from highest to lowest. Every team
+   * has the same (smallest found) size, and is empty if no team within the constraints covers
+   * every coverable type.
+   * @return the best teams found
+   */
+  public List<List<Pokemon>> getTeams() {
+    return teams;
+  }
+
+  /**
+   * Returns the size of the teams found, or -1 if no team was found.
+   * @return the size of the teams found, or -1
+   */
+  public int getTeamSize() {
+    return teams.isEmpty() ? -1 : teams.get(0).size();
+  }
+
+  /**
+   * Returns the ids of the attacking types that no allowed Pokemon resists or hits super
+   * effectively, and so are left out of the coverage every team is searched for.
+   * @return the ids of the types no team can cover
+   */
+  public int[] getUncoveredTypeIds() {
+    return uncoveredTypeIds.clone();
+  }
+
+  /**
+   * Returns whether the search finished within its time budget. If it didn't, the teams are the
+   * best found before time ran out, and smaller or better teams may exist.
+   * @return whether the search finished within its time budget
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Returns the number of partial teams the search looked at.
+   * @return the number of partial teams looked at
+   */
+  public long getNodesVisited() {
+    return nodesVisited;
+  }
+}
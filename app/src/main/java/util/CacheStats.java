@@ -0,0 +1,121 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package util;
+
+/**
+ * A snapshot of the counters of a cache: hits and misses, loads and how long they took, and
+ * evictions.
+ */
+public class CacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadNanos;
+  private final long evictionCount;
+  private final long evictionWeight;
+
+  CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+      long totalLoadNanos, long evictionCount, long evictionWeight) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadNanos = totalLoadNanos;
+    this.evictionCount = evictionCount;
+    this.evictionWeight = evictionWeight;
+  }
+
+  /**
+   * Returns the number of lookups that found their value in the cache.
+   * @return the number of hits
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of lookups that didn't find their value in the cache.
+   * @return the number of misses
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the share of lookups that were hits, or 1 if there were no lookups.
+   * @return the hit rate, from 0 to 1
+   */
+  public double getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  /**
+   * Returns the number of values loaded after a miss.
+   * @return the number of successful loads
+   */
+  public long getLoadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  /**
+   * Returns the number of loads that failed or found no value.
+   * @return the number of failed loads
+   */
+  public long getLoadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * Returns the average time a load took in nanoseconds, or 0 if there were no loads.
+   * @return the average load time in nanoseconds
+   */
+  public double getAverageLoadNanos() {
+    long loads = loadSuccessCount + loadFailureCount;
+    return loads == 0 ? 0.0 : (double) totalLoadNanos / loads;
+  }
+
+  /**
+   * Returns the number of entries evicted to keep the cache within its maximum weight.
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the total weight of the entries evicted.
+   * @return the total weight of the evicted entries
+   */
+  public long getEvictionWeight() {
+    return evictionWeight;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CacheStats[hitRate=%.3f, hits=%d, misses=%d, loads=%d, "
+        + "loadFailures=%d, averageLoadMicros=%.1f, evictions=%d]", getHitRate(), hitCount,
+        missCount, loadSuccessCount, loadFailureCount, getAverageLoadNanos() / 1000,
+        evictionCount);
+  }
+}
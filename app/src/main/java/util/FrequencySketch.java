@@ -0,0 +1,111 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package util;
+
+/**
+ * A count-min sketch of how often keys have been seen, with 4-bit counters packed sixteen to a
+ * long. Each key has one counter in each of four rows and its frequency is the smallest of them,
+ * so collisions can only over-count. Once the number of increments reaches the sample size every
+ * counter is halved, so that keys popular long ago fade and newly popular keys can take over.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+      0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+  private static final int MIN_TABLE_SIZE = 16;
+  private static final int SAMPLE_SIZE_FACTOR = 10;
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Creates a FrequencySketch sized for the given number of keys.
+   * @param expectedKeys the number of keys expected to be held at once
+   */
+  FrequencySketch(int expectedKeys) {
+    int size = Integer.highestOneBit(Math.max(expectedKeys, MIN_TABLE_SIZE) - 1) << 1;
+    table = new long[size];
+    tableMask = size - 1;
+    sampleSize = SAMPLE_SIZE_FACTOR * Math.max(expectedKeys, 1);
+  }
+
+  /**
+   * Returns the estimated number of times the key was seen (at most 15).
+   * @param key the key
+   * @return the estimated frequency of the key
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < SEEDS.length; row++) {
+      int shift = counterShift(hash, row);
+      frequency = Math.min(frequency, (int) ((table[indexOf(hash, row)] >>> shift) & MAX_COUNT));
+    }
+    return frequency;
+  }
+
+  /**
+   * Records that the key was seen once more.
+   * @param key the key
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int row = 0; row < SEEDS.length; row++) {
+      int index = indexOf(hash, row);
+      int shift = counterShift(hash, row);
+      if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+        table[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int index = 0; index < table.length; index++) {
+      table[index] = (table[index] >>> 1) & RESET_MASK;
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int row) {
+    long mixed = (hash + SEEDS[row]) * SEEDS[row];
+    mixed += mixed >>> 32;
+    return (int) mixed & tableMask;
+  }
+
+  private static int counterShift(int hash, int row) {
+    // Picks one of the sixteen counters in the long, using different bits of the hash per row
+    return ((hash >>> (row << 3)) & 0xF) << 2;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
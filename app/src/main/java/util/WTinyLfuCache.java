@@ -0,0 +1,308 @@
+/**
+ *      This file is part of QuickPokedex.
+ * 
+ *      @author Brian Lam
+ *         
+ *      This program is free software: you can redistribute it and/or modify 
+ *      it under the terms of the GNU Affero General Public License as
+ *      published by the Free Software Foundation version 3 as published by
+ *      the Free Software Foundation. You may not use, modify or distribute 
+ *      this program under any other version of the GNU Affero General Public
+ *      License.
+ *      
+ *      This program is distributed in the hope that it will be useful, but
+ *      WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *      Affero General Public License for more details. You should have
+ *      received a copy of the GNU Affero General Public License along with
+ *      this program. If not, see http://www.gnu.org/licenses.
+ */
+
+
+package util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache that evicts by weight using W-TinyLFU. New entries go into a small LRU window
+ * (1% of the weight). Entries pushed out of the window are candidates for the main space, a
+ * segmented LRU split into probation (20%) and protected (80%) queues. A candidate is only
+ * admitted over the probation queue's least recently used entry if a frequency sketch says the
+ * candidate has been asked for more often, so a burst of one-off lookups can't flush the popular
+ * entries out of the cache.
+ *
+ * <p>The cache doesn't load values itself: a read-through caller calls getIfPresent, loads on a
+ * miss, records how the load went, and puts the value. All methods are synchronized.
+ */
+public class WTinyLfuCache<K, V> {
+  private static final double WINDOW_SHARE = 0.01;
+  private static final double PROTECTED_SHARE = 0.8;
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private final long maximumWeight;
+  private final long windowMaximum;
+  private final long mainMaximum;
+  private final long protectedMaximum;
+  private final Weigher<K, V> weigher;
+  private final Map<K, Node<K, V>> data = new HashMap<>();
+  private final FrequencySketch sketch;
+  // The sentinel and total weight of each queue (least recently used first after the sentinel)
+  private final Node<K, V>[] queues;
+  private final long[] queueWeights = new long[3];
+  private long hitCount;
+  private long missCount;
+  private long loadSuccessCount;
+  private long loadFailureCount;
+  private long totalLoadNanos;
+  private long evictionCount;
+  private long evictionWeight;
+
+  /**
+   * Returns the weight of a cache entry, such as its estimated size in bytes.
+   */
+  public interface Weigher<K, V> {
+    /**
+     * Returns the weight of the entry.
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return the weight of the entry, which can't be negative
+     */
+    int weigh(K key, V value);
+  }
+
+  /**
+   * Creates a WTinyLfuCache.
+   * @param maximumWeight the most total weight the cache holds
+   * @param expectedEntries roughly how many entries fit in the maximum weight, used to size the
+   *        frequency sketch
+   * @param weigher the weigher of the entries
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public WTinyLfuCache(long maximumWeight, int expectedEntries, Weigher<K, V> weigher) {
+    if (maximumWeight < 1) {
+      throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+    }
+    this.maximumWeight = maximumWeight;
+    this.weigher = weigher;
+    windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_SHARE));
+    mainMaximum = maximumWeight - windowMaximum;
+    protectedMaximum = (long) (mainMaximum * PROTECTED_SHARE);
+    sketch = new FrequencySketch(expectedEntries);
+    queues = new Node[3];
+    for (int queue = 0; queue < queues.length; queue++) {
+      queues[queue] = new Node<>(null, null, 0);
+      queues[queue].previous = queues[queue];
+      queues[queue].next = queues[queue];
+    }
+  }
+
+  /**
+   * Returns the value cached for the key, or null (counted as a miss) if there is none.
+   * @param key the key
+   * @return the cached value, or null
+   */
+  public synchronized V getIfPresent(K key) {
+    sketch.increment(key);
+    Node<K, V> node = data.get(key);
+    if (node == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    onHit(node);
+    return node.value;
+  }
+
+  /**
+   * Caches the value for the key, replacing any value already cached for it, and evicts entries
+   * until the cache is back within its maximum weight. A value heavier than the whole cache is
+   * not cached.
+   * @param key the key
+   * @param value the value
+   */
+  public synchronized void put(K key, V value) {
+    int weight = weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weight can't be negative: " + weight);
+    }
+    Node<K, V> node = data.get(key);
+    if (node != null) {
+      queueWeights[node.queue] += weight - node.weight;
+      node.value = value;
+      node.weight = weight;
+      onHit(node);
+    } else if (weight <= maximumWeight) {
+      node = new Node<>(key, value, weight);
+      data.put(key, node);
+      append(WINDOW, node);
+    }
+    if (node != null && weight > maximumWeight) {
+      remove(node);
+    }
+    evict();
+  }
+
+  /**
+   * Removes the value cached for the key, if any.
+   * @param key the key
+   */
+  public synchronized void invalidate(K key) {
+    Node<K, V> node = data.get(key);
+    if (node != null) {
+      remove(node);
+    }
+  }
+
+  /**
+   * Removes every cached value. The frequency sketch is kept, so that popular keys are still
+   * admitted ahead of unpopular ones once they are cached again.
+   */
+  public synchronized void invalidateAll() {
+    data.clear();
+    for (int queue = 0; queue < queues.length; queue++) {
+      queues[queue].previous = queues[queue];
+      queues[queue].next = queues[queue];
+      queueWeights[queue] = 0;
+    }
+  }
+
+  /**
+   * Records that a value was loaded after a miss.
+   * @param loadNanos how long the load took in nanoseconds
+   */
+  public synchronized void recordLoadSuccess(long loadNanos) {
+    loadSuccessCount++;
+    totalLoadNanos += loadNanos;
+  }
+
+  /**
+   * Records that a load after a miss failed or found no value.
+   * @param loadNanos how long the load took in nanoseconds
+   */
+  public synchronized void recordLoadFailure(long loadNanos) {
+    loadFailureCount++;
+    totalLoadNanos += loadNanos;
+  }
+
+  /**
+   * Returns a snapshot of the cache's counters.
+   * @return a snapshot of the cache's counters
+   */
+  public synchronized CacheStats stats() {
+    return new CacheStats(hitCount, missCount, loadSuccessCount, loadFailureCount,
+        totalLoadNanos, evictionCount, evictionWeight);
+  }
+
+  /**
+   * Returns the number of cached entries.
+   * @return the number of cached entries
+   */
+  public synchronized int size() {
+    return data.size();
+  }
+
+  /**
+   * Returns the total weight of the cached entries.
+   * @return the total weight of the cached entries
+   */
+  public synchronized long weightedSize() {
+    return queueWeights[WINDOW] + queueWeights[PROBATION] + queueWeights[PROTECTED];
+  }
+
+  private void onHit(Node<K, V> node) {
+    unlink(node);
+    if (node.queue == PROBATION) {
+      // A second hit promotes an entry to protected, demoting protected's oldest if it is full
+      append(PROTECTED, node);
+      while (queueWeights[PROTECTED] > protectedMaximum) {
+        Node<K, V> demoted = queues[PROTECTED].next;
+        unlink(demoted);
+        append(PROBATION, demoted);
+      }
+    } else {
+      append(node.queue, node);
+    }
+  }
+
+  private void evict() {
+    while (queueWeights[WINDOW] > windowMaximum) {
+      Node<K, V> candidate = queues[WINDOW].next;
+      unlink(candidate);
+      admit(candidate);
+    }
+    // Replacing a value with a heavier one can also overfill the main space
+    while (queueWeights[PROBATION] + queueWeights[PROTECTED] > mainMaximum) {
+      Node<K, V> victim = queues[PROBATION].next;
+      if (victim == queues[PROBATION]) {
+        victim = queues[PROTECTED].next;
+      }
+      remove(victim);
+      recordEviction(victim);
+    }
+  }
+
+  private void admit(Node<K, V> candidate) {
+    int candidateFrequency = sketch.frequency(candidate.key);
+    while (queueWeights[PROBATION] + queueWeights[PROTECTED] + candidate.weight > mainMaximum) {
+      Node<K, V> victim = queues[PROBATION].next;
+      if (victim == queues[PROBATION]) {
+        victim = queues[PROTECTED].next;
+      }
+      if (victim == queues[PROTECTED] || candidateFrequency <= sketch.frequency(victim.key)) {
+        // The candidate loses to the main space's oldest entry (or can't fit at all)
+        data.remove(candidate.key);
+        recordEviction(candidate);
+        return;
+      }
+      remove(victim);
+      recordEviction(victim);
+    }
+    append(PROBATION, candidate);
+  }
+
+  private void recordEviction(Node<K, V> node) {
+    evictionCount++;
+    evictionWeight += node.weight;
+  }
+
+  private void append(int queue, Node<K, V> node) {
+    Node<K, V> sentinel = queues[queue];
+    node.queue = queue;
+    node.previous = sentinel.previous;
+    node.next = sentinel;
+    sentinel.previous.next = node;
+    sentinel.previous = node;
+    queueWeights[queue] += node.weight;
+  }
+
+  private void unlink(Node<K, V> node) {
+    node.previous.next = node.next;
+    node.next.previous = node.previous;
+    queueWeights[node.queue] -= node.weight;
+  }
+
+  private void remove(Node<K, V> node) {
+    unlink(node);
+    data.remove(node.key);
+  }
+
+  /**
+   * A cache entry, linked into one of the queues.
+   */
+  private static class Node<K, V> {
+    private final K key;
+    private V value;
+    private int weight;
+    private int queue;
+    private Node<K, V> previous;
+    private Node<K, V> next;
+
+    Node(K key, V value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+}